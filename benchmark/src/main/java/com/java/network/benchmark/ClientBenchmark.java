@@ -0,0 +1,87 @@
+package com.java.network.benchmark;
+
+import com.java.network.netty.NettyClient;
+import com.java.network.nio.NonBlockingClient;
+import com.java.network.server.Server;
+import com.java.network.socket.SocketClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     用同一个Netty服务端压测三种客户端，并发度由{@code -t}控制。
+ *     SocketClient每次请求都新建连接，另外两种客户端通过连接池复用连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+
+    /**
+     * 被测的客户端。
+     */
+    @Param({ "SOCKET", "NIO", "NETTY" })
+    public String client;
+
+    private int port;
+
+    private Server server;
+
+    private SocketClient socketClient;
+
+    private NonBlockingClient nonBlockingClient;
+
+    private NettyClient nettyClient;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        Transport.silenceStandardOutput();
+        port = Transport.freePort();
+        server = Transport.NETTY.start(port);
+        switch (client) {
+            case "SOCKET":
+                socketClient = new SocketClient();
+                break;
+            case "NIO":
+                nonBlockingClient = new NonBlockingClient();
+                break;
+            case "NETTY":
+                nettyClient = new NettyClient();
+                break;
+            default:
+                throw new IllegalArgumentException(client);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (null != nonBlockingClient) {
+            nonBlockingClient.close();
+        }
+        if (null != nettyClient) {
+            nettyClient.close();
+        }
+        server.stop(5, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public String request() throws IOException {
+        if (null != socketClient) {
+            return socketClient.request(HOST, port);
+        }
+        if (null != nonBlockingClient) {
+            return nonBlockingClient.request(HOST, port).join();
+        }
+        return nettyClient.request(HOST, port).join();
+    }
+}
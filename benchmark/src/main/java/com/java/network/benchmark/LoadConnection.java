@@ -0,0 +1,85 @@
+package com.java.network.benchmark;
+
+import com.java.network.http.HttpParseException;
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpStreams;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * <p>
+ *     压测服务端用的统一负载连接：一个阻塞的长连接，每次发送固定大小的POST请求并读完响应。
+ *     对三种服务端使用同一个客户端，测出来的差异只来自服务端。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class LoadConnection implements Closeable {
+
+    private static final int READ_TIMEOUT_MILLIS = 10000;
+
+    private final Socket socket;
+
+    private final InputStream inputStream;
+
+    private final OutputStream outputStream;
+
+    private final byte[] request;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(65536);
+
+    private final HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+
+    public LoadConnection(int port, int payloadSize) throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        // 服务端卡住时让这次测量失败，而不是一直挂起。
+        socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+        socket.connect(new InetSocketAddress("127.0.0.1", port));
+        inputStream = socket.getInputStream();
+        outputStream = socket.getOutputStream();
+        request = getRequest(payloadSize);
+        buffer.flip();
+    }
+
+    /**
+     * 完成一次请求-响应。
+     * @return 响应的状态码
+     */
+    public int exchange() throws IOException {
+        outputStream.write(request);
+        outputStream.flush();
+        if (! HttpStreams.read(inputStream, buffer, parser)) {
+            throw new EOFException("Connection closed by server");
+        }
+        int statusCode = parser.statusCode();
+        if (! parser.isKeepAlive()) {
+            throw new HttpParseException("Server closed the keep-alive connection");
+        }
+        buffer.position(buffer.position() + parser.messageLength());
+        parser.reset();
+        return statusCode;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    @NotNull
+    private static byte[] getRequest(int payloadSize) {
+        byte[] head = ("POST / HTTP/1.1\r\n"
+                + "Host: 127.0.0.1\r\n"
+                + "Content-Type: application/octet-stream\r\n"
+                + String.format("Content-Length: %d\r\n\r\n", payloadSize)).getBytes(StandardCharsets.US_ASCII);
+        byte[] request = Arrays.copyOf(head, head.length + payloadSize);
+        Arrays.fill(request, head.length, request.length, (byte) 'x');
+        return request;
+    }
+}
@@ -0,0 +1,74 @@
+package com.java.network.benchmark;
+
+import com.java.network.server.Server;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     在回环地址上压测三种服务端。每个JMH线程持有一个长连接，并发度由{@code -t}控制，
+ *     例如{@code java -jar target/benchmarks.jar ServerBenchmark -t 16 -prof gc}。
+ *     SampleTime模式给出p50/p99/p999延迟，{@code -prof gc}给出每次请求的分配量。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ServerBenchmark {
+
+    @Param({ "SOCKET", "NIO", "NETTY" })
+    public Transport transport;
+
+    /**
+     * 请求体大小，单位字节。
+     */
+    @Param({ "0", "1024", "8192" })
+    public int payloadSize;
+
+    private int port;
+
+    private Server server;
+
+    @Setup(Level.Trial)
+    public void startServer() throws Exception {
+        Transport.silenceStandardOutput();
+        port = Transport.freePort();
+        server = transport.start(port);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws InterruptedException {
+        server.stop(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 每个JMH线程一个连接。
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private LoadConnection connection;
+
+        @Setup(Level.Trial)
+        public void connect(ServerBenchmark benchmark) throws IOException {
+            connection = new LoadConnection(benchmark.port, benchmark.payloadSize);
+        }
+
+        @TearDown(Level.Trial)
+        public void close() throws IOException {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public int request(Client client) throws IOException {
+        return client.connection.exchange();
+    }
+}
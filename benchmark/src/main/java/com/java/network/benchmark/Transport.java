@@ -0,0 +1,93 @@
+package com.java.network.benchmark;
+
+import com.java.network.netty.NettyServer;
+import com.java.network.nio.NonBlockingServer;
+import com.java.network.server.Server;
+import com.java.network.socket.SocketServer;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+
+/**
+ * <p>
+ *     被测的三种服务端实现，以及在回环地址上启动它们的辅助方法。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public enum Transport {
+
+    /**
+     * 阻塞Socket + 线程池。
+     */
+    SOCKET {
+        @NotNull
+        @Override
+        Server create() throws Exception {
+            return new SocketServer();
+        }
+    },
+
+    /**
+     * 手写的NIO多Reactor。
+     */
+    NIO {
+        @NotNull
+        @Override
+        Server create() throws Exception {
+            return new NonBlockingServer();
+        }
+    },
+
+    /**
+     * Netty。
+     */
+    NETTY {
+        @NotNull
+        @Override
+        Server create() throws Exception {
+            return new NettyServer();
+        }
+    };
+
+    @NotNull
+    abstract Server create() throws Exception;
+
+    /**
+     * 启动服务端，返回时端口已经可以连接。
+     */
+    @NotNull
+    public Server start(int port) throws Exception {
+        Server server = create();
+        server.start(port);
+        return server;
+    }
+
+    /**
+     * 找一个空闲的本地端口。
+     */
+    public static int freePort() throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            return serverSocket.getLocalPort();
+        }
+    }
+
+    /**
+     * 服务端的日志经{@link com.java.network.log.AsyncLogger}写到标准输出，默认级别下只有启动和关闭各一行，
+     * 丢弃标准输出是为了不让它们混进JMH的结果；以DEBUG级别运行时逐个请求的日志也不会让压测测到控制台的速度。
+     */
+    public static void silenceStandardOutput() {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(@NotNull byte[] b, int off, int len) {
+            }
+        }));
+    }
+}
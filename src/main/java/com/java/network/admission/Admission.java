@@ -0,0 +1,68 @@
+package com.java.network.admission;
+
+import com.java.network.http.HttpResponses;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ *     {@link AdmissionControl#admit}对一个请求的决定。被拒绝的请求不进入业务处理，
+ *     HTTP直接回复预先编码好的{@link #response(boolean)}，RPC回复以{@link #message()}为内容的错误帧。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public enum Admission {
+
+    /**
+     * 放行，处理完成后必须调用{@link AdmissionControl#release}或者{@link AdmissionControl#cancel}。
+     */
+    ADMITTED(200, "OK"),
+
+    /**
+     * 这个客户端的请求速率超过了限制。
+     */
+    RATE_LIMITED(429, "Too Many Requests"),
+
+    /**
+     * 服务端的并发已满，排队延迟上升时主动拒绝。
+     */
+    OVERLOADED(503, "Service Unavailable");
+
+    private final String message;
+
+    private final byte[] keepAliveResponse;
+
+    private final byte[] closeResponse;
+
+    Admission(int statusCode, @NotNull String reasonPhrase) {
+        this.message = reasonPhrase;
+        byte[] body = reasonPhrase.getBytes(StandardCharsets.US_ASCII);
+        // 客户端按Retry-After退避，不要立即重试。
+        this.keepAliveResponse = encode(statusCode, reasonPhrase, body, true);
+        this.closeResponse = encode(statusCode, reasonPhrase, body, false);
+    }
+
+    @NotNull
+    public String message() {
+        return message;
+    }
+
+    /**
+     * 拒绝时回复的完整HTTP响应，调用方不能修改返回的数组。
+     */
+    @NotNull
+    public byte[] response(boolean keepAlive) {
+        return keepAlive ? keepAliveResponse : closeResponse;
+    }
+
+    @NotNull
+    private static byte[] encode(int statusCode, @NotNull String reasonPhrase, @NotNull byte[] body, boolean keepAlive) {
+        byte[] head = HttpResponses.encodeHead(statusCode, reasonPhrase, "text/plain", body.length, keepAlive, "Retry-After: 1");
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+}
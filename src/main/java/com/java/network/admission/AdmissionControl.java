@@ -0,0 +1,152 @@
+package com.java.network.admission;
+
+import com.java.network.metrics.AdmissionMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     服务端的准入控制，设置到{@link com.java.network.server.ServerOptions#admission}后三种服务端都按它接入连接和请求，
+ *     过载时尽早拒绝，而不是让所有请求一起变慢：
+ * </p>
+ * <ul>
+ *     <li>连接数达到{@link #maxConnections}后，新接入的连接在分配给工作线程之前直接关闭；</li>
+ *     <li>{@link #rateLimit}按客户端IP限速，超过的请求回复429；</li>
+ *     <li>{@link #concurrencyLimit}限制同时处理的请求数，上限随延迟自适应，超过的请求回复503。</li>
+ * </ul>
+ * <p>
+ *     三项都是可选的，没有设置的不检查。结果记录在{@link MetricsRegistry}默认实例中以构造时的名字命名的{@link AdmissionMetrics}下。
+ *     一个实例只用于一个服务端。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class AdmissionControl {
+
+    private final AdmissionMetrics metrics;
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private int maxConnections = Integer.MAX_VALUE;
+
+    private ClientRateLimiter rateLimiter;
+
+    private ConcurrencyLimiter concurrencyLimiter;
+
+    /**
+     * @param name 指标的名字
+     */
+    public AdmissionControl(@NotNull String name) {
+        this.metrics = MetricsRegistry.getDefault().admission(name);
+    }
+
+    /**
+     * 同时打开的连接数上限，默认不限制。
+     */
+    public AdmissionControl maxConnections(int maxConnections) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be positive: " + maxConnections);
+        }
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    /**
+     * 每个客户端IP每秒最多permitsPerSecond个请求，允许burst个的突发。
+     * @param maxClients 令牌桶表的大小，应当大于同时在限速中的客户端数
+     * @see ClientRateLimiter
+     */
+    public AdmissionControl rateLimit(double permitsPerSecond, int burst, int maxClients) {
+        this.rateLimiter = new ClientRateLimiter(permitsPerSecond, burst, maxClients, metrics::bucketEvicted);
+        return this;
+    }
+
+    /**
+     * 同时处理的请求数上限，从initialLimit开始在[minLimit, maxLimit]之间按延迟调整。
+     * @param latencyThreshold 请求延迟超过它就收缩上限
+     * @see ConcurrencyLimiter
+     */
+    public AdmissionControl concurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, @NotNull TimeUnit unit) {
+        this.concurrencyLimiter = new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyThreshold, unit, metrics::concurrencyLimit);
+        return this;
+    }
+
+    /**
+     * 接入一个连接前调用。
+     * @return false表示连接数已满，连接应当立即关闭；返回true的连接关闭时必须调用{@link #disconnected()}
+     */
+    public boolean tryConnect() {
+        while (true) {
+            int current = connections.get();
+            if (current >= maxConnections) {
+                metrics.connectionRejected();
+                return false;
+            }
+            if (connections.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void disconnected() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * 决定是否处理一个请求：先按客户端限速，再检查并发上限。
+     * 返回{@link Admission#ADMITTED}时，请求完成后必须调用{@link #release}，没有完成就放弃时调用{@link #cancel}。
+     * @param address 客户端的IP，不知道时传null，不限速
+     */
+    @NotNull
+    public Admission admit(InetAddress address) {
+        if (null != rateLimiter && null != address && ! rateLimiter.tryAcquire(address)) {
+            metrics.rateLimited();
+            return Admission.RATE_LIMITED;
+        }
+        if (null != concurrencyLimiter && ! concurrencyLimiter.tryAcquire()) {
+            metrics.shed();
+            return Admission.OVERLOADED;
+        }
+        metrics.admitted();
+        return Admission.ADMITTED;
+    }
+
+    /**
+     * 放行的请求处理完成。
+     * @param latencyNanos 从读到请求到响应完成的时间
+     */
+    public void release(long latencyNanos) {
+        if (null != concurrencyLimiter) {
+            concurrencyLimiter.release(latencyNanos);
+        }
+    }
+
+    /**
+     * 放行的请求没有完成就放弃了，比如连接已经断开。
+     */
+    public void cancel() {
+        if (null != concurrencyLimiter) {
+            concurrencyLimiter.cancel();
+        }
+    }
+
+    public int getConnections() {
+        return connections.get();
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public ClientRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+}
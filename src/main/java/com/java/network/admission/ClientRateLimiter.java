@@ -0,0 +1,137 @@
+package com.java.network.admission;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ *     按客户端IP限速的令牌桶，每个IP每秒最多permitsPerSecond个请求，允许burst个的突发。
+ * </p>
+ * <p>
+ *     每个桶只有一个long：按GCRA记录下一个请求理论上的到达时间，取令牌就是一次CAS，没有锁，也不需要定时补充令牌。
+ *     理论到达时间不晚于当前时间的桶是满的，和不存在没有区别。
+ * </p>
+ * <p>
+ *     桶放在固定大小的表中，每个IP按哈希对应两个槽位。两个都被其他IP占用时替换其中的满桶，
+ *     都不满时替换更早回满的那个，被替换的IP下次重新得到一个满桶。表的大小应当大于同时在限速中的客户端数。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class ClientRateLimiter {
+
+    private final long intervalNanos;
+
+    /**
+     * 理论到达时间最多超前当前时间这么多，即burst个请求的间隔。
+     */
+    private final long toleranceNanos;
+
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    private final int mask;
+
+    /**
+     * 替换掉一个还在限速中的桶时调用，用于统计。
+     */
+    private final Runnable onEviction;
+
+    /**
+     * @param permitsPerSecond 每个客户端每秒的请求数
+     * @param burst 允许的突发请求数，至少为1
+     * @param maxClients 表中最多容纳的客户端数，向上取整到2的幂
+     */
+    public ClientRateLimiter(double permitsPerSecond, int burst, int maxClients) {
+        this(permitsPerSecond, burst, maxClients, () -> { });
+    }
+
+    ClientRateLimiter(double permitsPerSecond, int burst, int maxClients, @NotNull Runnable onEviction) {
+        if (! (permitsPerSecond > 0) || burst < 1 || maxClients < 1) {
+            throw new IllegalArgumentException("Invalid rate limit: permitsPerSecond=" + permitsPerSecond
+                    + ", burst=" + burst + ", maxClients=" + maxClients);
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        int capacity = Integer.highestOneBit(Math.max(2, Math.min(1 << 24, maxClients)) - 1) << 1;
+        this.buckets = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.onEviction = onEviction;
+    }
+
+    /**
+     * 为这个客户端取一个令牌。
+     * @return false表示超过了速率，请求应当被拒绝
+     */
+    public boolean tryAcquire(@NotNull InetAddress address) {
+        long now = System.nanoTime();
+        return bucket(address, now).tryAcquire(now, intervalNanos, toleranceNanos);
+    }
+
+    @NotNull
+    private Bucket bucket(@NotNull InetAddress address, long now) {
+        int hash = address.hashCode() * 0x9E3779B9;
+        int first = (hash >>> 16) & mask;
+        // 低位为1的数异或后第二个槽位一定与第一个不同。
+        int second = (first ^ (hash | 1)) & mask;
+        while (true) {
+            Bucket a = buckets.get(first);
+            if (null != a && a.address.equals(address)) {
+                return a;
+            }
+            Bucket b = buckets.get(second);
+            if (null != b && b.address.equals(address)) {
+                return b;
+            }
+            int victim = isFull(a, now) ? first : isFull(b, now) ? second : a.tat - b.tat <= 0 ? first : second;
+            Bucket previous = victim == first ? a : b;
+            Bucket bucket = new Bucket(address, now);
+            if (buckets.compareAndSet(victim, previous, bucket)) {
+                if (! isFull(previous, now)) {
+                    onEviction.run();
+                }
+                return bucket;
+            }
+            // 其他线程同时修改了这个槽位，可能正是同一个IP，重新查找。
+        }
+    }
+
+    private static boolean isFull(Bucket bucket, long now) {
+        return null == bucket || bucket.tat - now <= 0;
+    }
+
+    /**
+     * 一个客户端的令牌桶。
+     */
+    private static final class Bucket {
+
+        private static final AtomicLongFieldUpdater<Bucket> TAT = AtomicLongFieldUpdater.newUpdater(Bucket.class, "tat");
+
+        private final InetAddress address;
+
+        /**
+         * 理论到达时间，{@link System#nanoTime()}的时间轴。
+         */
+        private volatile long tat;
+
+        private Bucket(@NotNull InetAddress address, long now) {
+            this.address = address;
+            this.tat = now;
+        }
+
+        private boolean tryAcquire(long now, long intervalNanos, long toleranceNanos) {
+            while (true) {
+                long tat = this.tat;
+                long next = (tat - now > 0 ? tat : now) + intervalNanos;
+                if (next - now > toleranceNanos) {
+                    return false;
+                }
+                if (TAT.compareAndSet(this, tat, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.java.network.admission;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ *     自适应的并发上限：同时处理的请求数达到上限时拒绝新的请求，上限按请求延迟以AIMD调整。
+ * </p>
+ * <p>
+ *     请求完成时延迟没有超过阈值、并且并发用到了上限的一半以上，上限加1；超过阈值时上限乘以0.9，
+ *     同一个阈值时间内只减一次，避免同一批慢请求把上限一路压到最低。
+ *     排队开始时延迟先上升，上限随之收缩，多出来的请求立即被拒绝，而不是排在队列里拖慢所有请求。
+ * </p>
+ * <p>
+ *     线程安全，没有锁。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * 当前上限的double位表示，取整后使用。
+     */
+    private final AtomicLong limit;
+
+    private final AtomicLong lastDecreaseNanos = new AtomicLong(System.nanoTime());
+
+    /**
+     * 上限的整数部分变化时调用，用于统计。
+     */
+    private final IntConsumer onLimitChange;
+
+    /**
+     * @param initialLimit 初始上限
+     * @param minLimit 上限最小值，过载时至少还能处理这么多请求
+     * @param maxLimit 上限最大值
+     * @param latencyThreshold 请求延迟超过它就认为开始排队
+     */
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, @NotNull TimeUnit unit) {
+        this(initialLimit, minLimit, maxLimit, latencyThreshold, unit, limit -> { });
+    }
+
+    ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThreshold, @NotNull TimeUnit unit,
+                       @NotNull IntConsumer onLimitChange) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit || latencyThreshold <= 0) {
+            throw new IllegalArgumentException("Invalid concurrency limit: initial=" + initialLimit + ", min=" + minLimit
+                    + ", max=" + maxLimit + ", latencyThreshold=" + latencyThreshold);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = unit.toNanos(latencyThreshold);
+        this.limit = new AtomicLong(Double.doubleToLongBits(initialLimit));
+        this.onLimitChange = onLimitChange;
+        onLimitChange.accept(initialLimit);
+    }
+
+    /**
+     * 占用一个并发名额。
+     * @return false表示并发已满，请求应当被拒绝
+     */
+    public boolean tryAcquire() {
+        int limit = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 请求处理完成，归还名额并按它的延迟调整上限。
+     */
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        if (latencyNanos > latencyThresholdNanos) {
+            long now = System.nanoTime();
+            long last = lastDecreaseNanos.get();
+            if (now - last >= latencyThresholdNanos && lastDecreaseNanos.compareAndSet(last, now)) {
+                update(false);
+            }
+        } else if (current * 2 >= getLimit()) {
+            update(true);
+        }
+    }
+
+    /**
+     * 请求没有完成就放弃了（比如连接断开），只归还名额，不调整上限。
+     */
+    public void cancel() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return (int) Double.longBitsToDouble(limit.get());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 加法增大或者乘法减小上限。
+     */
+    private void update(boolean increase) {
+        while (true) {
+            long bits = limit.get();
+            double current = Double.longBitsToDouble(bits);
+            double next = increase ? Math.min(maxLimit, current + 1) : Math.max(minLimit, current * BACKOFF_RATIO);
+            if (next == current) {
+                return;
+            }
+            if (limit.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                if ((int) next != (int) current) {
+                    onLimitChange.accept((int) next);
+                }
+                return;
+            }
+        }
+    }
+}
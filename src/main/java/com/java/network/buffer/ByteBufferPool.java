@@ -0,0 +1,169 @@
+package com.java.network.buffer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *     按容量分级的直接内存{@link ByteBuffer}池。
+ *     每个线程先从自己的缓存中取，取不到再从有界的全局空闲队列中取，都没有时才真正分配。
+ *     超过最大级别的请求不做池化，直接分配。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class ByteBufferPool {
+
+    /**
+     * 默认的容量级别：1K、4K、16K、64K。
+     */
+    private static final int[] DEFAULT_SIZE_CLASSES = { 1024, 4096, 16384, 65536 };
+
+    private static final ByteBufferPool DEFAULT = new ByteBufferPool(DEFAULT_SIZE_CLASSES, 16, 256);
+
+    private final int[] sizeClasses;
+
+    private final int threadCacheSize;
+
+    private final int globalCacheSize;
+
+    private final Queue<ByteBuffer>[] globalFreeLists;
+
+    private final AtomicInteger[] globalFreeCounts;
+
+    private final ThreadLocal<ArrayDeque<ByteBuffer>[]> threadCaches;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder outstanding = new LongAdder();
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public ByteBufferPool(@NotNull int[] sizeClasses, int threadCacheSize, int globalCacheSize) {
+        if (0 == sizeClasses.length) {
+            throw new IllegalArgumentException("sizeClasses must not be empty");
+        }
+        for (int i = 1; i < sizeClasses.length; i++) {
+            if (sizeClasses[i] <= sizeClasses[i - 1]) {
+                throw new IllegalArgumentException("sizeClasses must be strictly ascending");
+            }
+        }
+        this.sizeClasses = sizeClasses.clone();
+        this.threadCacheSize = threadCacheSize;
+        this.globalCacheSize = globalCacheSize;
+        this.globalFreeLists = new Queue[sizeClasses.length];
+        this.globalFreeCounts = new AtomicInteger[sizeClasses.length];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            globalFreeLists[i] = new ConcurrentLinkedQueue<>();
+            globalFreeCounts[i] = new AtomicInteger();
+        }
+        this.threadCaches = ThreadLocal.withInitial(() -> {
+            ArrayDeque<ByteBuffer>[] caches = new ArrayDeque[this.sizeClasses.length];
+            for (int i = 0; i < caches.length; i++) {
+                caches[i] = new ArrayDeque<>(threadCacheSize);
+            }
+            return caches;
+        });
+    }
+
+    @NotNull
+    public static ByteBufferPool getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 取出一个容量不小于{@code size}的缓冲区，返回时position为0，limit为容量。
+     */
+    @NotNull
+    public ByteBuffer acquire(int size) {
+        outstanding.increment();
+        int index = indexOf(size);
+        if (index < 0) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(size);
+        }
+
+        ByteBuffer byteBuffer = threadCaches.get()[index].pollLast();
+        if (null == byteBuffer) {
+            byteBuffer = globalFreeLists[index].poll();
+            if (null != byteBuffer) {
+                globalFreeCounts[index].decrementAndGet();
+            }
+        }
+        if (null == byteBuffer) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(sizeClasses[index]);
+        }
+        hits.increment();
+        byteBuffer.clear();
+        return byteBuffer;
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不得再使用它。
+     */
+    public void release(@NotNull ByteBuffer byteBuffer) {
+        outstanding.decrement();
+        if (! byteBuffer.isDirect() || byteBuffer.isReadOnly()) {
+            return;
+        }
+        int index = indexOf(byteBuffer.capacity());
+        if (index < 0 || sizeClasses[index] != byteBuffer.capacity()) {
+            return;
+        }
+
+        ArrayDeque<ByteBuffer> threadCache = threadCaches.get()[index];
+        if (threadCache.size() < threadCacheSize) {
+            threadCache.offerLast(byteBuffer);
+            return;
+        }
+        if (globalFreeCounts[index].incrementAndGet() <= globalCacheSize) {
+            globalFreeLists[index].offer(byteBuffer);
+        } else {
+            // 全局队列已满，交给GC回收。
+            globalFreeCounts[index].decrementAndGet();
+        }
+    }
+
+    /**
+     * 命中池中已有缓冲区的次数。
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * 需要新分配缓冲区的次数。
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * 已取出尚未归还的缓冲区数量，持续增长说明存在泄漏。
+     */
+    public long outstanding() {
+        return outstanding.sum();
+    }
+
+    private int indexOf(int size) {
+        for (int i = 0; i < sizeClasses.length; i++) {
+            if (size <= sizeClasses[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ByteBufferPool(hits: %d, misses: %d, outstanding: %d)", hits(), misses(), outstanding());
+    }
+}
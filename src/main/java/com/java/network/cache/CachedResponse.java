@@ -0,0 +1,77 @@
+package com.java.network.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     缓存中的一条响应：编码好的完整报文和对应的304报文，都放在只读的直接内存中，
+ *     发送时使用duplicate，多个工作线程可以同时发送同一条缓存的响应。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class CachedResponse {
+
+    private final ByteBuffer response;
+
+    private final int headLength;
+
+    private final String etag;
+
+    private final ByteBuffer notModified;
+
+    private final long expiresAtNanos;
+
+    CachedResponse(@NotNull ByteBuffer response, int headLength, @NotNull String etag, @NotNull ByteBuffer notModified,
+                   long expiresAtNanos) {
+        this.response = response;
+        this.headLength = headLength;
+        this.etag = etag;
+        this.notModified = notModified;
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    /**
+     * 完整的响应报文。
+     */
+    @NotNull
+    public ByteBuffer response() {
+        return response.duplicate();
+    }
+
+    /**
+     * 只有起始行和响应头，用于HEAD请求。
+     */
+    @NotNull
+    public ByteBuffer head() {
+        ByteBuffer head = response.duplicate();
+        head.limit(headLength);
+        return head;
+    }
+
+    /**
+     * 对端的If-None-Match与{@link #etag()}匹配时返回的304报文。
+     */
+    @NotNull
+    public ByteBuffer notModified() {
+        return notModified.duplicate();
+    }
+
+    @NotNull
+    public String etag() {
+        return etag;
+    }
+
+    boolean isExpired(long nowNanos) {
+        return nowNanos - expiresAtNanos >= 0;
+    }
+
+    /**
+     * 占用的直接内存字节数。
+     */
+    int weight() {
+        return response.capacity() + notModified.capacity();
+    }
+}
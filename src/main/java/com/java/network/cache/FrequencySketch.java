@@ -0,0 +1,88 @@
+package com.java.network.cache;
+
+/**
+ * <p>
+ *     TinyLFU使用的Count-Min Sketch，近似记录每个键最近被访问的次数。
+ *     每个long打包16个4位计数器，一个键对应4个计数器，频率取其中的最小值，最大为15。
+ * </p>
+ * <p>
+ *     累加次数达到表容量的10倍后所有计数器减半，让很久以前的热点逐渐冷却。非线程安全，由调用方加锁。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+final class FrequencySketch {
+
+    private static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+
+    /**
+     * 减半后每个计数器的最高位清零。
+     */
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+
+    private final int tableMask;
+
+    private final int sampleSize;
+
+    private int additions;
+
+    /**
+     * @param expectedEntries 预计同时存在的键的数量，决定表的大小
+     */
+    FrequencySketch(int expectedEntries) {
+        int capacity = Integer.highestOneBit(Math.max(16, Math.min(1 << 24, expectedEntries)) - 1) << 1;
+        this.table = new long[capacity];
+        this.tableMask = capacity - 1;
+        this.sampleSize = 10 * capacity;
+    }
+
+    int frequency(int hash) {
+        int frequency = 15;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = indexHash(hash, i);
+            frequency = Math.min(frequency, (int) (table[index(h)] >>> offset(h)) & 0xf);
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            long h = indexHash(hash, i);
+            int index = index(h);
+            int offset = offset(h);
+            if (((table[index] >>> offset) & 0xf) != 0xf) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    private static long indexHash(int hash, int i) {
+        long h = (hash + SEEDS[i]) * SEEDS[i];
+        return h + (h >>> 32);
+    }
+
+    private int index(long h) {
+        return (int) h & tableMask;
+    }
+
+    /**
+     * 计数器在long中的位偏移，0到60之间4的倍数。
+     */
+    private static int offset(long h) {
+        return ((int) (h >>> 40) & 0xf) << 2;
+    }
+}
@@ -0,0 +1,253 @@
+package com.java.network.cache;
+
+import com.java.network.http.HttpResponses;
+import com.java.network.metrics.CacheMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     编码好的HTTP响应的缓存，按方法、路径和影响响应内容的请求头（{@link Key}）查找，条目在TTL到期后失效。
+ *     同一个实例可以通过{@link com.java.network.server.ServerOptions#responseCache}交给多个服务端共用，
+ *     这些服务端应当返回相同的内容。
+ * </p>
+ * <p>
+ *     缓存按键的哈希分段，每段一把锁、一个按访问顺序排列的LinkedHashMap，不同工作线程查找不同的段时互不阻塞。
+ *     总大小按直接内存的字节数限制，平均分给各段。空间不足时用TinyLFU决定是否放入：
+ *     {@link FrequencySketch}记录每个键最近的访问频率，新条目的频率高于最近最少使用的条目时才淘汰后者，
+ *     否则拒绝放入，一次性的请求不会把热点挤出缓存。
+ * </p>
+ * <p>
+ *     命中率等指标记录在{@link MetricsRegistry}默认实例中以构造时的名字命名的{@link CacheMetrics}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class ResponseCache {
+
+    /**
+     * 用来估计频率表大小的平均条目大小。
+     */
+    private static final int AVERAGE_ENTRY_SIZE = 4096;
+
+    private final Segment[] segments;
+
+    private final int segmentMask;
+
+    private final long ttlNanos;
+
+    private final CacheMetrics metrics;
+
+    /**
+     * @param name 指标的名字
+     * @param maxBytes 所有条目占用的直接内存上限
+     * @param ttl 条目放入后多久失效
+     */
+    public ResponseCache(@NotNull String name, long maxBytes, long ttl, @NotNull TimeUnit unit) {
+        if (maxBytes <= 0 || ttl <= 0) {
+            throw new IllegalArgumentException("maxBytes and ttl must be positive");
+        }
+        int segmentCount = Integer.highestOneBit(Math.min(64, Math.max(1, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(maxBytes / segmentCount);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.ttlNanos = unit.toNanos(ttl);
+        this.metrics = MetricsRegistry.getDefault().cache(name);
+    }
+
+    /**
+     * 查找未过期的响应，没有时返回null。
+     */
+    public CachedResponse get(@NotNull Key key) {
+        CachedResponse response = segment(key).get(key, System.nanoTime());
+        if (null == response) {
+            metrics.miss();
+        } else {
+            metrics.hit();
+        }
+        return response;
+    }
+
+    /**
+     * 尝试把响应放入缓存。先按大小和访问频率做准入判断，通过后才编码到直接内存中，
+     * 被拒绝的响应不分配直接内存，也不复制报文体。
+     * @param head 起始行和响应头
+     * @param body 报文体，不改变它的position
+     * @param etag 响应的ETag，也用于生成304报文
+     * @param notModifiedHeaders 304报文中除ETag外要带上的响应头
+     * @return 编码好的响应，调用方可以直接发送；准入策略拒绝放入时返回null，调用方发送原来的head和body
+     */
+    public CachedResponse put(@NotNull Key key, @NotNull ByteBuffer head, @NotNull ByteBuffer body, @NotNull String etag,
+                              @NotNull String... notModifiedHeaders) {
+        byte[] notModified = HttpResponses.encodeNotModified(etag, key.keepAlive, notModifiedHeaders);
+        Segment segment = segment(key);
+        long now = System.nanoTime();
+        if (! segment.admits(key, head.remaining() + body.remaining() + notModified.length, now)) {
+            return null;
+        }
+        ByteBuffer response = ByteBuffer.allocateDirect(head.remaining() + body.remaining());
+        response.put(head.duplicate()).put(body.duplicate()).flip();
+        ByteBuffer notModifiedBuffer = ByteBuffer.allocateDirect(notModified.length);
+        notModifiedBuffer.put(notModified).flip();
+        CachedResponse cachedResponse = new CachedResponse(response.asReadOnlyBuffer(), head.remaining(), etag,
+                notModifiedBuffer.asReadOnlyBuffer(), now + ttlNanos);
+        // 编码期间其他线程可能改变了这一段，放入时重新判断；这时被拒绝的响应已经编码好，照常返回给调用方发送。
+        segment.put(key, cachedResponse, now);
+        return cachedResponse;
+    }
+
+    @NotNull
+    private Segment segment(@NotNull Key key) {
+        return segments[key.hash & segmentMask];
+    }
+
+    /**
+     * 缓存的键。keepAlive决定响应中的Connection头，所以也是键的一部分。
+     */
+    public static final class Key {
+
+        private final String method;
+
+        private final String uri;
+
+        private final String variant;
+
+        private final boolean keepAlive;
+
+        private final int hash;
+
+        /**
+         * @param variant 由请求头决定的响应变体，比如协商出的内容编码，没有时为空字符串
+         */
+        public Key(@NotNull String method, @NotNull String uri, @NotNull String variant, boolean keepAlive) {
+            this.method = method;
+            this.uri = uri;
+            this.variant = variant;
+            this.keepAlive = keepAlive;
+            int h = Objects.hash(method, uri, variant, keepAlive);
+            // 高位混入低位，分段和频率表都只用低位。
+            this.hash = h ^ (h >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (! (o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hash == key.hash && keepAlive == key.keepAlive && method.equals(key.method) && uri.equals(key.uri)
+                    && variant.equals(key.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private final class Segment {
+
+        private final LinkedHashMap<Key, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final FrequencySketch sketch;
+
+        private final long maxWeight;
+
+        private long weight;
+
+        private Segment(long maxWeight) {
+            this.maxWeight = maxWeight;
+            this.sketch = new FrequencySketch((int) Math.min(Integer.MAX_VALUE, maxWeight / AVERAGE_ENTRY_SIZE));
+        }
+
+        private synchronized CachedResponse get(@NotNull Key key, long now) {
+            // 未命中也计入频率，被反复请求的键之后才有机会通过准入。
+            sketch.increment(key.hash);
+            CachedResponse response = entries.get(key);
+            if (null != response && response.isExpired(now)) {
+                remove(key, false);
+                return null;
+            }
+            return response;
+        }
+
+        /**
+         * 不修改缓存，判断一个size字节的条目现在能否放入，规则与{@link #put}相同：
+         * 替换已有的键、或者淘汰过期的条目后空间足够时直接放入，否则要比最近最少使用的未过期条目访问更频繁。
+         */
+        private synchronized boolean admits(@NotNull Key key, int size, long now) {
+            if (size > maxWeight) {
+                metrics.rejected();
+                return false;
+            }
+            if (entries.containsKey(key)) {
+                return true;
+            }
+            long required = weight + size - maxWeight;
+            Iterator<Map.Entry<Key, CachedResponse>> iterator = entries.entrySet().iterator();
+            while (required > 0 && iterator.hasNext()) {
+                Map.Entry<Key, CachedResponse> eldest = iterator.next();
+                if (! eldest.getValue().isExpired(now)) {
+                    if (sketch.frequency(key.hash) <= sketch.frequency(eldest.getKey().hash)) {
+                        metrics.rejected();
+                        return false;
+                    }
+                    return true;
+                }
+                required -= eldest.getValue().weight();
+            }
+            return true;
+        }
+
+        private synchronized void put(@NotNull Key key, @NotNull CachedResponse response, long now) {
+            int size = response.weight();
+            if (size > maxWeight) {
+                metrics.rejected();
+                return;
+            }
+            // 替换已有的条目不经过准入判断。
+            boolean replacing = null != remove(key, false);
+            Iterator<Map.Entry<Key, CachedResponse>> iterator = entries.entrySet().iterator();
+            boolean admitted = replacing;
+            while (weight + size > maxWeight && iterator.hasNext()) {
+                Map.Entry<Key, CachedResponse> eldest = iterator.next();
+                CachedResponse victim = eldest.getValue();
+                boolean expired = victim.isExpired(now);
+                if (! admitted && ! expired) {
+                    if (sketch.frequency(key.hash) <= sketch.frequency(eldest.getKey().hash)) {
+                        metrics.rejected();
+                        return;
+                    }
+                    admitted = true;
+                }
+                iterator.remove();
+                weight -= victim.weight();
+                metrics.removed(victim.weight(), ! expired);
+            }
+            entries.put(key, response);
+            weight += size;
+            metrics.added(size);
+        }
+
+        private CachedResponse remove(@NotNull Key key, boolean evicted) {
+            CachedResponse removed = entries.remove(key);
+            if (null != removed) {
+                weight -= removed.weight();
+                metrics.removed(removed.weight(), evicted);
+            }
+            return removed;
+        }
+    }
+}
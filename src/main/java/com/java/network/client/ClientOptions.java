@@ -0,0 +1,139 @@
+package com.java.network.client;
+
+import com.java.network.dns.HostResolver;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.tls.TlsOptions;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     三种客户端共用的配置。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class ClientOptions {
+
+    private long connectTimeoutMillis = TimeUnit.SECONDS.toMillis(1);
+
+    private long responseTimeoutMillis = TimeUnit.SECONDS.toMillis(10);
+
+    private int maxFrameLength = RpcFrames.DEFAULT_MAX_FRAME_LENGTH;
+
+    private HostResolver resolver = HostResolver.getDefault();
+
+    private long connectAttemptDelayMillis = 250;
+
+    private TlsOptions tls;
+
+    private int maxBatchSize = 1;
+
+    private long maxBatchDelayNanos;
+
+    /**
+     * 建立连接的最长时间。
+     */
+    public ClientOptions connectTimeout(long timeout, TimeUnit unit) {
+        this.connectTimeoutMillis = unit.toMillis(requirePositive(timeout));
+        return this;
+    }
+
+    /**
+     * 从发出请求到收到完整响应的最长时间，超时后关闭连接，请求以{@link java.net.SocketTimeoutException}失败。
+     */
+    public ClientOptions responseTimeout(long timeout, TimeUnit unit) {
+        this.responseTimeoutMillis = unit.toMillis(requirePositive(timeout));
+        return this;
+    }
+
+    /**
+     * RPC响应帧的最大字节数，包括长度字段，超过时关闭连接。
+     */
+    public ClientOptions maxFrameLength(int maxFrameLength) {
+        if (maxFrameLength < RpcFrames.encodedLength(0)) {
+            throw new IllegalArgumentException("maxFrameLength too small: " + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+        return this;
+    }
+
+    /**
+     * 解析目标主机名的解析器，默认是{@link HostResolver#getDefault()}。
+     */
+    public ClientOptions resolver(@NotNull HostResolver resolver) {
+        this.resolver = resolver;
+        return this;
+    }
+
+    /**
+     * 目标有多个地址时，上一个连接还没有结果多久后向下一个地址发起连接，见{@link HappyEyeballs}。
+     * 连接超时对每个地址单独计算。
+     */
+    public ClientOptions connectAttemptDelay(long delay, TimeUnit unit) {
+        this.connectAttemptDelayMillis = unit.toMillis(requirePositive(delay));
+        return this;
+    }
+
+    /**
+     * 设置后通过TLS连接目标，连接建立并完成握手后才算连接成功，连接超时包括握手时间。
+     */
+    public ClientOptions tls(TlsOptions tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    /**
+     * 写合并：RPC调用和流水线HTTP请求先放在连接的待发送队列中，攒够maxBatchSize个，或者批次中第一个请求等了maxDelay后一起写出，
+     * 一次系统调用发出多个请求。maxBatchSize为1时不合并，每个请求立即写出，这是默认值。
+     */
+    public ClientOptions writeBatch(int maxBatchSize, long maxDelay, TimeUnit unit) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchDelayNanos = unit.toNanos(requirePositive(maxDelay));
+        return this;
+    }
+
+    public long getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public long getResponseTimeoutMillis() {
+        return responseTimeoutMillis;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    @NotNull
+    public HostResolver getResolver() {
+        return resolver;
+    }
+
+    public long getConnectAttemptDelayMillis() {
+        return connectAttemptDelayMillis;
+    }
+
+    public TlsOptions getTls() {
+        return tls;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxBatchDelayNanos() {
+        return maxBatchDelayNanos;
+    }
+
+    private static long requirePositive(long timeout) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        return timeout;
+    }
+}
@@ -0,0 +1,195 @@
+package com.java.network.client;
+
+import com.java.network.timer.Timeout;
+import com.java.network.timer.TimerThread;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * <p>
+ *     按RFC 8305（Happy Eyeballs）的方式在一个主机的多个地址之间竞速建立连接。
+ * </p>
+ * <p>
+ *     地址先按协议族交替排列，从第一个地址的协议族开始。第一个连接发起后，每隔一段延迟或者上一个连接失败时立即发起下一个，
+ *     最先建立的连接胜出，之后建立的连接交给调用方关闭；所有连接都失败时以第一个失败的原因结束，其余原因作为suppressed附上。
+ *     某个协议族的路由不通时，连接不会卡在它的连接超时上。
+ * </p>
+ * <p>
+ *     延迟由共享的{@link TimerThread}计时，连接在调用方给出的Executor中发起，NIO客户端传入自己的Reactor线程。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class HappyEyeballs {
+
+    private HappyEyeballs() {
+    }
+
+    /**
+     * 竞速建立连接。
+     * @param addresses 解析得到的地址，不能为空
+     * @param attemptDelayMillis 上一个连接还没有结果时，等待多久发起下一个
+     * @param executor 发起连接的线程
+     * @param attempt 向一个地址发起连接
+     * @param discard 关闭竞速失败但建立成功的连接
+     */
+    @NotNull
+    public static <C> CompletableFuture<C> connect(@NotNull List<InetAddress> addresses, long attemptDelayMillis, @NotNull Executor executor,
+                                                   @NotNull Function<InetAddress, CompletableFuture<C>> attempt,
+                                                   @NotNull Consumer<C> discard) {
+        if (addresses.isEmpty()) {
+            throw new IllegalArgumentException("addresses must not be empty");
+        }
+        Race<C> race = new Race<>(interleave(addresses), attemptDelayMillis, executor, attempt, discard);
+        executor.execute(race::startNext);
+        return race.result;
+    }
+
+    /**
+     * 按协议族交替排列，保持同一协议族内的原有顺序。
+     */
+    @NotNull
+    public static List<InetAddress> interleave(@NotNull List<InetAddress> addresses) {
+        boolean firstIsV6 = addresses.get(0) instanceof Inet6Address;
+        List<InetAddress> first = new ArrayList<>(addresses.size());
+        List<InetAddress> second = new ArrayList<>(addresses.size());
+        for (InetAddress address : addresses) {
+            (firstIsV6 == address instanceof Inet6Address ? first : second).add(address);
+        }
+        if (second.isEmpty()) {
+            return addresses;
+        }
+        List<InetAddress> interleaved = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                interleaved.add(first.get(i));
+            }
+            if (i < second.size()) {
+                interleaved.add(second.get(i));
+            }
+        }
+        return interleaved;
+    }
+
+    private static final class Race<C> extends Timeout {
+
+        private final List<InetAddress> addresses;
+
+        private final long attemptDelayMillis;
+
+        private final Executor executor;
+
+        private final Function<InetAddress, CompletableFuture<C>> attempt;
+
+        private final Consumer<C> discard;
+
+        private final CompletableFuture<C> result = new CompletableFuture<>();
+
+        private int next;
+
+        private int pending;
+
+        private boolean done;
+
+        private Throwable failure;
+
+        private Race(@NotNull List<InetAddress> addresses, long attemptDelayMillis, @NotNull Executor executor,
+                     @NotNull Function<InetAddress, CompletableFuture<C>> attempt, @NotNull Consumer<C> discard) {
+            this.addresses = addresses;
+            this.attemptDelayMillis = attemptDelayMillis;
+            this.executor = executor;
+            this.attempt = attempt;
+            this.discard = discard;
+        }
+
+        /**
+         * 延迟到期，上一个连接还没有结果，发起下一个。
+         */
+        @Override
+        protected void onTimeout() {
+            executor.execute(this::startNext);
+        }
+
+        private void startNext() {
+            InetAddress address;
+            synchronized (this) {
+                if (done || next >= addresses.size()) {
+                    return;
+                }
+                address = addresses.get(next++);
+                pending++;
+                if (next < addresses.size()) {
+                    TimerThread.shared().schedule(this, attemptDelayMillis, TimeUnit.MILLISECONDS);
+                }
+            }
+            CompletableFuture<C> future;
+            try {
+                future = attempt.apply(address);
+            } catch (Throwable e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((connection, cause) -> {
+                if (null == cause) {
+                    succeeded(connection);
+                } else {
+                    failed(cause instanceof CompletionException && null != cause.getCause() ? cause.getCause() : cause);
+                }
+            });
+        }
+
+        private void succeeded(C connection) {
+            boolean won;
+            synchronized (this) {
+                pending--;
+                won = ! done;
+                done = true;
+            }
+            if (won) {
+                TimerThread.shared().cancel(this);
+                result.complete(connection);
+            } else {
+                discard.accept(connection);
+            }
+        }
+
+        private void failed(@NotNull Throwable cause) {
+            boolean startNext = false;
+            boolean exhausted = false;
+            synchronized (this) {
+                pending--;
+                if (done) {
+                    return;
+                }
+                if (null == failure) {
+                    failure = cause;
+                } else if (failure != cause) {
+                    failure.addSuppressed(cause);
+                }
+                if (next < addresses.size()) {
+                    startNext = true;
+                } else if (0 == pending) {
+                    done = true;
+                    exhausted = true;
+                }
+            }
+            if (startNext) {
+                // 失败后不再等待延迟，立即尝试下一个地址。
+                TimerThread.shared().cancel(this);
+                executor.execute(this::startNext);
+            } else if (exhausted) {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+}
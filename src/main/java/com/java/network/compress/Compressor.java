@@ -0,0 +1,79 @@
+package com.java.network.compress;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <p>
+ *     用池化的{@link Deflater}流式压缩：输入按块读取、按块喂给Deflater，不需要把原始内容整个读进内存。
+ * </p>
+ * <p>
+ *     {@link java.util.zip.GZIPOutputStream}每次都新建自己的Deflater，这里自己写gzip的头和尾，中间用池化的原始deflate流。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class Compressor {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * gzip头：魔数、deflate方法、无标志、修改时间为0、无额外标志、操作系统未知。
+     */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private final DeflaterPool deflaterPool;
+
+    public Compressor(@NotNull DeflaterPool deflaterPool) {
+        this.deflaterPool = deflaterPool;
+    }
+
+    /**
+     * 读完in中的全部内容并压缩。
+     * @param sizeHint 原始内容的大致长度，用于估计输出缓冲区的初始大小
+     */
+    @NotNull
+    public byte[] compress(@NotNull ContentCoding coding, @NotNull ReadableByteChannel in, long sizeHint) throws IOException {
+        boolean gzip = ContentCoding.GZIP == coding;
+        ByteArrayOutputStream out = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, Math.max(64, sizeHint / 3)));
+        Deflater deflater = deflaterPool.acquire(gzip);
+        try {
+            if (gzip) {
+                out.write(GZIP_HEADER);
+            }
+            CRC32 crc = new CRC32();
+            // 传入的Deflater不会在finish时被释放，用完照常放回池中。
+            DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(out, deflater, CHUNK_SIZE);
+            ByteBuffer chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            while (in.read(chunk) >= 0) {
+                if (gzip) {
+                    crc.update(chunk.array(), 0, chunk.position());
+                }
+                deflaterOutputStream.write(chunk.array(), 0, chunk.position());
+                chunk.clear();
+            }
+            deflaterOutputStream.finish();
+            if (gzip) {
+                writeIntLittleEndian(out, (int) crc.getValue());
+                writeIntLittleEndian(out, (int) deflater.getBytesRead());
+            }
+        } finally {
+            deflaterPool.release(deflater, gzip);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeIntLittleEndian(@NotNull ByteArrayOutputStream out, int value) {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+}
@@ -0,0 +1,82 @@
+package com.java.network.compress;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * <p>
+ *     服务端支持的内容编码。gzip是RFC 1952的格式，deflate按HTTP的定义是带zlib头的RFC 1950格式。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public enum ContentCoding {
+
+    GZIP("gzip"),
+
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Content-Encoding中的取值。
+     */
+    @NotNull
+    public String token() {
+        return token;
+    }
+
+    /**
+     * 按Accept-Encoding的q值选出服务端支持的编码，q值相同时优先gzip。
+     * @return 对端不接受任何压缩编码时返回null，表示发送原始内容
+     */
+    public static ContentCoding negotiate(@NotNull String acceptEncoding) {
+        double gzip = -1;
+        double deflate = -1;
+        double wildcard = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            double q = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    q = parseQuality(parameter.substring(2).trim());
+                }
+            }
+            switch (parameters[0].trim().toLowerCase(Locale.ROOT)) {
+                case "gzip":
+                case "x-gzip":
+                    gzip = q;
+                    break;
+                case "deflate":
+                    deflate = q;
+                    break;
+                case "*":
+                    wildcard = q;
+                    break;
+                default:
+                    break;
+            }
+        }
+        // 没有单独列出的编码按*的q值处理。
+        gzip = gzip < 0 ? wildcard : gzip;
+        deflate = deflate < 0 ? wildcard : deflate;
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    private static double parseQuality(@NotNull String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.java.network.compress;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * <p>
+ *     {@link Deflater}池。每个Deflater背后有一块几百KB的本地内存，创建和{@link Deflater#end()}的代价都不小，
+ *     用完后reset放回池中复用。池满时多出来的实例直接释放本地内存。
+ * </p>
+ * <p>
+ *     gzip使用不带zlib头的原始deflate流（nowrap），deflate使用带zlib头的流，两种分开存放。可以在任意线程调用。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class DeflaterPool {
+
+    private final int level;
+
+    private final BlockingQueue<Deflater> raw;
+
+    private final BlockingQueue<Deflater> zlib;
+
+    /**
+     * @param level 压缩级别，0到9或者{@link Deflater#DEFAULT_COMPRESSION}
+     * @param capacity 每种格式最多保留的空闲实例数
+     */
+    public DeflaterPool(int level, int capacity) {
+        if ((level < 0 || level > 9) && Deflater.DEFAULT_COMPRESSION != level) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+        this.raw = new ArrayBlockingQueue<>(capacity);
+        this.zlib = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * 取出一个可用的Deflater，用完后必须{@link #release}。
+     * @param nowrap 为true时输出不带zlib头和校验和的原始deflate流
+     */
+    @NotNull
+    public Deflater acquire(boolean nowrap) {
+        Deflater deflater = (nowrap ? raw : zlib).poll();
+        return null == deflater ? new Deflater(level, nowrap) : deflater;
+    }
+
+    public void release(@NotNull Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (! (nowrap ? raw : zlib).offer(deflater)) {
+            deflater.end();
+        }
+    }
+}
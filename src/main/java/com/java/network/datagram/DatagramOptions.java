@@ -0,0 +1,135 @@
+package com.java.network.datagram;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     UDP服务端和客户端共用的配置，NIO和Netty两套实现含义相同。
+ * </p>
+ * <p>
+ *     UDP没有流量控制，接收方跟不上时数据包直接丢在内核的接收缓冲区里，所以默认的收发缓冲区比TCP大得多；
+ *     Linux上实际生效的大小受net.core.rmem_max和net.core.wmem_max限制，服务端启动时发现被截断会输出警告。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class DatagramOptions {
+
+    private int receiverCount = 1;
+
+    private int receiveBufferSize = 4 * 1024 * 1024;
+
+    private int sendBufferSize = 4 * 1024 * 1024;
+
+    private int maxPacketSize = 2048;
+
+    private int batchSize = 64;
+
+    private long maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private boolean echo;
+
+    /**
+     * 服务端接收线程数。大于1时每个线程绑定一个设置了SO_REUSEPORT的Socket，由内核按源地址的哈希把数据包分给它们，
+     * 只在支持SO_REUSEPORT的平台上可用。
+     */
+    public DatagramOptions receiverCount(int receiverCount) {
+        if (receiverCount < 1) {
+            throw new IllegalArgumentException("receiverCount must be positive: " + receiverCount);
+        }
+        this.receiverCount = receiverCount;
+        return this;
+    }
+
+    /**
+     * 每个Socket的SO_RCVBUF，决定接收线程来不及处理时内核能替它攒多少数据包。
+     */
+    public DatagramOptions receiveBufferSize(int receiveBufferSize) {
+        if (receiveBufferSize <= 0) {
+            throw new IllegalArgumentException("receiveBufferSize must be positive: " + receiveBufferSize);
+        }
+        this.receiveBufferSize = receiveBufferSize;
+        return this;
+    }
+
+    /**
+     * 每个Socket的SO_SNDBUF，发送缓冲区满时非阻塞的发送直接丢弃数据包并计数。
+     */
+    public DatagramOptions sendBufferSize(int sendBufferSize) {
+        if (sendBufferSize <= 0) {
+            throw new IllegalArgumentException("sendBufferSize must be positive: " + sendBufferSize);
+        }
+        this.sendBufferSize = sendBufferSize;
+        return this;
+    }
+
+    /**
+     * 数据包的最大字节数，接收缓冲区按它分配，更长的数据包被截断，计入truncated后丢弃。
+     */
+    public DatagramOptions maxPacketSize(int maxPacketSize) {
+        if (maxPacketSize <= 0 || maxPacketSize > 65507) {
+            throw new IllegalArgumentException("maxPacketSize must be in [1, 65507]: " + maxPacketSize);
+        }
+        this.maxPacketSize = maxPacketSize;
+        return this;
+    }
+
+    /**
+     * 接收时每次就绪最多连续收多少个数据包，epoll传输下也是一次recvmmsg收取的个数；
+     * 客户端攒够这么多个数据包刷新一次，epoll传输下以一次sendmmsg发出。
+     */
+    public DatagramOptions batchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * 客户端攒批的最长时间，批次中第一个数据包写出后过了这么久，不够batchSize也刷新。
+     */
+    public DatagramOptions maxBatchDelay(long maxBatchDelay, TimeUnit unit) {
+        if (maxBatchDelay <= 0) {
+            throw new IllegalArgumentException("maxBatchDelay must be positive: " + maxBatchDelay);
+        }
+        this.maxBatchDelayNanos = unit.toNanos(maxBatchDelay);
+        return this;
+    }
+
+    /**
+     * 服务端是否把收到的数据包原样发回给发送方，默认只计数后丢弃。
+     */
+    public DatagramOptions echo(boolean echo) {
+        this.echo = echo;
+        return this;
+    }
+
+    public int getReceiverCount() {
+        return receiverCount;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public int getMaxPacketSize() {
+        return maxPacketSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public long getMaxBatchDelayNanos() {
+        return maxBatchDelayNanos;
+    }
+
+    public boolean isEcho() {
+        return echo;
+    }
+}
@@ -0,0 +1,100 @@
+package com.java.network.datagram;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.net.SocketOption;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <p>
+ *     NIO的UDP实现用到的平台相关的部分：SO_REUSEPORT和内核丢包数。
+ * </p>
+ * <p>
+ *     Java 8的{@link java.net.StandardSocketOptions}没有SO_REUSEPORT，这里从{@link DatagramChannel#supportedOptions()}中按名字查找，
+ *     Java 9以后的JDK在Linux和macOS上都能找到。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class UdpSockets {
+
+    private static final SocketOption<Boolean> SO_REUSEPORT = findReusePort();
+
+    private static final Path[] PROC_NET_UDP = { Paths.get("/proc/net/udp"), Paths.get("/proc/net/udp6") };
+
+    private UdpSockets() {
+    }
+
+    /**
+     * 当前JDK和平台是否支持SO_REUSEPORT。
+     */
+    public static boolean supportsReusePort() {
+        return null != SO_REUSEPORT;
+    }
+
+    /**
+     * 打开SO_REUSEPORT，必须在绑定端口之前调用。
+     * @throws UnsupportedOperationException 不支持SO_REUSEPORT
+     */
+    public static void setReusePort(@NotNull DatagramChannel channel) throws IOException {
+        if (null == SO_REUSEPORT) {
+            throw new UnsupportedOperationException("SO_REUSEPORT is not supported");
+        }
+        channel.setOption(SO_REUSEPORT, true);
+    }
+
+    /**
+     * 本地端口为port的所有UDP Socket因为接收缓冲区已满等原因被内核丢弃的数据包数，
+     * 读取Linux的/proc/net/udp和/proc/net/udp6中的drops列，其他平台返回-1。
+     * 设置了SO_REUSEPORT的多个Socket绑定同一端口，结果是它们的总和。
+     */
+    public static long kernelDrops(int port) {
+        long drops = 0;
+        boolean found = false;
+        for (Path path : PROC_NET_UDP) {
+            if (! Files.isReadable(path)) {
+                continue;
+            }
+            found = true;
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+                // 第一行是表头，之后每行一个Socket，local_address为十六进制的地址:端口，最后一列是drops。
+                reader.readLine();
+                String line;
+                while (null != (line = reader.readLine())) {
+                    String[] columns = line.trim().split("\\s+");
+                    if (columns.length < 13) {
+                        continue;
+                    }
+                    String localAddress = columns[1];
+                    int separator = localAddress.lastIndexOf(':');
+                    if (separator > 0 && Integer.parseInt(localAddress.substring(separator + 1), 16) == port) {
+                        drops += Long.parseLong(columns[columns.length - 1]);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            }
+        }
+        return found ? drops : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> findReusePort() {
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            for (SocketOption<?> option : channel.supportedOptions()) {
+                if ("SO_REUSEPORT".equals(option.name()) && Boolean.class == option.type()) {
+                    return (SocketOption<Boolean>) option;
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+}
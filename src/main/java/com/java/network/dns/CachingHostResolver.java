@@ -0,0 +1,110 @@
+package com.java.network.dns;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     在另一个解析器之上缓存解析结果。成功和失败的结果分别按各自的TTL保留，
+ *     对同一主机名的并发查询只向下层发出一次，其余调用方共用同一个Future。
+ * </p>
+ * <p>
+ *     {@link InetAddress#getAllByName}拿不到记录本身的TTL，所以这里的TTL是固定的上限；
+ *     下层是{@link com.java.network.netty.NettyDnsResolver}这类按记录TTL缓存的解析器时，实际生效的是两者中较短的一个。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class CachingHostResolver implements HostResolver {
+
+    static final CachingHostResolver DEFAULT = new CachingHostResolver(HostResolver.system(), 30, 5, TimeUnit.SECONDS);
+
+    /**
+     * 条目超过这个数量时，放入新条目前先清理已过期的条目。
+     */
+    private static final int PURGE_THRESHOLD = 4096;
+
+    private final HostResolver delegate;
+
+    private final long positiveTtlNanos;
+
+    private final long negativeTtlNanos;
+
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param positiveTtl 解析成功的结果保留多久
+     * @param negativeTtl 解析失败的结果保留多久，为0时不缓存失败
+     */
+    public CachingHostResolver(@NotNull HostResolver delegate, long positiveTtl, long negativeTtl, @NotNull TimeUnit unit) {
+        if (positiveTtl <= 0 || negativeTtl < 0) {
+            throw new IllegalArgumentException("positiveTtl must be positive and negativeTtl must not be negative");
+        }
+        this.delegate = delegate;
+        this.positiveTtlNanos = unit.toNanos(positiveTtl);
+        this.negativeTtlNanos = unit.toNanos(negativeTtl);
+    }
+
+    /**
+     * 返回的Future由查询同一主机名的调用方共用，调用方不能完成或者取消它。
+     */
+    @NotNull
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(@NotNull String host) {
+        String key = host.toLowerCase(Locale.ROOT);
+        while (true) {
+            long now = System.nanoTime();
+            Entry existing = entries.get(key);
+            if (null != existing && ! existing.isExpired(now)) {
+                return existing.future;
+            }
+            Entry entry = new Entry();
+            boolean added = null == existing ? null == entries.putIfAbsent(key, entry) : entries.replace(key, existing, entry);
+            if (! added) {
+                // 其他线程抢先放入了新的条目，重新读取。
+                continue;
+            }
+            if (entries.size() > PURGE_THRESHOLD) {
+                entries.values().removeIf(e -> e.isExpired(now));
+            }
+            delegate.resolve(host).whenComplete((addresses, cause) -> {
+                // 先设置到期时间再完成Future，看到完成的Future时到期时间一定已经生效。
+                entry.expiresAtNanos = System.nanoTime() + (null == cause ? positiveTtlNanos : negativeTtlNanos);
+                if (null == cause) {
+                    entry.future.complete(addresses);
+                } else {
+                    entry.future.completeExceptionally(cause);
+                }
+            });
+            return entry.future;
+        }
+    }
+
+    /**
+     * 丢弃主机名的缓存，下次解析时重新查询，比如连接全部失败、怀疑地址已经变化的时候。
+     */
+    public void invalidate(@NotNull String host) {
+        entries.remove(host.toLowerCase(Locale.ROOT));
+    }
+
+    private static class Entry {
+
+        private final CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+
+        private volatile long expiresAtNanos;
+
+        /**
+         * 查询还没有完成的条目不会过期。
+         */
+        private boolean isExpired(long nowNanos) {
+            return future.isDone() && nowNanos - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.java.network.dns;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     把主机名解析为地址，不阻塞调用线程。客户端在Reactor或者事件循环线程中建立连接时也会调用，
+ *     实现不能在{@link #resolve}中做任何阻塞操作。
+ * </p>
+ * <p>
+ *     返回的地址按解析结果的顺序排列，可能同时包含IPv4和IPv6地址，
+ *     客户端用{@link com.java.network.client.HappyEyeballs}在这些地址之间竞速建立连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public interface HostResolver {
+
+    /**
+     * 解析主机名，至少返回一个地址。解析失败时以{@link java.net.UnknownHostException}失败。
+     */
+    @NotNull
+    CompletableFuture<List<InetAddress>> resolve(@NotNull String host);
+
+    /**
+     * 在后台线程中调用{@link InetAddress#getAllByName}的解析器，本身不缓存结果。
+     */
+    @NotNull
+    static HostResolver system() {
+        return SystemHostResolver.INSTANCE;
+    }
+
+    /**
+     * 客户端默认使用的解析器：在{@link #system()}之上按{@link CachingHostResolver}缓存，
+     * 成功的结果保留30秒，失败的结果保留5秒。
+     */
+    @NotNull
+    static HostResolver getDefault() {
+        return CachingHostResolver.DEFAULT;
+    }
+}
@@ -0,0 +1,101 @@
+package com.java.network.dns;
+
+import io.netty.util.NetUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ *     按固定的表解析主机名，相当于进程内的hosts文件，不访问网络，可以离线测试解析和连接竞速。
+ *     表中没有的主机名交给后备解析器，没有后备解析器时以{@link UnknownHostException}失败。
+ * </p>
+ * <p>
+ *     同一主机名可以有多个地址，按加入的顺序返回，比如同时给localhost配置::1和127.0.0.1。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class StaticHostResolver implements HostResolver {
+
+    private final Map<String, List<InetAddress>> hosts = new ConcurrentHashMap<>();
+
+    private final HostResolver fallback;
+
+    public StaticHostResolver() {
+        this.fallback = null;
+    }
+
+    public StaticHostResolver(@NotNull HostResolver fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * 为主机名追加地址。
+     * @param addresses IP字面量
+     */
+    public StaticHostResolver add(@NotNull String host, @NotNull String... addresses) {
+        List<InetAddress> list = new ArrayList<>(addresses.length);
+        for (String address : addresses) {
+            byte[] bytes = NetUtil.createByteArrayFromIpAddressString(address);
+            if (null == bytes) {
+                throw new IllegalArgumentException("Not an IP address: " + address);
+            }
+            try {
+                list.add(InetAddress.getByAddress(host, bytes));
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid address length: " + address, e);
+            }
+        }
+        hosts.merge(host.toLowerCase(Locale.ROOT), Collections.unmodifiableList(list), (previous, added) -> {
+            List<InetAddress> merged = new ArrayList<>(previous);
+            merged.addAll(added);
+            return Collections.unmodifiableList(merged);
+        });
+        return this;
+    }
+
+    /**
+     * 读取hosts文件格式的表：每行一个地址，后面跟一个或多个主机名，{@code #}之后是注释。
+     */
+    public StaticHostResolver load(@NotNull Path hostsFile) throws IOException {
+        for (String line : Files.readAllLines(hostsFile, StandardCharsets.UTF_8)) {
+            int comment = line.indexOf('#');
+            String[] fields = (comment < 0 ? line : line.substring(0, comment)).trim().split("\\s+");
+            if (fields.length < 2) {
+                continue;
+            }
+            for (int i = 1; i < fields.length; i++) {
+                add(fields[i], fields[0]);
+            }
+        }
+        return this;
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(@NotNull String host) {
+        List<InetAddress> addresses = hosts.get(host.toLowerCase(Locale.ROOT));
+        if (null != addresses) {
+            return CompletableFuture.completedFuture(addresses);
+        }
+        if (null != fallback) {
+            return fallback.resolve(host);
+        }
+        CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+        future.completeExceptionally(new UnknownHostException(host));
+        return future;
+    }
+}
@@ -0,0 +1,61 @@
+package com.java.network.dns;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.netty.util.NetUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     通过{@link InetAddress#getAllByName}解析，阻塞的查询放在少量后台线程中执行，调用线程只拿到Future。
+ *     IP字面量不需要查询，在调用线程中直接返回。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+final class SystemHostResolver implements HostResolver {
+
+    static final SystemHostResolver INSTANCE = new SystemHostResolver(4);
+
+    private final ExecutorService executorService;
+
+    private SystemHostResolver(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("dns-%d").setDaemon(true).build());
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(@NotNull String host) {
+        CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+        byte[] literal = NetUtil.createByteArrayFromIpAddressString(host);
+        if (null != literal) {
+            try {
+                future.complete(Collections.singletonList(InetAddress.getByAddress(host, literal)));
+            } catch (UnknownHostException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        executorService.execute(() -> {
+            try {
+                future.complete(Arrays.asList(InetAddress.getAllByName(host)));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+}
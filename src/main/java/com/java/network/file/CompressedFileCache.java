@@ -0,0 +1,212 @@
+package com.java.network.file;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.compress.Compressor;
+import com.java.network.compress.ContentCoding;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     文件压缩后的内容，按文件和编码缓存，按最近最少使用淘汰，总大小有上限。同一个文件只在第一次请求时压缩，
+ *     之后直接返回缓存的结果。压缩后没有变小的文件也记录下来，之后不再尝试。
+ * </p>
+ * <p>
+ *     {@link #get}在服务端的I/O线程中调用。不超过{@value #MAX_INLINE_SIZE}字节的文件在调用线程中直接压缩；
+ *     更大的文件交给后台的压缩线程，压缩好之前返回{@link #PENDING}，这段时间的请求发送原始内容，
+ *     不会因为压缩一个大文件卡住同一个事件循环上的所有连接。同时在后台压缩的文件数有上限。
+ * </p>
+ * <p>
+ *     和{@link MappedFileCache}一样以文件大小和修改时间判断缓存是否过期。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+final class CompressedFileCache {
+
+    /**
+     * 压缩后没有变小。
+     */
+    private static final byte[] INCOMPRESSIBLE = new byte[0];
+
+    /**
+     * {@link #get}的返回值，表示正在后台压缩：这次发送原始内容，但响应不能当作压缩编码的结果缓存。调用方不能读写它。
+     */
+    static final ByteBuffer PENDING = ByteBuffer.allocate(0).asReadOnlyBuffer();
+
+    /**
+     * 在调用线程中直接压缩的最大文件大小，压缩耗时在毫秒以内。
+     */
+    private static final long MAX_INLINE_SIZE = 64 * 1024;
+
+    private static final int MAX_PENDING = 64;
+
+    private final Compressor compressor;
+
+    private final int minFileSize;
+
+    private final long maxFileSize;
+
+    private final long maxTotalSize;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 已经交给压缩线程、还没有完成的文件。
+     */
+    private final Set<Key> pending = new HashSet<>();
+
+    private final ThreadPoolExecutor executor;
+
+    private long totalSize;
+
+    CompressedFileCache(@NotNull Compressor compressor, int minFileSize, long maxFileSize, long maxTotalSize) {
+        this.compressor = compressor;
+        this.minFileSize = minFileSize;
+        this.maxFileSize = maxFileSize;
+        this.maxTotalSize = maxTotalSize;
+        // 待压缩的文件不超过MAX_PENDING个，队列不会无限增长。
+        this.executor = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("file-compressor-%d").setDaemon(true).build());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 获取文件压缩后的内容。文件太小、太大或者压缩后没有变小时返回null，这时应当发送原始内容；
+     * 正在后台压缩时返回{@link #PENDING}，同样发送原始内容。
+     */
+    ByteBuffer get(@NotNull Path path, @NotNull BasicFileAttributes attributes, @NotNull ContentCoding coding) throws IOException {
+        long size = attributes.size();
+        if (size < minFileSize || size > maxFileSize) {
+            return null;
+        }
+        Key key = new Key(path, coding);
+        long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (null != entry && entry.size == size && entry.lastModifiedMillis == lastModifiedMillis) {
+                return wrap(entry.compressed);
+            }
+            if (size > MAX_INLINE_SIZE && (pending.size() >= MAX_PENDING || ! pending.add(key))) {
+                // 已经在压缩，或者排队的文件太多，下一次请求再试。
+                return PENDING;
+            }
+        }
+        if (size <= MAX_INLINE_SIZE) {
+            return wrap(compress(key, path, size, lastModifiedMillis));
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    compress(key, path, size, lastModifiedMillis);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    synchronized (this) {
+                        pending.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                pending.remove(key);
+            }
+        }
+        return PENDING;
+    }
+
+    /**
+     * 压缩文件并放入缓存，返回压缩后的内容，没有变小时返回{@link #INCOMPRESSIBLE}。
+     */
+    @NotNull
+    private byte[] compress(@NotNull Key key, @NotNull Path path, long size, long lastModifiedMillis) throws IOException {
+        // 压缩在锁外进行，并发未命中时可能重复压缩，后放入的覆盖先放入的。
+        byte[] compressed;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            compressed = compressor.compress(key.coding, fileChannel, size);
+        }
+        if (compressed.length >= size) {
+            compressed = INCOMPRESSIBLE;
+        }
+        if (compressed.length <= maxTotalSize) {
+            synchronized (this) {
+                Entry previous = entries.put(key, new Entry(compressed, size, lastModifiedMillis));
+                if (null != previous) {
+                    totalSize -= previous.compressed.length;
+                }
+                totalSize += compressed.length;
+                Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+                while (totalSize > maxTotalSize && iterator.hasNext()) {
+                    totalSize -= iterator.next().getValue().compressed.length;
+                    iterator.remove();
+                }
+            }
+        }
+        return compressed;
+    }
+
+    private static ByteBuffer wrap(@NotNull byte[] compressed) {
+        return INCOMPRESSIBLE == compressed ? null : ByteBuffer.wrap(compressed);
+    }
+
+    private static class Key {
+
+        private final Path path;
+
+        private final ContentCoding coding;
+
+        private Key(Path path, ContentCoding coding) {
+            this.path = path;
+            this.coding = coding;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (! (o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return path.equals(key.path) && coding == key.coding;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, coding);
+        }
+    }
+
+    private static class Entry {
+
+        private final byte[] compressed;
+
+        private final long size;
+
+        private final long lastModifiedMillis;
+
+        private Entry(byte[] compressed, long size, long lastModifiedMillis) {
+            this.compressed = compressed;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.java.network.file;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * <p>
+ *     {@link StaticFiles}生成的一条响应：编码好的响应头，加上可选的报文体。
+ *     报文体要么是内存中的ByteBuffer（错误页面或者内存映射缓存中的文件），要么是打开的文件中的一段，
+ *     后者通过{@link FileChannel#transferTo}发送，数据不经过Java堆。
+ * </p>
+ * <p>
+ *     发送进度保存在对象内部，非阻塞连接上可以多次调用{@link #writeTo}直到返回true。
+ *     响应持有打开的文件，没有完整发送时调用方必须{@link #close()}。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class FileResponse implements Closeable {
+
+    private final ByteBuffer head;
+
+    private final ByteBuffer body;
+
+    private final FileChannel fileChannel;
+
+    private long position;
+
+    private final long end;
+
+    private final boolean keepAlive;
+
+    FileResponse(@NotNull ByteBuffer head, ByteBuffer body, FileChannel fileChannel, long position, long count, boolean keepAlive) {
+        this.head = head;
+        this.body = body;
+        this.fileChannel = fileChannel;
+        this.position = position;
+        this.end = position + count;
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * 响应发送完后是否保持连接。
+     */
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    @NotNull
+    public ByteBuffer head() {
+        return head;
+    }
+
+    /**
+     * 内存中的报文体，没有时返回null。
+     */
+    public ByteBuffer body() {
+        return body;
+    }
+
+    /**
+     * 报文体所在的文件，没有时返回null。取走文件自行发送的调用方同时接管关闭文件的责任。
+     */
+    public FileChannel fileChannel() {
+        return fileChannel;
+    }
+
+    /**
+     * 文件中尚未发送部分的起点。
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * 文件中尚未发送的字节数。
+     */
+    public long count() {
+        return end - position;
+    }
+
+    /**
+     * 把尚未发送的部分写到channel上，channel非阻塞时可能只写出一部分。
+     * 全部写完后关闭文件。
+     * @return 是否已全部写出
+     */
+    public boolean writeTo(@NotNull WritableByteChannel channel) throws IOException {
+        if (head.hasRemaining()) {
+            channel.write(head);
+            if (head.hasRemaining()) {
+                return false;
+            }
+        }
+        if (null != body && body.hasRemaining()) {
+            channel.write(body);
+            if (body.hasRemaining()) {
+                return false;
+            }
+        }
+        while (position < end) {
+            long length = fileChannel.transferTo(position, end - position, channel);
+            if (length <= 0) {
+                if (position >= fileChannel.size()) {
+                    // 发送过程中文件被截断，响应已经无法按声明的长度完成。
+                    throw new EOFException("File truncated while sending");
+                }
+                return false;
+            }
+            position += length;
+        }
+        close();
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (null != fileChannel) {
+            fileChannel.close();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.java.network.file;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ *     小文件的内存映射缓存，按最近最少使用淘汰，总大小有上限。
+ *     命中时直接返回映射区域的只读视图，不需要打开文件。
+ * </p>
+ * <p>
+ *     以文件大小和修改时间判断缓存是否过期。映射期间文件被原地截断会导致访问映射区域时出错，
+ *     文档目录中的文件应当整体替换而不是原地修改。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+final class MappedFileCache {
+
+    private final int maxFileSize;
+
+    private final long maxTotalSize;
+
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalSize;
+
+    MappedFileCache(int maxFileSize, long maxTotalSize) {
+        this.maxFileSize = maxFileSize;
+        this.maxTotalSize = maxTotalSize;
+    }
+
+    /**
+     * 获取文件内容的只读视图，文件太大或者缓存已关闭时返回null。
+     */
+    ByteBuffer get(@NotNull Path path, @NotNull BasicFileAttributes attributes) throws IOException {
+        long size = attributes.size();
+        if (size > maxFileSize || size > maxTotalSize) {
+            return null;
+        }
+        long lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (null != entry && entry.size == size && entry.lastModifiedMillis == lastModifiedMillis) {
+                return entry.buffer.duplicate();
+            }
+        }
+
+        // 映射在锁外进行，并发未命中时可能重复映射，后放入的覆盖先放入的。
+        MappedByteBuffer buffer;
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        synchronized (this) {
+            Entry previous = entries.put(path, new Entry(buffer, size, lastModifiedMillis));
+            if (null != previous) {
+                totalSize -= previous.size;
+            }
+            totalSize += size;
+            Iterator<Map.Entry<Path, Entry>> iterator = entries.entrySet().iterator();
+            while (totalSize > maxTotalSize && iterator.hasNext()) {
+                totalSize -= iterator.next().getValue().size;
+                iterator.remove();
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    private static class Entry {
+
+        private final ByteBuffer buffer;
+
+        private final long size;
+
+        private final long lastModifiedMillis;
+
+        private Entry(ByteBuffer buffer, long size, long lastModifiedMillis) {
+            this.buffer = buffer;
+            this.size = size;
+            this.lastModifiedMillis = lastModifiedMillis;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+package com.java.network.file;
+
+import com.java.network.cache.CachedResponse;
+import com.java.network.cache.ResponseCache;
+import com.java.network.compress.Compressor;
+import com.java.network.compress.ContentCoding;
+import com.java.network.compress.DeflaterPool;
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpResponses;
+import com.java.network.server.ServerOptions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <p>
+ *     把请求映射到文档目录中的文件，生成{@link FileResponse}，三种服务端共用。
+ * </p>
+ * <ul>
+ *     <li>只支持GET和HEAD，目录返回其中的index.html，不允许访问文档目录之外的路径；</li>
+ *     <li>支持单个区间的Range请求，返回206，区间无法满足时返回416，多个区间时忽略Range返回整个文件；</li>
+ *     <li>小文件从{@link MappedFileCache}中取，其他文件打开后交给服务端以sendfile方式发送；</li>
+ *     <li>开启压缩时，文本类文件按Accept-Encoding返回{@link CompressedFileCache}中压缩好的内容，响应带上Vary: Accept-Encoding；
+ *     大文件在后台压缩，压缩好之前发送原始内容；</li>
+ *     <li>响应带上由修改时间和大小生成的ETag，If-None-Match匹配时返回304；</li>
+ *     <li>设置了{@link ResponseCache}时，报文体在内存中的完整响应编码后放入缓存，命中时不再访问文件系统，
+ *     缓存的内容在TTL内可能落后于文件。</li>
+ * </ul>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class StaticFiles {
+
+    private static final String INDEX_FILE = "index.html";
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    /**
+     * Range无法满足时{@link #parseRange}的返回值。
+     */
+    private static final long[] UNSATISFIABLE = new long[0];
+
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("htm", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("txt", "text/plain; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+        CONTENT_TYPES.put("json", "application/json");
+        CONTENT_TYPES.put("xml", "application/xml");
+        CONTENT_TYPES.put("svg", "image/svg+xml");
+        CONTENT_TYPES.put("png", "image/png");
+        CONTENT_TYPES.put("jpg", "image/jpeg");
+        CONTENT_TYPES.put("jpeg", "image/jpeg");
+        CONTENT_TYPES.put("gif", "image/gif");
+        CONTENT_TYPES.put("ico", "image/x-icon");
+        CONTENT_TYPES.put("pdf", "application/pdf");
+        CONTENT_TYPES.put("zip", "application/zip");
+    }
+
+    private final Path documentRoot;
+
+    private final MappedFileCache mappedFileCache;
+
+    private final CompressedFileCache compressedFileCache;
+
+    private final ResponseCache responseCache;
+
+    public StaticFiles(@NotNull ServerOptions options) {
+        this.documentRoot = options.getDocumentRoot().toAbsolutePath().normalize();
+        this.mappedFileCache = new MappedFileCache(options.getMaxMappedFileSize(), options.getMappedFileCacheSize());
+        this.compressedFileCache = ! options.isCompression() ? null : new CompressedFileCache(
+                new Compressor(new DeflaterPool(options.getCompressionLevel(), 2 * Runtime.getRuntime().availableProcessors())),
+                options.getCompressionMinSize(), options.getMaxCompressedFileSize(), options.getCompressedCacheSize());
+        this.responseCache = options.getResponseCache();
+    }
+
+    /**
+     * 根据请求生成响应，文件不存在等错误也以响应的形式返回。
+     * @param request 请求报文，position是报文起点
+     * @param keepAlive 响应发送完后是否保持连接
+     */
+    @NotNull
+    public FileResponse resolve(@NotNull ByteBuffer request, @NotNull HttpParser parser, boolean keepAlive) {
+        boolean head = HttpParser.equalsIgnoreCase(request, parser.methodStart(), parser.methodEnd(), "HEAD");
+        if (! head && ! HttpParser.equalsIgnoreCase(request, parser.methodStart(), parser.methodEnd(), "GET")) {
+            return error(405, "Method Not Allowed", false, keepAlive, "Allow: GET, HEAD");
+        }
+
+        String uri = HttpParser.toString(request, parser.uriStart(), parser.uriEnd());
+        String range = header(request, parser, "Range");
+        String ifNoneMatch = header(request, parser, "If-None-Match");
+        String acceptEncoding = null == compressedFileCache ? null : header(request, parser, "Accept-Encoding");
+        ContentCoding coding = null == acceptEncoding ? null : ContentCoding.negotiate(acceptEncoding);
+
+        ResponseCache.Key key = null;
+        if (null != responseCache && null == range) {
+            // no-store时既不查也不存；no-cache或max-age=0时跳过缓存重新生成，结果仍然放入缓存。
+            String cacheControl = header(request, parser, "Cache-Control");
+            if (null == cacheControl || ! hasDirective(cacheControl, "no-store")) {
+                key = new ResponseCache.Key("GET", uri, null == coding ? "" : coding.token(), keepAlive);
+                CachedResponse cached = null != cacheControl
+                        && (hasDirective(cacheControl, "no-cache") || hasDirective(cacheControl, "max-age=0"))
+                        ? null : responseCache.get(key);
+                if (null != cached) {
+                    if (null != ifNoneMatch && matches(ifNoneMatch, cached.etag())) {
+                        return new FileResponse(cached.notModified(), null, null, 0, 0, keepAlive);
+                    }
+                    return new FileResponse(head ? cached.head() : cached.response(), null, null, 0, 0, keepAlive);
+                }
+            }
+        }
+
+        Path path = toPath(uri);
+        if (null == path) {
+            return error(404, "Not Found", head, keepAlive);
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.isDirectory()) {
+                path = path.resolve(INDEX_FILE);
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            }
+            if (! attributes.isRegularFile()) {
+                return error(404, "Not Found", head, keepAlive);
+            }
+            return resolve(path, attributes, head, keepAlive, range, ifNoneMatch, coding, key);
+        } catch (NoSuchFileException e) {
+            return error(404, "Not Found", head, keepAlive);
+        } catch (AccessDeniedException e) {
+            return error(403, "Forbidden", head, keepAlive);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return error(500, "Internal Server Error", head, keepAlive);
+        }
+    }
+
+    /**
+     * 为一个存在的普通文件生成响应。
+     * @param key 不为null时，完整的200响应在报文体位于内存中时放入{@link ResponseCache}
+     */
+    @NotNull
+    private FileResponse resolve(@NotNull Path path, @NotNull BasicFileAttributes attributes, boolean head, boolean keepAlive,
+                                 String rangeHeader, String ifNoneMatch, ContentCoding coding, ResponseCache.Key key)
+            throws IOException {
+        long size = attributes.size();
+        long[] range = null == rangeHeader ? null : parseRange(rangeHeader, size);
+        if (UNSATISFIABLE == range) {
+            return error(416, "Range Not Satisfiable", head, keepAlive, "Content-Range: bytes */" + size);
+        }
+        String contentType = contentType(path);
+        boolean compressible = null != compressedFileCache && isCompressible(contentType);
+        // 可以压缩的内容即使这次没有压缩，也要告诉缓存响应随Accept-Encoding变化。
+        String vary = compressible ? "Vary: Accept-Encoding" : null;
+        String etag = etag(attributes, null);
+
+        if (compressible && null == range && null != coding) {
+            ByteBuffer compressed = compressedFileCache.get(path, attributes, coding);
+            if (CompressedFileCache.PENDING == compressed) {
+                // 压缩好之前先发送原始内容，不放入缓存，否则之后带同样编码的请求会一直命中未压缩的响应。
+                key = null;
+            } else if (null != compressed) {
+                etag = etag(attributes, coding);
+                if (null != ifNoneMatch && matches(ifNoneMatch, etag)) {
+                    return notModified(etag, keepAlive, vary);
+                }
+                byte[] responseHead = HttpResponses.encodeHead(200, "OK", contentType, compressed.remaining(), keepAlive,
+                        "Content-Encoding: " + coding.token(), "ETag: " + etag, vary);
+                return response(responseHead, compressed, head, keepAlive, key, etag, vary);
+            }
+        }
+        if (null == range && null != ifNoneMatch && matches(ifNoneMatch, etag)) {
+            return notModified(etag, keepAlive, vary);
+        }
+
+        long start = null == range ? 0 : range[0];
+        long count = null == range ? size : range[1] - range[0];
+        byte[] responseHead = null == range
+                ? HttpResponses.encodeHead(200, "OK", contentType, count, keepAlive, headers("Accept-Ranges: bytes", "ETag: " + etag, vary))
+                : HttpResponses.encodeHead(206, "Partial Content", contentType, count, keepAlive, headers("Accept-Ranges: bytes",
+                        "Content-Range: bytes " + start + "-" + (start + count - 1) + "/" + size, "ETag: " + etag, vary));
+        if (head) {
+            return new FileResponse(ByteBuffer.wrap(responseHead), null, null, 0, 0, keepAlive);
+        }
+
+        ByteBuffer mapped = mappedFileCache.get(path, attributes);
+        if (null != mapped) {
+            mapped.limit((int) (start + count)).position((int) start);
+            return response(responseHead, mapped, false, keepAlive, null == range ? key : null, etag, vary);
+        }
+        FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.READ);
+        return new FileResponse(ByteBuffer.wrap(responseHead), null, fileChannel, start, count, keepAlive);
+    }
+
+    /**
+     * 报文体在内存中的200响应。有缓存键并且通过了缓存的准入时编码后放入缓存，直接发送缓存中的那一份。
+     */
+    @NotNull
+    private FileResponse response(@NotNull byte[] responseHead, @NotNull ByteBuffer body, boolean head, boolean keepAlive,
+                                  ResponseCache.Key key, @NotNull String etag, String vary) {
+        if (head) {
+            return new FileResponse(ByteBuffer.wrap(responseHead), null, null, 0, 0, keepAlive);
+        }
+        if (null == key) {
+            return new FileResponse(ByteBuffer.wrap(responseHead), body, null, 0, 0, keepAlive);
+        }
+        CachedResponse cached = responseCache.put(key, ByteBuffer.wrap(responseHead), body, etag, headers(vary));
+        if (null == cached) {
+            return new FileResponse(ByteBuffer.wrap(responseHead), body, null, 0, 0, keepAlive);
+        }
+        return new FileResponse(cached.response(), null, null, 0, 0, keepAlive);
+    }
+
+    @NotNull
+    private static FileResponse notModified(@NotNull String etag, boolean keepAlive, String vary) {
+        return new FileResponse(ByteBuffer.wrap(HttpResponses.encodeNotModified(etag, keepAlive, headers(vary))), null, null, 0, 0,
+                keepAlive);
+    }
+
+    /**
+     * 由文件的修改时间和大小生成强ETag，压缩后的内容带上编码，与原始内容区分开。
+     */
+    @NotNull
+    private static String etag(@NotNull BasicFileAttributes attributes, ContentCoding coding) {
+        String tag = Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+        return "\"" + (null == coding ? tag : tag + "-" + coding.token()) + "\"";
+    }
+
+    /**
+     * If-None-Match是否与etag匹配，按弱比较忽略W/前缀。
+     */
+    private static boolean matches(@NotNull String ifNoneMatch, @NotNull String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if ("*".equals(tag) || etag.equals(tag.startsWith("W/") ? tag.substring(2) : tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cache-Control中是否有某个指令，不区分大小写。
+     */
+    private static boolean hasDirective(@NotNull String cacheControl, @NotNull String directive) {
+        for (String candidate : cacheControl.split(",")) {
+            if (candidate.trim().equalsIgnoreCase(directive)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 请求头的值，没有时返回null。
+     */
+    private static String header(@NotNull ByteBuffer request, @NotNull HttpParser parser, @NotNull String name) {
+        int index = parser.indexOfHeader(request, name);
+        return index < 0 ? null : HttpParser.toString(request, parser.headerValueStart(index), parser.headerValueEnd(index));
+    }
+
+    /**
+     * 把请求路径解码后映射到文档目录中，路径非法或者位于文档目录之外时返回null。
+     */
+    private Path toPath(@NotNull String uri) {
+        int end = uri.indexOf('?');
+        String decoded = decode(-1 == end ? uri : uri.substring(0, end));
+        if (null == decoded || ! decoded.startsWith("/") || -1 != decoded.indexOf('\0')) {
+            return null;
+        }
+        try {
+            Path path = documentRoot.resolve(decoded.substring(1)).normalize();
+            return path.startsWith(documentRoot) ? path : null;
+        } catch (InvalidPathException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 百分号解码，按UTF-8还原字符。编码不合法时返回null。
+     */
+    private static String decode(@NotNull String path) {
+        if (-1 == path.indexOf('%')) {
+            return path;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if ('%' != c) {
+                bytes.write(c);
+                continue;
+            }
+            if (i + 2 >= path.length()) {
+                return null;
+            }
+            int high = Character.digit(path.charAt(i + 1), 16);
+            int low = Character.digit(path.charAt(i + 2), 16);
+            if (high < 0 || low < 0) {
+                return null;
+            }
+            bytes.write(high << 4 | low);
+            i += 2;
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 解析Range请求头。
+     * @return 区间[start, end)；不支持或者格式不对时返回null，表示忽略Range；无法满足时返回{@link #UNSATISFIABLE}
+     */
+    private static long[] parseRange(@NotNull String value, long size) {
+        if (! value.regionMatches(true, 0, "bytes=", 0, 6) || -1 != value.indexOf(',')) {
+            return null;
+        }
+        int dash = value.indexOf('-', 6);
+        if (-1 == dash) {
+            return null;
+        }
+        try {
+            String first = value.substring(6, dash).trim();
+            String last = value.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                // bytes=-N表示最后N个字节。
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || 0 == size) {
+                    return UNSATISFIABLE;
+                }
+                return new long[] { Math.max(0, size - suffix), size };
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+            if (start < 0 || end < start) {
+                return null;
+            }
+            if (start >= size) {
+                return UNSATISFIABLE;
+            }
+            return new long[] { start, Math.min(end, size - 1) + 1 };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 文本类的内容压缩效果好，图片和压缩包本身已经压缩过。
+     */
+    private static boolean isCompressible(@NotNull String contentType) {
+        return contentType.startsWith("text/") || contentType.startsWith("application/javascript")
+                || contentType.startsWith("application/json") || contentType.startsWith("application/xml")
+                || contentType.startsWith("image/svg+xml");
+    }
+
+    /**
+     * 去掉值为null的响应头。
+     */
+    @NotNull
+    private static String[] headers(@NotNull String... headers) {
+        int count = 0;
+        for (String header : headers) {
+            if (null != header) {
+                headers[count++] = header;
+            }
+        }
+        return count == headers.length ? headers : Arrays.copyOf(headers, count);
+    }
+
+    @NotNull
+    private static String contentType(@NotNull Path path) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String contentType = -1 == dot ? null : CONTENT_TYPES.get(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+        return null == contentType ? DEFAULT_CONTENT_TYPE : contentType;
+    }
+
+    @NotNull
+    private static FileResponse error(int statusCode, @NotNull String reasonPhrase, boolean head, boolean keepAlive,
+                                      @NotNull String... headers) {
+        byte[] body = reasonPhrase.getBytes(StandardCharsets.US_ASCII);
+        byte[] responseHead = HttpResponses.encodeHead(statusCode, reasonPhrase, "text/plain", body.length, keepAlive, headers);
+        // HEAD请求的响应只有响应头，Content-Length仍然是报文体的长度。
+        return new FileResponse(ByteBuffer.wrap(responseHead), head ? null : ByteBuffer.wrap(body), null, 0, 0, keepAlive);
+    }
+}
@@ -0,0 +1,17 @@
+package com.java.network.http;
+
+/**
+ * <p>
+ *     报文还没有接收完整，缓冲区就已经放不下了。服务端收到这个异常时应当回复413后关闭连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class HttpMessageTooLargeException extends HttpParseException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HttpMessageTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.java.network.http;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ *     HTTP报文格式错误。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class HttpParseException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public HttpParseException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,606 @@
+package com.java.network.http;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>
+ *     增量式的HTTP/1.1报文解析器，直接在{@link ByteBuffer}上按状态机解析，不产生中间字符串。
+ * </p>
+ * <p>
+ *     约定：一条报文从{@code buffer.position()}开始，直到报文解析完成前调用方都不能移动position，
+ *     只能在limit之后追加数据（或者整体compact，使报文起点回到0）。
+ *     解析器从上次停下的位置继续扫描，不会重复处理已经看过的字节。
+ *     起始行、请求头和报文体都以相对报文起点的偏移量给出。
+ *     {@link #parse(ByteBuffer)}返回true后，调用方处理完报文，再把position前移{@link #messageLength()}并调用{@link #reset()}。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class HttpParser {
+
+    /**
+     * 报文类型。
+     */
+    public enum Type {
+        /**
+         * 请求报文。
+         */
+        REQUEST,
+        /**
+         * 响应报文。
+         */
+        RESPONSE
+    }
+
+    private enum State {
+        START_LINE,
+        HEADER_LINE,
+        BODY,
+        BODY_UNTIL_CLOSE,
+        CHUNK_SIZE,
+        CHUNK_DATA,
+        CHUNK_DATA_END,
+        TRAILER,
+        COMPLETE
+    }
+
+    /**
+     * 服务端接收的一条HTTP请求（起始行、请求头和报文体）最多这么多字节，超过时不再等它收完。
+     */
+    public static final int MAX_REQUEST_SIZE = 16384;
+
+    private static final byte CR = '\r';
+
+    private static final byte LF = '\n';
+
+    private static final byte SP = ' ';
+
+    private static final byte HT = '\t';
+
+    private static final int DEFAULT_MAX_HEADERS = 64;
+
+    private static final int DEFAULT_MAX_LINE_LENGTH = 8192;
+
+    private final Type type;
+
+    private final int maxHeaders;
+
+    private final int maxLineLength;
+
+    private State state = State.START_LINE;
+
+    private int cursor;
+
+    private int lineStart;
+
+    /**
+     * 起始行的三段，请求为method、uri、version，响应为version、status、reason。
+     */
+    private final int[] startLine = new int[6];
+
+    private int versionMinor;
+
+    private int statusCode;
+
+    /**
+     * 每个请求头占4个位置：名称起点、名称终点、值起点、值终点。
+     */
+    private final int[] headers;
+
+    private int headerCount;
+
+    private long contentLength;
+
+    private boolean chunked;
+
+    private boolean connectionClose;
+
+    private boolean connectionKeepAlive;
+
+    private long remaining;
+
+    private int bodyStart;
+
+    private int bodyEnd;
+
+    /**
+     * 分块编码时每个块的起点和终点。
+     */
+    private int[] chunks = new int[16];
+
+    private int chunkCount;
+
+    private int chunkStart;
+
+    public HttpParser(@NotNull Type type) {
+        this(type, DEFAULT_MAX_HEADERS, DEFAULT_MAX_LINE_LENGTH);
+    }
+
+    public HttpParser(@NotNull Type type, int maxHeaders, int maxLineLength) {
+        this.type = type;
+        this.maxHeaders = maxHeaders;
+        this.maxLineLength = maxLineLength;
+        this.headers = new int[maxHeaders * 4];
+        reset();
+    }
+
+    /**
+     * 清空解析状态，准备解析下一条报文。
+     */
+    public void reset() {
+        state = State.START_LINE;
+        cursor = 0;
+        lineStart = 0;
+        versionMinor = 1;
+        statusCode = 0;
+        headerCount = 0;
+        contentLength = -1;
+        chunked = false;
+        connectionClose = false;
+        connectionKeepAlive = false;
+        remaining = 0;
+        bodyStart = 0;
+        bodyEnd = 0;
+        chunkCount = 0;
+        chunkStart = 0;
+    }
+
+    /**
+     * 解析{@code [position, limit)}中新到达的数据，不修改buffer的position和limit。
+     * @return 报文是否已经完整
+     */
+    public boolean parse(@NotNull ByteBuffer buffer) throws HttpParseException {
+        final int base = buffer.position();
+        final int available = buffer.limit() - base;
+
+        while (State.COMPLETE != state) {
+            switch (state) {
+                case BODY:
+                case CHUNK_DATA: {
+                    int length = (int) Math.min(remaining, available - cursor);
+                    cursor += length;
+                    remaining -= length;
+                    if (remaining > 0) {
+                        return false;
+                    }
+                    if (State.BODY == state) {
+                        bodyEnd = cursor;
+                        state = State.COMPLETE;
+                    } else {
+                        addChunk(chunkStart, cursor);
+                        lineStart = cursor;
+                        state = State.CHUNK_DATA_END;
+                    }
+                    break;
+                }
+                case BODY_UNTIL_CLOSE: {
+                    cursor = available;
+                    bodyEnd = cursor;
+                    return false;
+                }
+                default: {
+                    int lineFeed = indexOfLineFeed(buffer, base, available);
+                    if (lineFeed < 0) {
+                        cursor = available;
+                        if (cursor - lineStart > maxLineLength) {
+                            throw new HttpParseException("Line too long");
+                        }
+                        return false;
+                    }
+                    int lineEnd = lineFeed > lineStart && CR == buffer.get(base + lineFeed - 1) ? lineFeed - 1 : lineFeed;
+                    cursor = lineFeed + 1;
+                    parseLine(buffer, base, lineStart, lineEnd);
+                    lineStart = cursor;
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 连接已经关闭。对于以关闭连接表示结束的响应体，此时报文才算完整。
+     * @return 报文是否已经完整
+     */
+    public boolean endOfInput() {
+        if (State.BODY_UNTIL_CLOSE == state) {
+            state = State.COMPLETE;
+        }
+        return State.COMPLETE == state;
+    }
+
+    public boolean isComplete() {
+        return State.COMPLETE == state;
+    }
+
+    /**
+     * 是否还没有读到这条报文的任何字节。
+     */
+    public boolean isIdle() {
+        return State.START_LINE == state && 0 == cursor;
+    }
+
+    public int messageLength() {
+        return cursor;
+    }
+
+    public int methodStart() {
+        return startLine[0];
+    }
+
+    public int methodEnd() {
+        return startLine[1];
+    }
+
+    public int uriStart() {
+        return startLine[2];
+    }
+
+    public int uriEnd() {
+        return startLine[3];
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+
+    public int versionMinor() {
+        return versionMinor;
+    }
+
+    public int headerCount() {
+        return headerCount;
+    }
+
+    public int headerNameStart(int index) {
+        return headers[index * 4];
+    }
+
+    public int headerNameEnd(int index) {
+        return headers[index * 4 + 1];
+    }
+
+    public int headerValueStart(int index) {
+        return headers[index * 4 + 2];
+    }
+
+    public int headerValueEnd(int index) {
+        return headers[index * 4 + 3];
+    }
+
+    /**
+     * 按名称查找请求头，名称不区分大小写。
+     * @return 请求头下标，不存在时返回-1
+     */
+    public int indexOfHeader(@NotNull ByteBuffer buffer, @NotNull String name) {
+        for (int i = 0; i < headerCount; i++) {
+            if (equalsIgnoreCase(buffer, headerNameStart(i), headerNameEnd(i), name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public long contentLength() {
+        return contentLength;
+    }
+
+    public boolean isChunked() {
+        return chunked;
+    }
+
+    public int bodyStart() {
+        return bodyStart;
+    }
+
+    /**
+     * 非分块编码时报文体的终点。
+     */
+    public int bodyEnd() {
+        return bodyEnd;
+    }
+
+    public int chunkCount() {
+        return chunkCount;
+    }
+
+    public int chunkStart(int index) {
+        return chunks[index * 2];
+    }
+
+    public int chunkEnd(int index) {
+        return chunks[index * 2 + 1];
+    }
+
+    /**
+     * 按照协议版本和Connection头判断连接是否可以复用。
+     */
+    public boolean isKeepAlive() {
+        if (connectionClose) {
+            return false;
+        }
+        return versionMinor >= 1 || connectionKeepAlive;
+    }
+
+    /**
+     * 以ASCII比较报文中{@code [start, end)}的内容，不区分大小写。偏移量相对于{@code buffer.position()}。
+     */
+    public static boolean equalsIgnoreCase(@NotNull ByteBuffer buffer, int start, int end, @NotNull String value) {
+        if (end - start != value.length()) {
+            return false;
+        }
+        int base = buffer.position();
+        for (int i = 0; i < value.length(); i++) {
+            if (toLowerCase(buffer.get(base + start + i)) != toLowerCase((byte) value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把报文中{@code [start, end)}的内容按ASCII转成字符串，仅用于日志等非热点路径。
+     */
+    @NotNull
+    public static String toString(@NotNull ByteBuffer buffer, int start, int end) {
+        char[] chars = new char[end - start];
+        int base = buffer.position();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (buffer.get(base + start + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private int indexOfLineFeed(ByteBuffer buffer, int base, int available) {
+        for (int i = cursor; i < available; i++) {
+            if (LF == buffer.get(base + i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void parseLine(ByteBuffer buffer, int base, int start, int end) throws HttpParseException {
+        if (end - start > maxLineLength) {
+            throw new HttpParseException("Line too long");
+        }
+        switch (state) {
+            case START_LINE:
+                // 起始行之前的空行直接忽略。
+                if (start != end) {
+                    parseStartLine(buffer, base, start, end);
+                    state = State.HEADER_LINE;
+                }
+                break;
+            case HEADER_LINE:
+                if (start == end) {
+                    startBody();
+                } else {
+                    parseHeader(buffer, base, start, end);
+                }
+                break;
+            case CHUNK_SIZE:
+                parseChunkSize(buffer, base, start, end);
+                break;
+            case CHUNK_DATA_END:
+                if (start != end) {
+                    throw new HttpParseException("Missing CRLF after chunk data");
+                }
+                state = State.CHUNK_SIZE;
+                break;
+            case TRAILER:
+                // 忽略trailer中的头部，空行表示报文结束。
+                if (start == end) {
+                    state = State.COMPLETE;
+                }
+                break;
+            default:
+                throw new IllegalStateException(state.name());
+        }
+    }
+
+    private void parseStartLine(ByteBuffer buffer, int base, int start, int end) throws HttpParseException {
+        int firstSpace = indexOf(buffer, base, start, end, SP);
+        int secondSpace = firstSpace < 0 ? -1 : indexOf(buffer, base, firstSpace + 1, end, SP);
+        if (firstSpace <= start || (Type.REQUEST == type && secondSpace < 0)) {
+            throw new HttpParseException("Malformed start line");
+        }
+        startLine[0] = start;
+        startLine[1] = firstSpace;
+        startLine[2] = firstSpace + 1;
+        startLine[3] = secondSpace < 0 ? end : secondSpace;
+        startLine[4] = secondSpace < 0 ? end : secondSpace + 1;
+        startLine[5] = end;
+
+        if (Type.REQUEST == type) {
+            if (startLine[2] == startLine[3]) {
+                throw new HttpParseException("Malformed start line");
+            }
+            versionMinor = parseVersion(buffer, base, startLine[4], startLine[5]);
+        } else {
+            versionMinor = parseVersion(buffer, base, startLine[0], startLine[1]);
+            if (startLine[3] - startLine[2] != 3) {
+                throw new HttpParseException("Malformed status code");
+            }
+            statusCode = (int) parseDecimal(buffer, base, startLine[2], startLine[3]);
+        }
+    }
+
+    private int parseVersion(ByteBuffer buffer, int base, int start, int end) throws HttpParseException {
+        // 只接受HTTP/1.x。
+        if (end - start != 8 || 'H' != buffer.get(base + start) || 'T' != buffer.get(base + start + 1)
+                || 'T' != buffer.get(base + start + 2) || 'P' != buffer.get(base + start + 3)
+                || '/' != buffer.get(base + start + 4) || '1' != buffer.get(base + start + 5)
+                || '.' != buffer.get(base + start + 6)) {
+            throw new HttpParseException("Unsupported HTTP version");
+        }
+        byte minor = buffer.get(base + start + 7);
+        if (minor < '0' || minor > '9') {
+            throw new HttpParseException("Unsupported HTTP version");
+        }
+        return minor - '0';
+    }
+
+    private void parseHeader(ByteBuffer buffer, int base, int start, int end) throws HttpParseException {
+        byte first = buffer.get(base + start);
+        if (SP == first || HT == first) {
+            throw new HttpParseException("Obsolete line folding is not supported");
+        }
+        int colon = indexOf(buffer, base, start, end, (byte) ':');
+        if (colon <= start) {
+            throw new HttpParseException("Malformed header");
+        }
+        for (int i = start; i < colon; i++) {
+            byte b = buffer.get(base + i);
+            if (SP == b || HT == b) {
+                throw new HttpParseException("Whitespace in header name");
+            }
+        }
+        int valueStart = colon + 1;
+        int valueEnd = end;
+        while (valueStart < valueEnd && isWhitespace(buffer.get(base + valueStart))) {
+            valueStart++;
+        }
+        while (valueEnd > valueStart && isWhitespace(buffer.get(base + valueEnd - 1))) {
+            valueEnd--;
+        }
+        if (headerCount == maxHeaders) {
+            throw new HttpParseException("Too many headers");
+        }
+        int offset = headerCount * 4;
+        headers[offset] = start;
+        headers[offset + 1] = colon;
+        headers[offset + 2] = valueStart;
+        headers[offset + 3] = valueEnd;
+        headerCount++;
+
+        // 读到的同时就识别出决定报文边界和连接复用的头部，避免之后再查找。解析期间base就是buffer.position()。
+        if (equalsIgnoreCase(buffer, start, colon, "Content-Length")) {
+            long length = parseDecimal(buffer, base, valueStart, valueEnd);
+            if (contentLength >= 0 && contentLength != length) {
+                throw new HttpParseException("Conflicting Content-Length");
+            }
+            contentLength = length;
+        } else if (equalsIgnoreCase(buffer, start, colon, "Transfer-Encoding")) {
+            chunked = endsWithIgnoreCase(buffer, valueStart, valueEnd, "chunked");
+        } else if (equalsIgnoreCase(buffer, start, colon, "Connection")) {
+            parseConnection(buffer, valueStart, valueEnd);
+        }
+    }
+
+    private void parseConnection(ByteBuffer buffer, int start, int end) {
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || ',' == buffer.get(buffer.position() + i)) {
+                int tokenEnd = i;
+                while (tokenStart < tokenEnd && isWhitespace(buffer.get(buffer.position() + tokenStart))) {
+                    tokenStart++;
+                }
+                while (tokenEnd > tokenStart && isWhitespace(buffer.get(buffer.position() + tokenEnd - 1))) {
+                    tokenEnd--;
+                }
+                if (equalsIgnoreCase(buffer, tokenStart, tokenEnd, "close")) {
+                    connectionClose = true;
+                } else if (equalsIgnoreCase(buffer, tokenStart, tokenEnd, "keep-alive")) {
+                    connectionKeepAlive = true;
+                }
+                tokenStart = i + 1;
+            }
+        }
+    }
+
+    private void startBody() {
+        bodyStart = cursor;
+        bodyEnd = cursor;
+        if (Type.RESPONSE == type && (statusCode / 100 == 1 || 204 == statusCode || 304 == statusCode)) {
+            state = State.COMPLETE;
+        } else if (chunked) {
+            state = State.CHUNK_SIZE;
+        } else if (contentLength > 0) {
+            remaining = contentLength;
+            state = State.BODY;
+        } else if (contentLength < 0 && Type.RESPONSE == type) {
+            state = State.BODY_UNTIL_CLOSE;
+        } else {
+            state = State.COMPLETE;
+        }
+    }
+
+    private void parseChunkSize(ByteBuffer buffer, int base, int start, int end) throws HttpParseException {
+        long size = 0;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(base + i);
+            int digit = Character.digit(b, 16);
+            if (digit < 0) {
+                // 忽略分块扩展。
+                if (';' == b || SP == b || HT == b) {
+                    break;
+                }
+                throw new HttpParseException("Malformed chunk size");
+            }
+            if (++digits > 15) {
+                throw new HttpParseException("Chunk size too large");
+            }
+            size = (size << 4) | digit;
+        }
+        if (0 == digits) {
+            throw new HttpParseException("Malformed chunk size");
+        }
+        if (0 == size) {
+            state = State.TRAILER;
+        } else {
+            remaining = size;
+            chunkStart = cursor;
+            state = State.CHUNK_DATA;
+        }
+    }
+
+    private void addChunk(int start, int end) {
+        if (chunks.length == chunkCount * 2) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        chunks[chunkCount * 2] = start;
+        chunks[chunkCount * 2 + 1] = end;
+        chunkCount++;
+    }
+
+    private static long parseDecimal(ByteBuffer buffer, int base, int start, int end) throws HttpParseException {
+        if (start == end || end - start > 18) {
+            throw new HttpParseException("Malformed number");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(base + i);
+            if (b < '0' || b > '9') {
+                throw new HttpParseException("Malformed number");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean endsWithIgnoreCase(ByteBuffer buffer, int start, int end, String suffix) {
+        return end - start >= suffix.length() && equalsIgnoreCase(buffer, end - suffix.length(), end, suffix);
+    }
+
+    private static int indexOf(ByteBuffer buffer, int base, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (value == buffer.get(base + i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return SP == b || HT == b;
+    }
+
+    private static byte toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + 32) : b;
+    }
+}
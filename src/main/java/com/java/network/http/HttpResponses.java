@@ -0,0 +1,79 @@
+package com.java.network.http;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>
+ *     预先编码好的响应报文，服务端启动时生成一次，之后每个请求直接复用。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class HttpResponses {
+
+    private static final byte[] PAYLOAD_TOO_LARGE = encode(413, "Payload Too Large", "text/plain",
+            "Payload Too Large".getBytes(StandardCharsets.US_ASCII), false);
+
+    private HttpResponses() {
+    }
+
+    /**
+     * 请求超过{@link HttpParser#MAX_REQUEST_SIZE}时回复的413响应，带Connection: close，三种服务端共用。
+     * 调用方不能修改返回的数组。
+     */
+    @NotNull
+    public static byte[] payloadTooLarge() {
+        return PAYLOAD_TOO_LARGE;
+    }
+
+    /**
+     * 编码一条完整的响应报文。
+     * @param keepAlive 为false时带上Connection: close，告诉对端发送完这条响应就关闭连接；
+     *                  为true时显式带上Connection: keep-alive，兼容HTTP/1.0的客户端
+     */
+    @NotNull
+    public static byte[] encode(int statusCode, @NotNull String reasonPhrase, @NotNull String contentType,
+                                @NotNull byte[] body, boolean keepAlive) {
+        byte[] head = encodeHead(statusCode, reasonPhrase, contentType, body.length, keepAlive);
+        byte[] response = new byte[head.length + body.length];
+        System.arraycopy(head, 0, response, 0, head.length);
+        System.arraycopy(body, 0, response, head.length, body.length);
+        return response;
+    }
+
+    /**
+     * 只编码起始行和响应头，报文体由调用方另外发送。
+     * @param headers 额外的响应头，每个元素是一行完整的{@code Name: value}，不带换行
+     */
+    @NotNull
+    public static byte[] encodeHead(int statusCode, @NotNull String reasonPhrase, @NotNull String contentType,
+                                    long contentLength, boolean keepAlive, @NotNull String... headers) {
+        StringBuilder head = new StringBuilder(128)
+                .append("HTTP/1.1 ").append(statusCode).append(' ').append(reasonPhrase).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n")
+                .append("Content-Length: ").append(contentLength).append("\r\n");
+        for (String header : headers) {
+            head.append(header).append("\r\n");
+        }
+        head.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n").append("\r\n");
+        return head.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 编码304响应。304没有报文体，也不带Content-Type和Content-Length。
+     * @param headers 额外的响应头，每个元素是一行完整的{@code Name: value}，不带换行
+     */
+    @NotNull
+    public static byte[] encodeNotModified(@NotNull String etag, boolean keepAlive, @NotNull String... headers) {
+        StringBuilder head = new StringBuilder(128)
+                .append("HTTP/1.1 304 Not Modified\r\n")
+                .append("ETag: ").append(etag).append("\r\n");
+        for (String header : headers) {
+            head.append(header).append("\r\n");
+        }
+        head.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n").append("\r\n");
+        return head.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
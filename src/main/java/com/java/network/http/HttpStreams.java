@@ -0,0 +1,51 @@
+package com.java.network.http;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     在阻塞流上配合{@link HttpParser}读取报文，供Socket方式的服务端和客户端使用。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class HttpStreams {
+
+    private HttpStreams() {
+    }
+
+    /**
+     * 读取一条完整报文。buffer必须是堆内缓冲区并处于读模式，报文从position开始，
+     * 读到的数据追加在limit之后，已读到但不属于这条报文的数据会留在buffer中供下一次读取。
+     * @return 读到完整报文时返回true，报文开始之前连接就已关闭时返回false
+     * @throws HttpMessageTooLargeException 报文超过了buffer的容量
+     */
+    public static boolean read(@NotNull InputStream inputStream, @NotNull ByteBuffer buffer, @NotNull HttpParser parser) throws IOException {
+        while (! parser.parse(buffer)) {
+            if (buffer.limit() == buffer.capacity()) {
+                if (0 == buffer.position()) {
+                    throw new HttpMessageTooLargeException("Message too large");
+                }
+                buffer.compact();
+                buffer.flip();
+            }
+            int length = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.limit(), buffer.capacity() - buffer.limit());
+            if (length < 0) {
+                if (parser.endOfInput()) {
+                    return true;
+                }
+                if (parser.isIdle()) {
+                    return false;
+                }
+                throw new EOFException("Connection closed in the middle of a message");
+            }
+            buffer.limit(buffer.limit() + length);
+        }
+        return true;
+    }
+}
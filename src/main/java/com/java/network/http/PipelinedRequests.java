@@ -0,0 +1,103 @@
+package com.java.network.http;
+
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.timer.Timeout;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     客户端一个连接上流水线发出、还没有收到响应的HTTP请求。HTTP/1.1的响应按请求发出的顺序返回，
+ *     请求必须按写出的顺序{@link #start}，收到的每个响应交给队列最前面的请求。
+ * </p>
+ * <p>
+ *     除了超时任务，只在连接所在的IO线程中访问。一个请求超时后后面的响应都无法再对上，由构造时传入的回调关闭连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class PipelinedRequests {
+
+    private final Queue<Request> requests = new ArrayDeque<>();
+
+    private final TransportMetrics metrics;
+
+    /**
+     * 请求超时后在超时任务的线程中调用，应当关闭连接。
+     */
+    private final Runnable onTimeout;
+
+    public PipelinedRequests(@NotNull TransportMetrics metrics, @NotNull Runnable onTimeout) {
+        this.metrics = metrics;
+        this.onTimeout = onTimeout;
+    }
+
+    /**
+     * 请求写出前调用，返回的{@link Request}同时是这次请求的响应超时任务，由调用方调度。
+     */
+    @NotNull
+    public Request start(@NotNull CompletableFuture<String> future) {
+        Request request = new Request(future);
+        requests.offer(request);
+        return request;
+    }
+
+    /**
+     * 收到一个响应，取出最早发出的请求。没有请求在等待时返回null，说明连接状态已经不可信。
+     */
+    public Request finish() {
+        return requests.poll();
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    /**
+     * 连接断开，所有还在等待的请求以cause失败。
+     * @return 失败的请求，调用方据此取消它们的超时任务
+     */
+    @NotNull
+    public Iterable<Request> failAll(@NotNull Throwable cause) {
+        List<Request> failed = new ArrayList<>(requests);
+        requests.clear();
+        for (Request request : failed) {
+            request.future.completeExceptionally(cause);
+        }
+        return failed;
+    }
+
+    /**
+     * 一次请求：等待响应的Future和开始时间。
+     */
+    public final class Request extends Timeout {
+
+        private final CompletableFuture<String> future;
+
+        private final long startNanos = System.nanoTime();
+
+        private Request(@NotNull CompletableFuture<String> future) {
+            this.future = future;
+        }
+
+        public void complete(@NotNull String response) {
+            metrics.request(System.nanoTime() - startNanos);
+            future.complete(response);
+        }
+
+        @Override
+        protected void onTimeout() {
+            // 响应和超时同时发生时只处理先到的一方，请求仍留在队列中，直到连接关闭。
+            if (future.completeExceptionally(new SocketTimeoutException("Response timed out"))) {
+                metrics.timeout();
+                onTimeout.run();
+            }
+        }
+    }
+}
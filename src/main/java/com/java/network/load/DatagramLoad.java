@@ -0,0 +1,317 @@
+package com.java.network.load;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.datagram.DatagramOptions;
+import com.java.network.datagram.UdpSockets;
+import com.java.network.metrics.DatagramMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.netty.NettyDatagramClient;
+import com.java.network.netty.NettyDatagramServer;
+import com.java.network.netty.NettyTransport;
+import com.java.network.nio.NioDatagramClient;
+import com.java.network.nio.NioDatagramServer;
+import com.java.network.server.Server;
+import io.netty.buffer.ByteBuf;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     UDP吞吐量压测：若干发送方以最快的速度向服务端发送固定大小的数据包，每秒输出发送、接收和各处丢包的速率。
+ * </p>
+ * <p>
+ *     与{@link LoadGenerator}不同，UDP没有请求和响应的对应关系，这里只关心每秒能收发多少个数据包、在哪里丢了多少。
+ *     {@code --server=nio|netty}时在同一进程中启动服务端，可以直接看到服务端收到的数量，用于在回环地址上比较两套实现；
+ *     内核丢包数读取本机/proc/net/udp中服务端端口的drops列，服务端在其他进程中时同样有效。
+ * </p>
+ * <pre>
+ * # 4个发送线程，64字节的数据包，进程内的Netty服务端，4个接收线程
+ * java -cp target/classes:&lt;依赖&gt; com.java.network.load.DatagramLoad --client=nio --server=netty --senders=4 --receivers=4 --size=64
+ * </pre>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class DatagramLoad {
+
+    /**
+     * 客户端和服务端的实现。
+     */
+    public enum Stack {
+        NIO,
+        NETTY
+    }
+
+    private Stack client = Stack.NIO;
+
+    /**
+     * 为null时不在进程内启动服务端。
+     */
+    private Stack server;
+
+    private String host = "127.0.0.1";
+
+    private int port = 9527;
+
+    private int senders = 1;
+
+    private int packetSize = 64;
+
+    private long durationSeconds = 10;
+
+    private final DatagramOptions options = new DatagramOptions();
+
+    private volatile boolean running = true;
+
+    /**
+     * 按命令行参数覆盖默认的配置。
+     * @throws IllegalArgumentException 参数不认识或者值不合法
+     */
+    @NotNull
+    public DatagramLoad parse(@NotNull String... args) {
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (! arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "client":
+                    client = Stack.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "server":
+                    server = "none".equals(value) ? null : Stack.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "host":
+                    host = value;
+                    break;
+                case "port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "senders":
+                    senders = requirePositive(Integer.parseInt(value), name);
+                    break;
+                case "size":
+                    packetSize = requirePositive(Integer.parseInt(value), name);
+                    break;
+                case "duration":
+                    durationSeconds = requirePositive(Integer.parseInt(value), name);
+                    break;
+                case "receivers":
+                    options.receiverCount(Integer.parseInt(value));
+                    break;
+                case "batch":
+                    options.batchSize(Integer.parseInt(value));
+                    break;
+                case "echo":
+                    options.echo(Boolean.parseBoolean(value));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (packetSize > options.getMaxPacketSize()) {
+            options.maxPacketSize(packetSize);
+        }
+        return this;
+    }
+
+    /**
+     * 运行压测，阻塞到结束。
+     */
+    public void run() throws IOException, InterruptedException {
+        Server datagramServer = null;
+        if (Stack.NIO == server) {
+            datagramServer = new NioDatagramServer(options);
+        } else if (Stack.NETTY == server) {
+            datagramServer = new NettyDatagramServer(options);
+        }
+        if (null != datagramServer) {
+            datagramServer.start(port);
+        }
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        DatagramMetrics clientMetrics = registry.datagram(Stack.NIO == client ? NioDatagramClient.METRICS_NAME : NettyDatagramClient.METRICS_NAME);
+        DatagramMetrics serverMetrics = null == server ? null
+                : registry.datagram(Stack.NIO == server ? NioDatagramServer.METRICS_NAME : NettyDatagramServer.METRICS_NAME);
+
+        List<Closeable> clients = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        try {
+            InetSocketAddress target = new InetSocketAddress(host, port);
+            ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("udp-sender-%d").build();
+            for (int i = 0; i < senders; i++) {
+                if (Stack.NIO == client) {
+                    NioDatagramClient nioClient = new NioDatagramClient(target, options);
+                    clients.add(nioClient);
+                    threads.add(threadFactory.newThread(() -> sendNio(nioClient)));
+                } else {
+                    NettyDatagramClient nettyClient = new NettyDatagramClient(target, options, NettyTransport.detect());
+                    clients.add(nettyClient);
+                    startNetty(nettyClient);
+                }
+            }
+
+            Counters start = new Counters(clientMetrics, serverMetrics);
+            Counters last = start;
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (long second = 1; second <= durationSeconds; second++) {
+                Thread.sleep(1000);
+                Counters now = new Counters(clientMetrics, serverMetrics);
+                System.out.println(String.format("[%5ds] %s", second, now.minus(last, 1)));
+                last = now;
+            }
+            running = false;
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // 让路上的数据包到达服务端。
+            Thread.sleep(200);
+            System.out.println(String.format("[  avg ] %s", new Counters(clientMetrics, serverMetrics).minus(start, durationSeconds)));
+        } finally {
+            running = false;
+            for (Closeable closeable : clients) {
+                closeable.close();
+            }
+            if (null != datagramServer) {
+                datagramServer.stop(1, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * NIO的发送线程，每发出一批数据包收取一次回显。
+     */
+    private void sendNio(@NotNull NioDatagramClient client) {
+        ByteBuffer packet = ByteBuffer.allocateDirect(packetSize);
+        ByteBuffer reply = ByteBuffer.allocateDirect(options.getMaxPacketSize());
+        try {
+            while (running) {
+                for (int i = 0; i < options.getBatchSize(); i++) {
+                    packet.clear();
+                    client.send(packet);
+                }
+                if (options.isEcho()) {
+                    for (int i = 0; i < options.getBatchSize(); i++) {
+                        reply.clear();
+                        if (client.receive(reply) < 0) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Netty的发送任务在客户端的事件循环中反复执行，每次发出一批，写缓冲区满时这一轮不发，让事件循环先把数据写出去。
+     */
+    private void startNetty(@NotNull NettyDatagramClient client) {
+        client.execute(new Runnable() {
+
+            private ByteBuf template;
+
+            @Override
+            public void run() {
+                if (null == template) {
+                    template = client.alloc().directBuffer(packetSize).writeZero(packetSize);
+                }
+                if (! running) {
+                    template.release();
+                    return;
+                }
+                if (client.isWritable()) {
+                    for (int i = 0; i < options.getBatchSize(); i++) {
+                        client.send(template.retainedDuplicate());
+                    }
+                }
+                client.execute(this);
+            }
+        });
+    }
+
+    private static int requirePositive(int value, @NotNull String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * 某一时刻各项计数的快照。
+     */
+    private final class Counters {
+
+        private final long sent;
+
+        private final long sendDrops;
+
+        private final long received;
+
+        private final long truncated;
+
+        private final long kernelDrops;
+
+        private final long replies;
+
+        private Counters(@NotNull DatagramMetrics clientMetrics, DatagramMetrics serverMetrics) {
+            this(clientMetrics.getPacketsSent(), clientMetrics.getSendDrops(),
+                    null == serverMetrics ? 0 : serverMetrics.getPacketsReceived(), null == serverMetrics ? 0 : serverMetrics.getTruncated(),
+                    UdpSockets.kernelDrops(port), clientMetrics.getPacketsReceived());
+        }
+
+        private Counters(long sent, long sendDrops, long received, long truncated, long kernelDrops, long replies) {
+            this.sent = sent;
+            this.sendDrops = sendDrops;
+            this.received = received;
+            this.truncated = truncated;
+            this.kernelDrops = kernelDrops;
+            this.replies = replies;
+        }
+
+        /**
+         * 与之前的快照相比，每秒的增量。
+         */
+        @NotNull
+        private String minus(@NotNull Counters before, long seconds) {
+            StringBuilder builder = new StringBuilder()
+                    .append(String.format("sent=%d/s sendDrops=%d/s", (sent - before.sent) / seconds, (sendDrops - before.sendDrops) / seconds));
+            if (null != server) {
+                builder.append(String.format(" received=%d/s truncated=%d/s", (received - before.received) / seconds,
+                        (truncated - before.truncated) / seconds));
+            }
+            if (kernelDrops >= 0 && before.kernelDrops >= 0) {
+                builder.append(String.format(" kernelDrops=%d/s", (kernelDrops - before.kernelDrops) / seconds));
+            }
+            if (options.isEcho()) {
+                builder.append(String.format(" replies=%d/s", (replies - before.replies) / seconds));
+            }
+            return builder.toString();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        DatagramLoad load;
+        try {
+            load = new DatagramLoad().parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: --client=nio|netty --server=none|nio|netty --host=127.0.0.1 --port=9527 --senders=1 "
+                    + "--size=64 --duration=10 [--receivers=<threads> --batch=64 --echo=false]");
+            return;
+        }
+        load.run();
+    }
+}
@@ -0,0 +1,170 @@
+package com.java.network.load;
+
+import com.java.network.metrics.LatencyHistogram;
+import com.java.network.metrics.LatencySnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>
+ *     开环压测：按目标速率在固定的时刻发出请求，不等待前面的响应，服务端变慢时请求照常发出，
+ *     排队的时间如实体现在延迟里。
+ * </p>
+ * <p>
+ *     每个请求的延迟从它计划发出的时刻算起（见{@link LoadReport}），发送线程被GC或者调度耽误时，
+ *     落后的请求会立即补发，耽误的时间同样计入延迟，从而纠正协调遗漏。
+ *     运行期间按{@link LoadOptions#getReportIntervalMillis()}输出阶段报告，结束后返回完整的分布。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class LoadGenerator {
+
+    /**
+     * 发送结束后最多等待多久让请求完成，比客户端默认的连接、排队和响应超时加起来还长。
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final LoadOptions options;
+
+    private final LatencyHistogram corrected = new LatencyHistogram();
+
+    private final LatencyHistogram uncorrected = new LatencyHistogram();
+
+    private final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+
+    private final LongAdder completed = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder intervalErrors = new LongAdder();
+
+    private final AtomicLong outstanding = new AtomicLong();
+
+    public LoadGenerator(@NotNull LoadOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 运行压测，阻塞到所有请求完成或者等待超时。
+     */
+    @NotNull
+    public LoadReport run() throws IOException, InterruptedException {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long rate = options.getRate();
+        long reportIntervalNanos = TimeUnit.MILLISECONDS.toNanos(options.getReportIntervalMillis());
+        long sent = 0;
+        long unfinished;
+        try (LoadTarget target = LoadTarget.create(options)) {
+            long startNanos = System.nanoTime();
+            long recordFromNanos = startNanos + TimeUnit.MILLISECONDS.toNanos(options.getWarmupMillis());
+            long endNanos = recordFromNanos + TimeUnit.MILLISECONDS.toNanos(options.getDurationMillis());
+            long nextReportNanos = startNanos + reportIntervalNanos;
+            long intervalSent = 0;
+            for (long i = 0; ; i++) {
+                // 用序号计算计划时刻，而不是在上一次发送的时刻上累加间隔，发送慢了不会把后面的计划整体推迟。
+                long intendedNanos = startNanos + i * second / rate;
+                if (intendedNanos - endNanos >= 0) {
+                    break;
+                }
+                while (true) {
+                    long now = System.nanoTime();
+                    if (reportIntervalNanos > 0 && now - nextReportNanos >= 0) {
+                        report(now - startNanos, now - recordFromNanos < 0, intervalSent);
+                        intervalSent = 0;
+                        nextReportNanos += reportIntervalNanos;
+                    }
+                    long waitNanos = intendedNanos - now;
+                    if (waitNanos <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(reportIntervalNanos > 0 ? Math.min(waitNanos, nextReportNanos - now) : waitNanos);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                send(target, intendedNanos, intendedNanos - recordFromNanos >= 0);
+                if (intendedNanos - recordFromNanos >= 0) {
+                    sent++;
+                }
+                intervalSent++;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+            while (outstanding.get() > 0 && System.nanoTime() - deadline < 0) {
+                Thread.sleep(10);
+            }
+            unfinished = outstanding.get();
+            if (reportIntervalNanos > 0 && intervalSent > 0) {
+                report(System.nanoTime() - startNanos, false, intervalSent);
+            }
+            return new LoadReport(options, sent, completed.sum(), errors.sum(), unfinished, endNanos - recordFromNanos,
+                    corrected.snapshot(), uncorrected.snapshot());
+        }
+    }
+
+    private void send(@NotNull LoadTarget target, long intendedNanos, boolean record) {
+        outstanding.incrementAndGet();
+        long sendNanos = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = target.send();
+        } catch (Exception e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        future.whenComplete((response, cause) -> {
+            long now = System.nanoTime();
+            if (null == cause) {
+                interval.get().record(now - intendedNanos);
+                if (record) {
+                    completed.increment();
+                    corrected.record(now - intendedNanos);
+                    uncorrected.record(now - sendNanos);
+                }
+            } else {
+                intervalErrors.increment();
+                if (record) {
+                    errors.increment();
+                }
+            }
+            outstanding.decrementAndGet();
+        });
+    }
+
+    private void report(long elapsedNanos, boolean warmup, long intervalSent) {
+        LatencySnapshot snapshot = interval.getAndSet(new LatencyHistogram()).snapshot();
+        System.out.println(String.format("[%5ds]%s sent=%d completed=%d errors=%d outstanding=%d p50=%dus p99=%dus max=%dus",
+                TimeUnit.NANOSECONDS.toSeconds(elapsedNanos), warmup ? " warmup" : "", intervalSent, snapshot.getCount(),
+                intervalErrors.sumThenReset(), outstanding.get(), snapshot.getP50Micros(), snapshot.getP99Micros(),
+                snapshot.getMaxMicros()));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        run(new LoadOptions(), args);
+    }
+
+    /**
+     * 以defaults为基础解析命令行参数并运行，各客户端的main方法由此进入。
+     */
+    public static void run(@NotNull LoadOptions defaults, @NotNull String... args) throws IOException, InterruptedException {
+        LoadOptions options;
+        try {
+            options = defaults.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: --client=socket|nio|netty --host=127.0.0.1 --port=9527 --rate=1000 --connections=8 "
+                    + "--duration=30 --warmup=5 [--rpc=<method> --payload=<bytes>] --interval=1");
+            return;
+        }
+        System.out.println(options);
+        System.out.print(new LoadGenerator(options).run());
+    }
+}
@@ -0,0 +1,376 @@
+package com.java.network.load;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     压测的配置，可以链式设置，也可以由命令行参数解析，参数的形式是{@code --name=value}：
+ * </p>
+ * <pre>
+ * --client=socket|nio|netty  使用的客户端，默认nio
+ * --host=127.0.0.1 --port=9527
+ * --rate=1000                目标每秒请求数
+ * --connections=8            连接数，socket客户端为同时进行的请求数
+ * --duration=30 --warmup=5   压测和预热的秒数，预热期间的请求不计入结果
+ * --rpc=1                    改用RPC调用这个方法，不设置时发送HTTP GET
+ * --pipelined=true           HTTP请求以流水线方式发送，每个连接不等待前面的响应
+ * --payload=128              RPC请求体的字节数
+ * --batch=16 --batch-delay=200
+ *                            RPC和流水线请求攒够16个或者等待200微秒（默认100）后合并写出
+ * --interval=1               阶段报告的间隔秒数，0为不输出
+ * --hosts=/path/to/hosts     按这个hosts格式的文件解析主机名，文件中没有的再查询DNS
+ * --tls=true                 通过TLS连接，用JDK默认的CA证书验证服务端
+ * --trust-store=/path/to/ts.p12 --trust-store-password=changeit
+ *                            通过TLS连接，用这个信任库验证服务端
+ * </pre>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class LoadOptions {
+
+    /**
+     * 压测使用的客户端。
+     */
+    public enum Client {
+        SOCKET, NIO, NETTY
+    }
+
+    private Client client = Client.NIO;
+
+    private String host = "127.0.0.1";
+
+    private int port = 9527;
+
+    private int rate = 1000;
+
+    private int connections = 8;
+
+    private long durationMillis = TimeUnit.SECONDS.toMillis(30);
+
+    private long warmupMillis = TimeUnit.SECONDS.toMillis(5);
+
+    private int rpcMethod = -1;
+
+    private int payloadSize = 0;
+
+    private long reportIntervalMillis = TimeUnit.SECONDS.toMillis(1);
+
+    private Path hostsFile;
+
+    private boolean tls;
+
+    private Path trustStore;
+
+    private char[] trustStorePassword;
+
+    private boolean pipelined;
+
+    private int maxBatchSize = 1;
+
+    private long maxBatchDelayMicros = 100;
+
+    public LoadOptions client(@NotNull Client client) {
+        this.client = client;
+        return this;
+    }
+
+    public LoadOptions target(@NotNull String host, int port) {
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+        this.host = host;
+        this.port = port;
+        return this;
+    }
+
+    /**
+     * 每秒发出的请求数。请求按固定间隔发出，不等待前面的响应。
+     */
+    public LoadOptions rate(int rate) {
+        this.rate = requirePositive(rate, "rate");
+        return this;
+    }
+
+    public LoadOptions connections(int connections) {
+        this.connections = requirePositive(connections, "connections");
+        return this;
+    }
+
+    public LoadOptions duration(long duration, @NotNull TimeUnit unit) {
+        this.durationMillis = unit.toMillis(requirePositive(duration, "duration"));
+        return this;
+    }
+
+    public LoadOptions warmup(long warmup, @NotNull TimeUnit unit) {
+        if (warmup < 0) {
+            throw new IllegalArgumentException("warmup must not be negative: " + warmup);
+        }
+        this.warmupMillis = unit.toMillis(warmup);
+        return this;
+    }
+
+    /**
+     * 改用RPC调用methodId，服务端需要设置{@link com.java.network.server.ServerOptions#rpcService}。
+     */
+    public LoadOptions rpc(int methodId, int payloadSize) {
+        if (methodId < 0 || payloadSize < 0) {
+            throw new IllegalArgumentException("methodId and payloadSize must not be negative");
+        }
+        this.rpcMethod = methodId;
+        this.payloadSize = payloadSize;
+        return this;
+    }
+
+    /**
+     * HTTP请求通过{@code requestPipelined}发送，SocketClient不支持。
+     */
+    public LoadOptions pipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    /**
+     * 客户端的写合并，见{@link com.java.network.client.ClientOptions#writeBatch}。
+     */
+    public LoadOptions writeBatch(int maxBatchSize, long maxDelay, @NotNull TimeUnit unit) {
+        this.maxBatchSize = requirePositive(maxBatchSize, "maxBatchSize");
+        this.maxBatchDelayMicros = unit.toMicros(requirePositive(maxDelay, "maxDelay"));
+        return this;
+    }
+
+    /**
+     * 阶段报告的间隔，为0时只输出最终报告。
+     */
+    public LoadOptions reportInterval(long interval, @NotNull TimeUnit unit) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("interval must not be negative: " + interval);
+        }
+        this.reportIntervalMillis = unit.toMillis(interval);
+        return this;
+    }
+
+    /**
+     * 用hosts格式的文件解析主机名，见{@link com.java.network.dns.StaticHostResolver#load}。
+     */
+    public LoadOptions hostsFile(@NotNull Path hostsFile) {
+        this.hostsFile = hostsFile;
+        return this;
+    }
+
+    /**
+     * 通过TLS连接，使用JDK默认的CA证书。
+     */
+    public LoadOptions tls(boolean tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    /**
+     * 通过TLS连接，用PKCS12或者JKS格式的信任库验证服务端。
+     */
+    public LoadOptions trustStore(@NotNull Path trustStore, @NotNull char[] password) {
+        this.tls = true;
+        this.trustStore = trustStore;
+        this.trustStorePassword = password.clone();
+        return this;
+    }
+
+    /**
+     * 按命令行参数覆盖当前的配置。
+     * @throws IllegalArgumentException 参数不认识或者值不合法
+     */
+    public LoadOptions parse(@NotNull String... args) {
+        int rpcMethod = this.rpcMethod;
+        int payloadSize = this.payloadSize;
+        Path trustStore = this.trustStore;
+        char[] trustStorePassword = null == this.trustStorePassword ? new char[0] : this.trustStorePassword;
+        int maxBatchSize = this.maxBatchSize;
+        long maxBatchDelayMicros = this.maxBatchDelayMicros;
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (! arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            switch (name) {
+                case "client":
+                    client(Client.valueOf(value.toUpperCase(Locale.ROOT)));
+                    break;
+                case "host":
+                    target(value, port);
+                    break;
+                case "port":
+                    target(host, Integer.parseInt(value));
+                    break;
+                case "rate":
+                    rate(Integer.parseInt(value));
+                    break;
+                case "connections":
+                    connections(Integer.parseInt(value));
+                    break;
+                case "duration":
+                    duration(Long.parseLong(value), TimeUnit.SECONDS);
+                    break;
+                case "warmup":
+                    warmup(Long.parseLong(value), TimeUnit.SECONDS);
+                    break;
+                case "rpc":
+                    rpcMethod = Integer.parseInt(value);
+                    break;
+                case "payload":
+                    payloadSize = Integer.parseInt(value);
+                    break;
+                case "interval":
+                    reportInterval(Long.parseLong(value), TimeUnit.SECONDS);
+                    break;
+                case "hosts":
+                    hostsFile(Paths.get(value));
+                    break;
+                case "tls":
+                    tls(Boolean.parseBoolean(value));
+                    break;
+                case "trust-store":
+                    trustStore = Paths.get(value);
+                    break;
+                case "trust-store-password":
+                    trustStorePassword = value.toCharArray();
+                    break;
+                case "pipelined":
+                    pipelined(Boolean.parseBoolean(value));
+                    break;
+                case "batch":
+                    maxBatchSize = Integer.parseInt(value);
+                    break;
+                case "batch-delay":
+                    maxBatchDelayMicros = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        }
+        if (rpcMethod >= 0 || payloadSize > 0) {
+            rpc(Math.max(0, rpcMethod), payloadSize);
+        }
+        if (null != trustStore) {
+            trustStore(trustStore, trustStorePassword);
+        }
+        if (maxBatchSize > 1) {
+            writeBatch(maxBatchSize, maxBatchDelayMicros, TimeUnit.MICROSECONDS);
+        }
+        if (Client.SOCKET == client && isRpc()) {
+            throw new IllegalArgumentException("SocketClient does not support RPC");
+        }
+        if (Client.SOCKET == client && pipelined) {
+            throw new IllegalArgumentException("SocketClient does not support pipelining");
+        }
+        return this;
+    }
+
+    public Client getClient() {
+        return client;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    public long getWarmupMillis() {
+        return warmupMillis;
+    }
+
+    public boolean isRpc() {
+        return rpcMethod >= 0;
+    }
+
+    public int getRpcMethod() {
+        return rpcMethod;
+    }
+
+    public int getPayloadSize() {
+        return payloadSize;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxBatchDelayMicros() {
+        return maxBatchDelayMicros;
+    }
+
+    public long getReportIntervalMillis() {
+        return reportIntervalMillis;
+    }
+
+    /**
+     * 未设置时为null，使用默认的解析器。
+     */
+    public Path getHostsFile() {
+        return hostsFile;
+    }
+
+    public boolean isTls() {
+        return tls;
+    }
+
+    /**
+     * 未设置时为null，使用JDK默认的CA证书。
+     */
+    public Path getTrustStore() {
+        return trustStore;
+    }
+
+    public char[] getTrustStorePassword() {
+        return null == trustStorePassword ? null : trustStorePassword.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s%s %s:%d rate=%d/s connections=%d duration=%ds warmup=%ds%s%s",
+                client.name().toLowerCase(Locale.ROOT), isRpc() ? "rpc" : pipelined ? "http-pipelined" : "http", tls ? "+tls" : "",
+                host, port, rate, connections,
+                TimeUnit.MILLISECONDS.toSeconds(durationMillis), TimeUnit.MILLISECONDS.toSeconds(warmupMillis),
+                isRpc() ? String.format(" method=%d payload=%dB", rpcMethod, payloadSize) : "",
+                maxBatchSize > 1 ? String.format(" batch=%d/%dus", maxBatchSize, maxBatchDelayMicros) : "");
+    }
+
+    private static long requirePositive(long value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
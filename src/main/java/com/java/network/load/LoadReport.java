@@ -0,0 +1,106 @@
+package com.java.network.load;
+
+import com.java.network.metrics.LatencySnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     一次压测的结果，只包含预热结束后计划发出的请求。
+ * </p>
+ * <p>
+ *     corrected延迟从计划发出的时刻算起，包含请求因为客户端或者连接排队而推迟发出的时间，反映用户实际看到的延迟；
+ *     uncorrected延迟从真正发出的时刻算起，与闭环压测工具的口径相同，两者的差距就是协调遗漏（coordinated omission）掩盖的部分。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class LoadReport {
+
+    private static final double[] PERCENTILES = { 50, 75, 90, 99, 99.9, 99.99 };
+
+    private final LoadOptions options;
+
+    private final long sent;
+
+    private final long completed;
+
+    private final long errors;
+
+    private final long unfinished;
+
+    private final long elapsedNanos;
+
+    private final LatencySnapshot corrected;
+
+    private final LatencySnapshot uncorrected;
+
+    LoadReport(@NotNull LoadOptions options, long sent, long completed, long errors, long unfinished, long elapsedNanos,
+               @NotNull LatencySnapshot corrected, @NotNull LatencySnapshot uncorrected) {
+        this.options = options;
+        this.sent = sent;
+        this.completed = completed;
+        this.errors = errors;
+        this.unfinished = unfinished;
+        this.elapsedNanos = elapsedNanos;
+        this.corrected = corrected;
+        this.uncorrected = uncorrected;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * 压测结束时仍没有完成的请求数。
+     */
+    public long getUnfinished() {
+        return unfinished;
+    }
+
+    /**
+     * 实际达到的每秒成功请求数。
+     */
+    public double getThroughput() {
+        return 0 == elapsedNanos ? 0 : completed * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @NotNull
+    public LatencySnapshot getCorrected() {
+        return corrected;
+    }
+
+    @NotNull
+    public LatencySnapshot getUncorrected() {
+        return uncorrected;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder()
+                .append(options).append(System.lineSeparator())
+                .append(String.format("requests: sent=%d completed=%d errors=%d unfinished=%d throughput=%.1f/s%n",
+                        sent, completed, errors, unfinished, getThroughput()))
+                .append(String.format("%-12s%16s%16s%n", "percentile", "corrected(us)", "uncorrected(us)"));
+        for (double percentile : PERCENTILES) {
+            builder.append(String.format("%-12s%16d%16d%n", percentile, toMicros(corrected.valueAtPercentile(percentile)),
+                    toMicros(uncorrected.valueAtPercentile(percentile))));
+        }
+        return builder.append(String.format("%-12s%16d%16d%n", "max", corrected.getMaxMicros(), uncorrected.getMaxMicros()))
+                .append(String.format("%-12s%16.1f%16.1f%n", "mean", corrected.getMeanMicros(), uncorrected.getMeanMicros()))
+                .toString();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
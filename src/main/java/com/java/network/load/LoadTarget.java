@@ -0,0 +1,205 @@
+package com.java.network.load;
+
+import com.java.network.client.ClientOptions;
+import com.java.network.dns.HostResolver;
+import com.java.network.dns.StaticHostResolver;
+import com.java.network.netty.NettyClient;
+import com.java.network.netty.NettyTransport;
+import com.java.network.nio.NonBlockingClient;
+import com.java.network.pool.ConnectionPoolOptions;
+import com.java.network.socket.ExecutorStrategy;
+import com.java.network.socket.SocketClient;
+import com.java.network.tls.TlsOptions;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     压测的对象：用某种客户端向目标发出一次请求。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+interface LoadTarget extends Closeable {
+
+    /**
+     * 发出一次请求，不阻塞调用线程。
+     */
+    @NotNull
+    CompletableFuture<?> send();
+
+    @Override
+    void close();
+
+    @NotNull
+    static LoadTarget create(@NotNull LoadOptions options) throws IOException {
+        String host = options.getHost();
+        int port = options.getPort();
+        int connections = options.getConnections();
+        ClientOptions clientOptions = clientOptions(options);
+        switch (options.getClient()) {
+            case SOCKET:
+                if (options.isRpc() || options.isPipelined()) {
+                    throw new IllegalArgumentException("SocketClient does not support RPC or pipelining");
+                }
+                return socket(host, port, connections, clientOptions, ExecutorStrategy.virtualThreadPerConnection());
+            case NIO:
+                if (options.isRpc() || options.isPipelined()) {
+                    NonBlockingClient[] clients = new NonBlockingClient[connections];
+                    for (int i = 0; i < connections; i++) {
+                        clients[i] = new NonBlockingClient(new ConnectionPoolOptions(), clientOptions);
+                    }
+                    if (options.isPipelined() && ! options.isRpc()) {
+                        return shared(clients, (client, payload) -> client.requestPipelined(host, port), 0);
+                    }
+                    return shared(clients, (client, payload) -> client.call(host, port, options.getRpcMethod(), payload),
+                            options.getPayloadSize());
+                }
+                NonBlockingClient nonBlockingClient = new NonBlockingClient(poolOptions(options), clientOptions);
+                return of(() -> nonBlockingClient.request(host, port), nonBlockingClient);
+            case NETTY:
+                if (options.isRpc() || options.isPipelined()) {
+                    NettyClient[] clients = new NettyClient[connections];
+                    for (int i = 0; i < connections; i++) {
+                        clients[i] = new NettyClient(new ConnectionPoolOptions(), clientOptions, NettyTransport.detect(), 1);
+                    }
+                    if (options.isPipelined() && ! options.isRpc()) {
+                        return shared(clients, (client, payload) -> client.requestPipelined(host, port), 0);
+                    }
+                    return shared(clients, (client, payload) -> client.call(host, port, options.getRpcMethod(), payload),
+                            options.getPayloadSize());
+                }
+                NettyClient nettyClient = new NettyClient(poolOptions(options), clientOptions, NettyTransport.detect(),
+                        Runtime.getRuntime().availableProcessors());
+                return of(() -> nettyClient.request(host, port), nettyClient);
+            default:
+                throw new IllegalArgumentException("Unsupported client: " + options.getClient());
+        }
+    }
+
+    /**
+     * 连接池的大小等于连接数，排队的获取请求最多积压一秒的量，超出的请求按失败计入结果。
+     */
+    @NotNull
+    static ConnectionPoolOptions poolOptions(@NotNull LoadOptions options) {
+        return new ConnectionPoolOptions()
+                .maxConnectionsPerHost(options.getConnections())
+                .maxConnections(options.getConnections())
+                .maxPendingAcquires(Math.max(1024, options.getRate()));
+    }
+
+    /**
+     * 设置了hosts文件时先按文件解析，文件中没有的主机名交给默认的解析器。启用TLS时所有连接共享同一个会话缓存。
+     */
+    @NotNull
+    static ClientOptions clientOptions(@NotNull LoadOptions options) throws IOException {
+        ClientOptions clientOptions = new ClientOptions();
+        if (null != options.getHostsFile()) {
+            clientOptions.resolver(new StaticHostResolver(HostResolver.getDefault()).load(options.getHostsFile()));
+        }
+        if (options.isTls()) {
+            TlsOptions tls = new TlsOptions();
+            if (null != options.getTrustStore()) {
+                try {
+                    tls.trustStore(options.getTrustStore(), options.getTrustStorePassword());
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Failed to load trust store " + options.getTrustStore(), e);
+                }
+            }
+            clientOptions.tls(tls);
+        }
+        if (options.getMaxBatchSize() > 1) {
+            clientOptions.writeBatch(options.getMaxBatchSize(), options.getMaxBatchDelayMicros(), TimeUnit.MICROSECONDS);
+        }
+        return clientOptions;
+    }
+
+    /**
+     * SocketClient每次请求新建连接并阻塞到响应完成。每个请求在{@link ExecutorStrategy}创建的执行器中占一个线程，
+     * 同时最多concurrency个请求在连接上，其余的在自己的线程里等待，等待的时间计入延迟。
+     */
+    @NotNull
+    static LoadTarget socket(@NotNull String host, int port, int concurrency, @NotNull ClientOptions clientOptions,
+                             @NotNull ExecutorStrategy executorStrategy) {
+        SocketClient client = new SocketClient(clientOptions);
+        ExecutorService executorService = executorStrategy.create("load-socket");
+        Semaphore permits = new Semaphore(concurrency);
+        return of(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return client.request(host, port);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                permits.release();
+            }
+        }, executorService), executorService::shutdownNow);
+    }
+
+    /**
+     * RPC和流水线HTTP对每个目标只用一个共用的连接，多个连接通过多个客户端实例轮流发送。
+     */
+    @NotNull
+    static <C extends Closeable> LoadTarget shared(@NotNull C[] clients, @NotNull SharedCall<C> call, int payloadSize) {
+        byte[] bytes = new byte[payloadSize];
+        Arrays.fill(bytes, (byte) 'x');
+        ByteBuffer payload = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+        AtomicInteger next = new AtomicInteger();
+        return of(() -> call.call(clients[(next.getAndIncrement() & Integer.MAX_VALUE) % clients.length], payload.duplicate()), () -> {
+            for (C client : clients) {
+                client.close();
+            }
+        });
+    }
+
+    @NotNull
+    static LoadTarget of(@NotNull Sender sender, @NotNull Closeable closer) {
+        return new LoadTarget() {
+            @NotNull
+            @Override
+            public CompletableFuture<?> send() {
+                return sender.send();
+            }
+
+            @Override
+            public void close() {
+                try {
+                    closer.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+    }
+
+    @FunctionalInterface
+    interface Sender {
+
+        @NotNull
+        CompletableFuture<?> send();
+    }
+
+    @FunctionalInterface
+    interface SharedCall<C> {
+
+        @NotNull
+        CompletableFuture<?> call(@NotNull C client, @NotNull ByteBuffer payload);
+    }
+}
@@ -0,0 +1,248 @@
+package com.java.network.log;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *     异步日志。I/O线程只把格式串和参数放进有界队列，格式化和输出都在后台线程中完成；
+ *     队列满时丢弃并计数，不会阻塞I/O线程。
+ * </p>
+ * <p>
+ *     地址参数由日志自己转换成字符串：{@link InetSocketAddress}只取{@link InetSocketAddress#getHostString()}和端口，
+ *     {@link InetAddress}只取IP，任何情况下都不做反向DNS解析。
+ * </p>
+ * <p>
+ *     输出位置通过{@link Sink}替换，默认写到标准输出。默认实例的级别由系统属性{@value #LEVEL_PROPERTY}设置，缺省为INFO。
+ * </p>
+ * <p>
+ *     后台线程是守护线程，不会阻止进程退出；进程退出前调用{@link #close()}，等待队列中剩余的日志写完。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class AsyncLogger implements Closeable {
+
+    public static final String LEVEL_PROPERTY = "com.java.network.log.level";
+
+    /**
+     * {@link #close()}等待剩余日志写完的最长时间。
+     */
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    /**
+     * 日志的输出位置，只在后台线程中调用。
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        void write(@NotNull Level level, @NotNull String line);
+    }
+
+    private static volatile AsyncLogger defaultLogger;
+
+    private final Level level;
+
+    private final Sink sink;
+
+    private final BlockingQueue<Record> queue;
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    public AsyncLogger(@NotNull Level level, @NotNull Sink sink, int capacity) {
+        this.level = level;
+        this.sink = sink;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new ThreadFactoryBuilder().setNameFormat("async-logger").setDaemon(true).build().newThread(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * 进程内共享的实例，第一次使用时创建。
+     */
+    @NotNull
+    public static AsyncLogger getDefault() {
+        AsyncLogger logger = defaultLogger;
+        if (null == logger) {
+            synchronized (AsyncLogger.class) {
+                logger = defaultLogger;
+                if (null == logger) {
+                    Level level = Level.valueOf(System.getProperty(LEVEL_PROPERTY, Level.INFO.name()).toUpperCase());
+                    logger = new AsyncLogger(level, (l, line) -> (Level.ERROR == l ? System.err : System.out).println(line), 8192);
+                    defaultLogger = logger;
+                }
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * 替换共享的实例，已经取得旧实例的组件继续使用旧实例。
+     */
+    public static void setDefault(@NotNull AsyncLogger logger) {
+        AsyncLogger previous;
+        synchronized (AsyncLogger.class) {
+            previous = defaultLogger;
+            defaultLogger = logger;
+        }
+        if (null != previous && previous != logger) {
+            previous.close();
+        }
+    }
+
+    public boolean isEnabled(@NotNull Level level) {
+        return level.compareTo(this.level) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(@NotNull String format, Object... args) {
+        log(Level.DEBUG, null, format, args);
+    }
+
+    public void info(@NotNull String format, Object... args) {
+        log(Level.INFO, null, format, args);
+    }
+
+    public void warn(@NotNull String format, Object... args) {
+        log(Level.WARN, null, format, args);
+    }
+
+    public void error(Throwable cause, @NotNull String format, Object... args) {
+        log(Level.ERROR, cause, format, args);
+    }
+
+    /**
+     * 因为队列已满而丢弃的日志条数。
+     */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    private void log(@NotNull Level level, Throwable cause, @NotNull String format, Object[] args) {
+        if (closed || ! isEnabled(level)) {
+            return;
+        }
+        Record record = new Record(level, System.currentTimeMillis(), Thread.currentThread().getName(), cause, format, args);
+        if (! queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    private void run() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        long reportedDrops = 0;
+        while (! closed || ! queue.isEmpty()) {
+            try {
+                Record record = queue.poll(100, TimeUnit.MILLISECONDS);
+                long drops = dropped.sum();
+                if (drops != reportedDrops) {
+                    sink.write(Level.WARN, String.format("%s WARN  [async-logger] %d log record(s) dropped.",
+                            dateFormat.format(new Date()), drops - reportedDrops));
+                    reportedDrops = drops;
+                }
+                if (null != record) {
+                    sink.write(record.level, format(dateFormat, record));
+                }
+            } catch (InterruptedException e) {
+                closed = true;
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @NotNull
+    private static String format(@NotNull SimpleDateFormat dateFormat, @NotNull Record record) {
+        Object[] args = record.args;
+        for (int i = 0; i < args.length; i++) {
+            args[i] = toLogString(args[i]);
+        }
+        StringBuilder builder = new StringBuilder(128)
+                .append(dateFormat.format(new Date(record.timeMillis))).append(' ')
+                .append(String.format("%-5s", record.level)).append(" [").append(record.threadName).append("] ")
+                .append(0 == args.length ? record.format : String.format(record.format, args));
+        if (null != record.cause) {
+            StringWriter stringWriter = new StringWriter();
+            record.cause.printStackTrace(new PrintWriter(stringWriter));
+            builder.append(System.lineSeparator()).append(stringWriter);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 把地址转换成不需要DNS解析的字符串，其他参数原样返回。
+     */
+    private static Object toLogString(Object arg) {
+        if (arg instanceof InetSocketAddress) {
+            InetSocketAddress address = (InetSocketAddress) arg;
+            return address.getHostString() + ":" + address.getPort();
+        }
+        if (arg instanceof InetAddress) {
+            return ((InetAddress) arg).getHostAddress();
+        }
+        return arg;
+    }
+
+    /**
+     * 停止接收新的日志，阻塞到队列中剩余的日志写完、后台线程结束，最多等待{@value #CLOSE_TIMEOUT_MILLIS}毫秒。
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            thread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class Record {
+
+        private final Level level;
+
+        private final long timeMillis;
+
+        private final String threadName;
+
+        private final Throwable cause;
+
+        private final String format;
+
+        private final Object[] args;
+
+        private Record(Level level, long timeMillis, String threadName, Throwable cause, String format, Object[] args) {
+            this.level = level;
+            this.timeMillis = timeMillis;
+            this.threadName = threadName;
+            this.cause = cause;
+            this.format = format;
+            this.args = args;
+        }
+    }
+}
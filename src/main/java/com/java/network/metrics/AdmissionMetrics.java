@@ -0,0 +1,103 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *     一个服务端准入控制的结果，由{@link MetricsRegistry}按名字创建。
+ *     rateLimited是超过单个客户端速率被拒绝的请求数，shed是并发上限已满被拒绝的请求数，
+ *     evictedBuckets是令牌桶表放不下时被挤掉的、还在限速中的客户端数。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class AdmissionMetrics implements AdmissionMetricsMXBean {
+
+    private final String name;
+
+    private final LongAdder admitted = new LongAdder();
+
+    private final LongAdder rateLimited = new LongAdder();
+
+    private final LongAdder shed = new LongAdder();
+
+    private final LongAdder rejectedConnections = new LongAdder();
+
+    private final LongAdder evictedBuckets = new LongAdder();
+
+    private volatile int concurrencyLimit;
+
+    AdmissionMetrics(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    public void admitted() {
+        admitted.increment();
+    }
+
+    public void rateLimited() {
+        rateLimited.increment();
+    }
+
+    public void shed() {
+        shed.increment();
+    }
+
+    public void connectionRejected() {
+        rejectedConnections.increment();
+    }
+
+    public void bucketEvicted() {
+        evictedBuckets.increment();
+    }
+
+    /**
+     * 自适应并发上限调整后的值。
+     */
+    public void concurrencyLimit(int limit) {
+        concurrencyLimit = limit;
+    }
+
+    @Override
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    @Override
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    @Override
+    public long getShed() {
+        return shed.sum();
+    }
+
+    @Override
+    public long getRejectedConnections() {
+        return rejectedConnections.sum();
+    }
+
+    @Override
+    public long getEvictedBuckets() {
+        return evictedBuckets.sum();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: admitted=%d rateLimited=%d shed=%d rejectedConnections=%d evictedBuckets=%d concurrencyLimit=%d", name,
+                getAdmitted(), getRateLimited(), getShed(), getRejectedConnections(), getEvictedBuckets(), getConcurrencyLimit());
+    }
+}
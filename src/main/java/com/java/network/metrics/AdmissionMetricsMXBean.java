@@ -0,0 +1,26 @@
+package com.java.network.metrics;
+
+/**
+ * <p>
+ *     {@link AdmissionMetrics}在JMX中的视图，注册在{@code com.java.network:type=Admission,name=<名字>}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public interface AdmissionMetricsMXBean {
+
+    long getAdmitted();
+
+    long getRateLimited();
+
+    long getShed();
+
+    long getRejectedConnections();
+
+    long getEvictedBuckets();
+
+    /**
+     * 当前的并发上限，没有启用自适应并发限制时为0。
+     */
+    int getConcurrencyLimit();
+}
@@ -0,0 +1,114 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *     一个缓存的命中率和容量，由{@link MetricsRegistry}按名字创建。
+ *     rejections是准入策略拒绝放入的次数，evictions是为了腾出空间被淘汰的条目数，过期删除的条目不计入。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class CacheMetrics implements CacheMetricsMXBean {
+
+    private final String name;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder entries = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    private final LongAdder rejections = new LongAdder();
+
+    CacheMetrics(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    /**
+     * 放入一个条目。
+     */
+    public void added(long size) {
+        entries.increment();
+        bytes.add(size);
+    }
+
+    /**
+     * 移除一个条目。
+     * @param evicted 是否为了腾出空间而淘汰
+     */
+    public void removed(long size, boolean evicted) {
+        entries.decrement();
+        bytes.add(-size);
+        if (evicted) {
+            evictions.increment();
+        }
+    }
+
+    public void rejected() {
+        rejections.increment();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    @Override
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return 0 == lookups ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getEntries() {
+        return entries.sum();
+    }
+
+    @Override
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long getRejections() {
+        return rejections.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: hits=%d misses=%d hitRate=%.1f%% entries=%d bytes=%d evictions=%d rejections=%d", name,
+                getHits(), getMisses(), getHitRate() * 100, getEntries(), getBytes(), getEvictions(), getRejections());
+    }
+}
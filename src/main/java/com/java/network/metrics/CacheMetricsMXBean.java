@@ -0,0 +1,28 @@
+package com.java.network.metrics;
+
+/**
+ * <p>
+ *     {@link CacheMetrics}在JMX中的视图，注册在{@code com.java.network:type=Cache,name=<缓存名>}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public interface CacheMetricsMXBean {
+
+    long getHits();
+
+    long getMisses();
+
+    /**
+     * 命中次数占查找次数的比例，还没有查找时为0。
+     */
+    double getHitRate();
+
+    long getEntries();
+
+    long getBytes();
+
+    long getEvictions();
+
+    long getRejections();
+}
@@ -0,0 +1,141 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ *     一种UDP传输的计数器，由{@link MetricsRegistry}按名字创建。
+ * </p>
+ * <p>
+ *     UDP的丢包分三处统计：truncated是超过最大包长被截断后丢弃的数据包，
+ *     sendDrops是发送缓冲区已满、非阻塞发送没有写出而丢弃的数据包，
+ *     kernelDrops是接收缓冲区已满时内核丢弃的数据包，应用层看不到，启动后由传输设置读取方式（见{@link #kernelDrops(LongSupplier)}）。
+ * </p>
+ * <p>
+ *     每秒上百万个数据包时逐个累加的开销也不可忽略，接收线程攒够一批再调用{@link #received(long, long)}。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class DatagramMetrics implements DatagramMetricsMXBean {
+
+    private final String name;
+
+    private final LongAdder packetsReceived = new LongAdder();
+
+    private final LongAdder bytesReceived = new LongAdder();
+
+    private final LongAdder packetsSent = new LongAdder();
+
+    private final LongAdder bytesSent = new LongAdder();
+
+    private final LongAdder truncated = new LongAdder();
+
+    private final LongAdder sendDrops = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private volatile LongSupplier kernelDrops = () -> -1;
+
+    DatagramMetrics(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    /**
+     * 收到packets个共bytes字节的数据包。
+     */
+    public void received(long packets, long bytes) {
+        if (packets > 0) {
+            packetsReceived.add(packets);
+            bytesReceived.add(bytes);
+        }
+    }
+
+    /**
+     * 发出packets个共bytes字节的数据包。
+     */
+    public void sent(long packets, long bytes) {
+        if (packets > 0) {
+            packetsSent.add(packets);
+            bytesSent.add(bytes);
+        }
+    }
+
+    public void truncated(long packets) {
+        if (packets > 0) {
+            truncated.add(packets);
+        }
+    }
+
+    public void sendDropped(long packets) {
+        if (packets > 0) {
+            sendDrops.add(packets);
+        }
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    /**
+     * 设置读取内核丢包数的方式，返回-1表示平台不支持。同名的多个实例共用一份指标时以最后设置的为准。
+     */
+    public void kernelDrops(@NotNull LongSupplier kernelDrops) {
+        this.kernelDrops = kernelDrops;
+    }
+
+    @Override
+    public long getPacketsReceived() {
+        return packetsReceived.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getPacketsSent() {
+        return packetsSent.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getTruncated() {
+        return truncated.sum();
+    }
+
+    @Override
+    public long getSendDrops() {
+        return sendDrops.sum();
+    }
+
+    @Override
+    public long getKernelDrops() {
+        return kernelDrops.getAsLong();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: packetsReceived=%d bytesReceived=%d packetsSent=%d bytesSent=%d truncated=%d sendDrops=%d kernelDrops=%d errors=%d",
+                name, getPacketsReceived(), getBytesReceived(), getPacketsSent(), getBytesSent(), getTruncated(), getSendDrops(),
+                getKernelDrops(), getErrors());
+    }
+}
@@ -0,0 +1,30 @@
+package com.java.network.metrics;
+
+/**
+ * <p>
+ *     {@link DatagramMetrics}在JMX中的视图，注册在{@code com.java.network:type=Datagram,name=<传输名>}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public interface DatagramMetricsMXBean {
+
+    long getPacketsReceived();
+
+    long getBytesReceived();
+
+    long getPacketsSent();
+
+    long getBytesSent();
+
+    long getTruncated();
+
+    long getSendDrops();
+
+    /**
+     * 内核因为接收缓冲区已满等原因丢弃的数据包数，平台不支持时为-1。
+     */
+    long getKernelDrops();
+
+    long getErrors();
+}
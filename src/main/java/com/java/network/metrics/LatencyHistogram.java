@@ -0,0 +1,105 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *     HdrHistogram风格的对数-线性直方图，记录以纳秒为单位的延迟。
+ *     数值按2的幂分段，每段再等分为64个子桶，任意数值的相对误差不超过1/64，
+ *     从1纳秒到{@link Long#MAX_VALUE}只需要三千多个计数器，记录时只做一次位运算和一次原子加。
+ * </p>
+ * <p>
+ *     可以在任意线程并发记录，{@link #snapshot()}不阻塞记录，得到的是某个近似时刻的分布。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class LatencyHistogram {
+
+    /**
+     * 每段子桶数的位数，第一段[0, 128)精确计数，之后每段64个子桶。
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+
+    static final int BUCKET_COUNT = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    private final LongAdder totalCount = new LongAdder();
+
+    private final LongAdder totalValue = new LongAdder();
+
+    private final LongAccumulator min = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次延迟，负数按0记录。
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * 记录count次相同的延迟。
+     */
+    public void record(long nanos, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long value = Math.max(0, nanos);
+        counts.addAndGet(index(value), count);
+        totalCount.add(count);
+        totalValue.add(value * count);
+        min.accumulate(value);
+        max.accumulate(value);
+    }
+
+    @NotNull
+    public LatencySnapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        // 总数以复制出的计数器为准，保证百分位和总数一致；平均值允许有并发记录带来的微小偏差。
+        long recorded = totalCount.sum();
+        double mean = 0 == recorded ? 0 : (double) totalValue.sum() / recorded;
+        return new LatencySnapshot(copy, count, mean, 0 == count ? 0 : min.get(), max.get());
+    }
+
+    /**
+     * 数值所在的计数器下标。
+     */
+    static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // 数值的最高位决定所在的段，其后的6位决定段内的子桶。
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF + subBucket - SUB_BUCKET_HALF;
+    }
+
+    /**
+     * 下标对应的计数器所覆盖的最大数值。
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_HALF + 1;
+        long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_HALF + SUB_BUCKET_HALF;
+        long lowest = subBucket << shift;
+        return lowest + ((1L << shift) - 1);
+    }
+}
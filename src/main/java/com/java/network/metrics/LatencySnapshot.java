@@ -0,0 +1,97 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     {@link LatencyHistogram}在某一时刻的分布，创建后不再变化。
+ * </p>
+ * <p>
+ *     以get开头的方法返回微秒，供JMX以CompositeData的形式展示；{@link #valueAtPercentile(double)}返回纳秒。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class LatencySnapshot {
+
+    private final long[] counts;
+
+    private final long count;
+
+    private final double mean;
+
+    private final long min;
+
+    private final long max;
+
+    LatencySnapshot(@NotNull long[] counts, long count, double mean, long min, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * 不超过给定百分位的最大延迟，单位纳秒，结果是所在计数器覆盖的上界。
+     * @param percentile 0到100之间
+     */
+    public long valueAtPercentile(double percentile) {
+        if (0 == count) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(max, LatencyHistogram.highestEquivalentValue(i));
+            }
+        }
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMicros() {
+        return mean / 1000;
+    }
+
+    public long getMinMicros() {
+        return toMicros(min);
+    }
+
+    public long getP50Micros() {
+        return toMicros(valueAtPercentile(50));
+    }
+
+    public long getP90Micros() {
+        return toMicros(valueAtPercentile(90));
+    }
+
+    public long getP99Micros() {
+        return toMicros(valueAtPercentile(99));
+    }
+
+    public long getP999Micros() {
+        return toMicros(valueAtPercentile(99.9));
+    }
+
+    public long getMaxMicros() {
+        return toMicros(max);
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%dus p90=%dus p99=%dus p999=%dus max=%dus", count, getMeanMicros(),
+                getP50Micros(), getP90Micros(), getP99Micros(), getP999Micros(), getMaxMicros());
+    }
+}
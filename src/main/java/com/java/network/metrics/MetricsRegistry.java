@@ -0,0 +1,141 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ *     按名字管理{@link TransportMetrics}、{@link CacheMetrics}、{@link AdmissionMetrics}和{@link DatagramMetrics}。
+ *     默认实例创建的每一份指标都注册到平台MBeanServer，
+ *     名字为{@code com.java.network:type=Transport,name=<传输名>}、{@code com.java.network:type=Cache,name=<缓存名>}、
+ *     {@code com.java.network:type=Admission,name=<名字>}或{@code com.java.network:type=Datagram,name=<传输名>}；
+ *     {@link #toString()}给出所有指标的文本快照。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry(true);
+
+    private final ConcurrentMap<String, TransportMetrics> transports = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, CacheMetrics> caches = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AdmissionMetrics> admissions = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, DatagramMetrics> datagrams = new ConcurrentHashMap<>();
+
+    private final boolean jmx;
+
+    /**
+     * @param jmx 是否把创建的指标注册到平台MBeanServer
+     */
+    public MetricsRegistry(boolean jmx) {
+        this.jmx = jmx;
+    }
+
+    @NotNull
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * 取出名字对应的指标，不存在时创建。各传输在构造时取一次并保存，不要在热路径上调用。
+     */
+    @NotNull
+    public TransportMetrics transport(@NotNull String name) {
+        return transports.computeIfAbsent(name, key -> {
+            TransportMetrics metrics = new TransportMetrics(key);
+            if (jmx) {
+                register(metrics, "Transport", key);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * 取出名字对应的缓存指标，不存在时创建。
+     */
+    @NotNull
+    public CacheMetrics cache(@NotNull String name) {
+        return caches.computeIfAbsent(name, key -> {
+            CacheMetrics metrics = new CacheMetrics(key);
+            if (jmx) {
+                register(metrics, "Cache", key);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * 取出名字对应的准入控制指标，不存在时创建。
+     */
+    @NotNull
+    public AdmissionMetrics admission(@NotNull String name) {
+        return admissions.computeIfAbsent(name, key -> {
+            AdmissionMetrics metrics = new AdmissionMetrics(key);
+            if (jmx) {
+                register(metrics, "Admission", key);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * 取出名字对应的UDP传输指标，不存在时创建。
+     */
+    @NotNull
+    public DatagramMetrics datagram(@NotNull String name) {
+        return datagrams.computeIfAbsent(name, key -> {
+            DatagramMetrics metrics = new DatagramMetrics(key);
+            if (jmx) {
+                register(metrics, "Datagram", key);
+            }
+            return metrics;
+        });
+    }
+
+    @NotNull
+    public List<TransportMetrics> transports() {
+        return new ArrayList<>(transports.values());
+    }
+
+    private static void register(@NotNull Object metrics, @NotNull String type, @NotNull String name) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("com.java.network:type=" + type + ",name=" + name);
+            if (! mBeanServer.isRegistered(objectName)) {
+                mBeanServer.registerMBean(metrics, objectName);
+            }
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (TransportMetrics metrics : transports.values()) {
+            builder.append(metrics).append(System.lineSeparator());
+        }
+        for (CacheMetrics metrics : caches.values()) {
+            builder.append(metrics).append(System.lineSeparator());
+        }
+        for (AdmissionMetrics metrics : admissions.values()) {
+            builder.append(metrics).append(System.lineSeparator());
+        }
+        for (DatagramMetrics metrics : datagrams.values()) {
+            builder.append(metrics).append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
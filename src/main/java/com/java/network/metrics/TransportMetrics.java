@@ -0,0 +1,217 @@
+package com.java.network.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ *     一种传输的计数器和延迟分布，由{@link MetricsRegistry}按名字创建，同名的服务端或客户端实例共用一份。
+ * </p>
+ * <p>
+ *     计数器是分段的{@link LongAdder}，多个I/O线程同时累加时不会争用同一个缓存行。
+ *     请求延迟在服务端是从读到请求到响应写完，在客户端是从发出请求到收到完整响应；
+ *     事件循环耗时是Reactor每轮处理就绪事件所用的时间，不包括阻塞在select上的时间。
+ * </p>
+ * <p>
+ *     启用TLS时另外记录握手次数、其中复用会话的次数、失败次数和握手耗时，握手耗时从连接建立（客户端从发起握手）算起。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class TransportMetrics implements TransportMetricsMXBean {
+
+    private final String name;
+
+    private final LongAdder connectionsOpened = new LongAdder();
+
+    private final LongAdder connectionsClosed = new LongAdder();
+
+    private final LongAdder bytesRead = new LongAdder();
+
+    private final LongAdder bytesWritten = new LongAdder();
+
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder timeouts = new LongAdder();
+
+    private final LatencyHistogram requestLatency = new LatencyHistogram();
+
+    private final LatencyHistogram loopTime = new LatencyHistogram();
+
+    private final LongAdder handshakes = new LongAdder();
+
+    private final LongAdder resumedHandshakes = new LongAdder();
+
+    private final LongAdder handshakeFailures = new LongAdder();
+
+    private final LatencyHistogram handshakeTime = new LatencyHistogram();
+
+    TransportMetrics(@NotNull String name) {
+        this.name = name;
+    }
+
+    @NotNull
+    public String name() {
+        return name;
+    }
+
+    public void connectionOpened() {
+        connectionsOpened.increment();
+    }
+
+    public void connectionClosed() {
+        connectionsClosed.increment();
+    }
+
+    public void bytesRead(long bytes) {
+        if (bytes > 0) {
+            bytesRead.add(bytes);
+        }
+    }
+
+    public void bytesWritten(long bytes) {
+        if (bytes > 0) {
+            bytesWritten.add(bytes);
+        }
+    }
+
+    /**
+     * 完成一次请求。
+     */
+    public void request(long latencyNanos) {
+        request(latencyNanos, 1);
+    }
+
+    /**
+     * 完成count次延迟相同的请求，用于一次写出的多个流水线响应。
+     */
+    public void request(long latencyNanos, int count) {
+        requests.add(count);
+        requestLatency.record(latencyNanos, count);
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    public void timeout() {
+        timeouts.increment();
+    }
+
+    /**
+     * 记录一轮事件循环的耗时。
+     */
+    public void loop(long nanos) {
+        loopTime.record(nanos);
+    }
+
+    /**
+     * 完成一次TLS握手。
+     * @param resumed 是否复用了之前的会话，没有完整地交换证书和密钥
+     */
+    public void handshake(long nanos, boolean resumed) {
+        handshakes.increment();
+        if (resumed) {
+            resumedHandshakes.increment();
+        }
+        handshakeTime.record(nanos);
+    }
+
+    public void handshakeFailed() {
+        handshakeFailures.increment();
+    }
+
+    @Override
+    public long getConnectionsOpened() {
+        return connectionsOpened.sum();
+    }
+
+    @Override
+    public long getConnectionsClosed() {
+        return connectionsClosed.sum();
+    }
+
+    @Override
+    public long getActiveConnections() {
+        // 先读关闭数，避免并发时得到负数。
+        long closed = connectionsClosed.sum();
+        return Math.max(0, connectionsOpened.sum() - closed);
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    @Override
+    public LatencySnapshot getRequestLatency() {
+        return requestLatency.snapshot();
+    }
+
+    @Override
+    public LatencySnapshot getLoopTime() {
+        return loopTime.snapshot();
+    }
+
+    @Override
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    @Override
+    public long getResumedHandshakes() {
+        return resumedHandshakes.sum();
+    }
+
+    @Override
+    public long getHandshakeFailures() {
+        return handshakeFailures.sum();
+    }
+
+    @Override
+    public LatencySnapshot getHandshakeTime() {
+        return handshakeTime.snapshot();
+    }
+
+    @Override
+    public String toString() {
+        String summary = String.format("%s: connections=%d active=%d bytesRead=%d bytesWritten=%d requests=%d errors=%d timeouts=%d"
+                        + "%n  latency %s", name, getConnectionsOpened(), getActiveConnections(), getBytesRead(),
+                getBytesWritten(), getRequests(), getErrors(), getTimeouts(), getRequestLatency());
+        // 没有自己的事件循环的传输不输出循环耗时。
+        LatencySnapshot loop = getLoopTime();
+        if (0 != loop.getCount()) {
+            summary += String.format("%n  loop    %s", loop);
+        }
+        // 没有启用TLS的传输不输出握手统计。
+        long handshakes = getHandshakes();
+        if (0 != handshakes || 0 != getHandshakeFailures()) {
+            summary += String.format("%n  tls     handshakes=%d resumed=%d failures=%d%n  handshake %s",
+                    handshakes, getResumedHandshakes(), getHandshakeFailures(), getHandshakeTime());
+        }
+        return summary;
+    }
+}
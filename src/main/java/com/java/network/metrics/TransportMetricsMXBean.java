@@ -0,0 +1,40 @@
+package com.java.network.metrics;
+
+/**
+ * <p>
+ *     {@link TransportMetrics}在JMX中的视图，注册在{@code com.java.network:type=Transport,name=<传输名>}下，
+ *     可以用jconsole、VisualVM或者jmxterm查看。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public interface TransportMetricsMXBean {
+
+    long getConnectionsOpened();
+
+    long getConnectionsClosed();
+
+    long getActiveConnections();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    long getRequests();
+
+    long getErrors();
+
+    long getTimeouts();
+
+    LatencySnapshot getRequestLatency();
+
+    LatencySnapshot getLoopTime();
+
+    long getHandshakes();
+
+    long getResumedHandshakes();
+
+    long getHandshakeFailures();
+
+    LatencySnapshot getHandshakeTime();
+}
@@ -0,0 +1,38 @@
+package com.java.network.netty;
+
+import com.java.network.admission.AdmissionControl;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ *     放在监听Channel的Pipeline中，在新接入的连接注册到Worker线程组之前检查{@link AdmissionControl}的连接数上限，
+ *     超过上限的连接直接关闭，不初始化Pipeline。所有监听Channel共用一个实例。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+@ChannelHandler.Sharable
+class ConnectionLimitHandler extends ChannelInboundHandlerAdapter {
+
+    private final AdmissionControl admissionControl;
+
+    ConnectionLimitHandler(@NotNull AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        Channel child = (Channel) msg;
+        if (! admissionControl.tryConnect()) {
+            // 连接还没有注册到事件循环，直接关闭底层的Socket。
+            child.unsafe().closeForcibly();
+            return;
+        }
+        child.closeFuture().addListener(future -> admissionControl.disconnected());
+        super.channelRead(ctx, msg);
+    }
+}
@@ -0,0 +1,36 @@
+package com.java.network.netty;
+
+import com.java.network.metrics.DatagramMetrics;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ *     {@link NettyDatagramClient}上统计服务端发回的数据包，收到后即释放。
+ *     连接后的Channel收到ICMP端口不可达时以异常的形式到达这里，只计数，不关闭Channel。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+@ChannelHandler.Sharable
+class DatagramClientHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    private final DatagramMetrics metrics;
+
+    DatagramClientHandler(@NotNull DatagramMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+        metrics.received(1, packet.content().readableBytes());
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        metrics.error();
+    }
+}
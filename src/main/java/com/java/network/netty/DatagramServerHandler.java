@@ -0,0 +1,98 @@
+package com.java.network.netty;
+
+import com.java.network.metrics.DatagramMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ *     {@link NettyDatagramServer}每个Channel上的处理器：统计收到的数据包，设置了回显时原样发回。
+ * </p>
+ * <p>
+ *     一次读事件内的计数先攒在字段里，{@link #channelReadComplete}时再累加到指标，同时刷新这一批回显，
+ *     epoll传输下它们以一次sendmmsg发出。发送缓冲区超过高水位时回显的数据包直接丢弃并计入sendDrops。
+ *     每个Channel一个实例，只在事件循环中访问。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class DatagramServerHandler extends SimpleChannelInboundHandler<DatagramPacket> {
+
+    private final int maxPacketSize;
+
+    private final boolean echo;
+
+    private final DatagramMetrics metrics;
+
+    private long packets;
+
+    private long bytes;
+
+    private long truncated;
+
+    private long sentPackets;
+
+    private long sentBytes;
+
+    private long sendDrops;
+
+    /**
+     * @param maxPacketSize 接收缓冲区比它多一个字节，收满说明数据包被截断
+     */
+    DatagramServerHandler(int maxPacketSize, boolean echo, @NotNull DatagramMetrics metrics) {
+        super(false);
+        this.maxPacketSize = maxPacketSize;
+        this.echo = echo;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket packet) {
+        ByteBuf content = packet.content();
+        int length = content.readableBytes();
+        if (length > maxPacketSize) {
+            truncated++;
+            packet.release();
+            return;
+        }
+        packets++;
+        bytes += length;
+        if (! echo) {
+            packet.release();
+        } else if (! ctx.channel().isWritable()) {
+            sendDrops++;
+            packet.release();
+        } else {
+            sentPackets++;
+            sentBytes += length;
+            // 接收时的缓冲区直接交给写出，写完后由Netty释放。
+            ctx.write(new DatagramPacket(content, packet.sender()), ctx.voidPromise());
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        metrics.received(packets, bytes);
+        metrics.truncated(truncated);
+        metrics.sent(sentPackets, sentBytes);
+        metrics.sendDropped(sendDrops);
+        packets = 0;
+        bytes = 0;
+        truncated = 0;
+        sentPackets = 0;
+        sentBytes = 0;
+        sendDrops = 0;
+        if (echo) {
+            ctx.flush();
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        // UDP的错误只影响一个数据包，不关闭Channel。
+        metrics.error();
+    }
+}
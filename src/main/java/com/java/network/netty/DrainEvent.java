@@ -0,0 +1,17 @@
+package com.java.network.netty;
+
+/**
+ * <p>
+ *     服务端开始关闭时发给每个连接的Pipeline的用户事件。处理器收到后不再保持长连接，
+ *     没有进行中的请求时立即关闭连接，否则在最后一个响应写完后关闭。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+final class DrainEvent {
+
+    static final DrainEvent INSTANCE = new DrainEvent();
+
+    private DrainEvent() {
+    }
+}
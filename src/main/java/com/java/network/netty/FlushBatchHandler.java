@@ -0,0 +1,82 @@
+package com.java.network.netty;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     客户端的写合并，见{@link com.java.network.client.ClientOptions#writeBatch}。每个请求写出后的flush先不传下去，
+ *     攒够maxBatchSize次，或者批次中第一次flush之后过了maxDelay，再一起刷新，多个请求以一次系统调用写出。
+ * </p>
+ * <p>
+ *     其他线程发出的请求以任务的形式进入事件循环，各自调用一次flush，Netty自带的FlushConsolidationHandler只合并一次读事件内的flush，
+ *     对它们不起作用。每个连接一个实例，只在事件循环中访问。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class FlushBatchHandler extends ChannelDuplexHandler {
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private int pendingFlushes;
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    FlushBatchHandler(int maxBatchSize, long maxDelayNanos) {
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelayNanos;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        if (++pendingFlushes >= maxBatchSize) {
+            flushNow(ctx);
+        } else if (null == scheduledFlush) {
+            scheduledFlush = ctx.executor().schedule(() -> flushNow(ctx), maxDelayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        // 关闭前写出攒着的请求。
+        if (pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+        super.close(ctx, promise);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 发送缓冲区超过高水位时不再攒批，尽快写出。
+        if (! ctx.channel().isWritable() && pendingFlushes > 0) {
+            flushNow(ctx);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        cancelScheduledFlush();
+    }
+
+    private void flushNow(@NotNull ChannelHandlerContext ctx) {
+        cancelScheduledFlush();
+        pendingFlushes = 0;
+        ctx.flush();
+    }
+
+    private void cancelScheduledFlush() {
+        if (null != scheduledFlush) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.java.network.netty;
+
+import com.java.network.http.HttpParser;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.pool.PooledConnection;
+import com.java.network.timer.Timeout;
+import com.java.network.timer.TimerThread;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     客户端的响应处理器。发起请求前把{@link Exchange}放到连接的属性上，收到完整响应后完成对应的Future，
+ *     并根据响应是否允许复用把连接还回连接池或者关闭。
+ * </p>
+ * <p>
+ *     每次请求在共享的{@link TimerThread}上计时，响应超时后关闭连接，请求以{@link SocketTimeoutException}失败。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class HttpClientHandler extends HttpMessageDecoder {
+
+    static final AttributeKey<Exchange> EXCHANGE = AttributeKey.valueOf(HttpClientHandler.class, "exchange");
+
+    private final TransportMetrics metrics;
+
+    HttpClientHandler(@NotNull TransportMetrics metrics) {
+        super(HttpParser.Type.RESPONSE);
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void onMessage(ChannelHandlerContext ctx, ByteBuffer message, HttpParser parser) {
+        Exchange exchange = ctx.channel().attr(EXCHANGE).getAndSet(null);
+        if (null == exchange) {
+            // 没有请求在等待的响应，连接状态已经不可信。
+            ctx.close();
+            return;
+        }
+        TimerThread.shared().cancel(exchange);
+        metrics.request(System.nanoTime() - exchange.startNanos);
+
+        String response = HttpParser.toString(message, 0, parser.messageLength());
+        if (parser.isKeepAlive()) {
+            exchange.connection.release();
+        } else {
+            exchange.connection.invalidate();
+        }
+        exchange.future.complete(response);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 先让父类处理以关闭连接表示结束的响应，剩下的请求才算失败。
+        super.channelInactive(ctx);
+        Exchange exchange = ctx.channel().attr(EXCHANGE).getAndSet(null);
+        if (null != exchange) {
+            TimerThread.shared().cancel(exchange);
+            exchange.connection.invalidate();
+            exchange.future.completeExceptionally(new ClosedChannelException());
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        metrics.error();
+        cause.printStackTrace();
+        ctx.close();
+    }
+
+    /**
+     * 一次请求：等待响应的Future和承载它的连接，同时也是这次请求的响应超时任务。
+     */
+    static class Exchange extends Timeout {
+
+        private final CompletableFuture<String> future;
+
+        private final PooledConnection<Channel> connection;
+
+        private final TransportMetrics metrics;
+
+        private final long startNanos = System.nanoTime();
+
+        Exchange(@NotNull CompletableFuture<String> future, @NotNull PooledConnection<Channel> connection, @NotNull TransportMetrics metrics) {
+            this.future = future;
+            this.connection = connection;
+            this.metrics = metrics;
+        }
+
+        @Override
+        protected void onTimeout() {
+            Channel channel = connection.connection();
+            // 响应和超时同时发生时只处理先到的一方。
+            if (channel.attr(EXCHANGE).compareAndSet(this, null)) {
+                metrics.timeout();
+                connection.invalidate();
+                future.completeExceptionally(new SocketTimeoutException("Response timed out"));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.java.network.netty;
+
+import com.java.network.http.HttpParser;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * <p>
+ *     在Netty的累积缓冲区上直接运行{@link HttpParser}，报文完整后回调{@link #onMessage}。
+ *     解析结果以相对报文起点的偏移量给出，不逐字节拷贝，也不生成字符串。
+ * </p>
+ * <p>
+ *     报文还没有解析完、累积的数据已经达到maxMessageSize时不再累积：丢弃已经收到的和之后收到的所有数据，
+ *     回调{@link #onMessageTooLarge}，默认关闭连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public abstract class HttpMessageDecoder extends ByteToMessageDecoder {
+
+    private final HttpParser parser;
+
+    private final int maxMessageSize;
+
+    private boolean discarding;
+
+    protected HttpMessageDecoder(@NotNull HttpParser.Type type) {
+        this(type, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxMessageSize 一条报文最多这么多字节
+     */
+    protected HttpMessageDecoder(@NotNull HttpParser.Type type, int maxMessageSize) {
+        this.parser = new HttpParser(type);
+        this.maxMessageSize = maxMessageSize;
+    }
+
+    /**
+     * 收到一条完整报文。message的position就是报文起点，只在回调期间有效。
+     */
+    protected abstract void onMessage(ChannelHandlerContext ctx, ByteBuffer message, HttpParser parser) throws Exception;
+
+    /**
+     * 报文超过了maxMessageSize，已经收到的数据已被丢弃。之后收到的数据同样丢弃，连接应当关闭。
+     */
+    protected void onMessageTooLarge(ChannelHandlerContext ctx) {
+        ctx.close();
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (discarding) {
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+        ByteBuffer message = view(in);
+        if (parser.parse(message)) {
+            complete(ctx, in, message);
+        } else if (in.readableBytes() >= maxMessageSize) {
+            // 读完的累积缓冲区由ByteToMessageDecoder立即释放，不会再继续增长。
+            discarding = true;
+            in.skipBytes(in.readableBytes());
+            parser.reset();
+            onMessageTooLarge(ctx);
+        }
+    }
+
+    @Override
+    protected void decodeLast(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (in.isReadable()) {
+            decode(ctx, in, out);
+        }
+        // 以关闭连接表示结束的响应，直到这里才算完整。
+        if (! discarding && ! parser.isComplete() && parser.endOfInput()) {
+            complete(ctx, in, view(in));
+        }
+    }
+
+    private void complete(ChannelHandlerContext ctx, ByteBuf in, ByteBuffer message) throws Exception {
+        int length = parser.messageLength();
+        try {
+            onMessage(ctx, message, parser);
+        } finally {
+            in.skipBytes(length);
+            parser.reset();
+        }
+    }
+
+    @NotNull
+    private static ByteBuffer view(@NotNull ByteBuf in) {
+        // 单块缓冲区直接复用内部的ByteBuffer视图，避免每次解析都创建新对象。
+        return 1 == in.nioBufferCount()
+                ? in.internalNioBuffer(in.readerIndex(), in.readableBytes())
+                : in.nioBuffer(in.readerIndex(), in.readableBytes());
+    }
+}
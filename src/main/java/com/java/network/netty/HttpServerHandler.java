@@ -0,0 +1,231 @@
+package com.java.network.netty;
+
+import com.java.network.admission.Admission;
+import com.java.network.admission.AdmissionControl;
+import com.java.network.file.FileResponse;
+import com.java.network.file.StaticFiles;
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpResponses;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.server.ServerOptions;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.stream.ChunkedNioFile;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     服务端的请求处理器，每个连接一个实例。
+ *     一次读到的多个流水线请求依次写出响应但不刷新，在{@link #channelReadComplete}中统一刷新。
+ *     响应是服务端共享的只读缓冲区，每次写出它的retainedDuplicate，写完后由Netty释放这份引用。
+ * </p>
+ * <p>
+ *     配置了文档目录时返回静态文件：传输支持时以{@link DefaultFileRegion}零拷贝发送，
+ *     否则以{@link ChunkedNioFile}分块发送，这时Pipeline中需要有ChunkedWriteHandler。
+ * </p>
+ * <p>
+ *     请求延迟从读到包含请求的数据开始，到最后一次写操作完成为止。
+ * </p>
+ * <p>
+ *     设置了{@link AdmissionControl}时每个请求先经过准入控制，被拒绝的请求回复429或503；放行的请求在响应写完时归还名额，写失败时放弃。
+ * </p>
+ * <p>
+ *     请求超过{@link HttpParser#MAX_REQUEST_SIZE}时不再接收，回复{@link HttpResponses#payloadTooLarge()}后关闭连接，与另外两种服务端一致。
+ * </p>
+ * <p>
+ *     收到{@link DrainEvent}后之后的响应都带Connection: close；没有写到一半的响应、也没有收到一半的请求时立即关闭连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class HttpServerHandler extends HttpMessageDecoder {
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private final ServerOptions options;
+
+    private final ByteBuf keepAliveResponse;
+
+    private final ByteBuf closeResponse;
+
+    private final StaticFiles staticFiles;
+
+    private final boolean zeroCopy;
+
+    private final AdmissionControl admissionControl;
+
+    private final TransportMetrics metrics;
+
+    private int requests;
+
+    private long readNanos;
+
+    private boolean closing;
+
+    private boolean draining;
+
+    /**
+     * 已经写出、还没有写完的响应数。
+     */
+    private int inFlight;
+
+    /**
+     * @param staticFiles 为null时对所有请求返回固定的响应
+     * @param zeroCopy 传输是否支持以FileRegion发送文件
+     */
+    HttpServerHandler(@NotNull ServerOptions options, @NotNull ByteBuf keepAliveResponse, @NotNull ByteBuf closeResponse,
+                      StaticFiles staticFiles, boolean zeroCopy, @NotNull TransportMetrics metrics) {
+        super(HttpParser.Type.REQUEST, HttpParser.MAX_REQUEST_SIZE);
+        this.options = options;
+        this.keepAliveResponse = keepAliveResponse;
+        this.closeResponse = closeResponse;
+        this.staticFiles = staticFiles;
+        this.zeroCopy = zeroCopy;
+        this.admissionControl = options.getAdmission();
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        readNanos = System.nanoTime();
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    protected void onMessage(ChannelHandlerContext ctx, ByteBuffer message, HttpParser parser) throws IOException {
+        if (closing) {
+            // 已经决定关闭连接，之后的流水线请求直接丢弃。
+            return;
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Read %s from %s.", HttpParser.toString(message, parser.methodStart(), parser.uriEnd()), ctx.channel().remoteAddress());
+        }
+
+        boolean keepAlive = ! draining && parser.isKeepAlive() && ++requests < options.getMaxRequestsPerConnection();
+        Admission admission = null == admissionControl ? Admission.ADMITTED
+                : admissionControl.admit(((InetSocketAddress) ctx.channel().remoteAddress()).getAddress());
+        // 只有放行的请求需要归还名额。
+        boolean admitted = null != admissionControl && Admission.ADMITTED == admission;
+        ChannelFuture future;
+        if (Admission.ADMITTED != admission) {
+            future = ctx.write(Unpooled.wrappedBuffer(admission.response(keepAlive)));
+        } else if (null != staticFiles) {
+            try {
+                future = write(ctx, staticFiles.resolve(message, parser, keepAlive));
+            } catch (IOException | RuntimeException e) {
+                if (admitted) {
+                    admissionControl.cancel();
+                }
+                throw e;
+            }
+        } else {
+            future = ctx.write((keepAlive ? keepAliveResponse : closeResponse).retainedDuplicate());
+        }
+        if (! keepAlive) {
+            closing = true;
+            ctx.flush();
+            future.addListener(ChannelFutureListener.CLOSE);
+        }
+        long startNanos = readNanos;
+        inFlight++;
+        future.addListener(f -> {
+            inFlight--;
+            long latencyNanos = System.nanoTime() - startNanos;
+            if (f.isSuccess()) {
+                metrics.request(latencyNanos);
+            }
+            if (admitted) {
+                if (f.isSuccess()) {
+                    admissionControl.release(latencyNanos);
+                } else {
+                    admissionControl.cancel();
+                }
+            }
+            if (draining) {
+                closeIfIdle(ctx);
+            }
+        });
+    }
+
+    @Override
+    protected void onMessageTooLarge(ChannelHandlerContext ctx) {
+        metrics.error();
+        LOGGER.debug("Request from %s too large.", ctx.channel().remoteAddress());
+        closing = true;
+        // 排在之前的流水线响应之后写出。
+        ctx.writeAndFlush(Unpooled.wrappedBuffer(HttpResponses.payloadTooLarge())).addListener(ChannelFutureListener.CLOSE);
+    }
+
+    /**
+     * 处理过请求、没有写到一半的响应、也没有收到一半的请求时关闭连接。
+     */
+    private void closeIfIdle(@NotNull ChannelHandlerContext ctx) {
+        if (! closing && requests > 0 && 0 == inFlight && 0 == actualReadableBytes()) {
+            closing = true;
+            ctx.close();
+        }
+    }
+
+    /**
+     * 依次写出响应头和报文体，返回最后一次写操作的Future。
+     */
+    @NotNull
+    private ChannelFuture write(@NotNull ChannelHandlerContext ctx, @NotNull FileResponse response) throws IOException {
+        ChannelFuture future = ctx.write(Unpooled.wrappedBuffer(response.head()));
+        if (null != response.body()) {
+            // 映射缓存中的文件是堆外缓冲区，包装后直接写出，不复制。
+            future = ctx.write(Unpooled.wrappedBuffer(response.body()));
+        }
+        if (null != response.fileChannel()) {
+            // 文件的关闭由FileRegion或者ChunkedNioFile负责。
+            future = zeroCopy
+                    ? ctx.write(new DefaultFileRegion(response.fileChannel(), response.position(), response.count()))
+                    : ctx.write(new ChunkedNioFile(response.fileChannel(), response.position(), response.count(), 8192));
+        }
+        return future;
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 待发送数据超过高水位时停止读取新的请求，回落到低水位以下再恢复。
+        ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (DrainEvent.INSTANCE == evt) {
+            draining = true;
+            closeIfIdle(ctx);
+        } else if (evt instanceof IdleStateEvent) {
+            metrics.timeout();
+            LOGGER.debug("Connection %s idle timeout.", ctx.channel().remoteAddress());
+            ctx.close();
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        metrics.error();
+        LOGGER.debug("Connection %s failed: %s", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.java.network.netty;
+
+import com.java.network.metrics.TransportMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.FileRegion;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * <p>
+ *     放在Pipeline最前面，统计连接数和经过的字节数，所有连接共用一个实例。
+ *     写出的字节数在消息进入发送缓冲区时统计，文件按{@link FileRegion#count()}计入。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+@ChannelHandler.Sharable
+class MetricsHandler extends ChannelDuplexHandler {
+
+    private final TransportMetrics metrics;
+
+    MetricsHandler(@NotNull TransportMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+        metrics.connectionOpened();
+        super.channelActive(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        metrics.connectionClosed();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        metrics.bytesRead(size(msg));
+        super.channelRead(ctx, msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        metrics.bytesWritten(size(msg));
+        super.write(ctx, msg, promise);
+    }
+
+    private static long size(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        if (msg instanceof FileRegion) {
+            return ((FileRegion) msg).count();
+        }
+        return 0;
+    }
+}
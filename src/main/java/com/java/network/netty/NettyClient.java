@@ -1,97 +1,366 @@
 package com.java.network.netty;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.client.ClientOptions;
+import com.java.network.client.HappyEyeballs;
+import com.java.network.http.PipelinedRequests;
+import com.java.network.load.LoadGenerator;
+import com.java.network.load.LoadOptions;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.pool.ConnectionPool;
+import com.java.network.pool.ConnectionPoolOptions;
+import com.java.network.pool.PooledConnectionFactory;
+import com.java.network.rpc.RpcCalls;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.timer.TimerThread;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.util.AttributeKey;
 import io.netty.util.CharsetUtil;
-import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import javax.net.ssl.SSLException;
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
  *     通过Netty实现的Socket客户端
  * </p>
+ * <p>
+ *     传输实现和服务端一样由{@link NettyTransport#detect()}选择。
+ * </p>
+ * <p>
+ *     目标的主机名由{@link ClientOptions#getResolver()}异步解析，有多个地址时通过{@link HappyEyeballs}竞速建立连接。
+ *     需要直接查询DNS服务器时可以使用{@link NettyDnsResolver}。
+ * </p>
+ * <p>
+ *     设置了{@link ClientOptions#getTls()}时，连接建立后在Pipeline最前面加入{@link SslHandler}，握手完成后连接才可用，
+ *     同一目标的后续连接复用之前的TLS会话。
+ * </p>
+ * <p>
+ *     {@link #call}通过RPC帧调用对端的{@link com.java.network.rpc.RpcService}。同一目标的调用共用一个连接，
+ *     请求以stream区分，响应可以乱序返回，慢请求不会阻塞同一连接上的其他请求。
+ * </p>
+ * <p>
+ *     {@link #requestPipelined}把同一目标的HTTP请求以流水线方式发到一个共用的连接上，不等前一个响应，响应按顺序完成各自的Future。
+ *     设置了{@link ClientOptions#writeBatch}时，这两种连接上的请求经过{@link FlushBatchHandler}合并写出。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
  * @author zhangbin
  * @date 2020-05-28
  */
-public class NettyClient {
+public class NettyClient implements Closeable {
+
+    public static final String METRICS_NAME = "netty-client";
+
+    /**
+     * 请求中Host之前和之后的固定部分，只有Host是每个请求写入的。
+     */
+    private static final byte[] REQUEST_HEAD = "GET / HTTP/1.1\r\nHost: ".getBytes(CharsetUtil.US_ASCII);
+
+    private static final byte[] REQUEST_TAIL = "\r\nUser-Agent: curl/7.43.0\r\nAccept: */*\r\n\r\n".getBytes(CharsetUtil.US_ASCII);
+
+    private static final AttributeKey<RpcCalls> RPC_CALLS = AttributeKey.valueOf(NettyClient.class, "rpcCalls");
+
+    private static final AttributeKey<PipelinedRequests> PIPELINED_REQUESTS = AttributeKey.valueOf(NettyClient.class, "pipelinedRequests");
+
+    private final EventLoopGroup eventLoopGroup;
+
+    private final Bootstrap bootstrap;
+
+    private final Bootstrap rpcBootstrap;
 
-    private Bootstrap bootstrap;
+    private final Bootstrap pipelinedBootstrap;
+
+    private final ConcurrentMap<InetSocketAddress, CompletableFuture<Channel>> rpcChannels = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<InetSocketAddress, CompletableFuture<Channel>> pipelinedChannels = new ConcurrentHashMap<>();
+
+    private final ConnectionPool<Channel> connectionPool;
+
+    private final ClientOptions clientOptions;
+
+    private final TransportMetrics metrics = MetricsRegistry.getDefault().transport(METRICS_NAME);
+
+    private final SslContext sslContext;
 
     public NettyClient() {
+        this(new ConnectionPoolOptions());
+    }
+
+    public NettyClient(@NotNull ConnectionPoolOptions options) {
+        this(options, new ClientOptions(), NettyTransport.detect(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public NettyClient(@NotNull ConnectionPoolOptions options, @NotNull ClientOptions clientOptions,
+                       @NotNull NettyTransport transport, int threads) {
+        this.clientOptions = clientOptions;
+        try {
+            this.sslContext = null == clientOptions.getTls() ? null : NettyTls.clientContext(clientOptions.getTls());
+        } catch (SSLException e) {
+            throw new IllegalArgumentException("Invalid TLS options", e);
+        }
+        MetricsHandler metricsHandler = new MetricsHandler(metrics);
+        eventLoopGroup = transport.newEventLoopGroup(threads,
+                new ThreadFactoryBuilder().setNameFormat("netty-client-%d").setDaemon(true).build());
         bootstrap = new Bootstrap()
-                .group(new NioEventLoopGroup())
+                .group(eventLoopGroup)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
                 .option(ChannelOption.TCP_NODELAY, true)
                 .option(ChannelOption.SO_LINGER, 0)
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 1000)
-                .channel(NioSocketChannel.class)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) Math.min(Integer.MAX_VALUE, clientOptions.getConnectTimeoutMillis()))
+                .channel(transport.channelClass())
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        channel.pipeline().addLast(metricsHandler, new HttpClientHandler(metrics));
+                    }
+                });
+        rpcBootstrap = bootstrap.clone()
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        RpcCalls calls = new RpcCalls(metrics);
+                        channel.attr(RPC_CALLS).set(calls);
+                        channel.pipeline().addLast(metricsHandler, RpcCodec.newFrameDecoder(clientOptions.getMaxFrameLength()),
+                                new RpcClientHandler(calls, metrics));
+                        addFlushBatchHandler(channel.pipeline());
+                    }
+                });
+        pipelinedBootstrap = bootstrap.clone()
                 .handler(new ChannelInitializer<Channel>() {
                     @Override
                     protected void initChannel(Channel channel) {
-                        System.out.println("Channel Initialize.");
-                        channel.pipeline().addLast(new SimpleChannelInboundHandler<Object>() {
-
-                            private StringBuilder stringBuilder = new StringBuilder();
-
-                            @Override
-                            protected void channelRead0(ChannelHandlerContext channelHandlerContext, Object o) {
-                                ByteBuf byteBuf = (ByteBuf) o;
-                                while (byteBuf.isReadable()) {
-                                    stringBuilder.append((char) byteBuf.readByte());
-                                }
-                            }
-
-                            @Override
-                            public void channelReadComplete(ChannelHandlerContext ctx) {
-                                InetSocketAddress inetSocketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
-                                System.out.println(String.format("Read from %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-                                System.out.println(stringBuilder.toString());
-                                ctx.channel().close();
-                                ctx.close();
-                            }
-
-                            @Override
-                            public void channelActive(ChannelHandlerContext ctx) {
-                                InetSocketAddress inetSocketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
-                                System.out.println(String.format("Write to %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-                                ctx.writeAndFlush(Unpooled.copiedBuffer(getRequest(inetSocketAddress.getHostName()), CharsetUtil.UTF_8));
-                            }
-                        });
+                        // 超时的请求之后的响应都对不上了，关闭连接。
+                        PipelinedRequests requests = new PipelinedRequests(metrics, channel::close);
+                        channel.attr(PIPELINED_REQUESTS).set(requests);
+                        channel.pipeline().addLast(metricsHandler, new PipelinedHttpClientHandler(requests, metrics));
+                        addFlushBatchHandler(channel.pipeline());
+                    }
+                });
+
+        connectionPool = new ConnectionPool<>(new PooledConnectionFactory<Channel>() {
+            @NotNull
+            @Override
+            public CompletableFuture<Channel> connect(@NotNull InetSocketAddress address) {
+                return NettyClient.this.connect(bootstrap, address);
+            }
+
+            @Override
+            public boolean isHealthy(@NotNull Channel channel) {
+                return channel.isActive();
+            }
+
+            @Override
+            public void close(@NotNull Channel channel) {
+                channel.close();
+            }
+        }, options);
+    }
+
+    /**
+     * 从连接池中取一个连接发送请求，响应到达后连接自动归还。
+     */
+    @NotNull
+    public CompletableFuture<String> request(String host, int port) {
+        return connectionPool.acquire(host, port).thenCompose(connection -> {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            Channel channel = connection.connection();
+            HttpClientHandler.Exchange exchange = new HttpClientHandler.Exchange(response, connection, metrics);
+            channel.attr(HttpClientHandler.EXCHANGE).set(exchange);
+            TimerThread.shared().schedule(exchange, clientOptions.getResponseTimeoutMillis(), TimeUnit.MILLISECONDS);
+
+            channel.writeAndFlush(encodeRequest(channel, host)).addListener((ChannelFutureListener) future -> {
+                if (! future.isSuccess()) {
+                    connection.invalidate();
+                    response.completeExceptionally(future.cause());
+                }
+            });
+            return response;
+        });
+    }
+
+    /**
+     * 通过到目标的流水线连接发送请求，不等待前面请求的响应。同一目标的请求共用一个连接，响应按发出的顺序完成。
+     */
+    @NotNull
+    public CompletableFuture<String> requestPipelined(String host, int port) {
+        CompletableFuture<String> response = new CompletableFuture<>();
+        sharedChannel(pipelinedChannels, pipelinedBootstrap, InetSocketAddress.createUnresolved(host, port)).whenComplete((channel, cause) -> {
+            if (null != cause) {
+                response.completeExceptionally(cause);
+                return;
+            }
+            // 响应按写出的顺序返回，登记请求和写出都在连接的事件循环中完成，保证两者的顺序一致。
+            channel.eventLoop().execute(() -> {
+                if (! channel.isActive()) {
+                    response.completeExceptionally(new ClosedChannelException());
+                    return;
+                }
+                PipelinedRequests.Request request = channel.attr(PIPELINED_REQUESTS).get().start(response);
+                TimerThread.shared().schedule(request, clientOptions.getResponseTimeoutMillis(), TimeUnit.MILLISECONDS);
+                channel.writeAndFlush(encodeRequest(channel, host)).addListener((ChannelFutureListener) future -> {
+                    if (! future.isSuccess()) {
+                        // 写失败后流水线的顺序不再可信，关闭连接让所有等待的请求失败。
+                        channel.close();
                     }
                 });
+            });
+        });
+        return response;
+    }
+
+    /**
+     * 通过到目标的RPC连接调用一个方法，返回堆内存中的响应体。对端返回错误帧时以{@link com.java.network.rpc.RpcException}失败。
+     * @param payload 请求体，返回前已经复制，不改变它的position
+     */
+    @NotNull
+    public CompletableFuture<ByteBuffer> call(String host, int port, int methodId, @NotNull ByteBuffer payload) {
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        // 先编码，stream在取得连接后再填入。
+        ByteBuf frame = RpcCodec.encode(PooledByteBufAllocator.DEFAULT, RpcFrames.REQUEST, 0, methodId, payload);
+        sharedChannel(rpcChannels, rpcBootstrap, InetSocketAddress.createUnresolved(host, port)).whenComplete((channel, cause) -> {
+            if (null != cause) {
+                frame.release();
+                response.completeExceptionally(cause);
+                return;
+            }
+            RpcCalls calls = channel.attr(RPC_CALLS).get();
+            RpcCalls.Call call = calls.start(response);
+            frame.setInt(RpcFrames.LENGTH_FIELD_LENGTH + 1, call.streamId());
+            TimerThread.shared().schedule(call, clientOptions.getResponseTimeoutMillis(), TimeUnit.MILLISECONDS);
+            channel.writeAndFlush(frame).addListener((ChannelFutureListener) future -> {
+                if (! future.isSuccess() && null != calls.finish(call.streamId())) {
+                    TimerThread.shared().cancel(call);
+                    call.fail(future.cause());
+                }
+            });
+        });
+        return response;
     }
 
-    public void request(String host, int port) {
-        ChannelFuture channelFuture = bootstrap.connect(host, port);
-        channelFuture.addListener((ChannelFutureListener) future -> {
-            if (future.isSuccess()) {
-                System.out.println("Complete.");
+    /**
+     * 到目标的共用连接，不存在时建立。连接关闭或者建立失败后从表中移除，下次调用重新建立。
+     */
+    @NotNull
+    private CompletableFuture<Channel> sharedChannel(@NotNull ConcurrentMap<InetSocketAddress, CompletableFuture<Channel>> channels,
+                                                     @NotNull Bootstrap bootstrap, @NotNull InetSocketAddress address) {
+        CompletableFuture<Channel> existing = channels.get(address);
+        if (null != existing) {
+            return existing;
+        }
+        CompletableFuture<Channel> connectFuture = new CompletableFuture<>();
+        existing = channels.putIfAbsent(address, connectFuture);
+        if (null != existing) {
+            return existing;
+        }
+        // 在事件循环线程中调用时回调可能同步执行，所以不在computeIfAbsent中建立连接。
+        connect(bootstrap, address).whenComplete((channel, cause) -> {
+            if (null == cause) {
+                channel.closeFuture().addListener(closeFuture -> channels.remove(address, connectFuture));
+                connectFuture.complete(channel);
             } else {
-                future.cause().printStackTrace();
-                future.channel().close();
+                channels.remove(address, connectFuture);
+                connectFuture.completeExceptionally(cause);
             }
         });
+        return connectFuture;
+    }
+
+    /**
+     * 解析目标的主机名，在它的各个地址之间竞速建立连接。传给Bootstrap的都是已经解析的地址，
+     * 事件循环线程不会阻塞在DNS查询上。
+     */
+    @NotNull
+    private CompletableFuture<Channel> connect(@NotNull Bootstrap bootstrap, @NotNull InetSocketAddress address) {
+        String host = address.getHostString();
+        int port = address.getPort();
+        return clientOptions.getResolver().resolve(host).thenCompose(addresses ->
+                HappyEyeballs.connect(addresses, clientOptions.getConnectAttemptDelayMillis(), eventLoopGroup,
+                        inetAddress -> open(bootstrap, new InetSocketAddress(inetAddress, port), host), Channel::close));
     }
 
+    /**
+     * 连接到一个已经解析的地址，启用了TLS时等握手完成后才返回连接。
+     * @param host 解析前的主机名，用于TLS的SNI、证书校验和会话复用
+     */
     @NotNull
-    @Contract(pure = true)
-    private String getRequest(String host) {
-        return "GET / HTTP/1.1\r\n"
-                + String.format("Host: %s\r\n", host)
-                + "User-Agent: curl/7.43.0\r\n"
-                + "Accept: */*\r\n\r\n";
+    private CompletableFuture<Channel> open(@NotNull Bootstrap bootstrap, @NotNull InetSocketAddress address, @NotNull String host) {
+        CompletableFuture<Channel> connectFuture = new CompletableFuture<>();
+        bootstrap.connect(address).addListener((ChannelFutureListener) future -> {
+            if (! future.isSuccess()) {
+                connectFuture.completeExceptionally(future.cause());
+                return;
+            }
+            Channel channel = future.channel();
+            if (null == sslContext) {
+                connectFuture.complete(channel);
+                return;
+            }
+            SslHandler sslHandler = NettyTls.newClientHandler(sslContext, channel.alloc(), host, address.getPort(),
+                    clientOptions.getTls(), metrics);
+            // 与NonBlockingClient一致，连接超时同时限制握手时间。
+            sslHandler.setHandshakeTimeoutMillis(clientOptions.getConnectTimeoutMillis());
+            channel.pipeline().addFirst(sslHandler);
+            sslHandler.handshakeFuture().addListener(handshakeFuture -> {
+                if (handshakeFuture.isSuccess()) {
+                    connectFuture.complete(channel);
+                } else {
+                    channel.close();
+                    connectFuture.completeExceptionally(handshakeFuture.cause());
+                }
+            });
+        });
+        return connectFuture;
+    }
+
+    @Override
+    public void close() {
+        connectionPool.close();
+        eventLoopGroup.shutdownGracefully();
     }
 
-    public static void main(String[] args) {
-        final String[] hosts = { "localhost", "127.0.0.1", "10.26.3.55" };
-        NettyClient client = new NettyClient();
-        for (final String host : hosts) {
-            client.request(host, 9527);
+    /**
+     * 设置了写合并时在Pipeline末尾加入{@link FlushBatchHandler}，应用写出的请求最先经过它。
+     */
+    private void addFlushBatchHandler(@NotNull ChannelPipeline pipeline) {
+        if (clientOptions.getMaxBatchSize() > 1) {
+            pipeline.addLast(new FlushBatchHandler(clientOptions.getMaxBatchSize(), clientOptions.getMaxBatchDelayNanos()));
         }
     }
+
+    /**
+     * 把请求直接编码到连接所用分配器的池化缓冲区中。
+     */
+    @NotNull
+    private ByteBuf encodeRequest(@NotNull Channel channel, String host) {
+        ByteBuf request = channel.alloc().ioBuffer(REQUEST_HEAD.length + host.length() + REQUEST_TAIL.length);
+        request.writeBytes(REQUEST_HEAD);
+        ByteBufUtil.writeAscii(request, host);
+        request.writeBytes(REQUEST_TAIL);
+        return request;
+    }
+
+    /**
+     * 以这个客户端运行开环压测，参数见{@link LoadOptions}。
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadGenerator.run(new LoadOptions().client(LoadOptions.Client.NETTY), args);
+    }
 }
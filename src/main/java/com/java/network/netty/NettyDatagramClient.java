@@ -0,0 +1,136 @@
+package com.java.network.netty;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.datagram.DatagramOptions;
+import com.java.network.datagram.UdpSockets;
+import com.java.network.metrics.DatagramMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.socket.DatagramChannel;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * <p>
+ *     通过Netty实现的UDP客户端，一个连接到固定服务端的Channel，运行在自己的单线程事件循环上。
+ * </p>
+ * <p>
+ *     {@link DatagramOptions#getBatchSize()}大于1时Pipeline中加入{@link FlushBatchHandler}，
+ *     攒够batchSize个数据包或者过了maxBatchDelay再刷新，epoll传输下一批数据包以一次sendmmsg发出。
+ *     在其他线程中调用{@link #send}时每个数据包都是提交给事件循环的一个任务，大量发送时应当通过{@link #execute}在事件循环中连续调用。
+ * </p>
+ * <p>
+ *     写缓冲区超过高水位时{@link #send}直接丢弃数据包并计入sendDrops，不会无限制地堆积。
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class NettyDatagramClient implements Closeable {
+
+    public static final String METRICS_NAME = "netty-udp-client";
+
+    private final DatagramMetrics metrics = MetricsRegistry.getDefault().datagram(METRICS_NAME);
+
+    private final EventLoopGroup group;
+
+    private final Channel channel;
+
+    public NettyDatagramClient(@NotNull InetSocketAddress target) throws IOException {
+        this(target, new DatagramOptions(), NettyTransport.detect());
+    }
+
+    public NettyDatagramClient(@NotNull InetSocketAddress target, @NotNull DatagramOptions options,
+                               @NotNull NettyTransport transport) throws IOException {
+        group = transport.newEventLoopGroup(1,
+                new ThreadFactoryBuilder().setNameFormat("netty-udp-client-%d").setDaemon(true).build());
+        DatagramClientHandler handler = new DatagramClientHandler(metrics);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(transport.datagramChannelClass())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.SO_RCVBUF, options.getReceiveBufferSize())
+                .option(ChannelOption.SO_SNDBUF, options.getSendBufferSize())
+                .option(ChannelOption.RCVBUF_ALLOCATOR,
+                        new FixedRecvByteBufAllocator(options.getMaxPacketSize()).maxMessagesPerRead(options.getBatchSize()))
+                .handler(new ChannelInitializer<DatagramChannel>() {
+                    @Override
+                    protected void initChannel(DatagramChannel channel) {
+                        ChannelPipeline pipeline = channel.pipeline().addLast(handler);
+                        if (options.getBatchSize() > 1) {
+                            pipeline.addLast(new FlushBatchHandler(options.getBatchSize(), options.getMaxBatchDelayNanos()));
+                        }
+                    }
+                });
+        ChannelFuture connectFuture = bootstrap.connect(target).awaitUninterruptibly();
+        if (! connectFuture.isSuccess()) {
+            group.shutdownGracefully();
+            throw new IOException("Failed to connect to " + target, connectFuture.cause());
+        }
+        channel = connectFuture.channel();
+        int localPort = ((InetSocketAddress) channel.localAddress()).getPort();
+        metrics.kernelDrops(() -> UdpSockets.kernelDrops(localPort));
+    }
+
+    /**
+     * 发送packet中可读的内容作为一个数据包，调用后packet的所有权交给客户端。
+     * @return false表示写缓冲区已满，数据包被丢弃
+     */
+    public boolean send(@NotNull ByteBuf packet) {
+        if (! channel.isWritable()) {
+            packet.release();
+            metrics.sendDropped(1);
+            return false;
+        }
+        metrics.sent(1, packet.readableBytes());
+        // 发送失败由DatagramClientHandler计数。
+        channel.writeAndFlush(packet, channel.voidPromise());
+        return true;
+    }
+
+    /**
+     * 写缓冲区是否低于高水位，为false时{@link #send}会丢弃数据包。
+     */
+    public boolean isWritable() {
+        return channel.isWritable();
+    }
+
+    /**
+     * 在客户端的事件循环中执行task，task中调用{@link #send}不需要再切换线程。
+     */
+    public void execute(@NotNull Runnable task) {
+        channel.eventLoop().execute(task);
+    }
+
+    /**
+     * 在事件循环中分配数据包的缓冲区用这个分配器，命中线程本地的缓存。
+     */
+    @NotNull
+    public ByteBufAllocator alloc() {
+        return channel.alloc();
+    }
+
+    @NotNull
+    public DatagramMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() {
+        channel.close().awaitUninterruptibly();
+        group.shutdownGracefully();
+    }
+}
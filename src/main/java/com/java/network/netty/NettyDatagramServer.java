@@ -0,0 +1,193 @@
+package com.java.network.netty;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.datagram.DatagramOptions;
+import com.java.network.datagram.UdpSockets;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.DatagramMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.server.Server;
+import com.java.network.server.ShutdownReport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.unix.UnixChannelOption;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ *     通过Netty实现的UDP服务端，Channel的实现由{@link NettyTransport#datagramChannelClass()}决定。
+ * </p>
+ * <p>
+ *     事件循环组有{@link DatagramOptions#getReceiverCount()}个线程，传输支持SO_REUSEPORT时同一端口绑定同样多的Channel，
+ *     每个Channel落在一个事件循环上，由内核按源地址的哈希分发数据包。
+ * </p>
+ * <p>
+ *     epoll传输下设置{@link EpollChannelOption#MAX_DATAGRAM_PAYLOAD_SIZE}，每次读取分配能容纳batchSize个数据包的池化缓冲区，
+ *     以一次recvmmsg收取最多batchSize个数据包，每个数据包是这块缓冲区的一个切片；回显的数据包在读事件结束时一起刷新，以sendmmsg发出。
+ *     其他传输每次读取收一个数据包，每次就绪最多连续读batchSize次。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class NettyDatagramServer implements Server {
+
+    public static final String METRICS_NAME = "netty-udp";
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private final DatagramOptions options;
+
+    private final NettyTransport transport;
+
+    private final DatagramMetrics metrics;
+
+    private final List<Channel> channels = new ArrayList<>();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private EventLoopGroup group;
+
+    private volatile ShutdownReport shutdownReport;
+
+    public NettyDatagramServer() {
+        this(NettyTransport.detect());
+    }
+
+    private NettyDatagramServer(@NotNull NettyTransport transport) {
+        this(new DatagramOptions().receiverCount(transport.supportsReusePort() ? Runtime.getRuntime().availableProcessors() : 1), transport);
+    }
+
+    public NettyDatagramServer(@NotNull DatagramOptions options) {
+        this(options, NettyTransport.detect());
+    }
+
+    public NettyDatagramServer(@NotNull DatagramOptions options, @NotNull NettyTransport transport) {
+        if (options.getReceiverCount() > 1 && ! transport.supportsReusePort()) {
+            throw new IllegalArgumentException(transport + " transport does not support SO_REUSEPORT");
+        }
+        this.options = options;
+        this.transport = transport;
+        this.metrics = MetricsRegistry.getDefault().datagram(METRICS_NAME);
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        if (! started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        int receiverCount = options.getReceiverCount();
+        group = transport.newEventLoopGroup(receiverCount,
+                new ThreadFactoryBuilder().setNameFormat("netty-udp-receiver-%d").build());
+        // 多出的一个字节用于发现被截断的数据包。
+        int packetSize = options.getMaxPacketSize() + 1;
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(transport.datagramChannelClass())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.SO_RCVBUF, options.getReceiveBufferSize())
+                .option(ChannelOption.SO_SNDBUF, options.getSendBufferSize())
+                .handler(new ChannelInitializer<DatagramChannel>() {
+                    @Override
+                    protected void initChannel(DatagramChannel channel) {
+                        channel.pipeline().addLast(new DatagramServerHandler(options.getMaxPacketSize(), options.isEcho(), metrics));
+                    }
+                });
+        if (NettyTransport.EPOLL == transport) {
+            bootstrap.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, packetSize)
+                    .option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(packetSize * options.getBatchSize()));
+        } else {
+            bootstrap.option(ChannelOption.RCVBUF_ALLOCATOR,
+                    new FixedRecvByteBufAllocator(packetSize).maxMessagesPerRead(options.getBatchSize()));
+        }
+        if (receiverCount > 1) {
+            bootstrap.option(UnixChannelOption.SO_REUSEPORT, true);
+        }
+
+        // 事件循环组按轮询注册Channel，每个Channel落在不同的线程上。
+        for (int i = 0; i < receiverCount; i++) {
+            ChannelFuture bindFuture = bootstrap.bind(new InetSocketAddress(port)).awaitUninterruptibly();
+            if (! bindFuture.isSuccess()) {
+                for (Channel channel : channels) {
+                    channel.close();
+                }
+                group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).awaitUninterruptibly();
+                throw new IOException("Failed to bind port " + port, bindFuture.cause());
+            }
+            channels.add(bindFuture.channel());
+            // 端口为0时由第一个Channel决定，其他Channel绑定同一个端口。
+            port = ((InetSocketAddress) channels.get(0).localAddress()).getPort();
+        }
+        int receiveBufferSize = channels.get(0).config().getOption(ChannelOption.SO_RCVBUF);
+        if (receiveBufferSize < options.getReceiveBufferSize()) {
+            LOGGER.warn("SO_RCVBUF limited to %d bytes (requested %d), raise net.core.rmem_max to avoid drops.",
+                    receiveBufferSize, options.getReceiveBufferSize());
+        }
+        int boundPort = port;
+        metrics.kernelDrops(() -> UdpSockets.kernelDrops(boundPort));
+        LOGGER.info("Datagram server started on port %d with %s transport, %d receiver(s).", port, transport, receiverCount);
+    }
+
+    /**
+     * 关闭所有Channel和事件循环组。UDP没有需要收尾的连接，timeout不起作用。
+     */
+    @NotNull
+    @Override
+    public ShutdownReport stop(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        if (! stopped.compareAndSet(false, true)) {
+            awaitTermination();
+            return shutdownReport;
+        }
+        long startNanos = System.nanoTime();
+        if (! channels.isEmpty()) {
+            for (Channel channel : channels) {
+                channel.close().awaitUninterruptibly();
+            }
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).await();
+        }
+
+        shutdownReport = new ShutdownReport(0, 0, System.nanoTime() - startNanos);
+        LOGGER.info("Datagram server stopped: %s.", shutdownReport);
+        terminated.countDown();
+        return shutdownReport;
+    }
+
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // 第一个参数是可选的接收线程数，大于1时需要epoll传输。
+        DatagramOptions options = new DatagramOptions().echo(true);
+        if (args.length > 0) {
+            options.receiverCount(Integer.parseInt(args[0]));
+        }
+        NettyDatagramServer server = new NettyDatagramServer(options);
+        server.start(9527);
+        Server.stopOnShutdown(server, 30, TimeUnit.SECONDS);
+        server.awaitTermination();
+    }
+}
@@ -0,0 +1,65 @@
+package com.java.network.netty;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.dns.HostResolver;
+import io.netty.channel.EventLoopGroup;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.util.concurrent.Future;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     通过Netty的{@link DnsNameResolver}直接向DNS服务器发出查询的解析器，不经过JDK的阻塞解析。
+ *     查询同时请求A和AAAA记录，结果按记录自带的TTL缓存，读取/etc/hosts和/etc/resolv.conf的方式和Netty一致。
+ * </p>
+ * <p>
+ *     解析器使用自己的单线程事件循环，可以作为{@link com.java.network.client.ClientOptions#resolver}交给任意一种客户端。
+ *     客户端需要全部地址来竞速建立连接，所以这里适配的是{@link DnsNameResolver#resolveAll}，而不是只返回一个地址的
+ *     {@link io.netty.resolver.dns.DnsAddressResolverGroup}。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class NettyDnsResolver implements HostResolver, Closeable {
+
+    private final EventLoopGroup eventLoopGroup;
+
+    private final DnsNameResolver resolver;
+
+    public NettyDnsResolver() {
+        this(NettyTransport.detect());
+    }
+
+    public NettyDnsResolver(@NotNull NettyTransport transport) {
+        this.eventLoopGroup = transport.newEventLoopGroup(1, new ThreadFactoryBuilder().setNameFormat("netty-dns-%d").setDaemon(true).build());
+        this.resolver = new DnsNameResolverBuilder(eventLoopGroup.next())
+                .channelType(transport.datagramChannelClass())
+                .build();
+    }
+
+    @NotNull
+    @Override
+    public CompletableFuture<List<InetAddress>> resolve(@NotNull String host) {
+        CompletableFuture<List<InetAddress>> future = new CompletableFuture<>();
+        resolver.resolveAll(host).addListener((Future<List<InetAddress>> resolved) -> {
+            if (resolved.isSuccess()) {
+                future.complete(resolved.getNow());
+            } else {
+                future.completeExceptionally(resolved.cause());
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void close() {
+        resolver.close();
+        eventLoopGroup.shutdownGracefully();
+    }
+}
@@ -1,87 +1,320 @@
 package com.java.network.netty;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.file.StaticFiles;
+import com.java.network.http.HttpResponses;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.server.Server;
+import com.java.network.server.ServerOptions;
+import com.java.network.server.ShutdownReport;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.*;
-import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollMode;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.unix.UnixChannelOption;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.stream.ChunkedWriteHandler;
+import io.netty.handler.timeout.IdleStateHandler;
 import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p>
  *     通过Netty实现的Socket服务端
  * </p>
+ * <p>
+ *     传输实现由{@link NettyTransport#detect()}选择，Linux上优先使用native epoll。
+ *     Boss线程组只负责接入连接，Worker线程组负责读写，两者分别设置线程数。
+ *     传输支持SO_REUSEPORT时同一端口绑定多个监听Channel，每个Channel对应一个Boss线程，由内核在它们之间分发连接。
+ * </p>
+ * <p>
+ *     设置了{@link com.java.network.rpc.RpcService}时Pipeline换成长度字段分帧的RPC编解码。
+ * </p>
+ * <p>
+ *     设置了{@link ServerOptions#getTls()}时Pipeline最前面加入{@link io.netty.handler.ssl.SslHandler}，引擎的选择见{@link NettyTls}；
+ *     FileRegion不能经过SslHandler加密，文件改为分块发送。
+ * </p>
+ * <p>
+ *     设置了{@link ServerOptions#getAdmission()}时，监听Channel上的{@link ConnectionLimitHandler}限制连接数，
+ *     请求处理器在处理每个请求之前检查限速和并发上限。
+ * </p>
+ * <p>
+ *     {@link #stop}先关闭监听Channel，再向每个连接发送{@link DrainEvent}，由处理器在响应写完后自行关闭，
+ *     超时后强制关闭剩下的连接，最后关闭两个线程组。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
  * @author zhangbin
  * @date 2020-05-28
  */
-public class NettyServer {
+public class NettyServer implements Server {
+
+    public static final String METRICS_NAME = "netty";
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private final ServerOptions options;
+
+    private final byte[] keepAliveResponse;
+
+    private final byte[] closeResponse;
+
+    private final NettyTransport transport;
+
+    private final int acceptorCount;
+
+    private final int workerCount;
+
+    /**
+     * 当前打开的连接，关闭后自动移除。
+     */
+    private final ChannelGroup childChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+
+    private final List<Channel> serverChannels = new ArrayList<>();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private EventLoopGroup bossGroup;
+
+    private EventLoopGroup workerGroup;
 
-    public void start(int port) throws InterruptedException {
+    private ByteBuf keepAliveBuf;
+
+    private ByteBuf closeBuf;
+
+    private volatile ShutdownReport shutdownReport;
+
+    public NettyServer() {
+        this(new ServerOptions());
+    }
+
+    public NettyServer(@NotNull ServerOptions options) {
+        this(options, NettyTransport.detect());
+    }
+
+    public NettyServer(@NotNull ServerOptions options, @NotNull NettyTransport transport) {
+        this(options, transport, transport.supportsReusePort() ? Math.max(1, Runtime.getRuntime().availableProcessors() / 4) : 1,
+                Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * @param acceptorCount 监听Channel和Boss线程的数量，传输不支持SO_REUSEPORT时只能为1
+     * @param workerCount Worker线程数
+     */
+    public NettyServer(@NotNull ServerOptions options, @NotNull NettyTransport transport, int acceptorCount, int workerCount) {
+        if (acceptorCount < 1 || workerCount < 1) {
+            throw new IllegalArgumentException("acceptorCount and workerCount must be positive");
+        }
+        if (acceptorCount > 1 && ! transport.supportsReusePort()) {
+            throw new IllegalArgumentException(transport + " transport does not support SO_REUSEPORT");
+        }
+        this.options = options;
+        this.transport = transport;
+        this.acceptorCount = acceptorCount;
+        this.workerCount = workerCount;
+        this.keepAliveResponse = HttpResponses.encode(200, "OK", "text/plain", getResponse().getBytes(CharsetUtil.UTF_8), true);
+        this.closeResponse = HttpResponses.encode(200, "OK", "text/plain", getResponse().getBytes(CharsetUtil.UTF_8), false);
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        if (! started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        bossGroup = transport.newEventLoopGroup(acceptorCount,
+                new ThreadFactoryBuilder().setNameFormat("netty-boss-%d").build());
+        workerGroup = transport.newEventLoopGroup(workerCount,
+                new ThreadFactoryBuilder().setNameFormat("netty-worker-%d").build());
+        // 固定的响应只编码一次，放在只读的堆外缓冲区中，每次发送它的retainedDuplicate，写出时不需要再复制。
+        ByteBuf keepAliveBuf = this.keepAliveBuf = readOnlyDirectBuffer(keepAliveResponse);
+        ByteBuf closeBuf = this.closeBuf = readOnlyDirectBuffer(closeResponse);
+        StaticFiles staticFiles = null == options.getDocumentRoot() ? null : new StaticFiles(options);
+        SslContext sslContext = null == options.getTls() ? null : NettyTls.serverContext(options.getTls());
+        // io_uring传输和TLS都不支持FileRegion，文件改为分块发送。
+        boolean zeroCopy = NettyTransport.IO_URING != transport && null == sslContext;
+        TransportMetrics metrics = MetricsRegistry.getDefault().transport(METRICS_NAME);
+        MetricsHandler metricsHandler = new MetricsHandler(metrics);
         ServerBootstrap serverBootstrap = new ServerBootstrap()
-                .group(new NioEventLoopGroup())
+                .group(bossGroup, workerGroup)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.SO_BACKLOG, options.getBacklog())
+                .option(ChannelOption.SO_REUSEADDR, options.isReuseAddress())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK,
+                        new WriteBufferWaterMark(options.getWriteBufferLowWaterMark(), options.getWriteBufferHighWaterMark()))
+                .childOption(ChannelOption.TCP_NODELAY, options.isTcpNoDelay())
+                // Netty自带同样的自适应读取，读取大小和每次就绪最多读几次与NonBlockingServer一致。
+                .childOption(ChannelOption.RCVBUF_ALLOCATOR, new AdaptiveRecvByteBufAllocator(
+                        options.getMinReadSize(), options.getInitialReadSize(), options.getMaxReadSize())
+                        .maxMessagesPerRead(options.getMaxReadsPerEvent()))
                 .localAddress(new InetSocketAddress(port))
-                .channel(NioServerSocketChannel.class)
+                .channel(transport.serverChannelClass())
                 .childHandler(new ChannelInitializer<SocketChannel>() {
                     @Override
                     protected void initChannel(SocketChannel socketChannel) {
-                        socketChannel.pipeline().addLast(new SimpleChannelInboundHandler<Object>() {
-
-                            private StringBuilder stringBuilder = new StringBuilder();
-
-                            @Override
-                            protected void channelRead0(ChannelHandlerContext channelHandlerContext, Object o) {
-                                ByteBuf byteBuf = (ByteBuf) o;
-                                while (byteBuf.isReadable()) {
-                                    stringBuilder.append((char) byteBuf.readByte());
-                                }
-                            }
-
-                            @Override
-                            public void channelReadComplete(ChannelHandlerContext ctx) {
-                                InetSocketAddress inetSocketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
-                                System.out.println(String.format("Read from %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-                                System.out.println(stringBuilder.toString());
-                                ctx.channel().close();
-                                ctx.close();
-                            }
-
-                            @Override
-                            public void channelActive(ChannelHandlerContext ctx) {
-                                InetSocketAddress inetSocketAddress = (InetSocketAddress) ctx.channel().remoteAddress();
-                                System.out.println(String.format("Write to %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-                                ctx.writeAndFlush(Unpooled.copiedBuffer(getResponse(), CharsetUtil.UTF_8));
-                            }
-                        });
+                        childChannels.add(socketChannel);
+                        ChannelPipeline pipeline = socketChannel.pipeline()
+                                .addLast(metricsHandler)
+                                .addLast(new IdleStateHandler(0, 0, options.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS));
+                        if (null != sslContext) {
+                            // 放在最前面，统计的字节数与其他传输一样是明文。
+                            pipeline.addFirst(NettyTls.newServerHandler(sslContext, socketChannel.alloc(), metrics));
+                        }
+                        if (null != options.getRpcService()) {
+                            pipeline.addLast(RpcCodec.newFrameDecoder(options.getMaxFrameLength()),
+                                    new RpcServerHandler(options.getRpcService(), options.getAdmission(), metrics));
+                            return;
+                        }
+                        if (null != staticFiles && ! zeroCopy) {
+                            pipeline.addLast(new ChunkedWriteHandler());
+                        }
+                        pipeline.addLast(new HttpServerHandler(options, keepAliveBuf, closeBuf, staticFiles, zeroCopy, metrics));
                     }
                 });
+        if (NettyTransport.EPOLL == transport) {
+            // 边缘触发减少epoll_wait的唤醒次数，Handler一次读完所有数据。
+            serverBootstrap.option(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED)
+                    .childOption(EpollChannelOption.EPOLL_MODE, EpollMode.EDGE_TRIGGERED);
+        }
+        if (null != options.getAdmission()) {
+            serverBootstrap.handler(new ConnectionLimitHandler(options.getAdmission()));
+        }
+        if (acceptorCount > 1) {
+            serverBootstrap.option(UnixChannelOption.SO_REUSEPORT, true);
+        }
+        if (options.getReceiveBufferSize() > 0) {
+            // 接入的连接继承监听Socket的接收缓冲区。
+            serverBootstrap.option(ChannelOption.SO_RCVBUF, options.getReceiveBufferSize());
+        }
+        if (options.getSendBufferSize() > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_SNDBUF, options.getSendBufferSize());
+        }
+
+        // Boss线程组按轮询注册Channel，每个监听Channel落在不同的Boss线程上。
+        for (int i = 0; i < acceptorCount; i++) {
+            ChannelFuture bindFuture = serverBootstrap.bind().awaitUninterruptibly();
+            if (! bindFuture.isSuccess()) {
+                for (Channel channel : serverChannels) {
+                    channel.close();
+                }
+                // 固定的响应在这里已经释放，之后的stop不能再关闭一次线程组。
+                serverChannels.clear();
+                shutdownGroups().awaitUninterruptibly();
+                startFailed();
+                throw new IOException("Failed to bind port " + port, bindFuture.cause());
+            }
+            serverChannels.add(bindFuture.channel());
+        }
+        LOGGER.info("Server started on port %d with %s transport, %d acceptor(s), %d worker(s).",
+                port, transport, acceptorCount, workerCount);
+    }
 
-        ChannelFuture channelFuture = serverBootstrap.bind().sync();
-        channelFuture.addListener((ChannelFutureListener) future -> {
-            if (! future.isSuccess()) {
-                future.cause().printStackTrace();
-                future.channel().close();
+    /**
+     * 先关闭监听Channel，再通知每个连接收尾，超时后强制关闭剩下的连接。
+     */
+    @NotNull
+    @Override
+    public ShutdownReport stop(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        if (! stopped.compareAndSet(false, true)) {
+            awaitTermination();
+            return shutdownReport;
+        }
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + unit.toNanos(timeout);
+        int total = 0;
+        int forced = 0;
+        if (! serverChannels.isEmpty()) {
+            for (Channel channel : serverChannels) {
+                channel.close().awaitUninterruptibly();
             }
+            // 监听Channel关闭后不会再有新连接加入。
+            total = childChannels.size();
+            for (Channel channel : childChannels) {
+                channel.pipeline().fireUserEventTriggered(DrainEvent.INSTANCE);
+            }
+            childChannels.newCloseFuture().await(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            forced = childChannels.size();
+            childChannels.close().awaitUninterruptibly();
+            shutdownGroups().await();
+        }
+
+        shutdownReport = new ShutdownReport(total - forced, forced, System.nanoTime() - startNanos);
+        LOGGER.info("Server stopped: %s.", shutdownReport);
+        terminated.countDown();
+        return shutdownReport;
+    }
+
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * 启动失败、已经释放了资源时调用：之后的{@link #stop}直接返回，{@link #awaitTermination}不再等待。
+     */
+    private void startFailed() {
+        stopped.set(true);
+        shutdownReport = new ShutdownReport(0, 0, 0);
+        terminated.countDown();
+    }
+
+    /**
+     * 连接都已关闭，两个线程组不需要静默期；Worker线程组退出后释放固定的响应。
+     */
+    @NotNull
+    private Future<?> shutdownGroups() {
+        bossGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS);
+        return workerGroup.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).addListener(future -> {
+            keepAliveBuf.release();
+            closeBuf.release();
         });
+    }
 
-        System.out.println("Server started.");
-        channelFuture.channel().closeFuture().sync();
+    @NotNull
+    private static ByteBuf readOnlyDirectBuffer(@NotNull byte[] bytes) {
+        return Unpooled.directBuffer(bytes.length).writeBytes(bytes).asReadOnly();
     }
 
     @NotNull
     @Contract(pure = true)
     private String getResponse() {
-        return "GET / HTTP/1.1\r\n"
-                + "User-Agent: curl/7.43.0\r\n"
-                + "Accept: */*\r\n\r\n";
+        return "Hello, World!";
     }
 
-    public static void main(String[] args) throws InterruptedException {
-        new NettyServer().start(9527);
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // 第一个参数是可选的文档目录。
+        ServerOptions options = new ServerOptions();
+        if (args.length > 0) {
+            options.documentRoot(Paths.get(args[0]));
+        }
+        NettyServer server = new NettyServer(options);
+        server.start(9527);
+        Server.stopOnShutdown(server, 30, TimeUnit.SECONDS);
+        server.awaitTermination();
     }
 }
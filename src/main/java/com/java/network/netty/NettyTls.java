@@ -0,0 +1,113 @@
+package com.java.network.netty;
+
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.tls.TlsOptions;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLParameters;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     由{@link TlsOptions}构建Netty的{@link SslContext}和{@link SslHandler}。
+ * </p>
+ * <p>
+ *     netty-tcnative（比如netty-tcnative-boringssl-static）在类路径上时使用OpenSSL/BoringSSL的引擎，
+ *     握手和加解密都在native代码中完成，否则退回JDK的SSLEngine。会话缓存由SslContext持有，同一个服务端或客户端的连接共享。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+final class NettyTls {
+
+    private NettyTls() {
+    }
+
+    static SslProvider provider() {
+        return OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+    }
+
+    @NotNull
+    static SslContext serverContext(@NotNull TlsOptions tls) throws SSLException {
+        if (null == tls.getKeyManagerFactory()) {
+            throw new IllegalStateException("Server TLS requires a key manager");
+        }
+        return configure(SslContextBuilder.forServer(tls.getKeyManagerFactory()), tls).build();
+    }
+
+    @NotNull
+    static SslContext clientContext(@NotNull TlsOptions tls) throws SSLException {
+        SslContextBuilder builder = SslContextBuilder.forClient();
+        if (null != tls.getTrustManagerFactory()) {
+            builder.trustManager(tls.getTrustManagerFactory());
+        }
+        return configure(builder, tls).build();
+    }
+
+    /**
+     * 创建服务端连接的SslHandler，握手结果记录到metrics。
+     */
+    @NotNull
+    static SslHandler newServerHandler(@NotNull SslContext sslContext, @NotNull ByteBufAllocator alloc, @NotNull TransportMetrics metrics) {
+        return record(sslContext.newHandler(alloc), metrics);
+    }
+
+    /**
+     * 创建客户端连接的SslHandler，host和port用于SNI和按目标复用会话，握手结果记录到metrics。
+     */
+    @NotNull
+    static SslHandler newClientHandler(@NotNull SslContext sslContext, @NotNull ByteBufAllocator alloc, @NotNull String host, int port,
+                                       @NotNull TlsOptions tls, @NotNull TransportMetrics metrics) {
+        SslHandler sslHandler = sslContext.newHandler(alloc, host, port);
+        if (tls.isVerifyHostname()) {
+            SSLEngine engine = sslHandler.engine();
+            SSLParameters parameters = engine.getSSLParameters();
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+            engine.setSSLParameters(parameters);
+        }
+        return record(sslHandler, metrics);
+    }
+
+    @NotNull
+    private static SslHandler record(@NotNull SslHandler sslHandler, @NotNull TransportMetrics metrics) {
+        // Handler在连接建立时加入Pipeline，随即开始握手。
+        long startNanos = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        sslHandler.handshakeFuture().addListener(future -> {
+            if (future.isSuccess()) {
+                metrics.handshake(System.nanoTime() - startNanos, TlsOptions.isResumed(sslHandler.engine().getSession(), startMillis));
+            } else {
+                metrics.handshakeFailed();
+            }
+        });
+        return sslHandler;
+    }
+
+    @NotNull
+    private static SslContextBuilder configure(@NotNull SslContextBuilder builder, @NotNull TlsOptions tls) {
+        builder.sslProvider(provider())
+                .sessionCacheSize(tls.getSessionCacheSize())
+                .sessionTimeout(TimeUnit.MILLISECONDS.toSeconds(tls.getSessionTimeoutMillis()))
+                .applicationProtocolConfig(new ApplicationProtocolConfig(ApplicationProtocolConfig.Protocol.ALPN,
+                        ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                        ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                        tls.getApplicationProtocols()));
+        if (null != tls.getProtocols()) {
+            builder.protocols(tls.getProtocols());
+        }
+        if (null != tls.getCipherSuites()) {
+            builder.ciphers(Arrays.asList(tls.getCipherSuites()));
+        }
+        return builder;
+    }
+}
@@ -0,0 +1,193 @@
+package com.java.network.netty;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollDatagramChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.DatagramChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * <p>
+ *     Netty的传输实现，按io_uring、epoll、NIO的顺序选择当前平台可用的一种。
+ * </p>
+ * <p>
+ *     io_uring需要单独引入netty-incubator-transport-io_uring，这里通过反射加载，
+ *     只有设置了系统属性{@value #IO_URING_PROPERTY}并且类和native库都可用时才会使用。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public enum NettyTransport {
+
+    IO_URING {
+        @Override
+        public boolean isAvailable() {
+            try {
+                return (Boolean) Class.forName(IO_URING_PACKAGE + "IOUring").getMethod("isAvailable").invoke(null);
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        @NotNull
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, @NotNull ThreadFactory threadFactory) {
+            try {
+                return (EventLoopGroup) Class.forName(IO_URING_PACKAGE + "IOUringEventLoopGroup")
+                        .getConstructor(int.class, ThreadFactory.class).newInstance(threads, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("io_uring transport is not available", e);
+            }
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return loadClass("IOUringServerSocketChannel", ServerChannel.class);
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends SocketChannel> channelClass() {
+            return loadClass("IOUringSocketChannel", SocketChannel.class);
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends DatagramChannel> datagramChannelClass() {
+            return loadClass("IOUringDatagramChannel", DatagramChannel.class);
+        }
+    },
+
+    EPOLL {
+        @Override
+        public boolean isAvailable() {
+            return Epoll.isAvailable();
+        }
+
+        @NotNull
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, @NotNull ThreadFactory threadFactory) {
+            return new EpollEventLoopGroup(threads, threadFactory);
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return EpollServerSocketChannel.class;
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends SocketChannel> channelClass() {
+            return EpollSocketChannel.class;
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends DatagramChannel> datagramChannelClass() {
+            return EpollDatagramChannel.class;
+        }
+
+        @Override
+        public boolean supportsReusePort() {
+            return true;
+        }
+    },
+
+    NIO {
+        @Override
+        public boolean isAvailable() {
+            return true;
+        }
+
+        @NotNull
+        @Override
+        public EventLoopGroup newEventLoopGroup(int threads, @NotNull ThreadFactory threadFactory) {
+            return new NioEventLoopGroup(threads, threadFactory);
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends ServerChannel> serverChannelClass() {
+            return NioServerSocketChannel.class;
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends SocketChannel> channelClass() {
+            return NioSocketChannel.class;
+        }
+
+        @NotNull
+        @Override
+        public Class<? extends DatagramChannel> datagramChannelClass() {
+            return NioDatagramChannel.class;
+        }
+    };
+
+    /**
+     * 设置为true时优先尝试io_uring。
+     */
+    public static final String IO_URING_PROPERTY = "com.java.network.netty.ioUring";
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    /**
+     * 当前平台是否可以使用这种传输。
+     */
+    public abstract boolean isAvailable();
+
+    @NotNull
+    public abstract EventLoopGroup newEventLoopGroup(int threads, @NotNull ThreadFactory threadFactory);
+
+    @NotNull
+    public abstract Class<? extends ServerChannel> serverChannelClass();
+
+    @NotNull
+    public abstract Class<? extends SocketChannel> channelClass();
+
+    /**
+     * UDP使用的Channel，比如{@link NettyDnsResolver}发送DNS查询和{@link NettyDatagramServer}收发数据包。
+     */
+    @NotNull
+    public abstract Class<? extends DatagramChannel> datagramChannelClass();
+
+    /**
+     * 是否支持SO_REUSEPORT，支持时可以让多个监听Channel绑定同一端口，由内核分发连接。
+     */
+    public boolean supportsReusePort() {
+        return false;
+    }
+
+    /**
+     * 选择当前平台上最优的传输实现。
+     */
+    @NotNull
+    public static NettyTransport detect() {
+        if (Boolean.getBoolean(IO_URING_PROPERTY) && IO_URING.isAvailable()) {
+            return IO_URING;
+        }
+        return EPOLL.isAvailable() ? EPOLL : NIO;
+    }
+
+    @NotNull
+    private static <T> Class<? extends T> loadClass(String simpleName, Class<T> type) {
+        try {
+            return Class.forName(IO_URING_PACKAGE + simpleName).asSubclass(type);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("io_uring transport is not available", e);
+        }
+    }
+}
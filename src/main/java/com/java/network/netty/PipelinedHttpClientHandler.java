@@ -0,0 +1,63 @@
+package com.java.network.netty;
+
+import com.java.network.http.HttpParser;
+import com.java.network.http.PipelinedRequests;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.timer.TimerThread;
+import io.netty.channel.ChannelHandlerContext;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * <p>
+ *     流水线HTTP连接的响应处理器，每个连接一个实例。收到的响应按顺序交给{@link PipelinedRequests}中最早发出的请求，
+ *     对端不允许复用连接时关闭连接，后面还在等待的请求以{@link ClosedChannelException}失败。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class PipelinedHttpClientHandler extends HttpMessageDecoder {
+
+    private final PipelinedRequests requests;
+
+    private final TransportMetrics metrics;
+
+    PipelinedHttpClientHandler(@NotNull PipelinedRequests requests, @NotNull TransportMetrics metrics) {
+        super(HttpParser.Type.RESPONSE);
+        this.requests = requests;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void onMessage(ChannelHandlerContext ctx, ByteBuffer message, HttpParser parser) {
+        PipelinedRequests.Request request = requests.finish();
+        if (null == request) {
+            // 没有请求在等待的响应，连接状态已经不可信。
+            ctx.close();
+            return;
+        }
+        TimerThread.shared().cancel(request);
+        request.complete(HttpParser.toString(message, 0, parser.messageLength()));
+        if (! parser.isKeepAlive()) {
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // 先让父类处理以关闭连接表示结束的响应，剩下的请求才算失败。
+        super.channelInactive(ctx);
+        for (PipelinedRequests.Request request : requests.failAll(new ClosedChannelException())) {
+            TimerThread.shared().cancel(request);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        metrics.error();
+        cause.printStackTrace();
+        ctx.close();
+    }
+}
@@ -0,0 +1,69 @@
+package com.java.network.netty;
+
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.rpc.RpcCalls;
+import com.java.network.rpc.RpcException;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.timer.TimerThread;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+
+/**
+ * <p>
+ *     客户端的RPC响应处理器，每个连接一个实例，按stream把响应交给{@link RpcCalls}中对应的请求。
+ *     响应体复制到堆内存后交给调用方，帧随即释放。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class RpcClientHandler extends ChannelInboundHandlerAdapter {
+
+    private final RpcCalls calls;
+
+    private final TransportMetrics metrics;
+
+    RpcClientHandler(@NotNull RpcCalls calls, @NotNull TransportMetrics metrics) {
+        this.calls = calls;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf frame = (ByteBuf) msg;
+        try {
+            byte type = RpcCodec.type(frame);
+            if (RpcFrames.RESPONSE != type && RpcFrames.ERROR != type) {
+                throw new RpcException("Unexpected frame type: " + type);
+            }
+            RpcCalls.Call call = calls.finish(RpcCodec.streamId(frame));
+            if (null != call) {
+                TimerThread.shared().cancel(call);
+                ByteBuffer payload = ByteBuffer.allocate(frame.readableBytes() - RpcFrames.HEADER_LENGTH);
+                payload.put(RpcCodec.payload(frame)).flip();
+                call.complete(type, payload);
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        for (RpcCalls.Call call : calls.failAll(new ClosedChannelException())) {
+            TimerThread.shared().cancel(call);
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        metrics.error();
+        cause.printStackTrace();
+        ctx.close();
+    }
+}
@@ -0,0 +1,66 @@
+package com.java.network.netty;
+
+import com.java.network.rpc.RpcFrames;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ *     {@link RpcFrames}格式在Netty上的编解码。解码由{@link LengthFieldBasedFrameDecoder}完成，
+ *     去掉长度字段后把从type开始的整帧交给下一个Handler。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+final class RpcCodec {
+
+    private static final int STREAM_ID_OFFSET = 1;
+
+    private static final int METHOD_ID_OFFSET = 5;
+
+    private RpcCodec() {
+    }
+
+    @NotNull
+    static LengthFieldBasedFrameDecoder newFrameDecoder(int maxFrameLength) {
+        return new LengthFieldBasedFrameDecoder(maxFrameLength, 0, RpcFrames.LENGTH_FIELD_LENGTH, 0, RpcFrames.LENGTH_FIELD_LENGTH);
+    }
+
+    static byte type(@NotNull ByteBuf frame) {
+        return frame.getByte(frame.readerIndex());
+    }
+
+    static int streamId(@NotNull ByteBuf frame) {
+        return frame.getInt(frame.readerIndex() + STREAM_ID_OFFSET);
+    }
+
+    static int methodId(@NotNull ByteBuf frame) {
+        return frame.getInt(frame.readerIndex() + METHOD_ID_OFFSET);
+    }
+
+    /**
+     * 帧中payload的视图，与帧共享内容，只在帧释放之前有效。
+     */
+    @NotNull
+    static ByteBuffer payload(@NotNull ByteBuf frame) {
+        return frame.nioBuffer(frame.readerIndex() + RpcFrames.HEADER_LENGTH, frame.readableBytes() - RpcFrames.HEADER_LENGTH);
+    }
+
+    /**
+     * 把一帧编码到分配器的池化缓冲区中，不改变payload的position。
+     */
+    @NotNull
+    static ByteBuf encode(@NotNull ByteBufAllocator allocator, byte type, int streamId, int methodId, @NotNull ByteBuffer payload) {
+        ByteBuf frame = allocator.ioBuffer(RpcFrames.encodedLength(payload.remaining()));
+        frame.writeInt(RpcFrames.HEADER_LENGTH + payload.remaining())
+                .writeByte(type)
+                .writeInt(streamId)
+                .writeInt(methodId)
+                .writeBytes(payload.duplicate());
+        return frame;
+    }
+}
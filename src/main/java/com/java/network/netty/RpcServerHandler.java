@@ -0,0 +1,179 @@
+package com.java.network.netty;
+
+import com.java.network.admission.Admission;
+import com.java.network.admission.AdmissionControl;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.rpc.RpcException;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.rpc.RpcService;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     服务端的RPC处理器，每个连接一个实例，前面需要有{@link RpcCodec#newFrameDecoder(int)}。
+ * </p>
+ * <p>
+ *     同步完成的响应只写不刷新，在{@link #channelReadComplete}中统一刷新；
+ *     异步完成的响应在完成时立即写出并刷新，不等待同一连接上更早的请求。
+ * </p>
+ * <p>
+ *     设置了{@link AdmissionControl}时每个调用先经过准入控制，被拒绝的调用不交给服务，直接回复错误帧。
+ * </p>
+ * <p>
+ *     收到{@link DrainEvent}后，所有调用的响应都写完时关闭连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class RpcServerHandler extends ChannelInboundHandlerAdapter {
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private final RpcService rpcService;
+
+    private final AdmissionControl admissionControl;
+
+    private final TransportMetrics metrics;
+
+    private boolean draining;
+
+    /**
+     * 还没有写完响应的调用数。
+     */
+    private int inFlight;
+
+    /**
+     * @param admissionControl 为null时不做准入控制
+     */
+    RpcServerHandler(@NotNull RpcService rpcService, AdmissionControl admissionControl, @NotNull TransportMetrics metrics) {
+        this.rpcService = rpcService;
+        this.admissionControl = admissionControl;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        ByteBuf frame = (ByteBuf) msg;
+        long startNanos = System.nanoTime();
+        try {
+            if (RpcFrames.REQUEST != RpcCodec.type(frame)) {
+                throw new RpcException("Unexpected frame type: " + RpcCodec.type(frame));
+            }
+            int streamId = RpcCodec.streamId(frame);
+            int methodId = RpcCodec.methodId(frame);
+            inFlight++;
+            if (null != admissionControl) {
+                Admission admission = admissionControl.admit(((InetSocketAddress) ctx.channel().remoteAddress()).getAddress());
+                if (Admission.ADMITTED != admission) {
+                    write(ctx, RpcCodec.encode(ctx.alloc(), RpcFrames.ERROR, streamId, methodId,
+                            RpcFrames.errorPayload(admission.message())), false);
+                    metrics.request(System.nanoTime() - startNanos);
+                    return;
+                }
+            }
+            CompletableFuture<ByteBuffer> future = RpcFrames.invoke(rpcService, methodId, RpcCodec.payload(frame));
+            if (future.isDone()) {
+                respond(ctx, streamId, methodId, future, startNanos, false);
+            } else {
+                future.whenComplete((result, cause) -> respond(ctx, streamId, methodId, future, startNanos, true));
+            }
+        } finally {
+            frame.release();
+        }
+    }
+
+    private void respond(@NotNull ChannelHandlerContext ctx, int streamId, int methodId, @NotNull CompletableFuture<ByteBuffer> future,
+                         long startNanos, boolean flush) {
+        byte type = RpcFrames.RESPONSE;
+        ByteBuffer payload;
+        try {
+            payload = future.join();
+        } catch (Exception e) {
+            type = RpcFrames.ERROR;
+            payload = RpcFrames.errorPayload(e);
+        }
+        ByteBuf response = RpcCodec.encode(ctx.alloc(), type, streamId, methodId, payload);
+        if (! ctx.executor().inEventLoop()) {
+            // 在其他线程完成时回到连接所在的事件循环，inFlight只在事件循环中修改。
+            ctx.executor().execute(() -> write(ctx, response, true));
+        } else {
+            write(ctx, response, flush);
+        }
+        long latencyNanos = System.nanoTime() - startNanos;
+        metrics.request(latencyNanos);
+        if (null != admissionControl) {
+            admissionControl.release(latencyNanos);
+        }
+    }
+
+    private void write(@NotNull ChannelHandlerContext ctx, @NotNull ByteBuf response, boolean flush) {
+        if (draining) {
+            // 收尾期间每个响应都立即刷新，最后一个写完后关闭连接。
+            ctx.writeAndFlush(response).addListener(future -> {
+                inFlight--;
+                closeIfIdle(ctx);
+            });
+            return;
+        }
+        inFlight--;
+        if (flush) {
+            ctx.writeAndFlush(response, ctx.voidPromise());
+        } else {
+            ctx.write(response, ctx.voidPromise());
+        }
+    }
+
+    /**
+     * 收尾期间没有未写完的响应时关闭连接。
+     */
+    private void closeIfIdle(@NotNull ChannelHandlerContext ctx) {
+        if (0 == inFlight) {
+            ctx.close();
+        }
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        ctx.flush();
+        super.channelReadComplete(ctx);
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        // 待发送数据超过高水位时停止读取新的请求，回落到低水位以下再恢复。
+        ctx.channel().config().setAutoRead(ctx.channel().isWritable());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (DrainEvent.INSTANCE == evt) {
+            draining = true;
+            // 已经写出但还没有刷新的响应先刷新，写完后再关闭。
+            ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(future -> closeIfIdle(ctx));
+        } else if (evt instanceof IdleStateEvent) {
+            metrics.timeout();
+            LOGGER.debug("Connection %s idle timeout.", ctx.channel().remoteAddress());
+            ctx.close();
+        } else {
+            super.userEventTriggered(ctx, evt);
+        }
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        metrics.error();
+        LOGGER.debug("Connection %s failed: %s", ctx.channel().remoteAddress(), cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.java.network.nio;
+
+import com.java.network.server.ServerOptions;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ *     按最近读到的数据量预测下一次读取的字节数，做法与Netty的AdaptiveRecvByteBufAllocator相同：
+ *     候选大小在512以下每16字节一档，之后每档翻倍；一次读满预测值时向上跳4档，
+ *     连续两次读到的数据量不超过低一档的大小时才向下退1档，涨得快、降得慢。
+ * </p>
+ * <p>
+ *     同时记录一次就绪事件中的读取次数，最后一次读满了预测值并且次数没有超过上限时才继续读，
+ *     没读满说明内核缓冲区已经读空，不必再多一次返回0的系统调用。
+ *     每个连接一个实例，只在所属的工作线程中访问。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class AdaptiveReadSize {
+
+    private static final int INDEX_INCREMENT = 4;
+
+    private static final int INDEX_DECREMENT = 1;
+
+    private static final int[] SIZE_TABLE;
+
+    static {
+        List<Integer> sizes = new ArrayList<>();
+        for (int size = 16; size < 512; size += 16) {
+            sizes.add(size);
+        }
+        for (int size = 512; size > 0; size <<= 1) {
+            sizes.add(size);
+        }
+        SIZE_TABLE = new int[sizes.size()];
+        for (int i = 0; i < SIZE_TABLE.length; i++) {
+            SIZE_TABLE[i] = sizes.get(i);
+        }
+    }
+
+    private final int minIndex;
+
+    private final int maxIndex;
+
+    private final int maxReads;
+
+    private int index;
+
+    private int nextSize;
+
+    private boolean decreaseNow;
+
+    private int reads;
+
+    private int totalBytes;
+
+    private boolean lastReadFull;
+
+    AdaptiveReadSize(@NotNull ServerOptions options) {
+        // 最小值向上取到不小于它的一档，最大值向下取到不超过它的一档。
+        int minIndex = sizeTableIndex(options.getMinReadSize());
+        this.minIndex = SIZE_TABLE[minIndex] < options.getMinReadSize() ? minIndex + 1 : minIndex;
+        int maxIndex = sizeTableIndex(options.getMaxReadSize());
+        this.maxIndex = Math.max(this.minIndex, SIZE_TABLE[maxIndex] > options.getMaxReadSize() ? maxIndex - 1 : maxIndex);
+        this.index = Math.max(this.minIndex, Math.min(this.maxIndex, sizeTableIndex(options.getInitialReadSize())));
+        this.nextSize = SIZE_TABLE[index];
+        this.maxReads = options.getMaxReadsPerEvent();
+    }
+
+    /**
+     * 一次就绪事件开始。
+     */
+    void reset() {
+        reads = 0;
+        totalBytes = 0;
+        lastReadFull = false;
+    }
+
+    /**
+     * 下一次读取的字节数。
+     */
+    int guess() {
+        return nextSize;
+    }
+
+    /**
+     * 记录一次读取，正好读满了预测值说明还有更多数据，立即放大。
+     */
+    void lastRead(int attempted, int actual) {
+        reads++;
+        totalBytes += actual;
+        lastReadFull = actual == attempted;
+        if (lastReadFull) {
+            record(actual);
+        }
+    }
+
+    /**
+     * 这次就绪事件中是否还应该继续读。
+     */
+    boolean continueReading() {
+        return lastReadFull && reads < maxReads;
+    }
+
+    /**
+     * 一次就绪事件读完，按这次总共读到的字节数调整预测值。
+     */
+    void readComplete() {
+        record(totalBytes);
+    }
+
+    private void record(int actual) {
+        if (actual <= SIZE_TABLE[Math.max(0, index - INDEX_DECREMENT)]) {
+            if (decreaseNow) {
+                index = Math.max(index - INDEX_DECREMENT, minIndex);
+                nextSize = SIZE_TABLE[index];
+                decreaseNow = false;
+            } else {
+                decreaseNow = true;
+            }
+        } else if (actual >= nextSize) {
+            index = Math.min(index + INDEX_INCREMENT, maxIndex);
+            nextSize = SIZE_TABLE[index];
+            decreaseNow = false;
+        }
+    }
+
+    /**
+     * 不超过size的最大一档，size比最小一档还小时为0。
+     */
+    private static int sizeTableIndex(int size) {
+        int low = 0;
+        int high = SIZE_TABLE.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (SIZE_TABLE[mid] <= size) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -1,11 +1,14 @@
 package com.java.network.nio;
 
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpStreams;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
 /**
@@ -22,16 +25,18 @@ public class BlockingClient {
             SocketAddress socketAddress = new InetSocketAddress(host, port);
             socketChannel.connect(socketAddress);
 
-             try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(socketChannel.socket().getInputStream()));
+             try (InputStream inputStream = socketChannel.socket().getInputStream();
                   PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(socketChannel.socket().getOutputStream()))) {
                  // 发起请求。
                  printWriter.write(getRequest(host));
                  printWriter.flush();
 
                  // 读取响应。
-                 String message;
-                 while (null != (message = bufferedReader.readLine())) {
-                     System.out.println(message);
+                 ByteBuffer buffer = ByteBuffer.allocate(16384);
+                 buffer.flip();
+                 HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+                 if (HttpStreams.read(inputStream, buffer, parser)) {
+                     System.out.println(HttpParser.toString(buffer, 0, parser.messageLength()));
                  }
              }
         }
@@ -0,0 +1,352 @@
+package com.java.network.nio;
+
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.http.HttpParser;
+import com.java.network.http.PipelinedRequests;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.pool.PooledConnection;
+import com.java.network.rpc.RpcCalls;
+import com.java.network.timer.Timeout;
+import com.java.network.timer.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.SSLEngine;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     NIO客户端单个连接的状态，作为SelectionKey的附件。除了{@link #isOpen()}，其余方法只在客户端的Reactor线程中调用。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class NioClientConnection {
+
+    private static final int BUFFER_SIZE = 16384;
+
+    private final SocketChannel socketChannel;
+
+    /**
+     * Reactor线程的时间轮，连接关闭时取消连接和请求上的超时任务。
+     */
+    private final TimingWheel timingWheel;
+
+    private final ByteBufferPool byteBufferPool;
+
+    private final HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+
+    private final CompletableFuture<NioClientConnection> connectFuture = new CompletableFuture<>();
+
+    private ByteBuffer readBuffer;
+
+    private final OutboundQueue outboundQueue;
+
+    private final TransportMetrics metrics;
+
+    /**
+     * 启用TLS时的引擎，TCP连接建立后才创建{@link TlsChannel}开始握手；没有启用时为null。
+     */
+    private final SSLEngine sslEngine;
+
+    private TlsChannel tlsChannel;
+
+    private SelectionKey selectionKey;
+
+    private Timeout timeout;
+
+    private PooledConnection<NioClientConnection> pooledConnection;
+
+    private CompletableFuture<String> response;
+
+    private long exchangeStartNanos;
+
+    private RpcCalls rpcCalls;
+
+    private PipelinedRequests pipelinedRequests;
+
+    /**
+     * 写合并时已经放入待发送队列、还没有写出的请求数，以及这一批请求最晚写出的时间。
+     */
+    private int batchedRequests;
+
+    private boolean batchFlushScheduled;
+
+    private long batchDeadlineNanos;
+
+    private volatile boolean open = true;
+
+    NioClientConnection(@NotNull SocketChannel socketChannel, @NotNull ByteBufferPool byteBufferPool, @NotNull OutboundQueue outboundQueue,
+                        @NotNull TransportMetrics metrics, SSLEngine sslEngine, @NotNull TimingWheel timingWheel) {
+        this.socketChannel = socketChannel;
+        this.timingWheel = timingWheel;
+        this.byteBufferPool = byteBufferPool;
+        this.outboundQueue = outboundQueue;
+        this.metrics = metrics;
+        this.sslEngine = sslEngine;
+        this.readBuffer = byteBufferPool.acquire(BUFFER_SIZE);
+        this.readBuffer.flip();
+        metrics.connectionOpened();
+    }
+
+    @NotNull
+    SocketChannel socketChannel() {
+        return socketChannel;
+    }
+
+    /**
+     * TCP连接建立后调用，启用了TLS时开始握手。
+     */
+    void startTls() throws IOException {
+        if (null != sslEngine) {
+            tlsChannel = new TlsChannel(socketChannel, sslEngine, byteBufferPool, metrics);
+            tlsChannel.flush();
+        }
+    }
+
+    /**
+     * 连接是否可以发送请求：没有启用TLS，或者TLS握手已经完成。
+     */
+    boolean isReady() {
+        return null == sslEngine || null != tlsChannel && tlsChannel.isHandshakeComplete();
+    }
+
+    /**
+     * 读入数据，启用TLS时是解密后的数据。
+     */
+    int read(@NotNull ByteBuffer dst) throws IOException {
+        return null != tlsChannel ? tlsChannel.read(dst) : socketChannel.read(dst);
+    }
+
+    /**
+     * 待发送队列写入的通道，启用TLS时是{@link TlsChannel}。
+     */
+    @NotNull
+    GatheringByteChannel channel() {
+        return null != tlsChannel ? tlsChannel : socketChannel;
+    }
+
+    /**
+     * 写出TLS层加密后还没发送的数据。
+     */
+    void flushTls() throws IOException {
+        if (null != tlsChannel) {
+            tlsChannel.flush();
+        }
+    }
+
+    boolean hasPendingOutput() {
+        return ! outboundQueue.isEmpty() || null != tlsChannel && tlsChannel.hasPendingOutput();
+    }
+
+    /**
+     * TLS层解密出的数据上次没有读完，需要主动再读。
+     */
+    boolean hasBufferedInput() {
+        return null != tlsChannel && tlsChannel.hasBufferedInput();
+    }
+
+    @NotNull
+    CompletableFuture<NioClientConnection> connectFuture() {
+        return connectFuture;
+    }
+
+    SelectionKey selectionKey() {
+        return selectionKey;
+    }
+
+    void selectionKey(@NotNull SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * 连接上的定时任务，建立连接时是连接超时，请求期间是响应超时。
+     */
+    Timeout timeout() {
+        return timeout;
+    }
+
+    void timeout(@NotNull Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * RPC连接上正在进行的请求，HTTP连接为null。
+     */
+    RpcCalls rpcCalls() {
+        return rpcCalls;
+    }
+
+    void rpcCalls(@NotNull RpcCalls rpcCalls) {
+        this.rpcCalls = rpcCalls;
+    }
+
+    /**
+     * 流水线HTTP连接上还在等待响应的请求，其他连接为null。
+     */
+    PipelinedRequests pipelinedRequests() {
+        return pipelinedRequests;
+    }
+
+    void pipelinedRequests(@NotNull PipelinedRequests pipelinedRequests) {
+        this.pipelinedRequests = pipelinedRequests;
+    }
+
+    /**
+     * 一个请求放入了待发送队列但没有写出，返回这一批攒下的请求数。
+     */
+    int requestBatched() {
+        return ++batchedRequests;
+    }
+
+    /**
+     * 待发送队列即将写出，攒下的请求都随之发出。
+     */
+    void batchFlushed() {
+        batchedRequests = 0;
+    }
+
+    boolean hasBatchedRequests() {
+        return batchedRequests > 0;
+    }
+
+    /**
+     * 这一批请求是否已经安排了按时写出。
+     */
+    boolean isBatchFlushScheduled() {
+        return batchFlushScheduled;
+    }
+
+    void scheduleBatchFlush(long deadlineNanos) {
+        this.batchFlushScheduled = true;
+        this.batchDeadlineNanos = deadlineNanos;
+    }
+
+    void batchFlushExpired() {
+        this.batchFlushScheduled = false;
+    }
+
+    long batchDeadlineNanos() {
+        return batchDeadlineNanos;
+    }
+
+    @NotNull
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    /**
+     * 保证读缓冲区至少能容纳capacity字节，不够时换成更大的缓冲区，未处理的数据随之复制过去。
+     */
+    void ensureReadCapacity(int capacity) {
+        if (readBuffer.capacity() >= capacity) {
+            return;
+        }
+        ByteBuffer larger = byteBufferPool.acquire(capacity);
+        larger.put(readBuffer).flip();
+        byteBufferPool.release(readBuffer);
+        readBuffer = larger;
+    }
+
+    @NotNull
+    OutboundQueue outboundQueue() {
+        return outboundQueue;
+    }
+
+    @NotNull
+    HttpParser parser() {
+        return parser;
+    }
+
+    /**
+     * 开始一次请求，记录等待响应的Future以及它所借用的池化连接。
+     */
+    void startExchange(@NotNull PooledConnection<NioClientConnection> pooledConnection, @NotNull CompletableFuture<String> response) {
+        this.pooledConnection = pooledConnection;
+        this.response = response;
+        this.exchangeStartNanos = System.nanoTime();
+    }
+
+    boolean inExchange() {
+        return null != response;
+    }
+
+    PooledConnection<NioClientConnection> pooledConnection() {
+        return pooledConnection;
+    }
+
+    /**
+     * 当前请求开始的时间。
+     */
+    long exchangeStartNanos() {
+        return exchangeStartNanos;
+    }
+
+    /**
+     * 结束当前请求，返回等待响应的Future。
+     */
+    CompletableFuture<String> finishExchange() {
+        CompletableFuture<String> future = response;
+        response = null;
+        pooledConnection = null;
+        return future;
+    }
+
+    /**
+     * 连接是否还能继续使用，可以在任意线程调用。
+     */
+    boolean isOpen() {
+        return open && socketChannel.isOpen();
+    }
+
+    /**
+     * 关闭连接并归还缓冲区，正在等待的请求以{@code cause}失败，连接和请求上的超时任务一并取消。
+     */
+    void close(@NotNull Throwable cause) {
+        if (! open) {
+            return;
+        }
+        open = false;
+        metrics.connectionClosed();
+        if (null != timeout) {
+            timingWheel.cancel(timeout);
+        }
+        if (null != selectionKey) {
+            selectionKey.cancel();
+        }
+        // 握手开始之前的关闭（TCP连接失败、超时、Happy Eyeballs中落败的尝试）不算握手失败，由TlsChannel只统计开始了的握手。
+        if (null != tlsChannel) {
+            tlsChannel.release();
+        }
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        byteBufferPool.release(readBuffer);
+        readBuffer = null;
+        outboundQueue.clear();
+
+        connectFuture.completeExceptionally(cause);
+        if (null != rpcCalls) {
+            for (Timeout call : rpcCalls.failAll(cause)) {
+                timingWheel.cancel(call);
+            }
+        }
+        if (null != pipelinedRequests) {
+            for (Timeout request : pipelinedRequests.failAll(cause)) {
+                timingWheel.cancel(request);
+            }
+        }
+        if (inExchange()) {
+            PooledConnection<NioClientConnection> pooled = pooledConnection;
+            CompletableFuture<String> future = finishExchange();
+            pooled.invalidate();
+            future.completeExceptionally(cause);
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.java.network.nio;
+
+import com.java.network.admission.AdmissionControl;
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.http.HttpParser;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.server.ServerOptions;
+import com.java.network.timer.Timeout;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>
+ *     NIO服务端单个连接的状态，作为SelectionKey的附件，只在所属的工作线程中访问。
+ * </p>
+ * <p>
+ *     读缓冲区只在有未处理的数据时才占用，读空后立即归还，按{@link AdaptiveReadSize}预测的大小重新取，
+ *     大量空闲的长连接不再各自占着一块缓冲区。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class NioConnection {
+
+    /**
+     * HTTP请求必须整个放进读缓冲区，读缓冲区为HTTP请求最多扩大到这么大。
+     */
+    static final int MAX_REQUEST_SIZE = HttpParser.MAX_REQUEST_SIZE;
+
+    /**
+     * 没有未处理数据时的读缓冲区，position和limit始终为0，不会写入。
+     */
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final SocketChannel socketChannel;
+
+    private final ByteBufferPool byteBufferPool;
+
+    private final HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+
+    private ByteBuffer readBuffer;
+
+    private final OutboundQueue outboundQueue;
+
+    private final AdaptiveReadSize readSize;
+
+    /**
+     * 启用TLS时读写都经过它，否则为null。
+     */
+    private final TlsChannel tlsChannel;
+
+    private int requests;
+
+    private boolean closing;
+
+    private long lastReadMillis;
+
+    private long lastWriteMillis;
+
+    private long lastReadNanos;
+
+    /**
+     * 还没有写完的响应数，以及其中最早的请求被读到的时间，用于统计请求延迟。
+     */
+    private int pendingResponses;
+
+    private long pendingSinceNanos;
+
+    /**
+     * 通过了准入控制、响应还没有写完的HTTP请求数。
+     */
+    private int permits;
+
+    /**
+     * 还没有完成的异步RPC调用数。
+     */
+    private int pendingCalls;
+
+    private Timeout timeout;
+
+    NioConnection(@NotNull SocketChannel socketChannel, @NotNull ByteBufferPool byteBufferPool, @NotNull OutboundQueue outboundQueue,
+                  @NotNull AdaptiveReadSize readSize, TlsChannel tlsChannel) {
+        this.socketChannel = socketChannel;
+        this.byteBufferPool = byteBufferPool;
+        this.outboundQueue = outboundQueue;
+        this.readSize = readSize;
+        this.tlsChannel = tlsChannel;
+        // 读缓冲区保持读模式，未解析完的报文始终位于[position, limit)。
+        this.readBuffer = EMPTY;
+    }
+
+    @NotNull
+    SocketChannel socketChannel() {
+        return socketChannel;
+    }
+
+    /**
+     * 待发送队列写入的通道，启用TLS时是{@link TlsChannel}。
+     */
+    @NotNull
+    GatheringByteChannel channel() {
+        return null != tlsChannel ? tlsChannel : socketChannel;
+    }
+
+    /**
+     * 写出TLS层加密后还没发送的数据，没有启用TLS时直接返回true。
+     * @return 是否已经全部写出
+     */
+    boolean flushTls() throws IOException {
+        return null == tlsChannel || tlsChannel.flush();
+    }
+
+    /**
+     * 待发送队列或者TLS层还有没有写出的数据。
+     */
+    boolean hasPendingOutput() {
+        return ! outboundQueue.isEmpty() || null != tlsChannel && tlsChannel.hasPendingOutput();
+    }
+
+    /**
+     * TLS层解密出的数据上次没有读完，Socket上不会再有就绪事件，需要主动再读。
+     */
+    boolean hasBufferedInput() {
+        return null != tlsChannel && tlsChannel.hasBufferedInput();
+    }
+
+    @NotNull
+    ByteBuffer readBuffer() {
+        return readBuffer;
+    }
+
+    @NotNull
+    AdaptiveReadSize readSize() {
+        return readSize;
+    }
+
+    /**
+     * 从Socket读一次，最多读预测的字节数。读缓冲区为空时按预测值重新取一个，
+     * 剩余空间不够时扩大到不超过{@value #MAX_REQUEST_SIZE}，更大的RPC帧由{@link #ensureReadCapacity}另行扩大。
+     * @return 读到的字节数，-1表示对端已经关闭，0表示没有数据或者读缓冲区已满
+     */
+    int read() throws IOException {
+        int guess = readSize.guess();
+        if (EMPTY == readBuffer) {
+            readBuffer = byteBufferPool.acquire(guess);
+            readBuffer.flip();
+        } else if (readBuffer.capacity() - readBuffer.remaining() < guess && readBuffer.capacity() < MAX_REQUEST_SIZE) {
+            ensureReadCapacity(Math.min(MAX_REQUEST_SIZE, readBuffer.remaining() + guess));
+        }
+        readBuffer.compact();
+        int attempted = Math.min(guess, readBuffer.remaining());
+        if (0 == attempted) {
+            readBuffer.flip();
+            return 0;
+        }
+        readBuffer.limit(readBuffer.position() + attempted);
+        int length;
+        try {
+            length = null != tlsChannel ? tlsChannel.read(readBuffer) : socketChannel.read(readBuffer);
+        } finally {
+            readBuffer.flip();
+        }
+        if (length >= 0) {
+            readSize.lastRead(attempted, length);
+        }
+        return length;
+    }
+
+    /**
+     * 没有完整请求的数据已经达到{@value #MAX_REQUEST_SIZE}字节，HTTP请求过大。
+     */
+    boolean isRequestTooLarge() {
+        return readBuffer.remaining() >= MAX_REQUEST_SIZE && ! parser.isComplete();
+    }
+
+    /**
+     * 读缓冲区中的数据都已处理时把它归还给池。
+     */
+    void releaseReadBufferIfEmpty() {
+        if (EMPTY != readBuffer && null != readBuffer && ! readBuffer.hasRemaining()) {
+            byteBufferPool.release(readBuffer);
+            readBuffer = EMPTY;
+        }
+    }
+
+    /**
+     * 保证读缓冲区至少能容纳capacity字节，不够时换成更大的缓冲区，未处理的数据随之复制过去。
+     */
+    void ensureReadCapacity(int capacity) {
+        if (readBuffer.capacity() >= capacity) {
+            return;
+        }
+        ByteBuffer larger = byteBufferPool.acquire(capacity);
+        larger.put(readBuffer).flip();
+        if (EMPTY != readBuffer) {
+            byteBufferPool.release(readBuffer);
+        }
+        readBuffer = larger;
+    }
+
+    @NotNull
+    OutboundQueue outboundQueue() {
+        return outboundQueue;
+    }
+
+    @NotNull
+    HttpParser parser() {
+        return parser;
+    }
+
+    /**
+     * 已经处理的请求数。
+     */
+    int requests() {
+        return requests;
+    }
+
+    void incrementRequests() {
+        requests++;
+    }
+
+    /**
+     * 是否已经发出了带Connection: close的响应，发送完毕后关闭连接。
+     */
+    boolean isClosing() {
+        return closing;
+    }
+
+    void setClosing() {
+        closing = true;
+    }
+
+    /**
+     * 读到了数据。
+     */
+    void touchRead(long nowMillis, long nowNanos) {
+        lastReadMillis = nowMillis;
+        lastReadNanos = nowNanos;
+    }
+
+    /**
+     * 写出了数据。
+     */
+    void touchWrite(long nowMillis) {
+        lastWriteMillis = nowMillis;
+    }
+
+    /**
+     * 一个响应放入了待发送队列，请求的开始时间取最近一次读到数据的时间。
+     */
+    void responseQueued() {
+        if (0 == pendingResponses++) {
+            pendingSinceNanos = lastReadNanos;
+        }
+    }
+
+    /**
+     * 待发送队列已经写空，按最早的请求计算这一批响应的延迟。
+     */
+    void responsesFlushed(@NotNull TransportMetrics metrics, long nowNanos) {
+        if (pendingResponses > 0) {
+            metrics.request(nowNanos - pendingSinceNanos, pendingResponses);
+            pendingResponses = 0;
+        }
+    }
+
+    /**
+     * 一个HTTP请求通过了准入控制，名额在它的响应写完时归还。
+     */
+    void permitAcquired() {
+        permits++;
+    }
+
+    /**
+     * 待发送队列已经写空，按和请求延迟相同的时间归还名额，在{@link #responsesFlushed}之前调用。
+     */
+    void releasePermits(@NotNull AdmissionControl admissionControl, long nowNanos) {
+        for (; permits > 0; permits--) {
+            admissionControl.release(nowNanos - pendingSinceNanos);
+        }
+    }
+
+    /**
+     * 连接关闭时还有响应没有写完，只归还名额。
+     */
+    void cancelPermits(@NotNull AdmissionControl admissionControl) {
+        for (; permits > 0; permits--) {
+            admissionControl.cancel();
+        }
+    }
+
+    void callStarted() {
+        pendingCalls++;
+    }
+
+    void callFinished() {
+        pendingCalls--;
+    }
+
+    /**
+     * 连接上是否没有进行中的工作：处理过至少一个请求，没有收到一半的请求，没有待发送的数据，也没有未完成的异步调用。
+     * 服务端关闭时这样的连接可以直接关闭；还没有处理过请求的新连接可能有请求正在路上，不算空闲。
+     */
+    boolean isIdle() {
+        return requests > 0 && ! readBuffer.hasRemaining() && ! hasPendingOutput() && 0 == pendingCalls;
+    }
+
+    Timeout timeout() {
+        return timeout;
+    }
+
+    void timeout(@NotNull Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * 按连接当前所处的阶段计算超时时间：有数据待发送时是写超时，请求只收到一部分或者TLS握手没有完成时是读超时，否则是空闲超时。
+     */
+    long deadlineMillis(@NotNull ServerOptions options) {
+        if (hasPendingOutput()) {
+            return lastWriteMillis + options.getWriteTimeoutMillis();
+        }
+        if (readBuffer.hasRemaining() || null != tlsChannel && ! tlsChannel.isHandshakeComplete()) {
+            return lastReadMillis + options.getReadTimeoutMillis();
+        }
+        return Math.max(lastReadMillis, lastWriteMillis) + options.getIdleTimeoutMillis();
+    }
+
+    /**
+     * 归还缓冲区并丢弃没有发送完的数据，连接关闭时调用。
+     */
+    void release() {
+        if (null != readBuffer && EMPTY != readBuffer) {
+            byteBufferPool.release(readBuffer);
+        }
+        readBuffer = null;
+        outboundQueue.clear();
+        if (null != tlsChannel) {
+            tlsChannel.release();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.java.network.nio;
+
+import com.java.network.datagram.DatagramOptions;
+import com.java.network.datagram.UdpSockets;
+import com.java.network.metrics.DatagramMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * <p>
+ *     通过NIO的{@link DatagramChannel}实现的UDP客户端，Channel连接到固定的服务端，发送和接收都不阻塞。
+ * </p>
+ * <p>
+ *     {@link #send}在发送缓冲区已满时直接丢弃数据包并计入sendDrops，调用方自己决定是否重发，
+ *     这样一个发送线程就能以系统调用的速度持续发包，不会被慢的接收方拖住。
+ *     连接后的Channel能收到ICMP端口不可达，服务端没有启动时发送失败计入errors。
+ * </p>
+ * <p>
+ *     DatagramChannel的读写各自加锁，可以在不同的线程中发送和接收；多个线程同时发送时每个线程用一个实例更快。
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class NioDatagramClient implements Closeable {
+
+    public static final String METRICS_NAME = "nio-udp-client";
+
+    private final DatagramChannel channel;
+
+    private final DatagramMetrics metrics = MetricsRegistry.getDefault().datagram(METRICS_NAME);
+
+    public NioDatagramClient(@NotNull InetSocketAddress target) throws IOException {
+        this(target, new DatagramOptions());
+    }
+
+    public NioDatagramClient(@NotNull InetSocketAddress target, @NotNull DatagramOptions options) throws IOException {
+        channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, options.getReceiveBufferSize());
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, options.getSendBufferSize());
+            channel.connect(target);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        int localPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        metrics.kernelDrops(() -> UdpSockets.kernelDrops(localPort));
+    }
+
+    /**
+     * 发送position到limit之间的内容作为一个数据包。
+     * @return false表示发送缓冲区已满或者发送失败，数据包被丢弃
+     */
+    public boolean send(@NotNull ByteBuffer packet) throws IOException {
+        int bytes;
+        try {
+            bytes = channel.write(packet);
+        } catch (PortUnreachableException e) {
+            metrics.error();
+            return false;
+        }
+        if (0 == bytes && packet.hasRemaining()) {
+            metrics.sendDropped(1);
+            return false;
+        }
+        metrics.sent(1, bytes);
+        return true;
+    }
+
+    /**
+     * 收取一个服务端发回的数据包，写在buffer的position之后，放不下的部分被截断。
+     * @return 收到的字节数，没有数据包时返回-1
+     */
+    public int receive(@NotNull ByteBuffer buffer) throws IOException {
+        int position = buffer.position();
+        try {
+            if (null == channel.receive(buffer)) {
+                return -1;
+            }
+        } catch (PortUnreachableException e) {
+            metrics.error();
+            return -1;
+        }
+        int bytes = buffer.position() - position;
+        metrics.received(1, bytes);
+        return bytes;
+    }
+
+    @NotNull
+    public DatagramMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,296 @@
+package com.java.network.nio;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.datagram.DatagramOptions;
+import com.java.network.datagram.UdpSockets;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.DatagramMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.server.Server;
+import com.java.network.server.ShutdownReport;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ *     通过NIO的{@link DatagramChannel}实现的UDP服务端。
+ * </p>
+ * <p>
+ *     每个接收线程独占一个非阻塞的DatagramChannel和Selector，多个接收线程时各自的Channel都设置SO_REUSEPORT后绑定同一端口，
+ *     由内核按源地址的哈希分发数据包，线程之间没有任何共享的状态。
+ *     每次就绪连续收取最多{@link DatagramOptions#getBatchSize()}个数据包再回到select，数据包到得快时不必每个包都调用一次epoll_wait；
+ *     JDK没有提供recvmmsg，每个数据包仍是一次recvfrom，需要一次系统调用收取多个数据包时使用{@link com.java.network.netty.NettyDatagramServer}的epoll传输。
+ * </p>
+ * <p>
+ *     每个接收线程从{@link ByteBufferPool}取一个直接内存缓冲区反复使用，收包的路径上没有任何分配。
+ *     缓冲区比最大包长多一个字节，收满说明数据包被截断，计入truncated后丢弃。
+ *     设置了{@link DatagramOptions#echo}时把数据包原样发回，发送缓冲区已满时丢弃并计入sendDrops，不会阻塞接收。
+ * </p>
+ * <p>
+ *     UDP没有连接，{@link #stop}停止接收线程后返回的{@link ShutdownReport}中连接数都是0。
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class NioDatagramServer implements Server {
+
+    public static final String METRICS_NAME = "nio-udp";
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private final DatagramOptions options;
+
+    private final DatagramMetrics metrics;
+
+    private final Receiver[] receivers;
+
+    private final Thread[] receiverThreads;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private volatile boolean stopping;
+
+    private volatile ShutdownReport shutdownReport;
+
+    public NioDatagramServer() {
+        this(new DatagramOptions().receiverCount(UdpSockets.supportsReusePort() ? Runtime.getRuntime().availableProcessors() : 1));
+    }
+
+    public NioDatagramServer(@NotNull DatagramOptions options) {
+        if (options.getReceiverCount() > 1 && ! UdpSockets.supportsReusePort()) {
+            throw new IllegalArgumentException("SO_REUSEPORT is not supported, receiverCount must be 1");
+        }
+        this.options = options;
+        this.metrics = MetricsRegistry.getDefault().datagram(METRICS_NAME);
+        this.receivers = new Receiver[options.getReceiverCount()];
+        this.receiverThreads = new Thread[options.getReceiverCount()];
+    }
+
+    @Override
+    public void start(int port) throws IOException {
+        if (! started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        try {
+            for (int i = 0; i < receivers.length; i++) {
+                receivers[i] = new Receiver(bind(port));
+                // 端口为0时由第一个Channel决定，其他Channel绑定同一个端口。
+                port = ((InetSocketAddress) receivers[0].channel.getLocalAddress()).getPort();
+            }
+        } catch (IOException e) {
+            for (Receiver receiver : receivers) {
+                if (null != receiver) {
+                    receiver.close();
+                }
+            }
+            throw e;
+        }
+        int boundPort = port;
+        metrics.kernelDrops(() -> UdpSockets.kernelDrops(boundPort));
+
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("nio-udp-receiver-%d").build();
+        for (int i = 0; i < receivers.length; i++) {
+            receiverThreads[i] = threadFactory.newThread(receivers[i]);
+            receiverThreads[i].start();
+        }
+        LOGGER.info("Datagram server started on port %d with %d receiver(s).", port, receivers.length);
+    }
+
+    /**
+     * 停止接收线程并关闭所有Channel。UDP没有需要收尾的连接，timeout不起作用。
+     */
+    @NotNull
+    @Override
+    public ShutdownReport stop(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        if (! stopped.compareAndSet(false, true)) {
+            awaitTermination();
+            return shutdownReport;
+        }
+        long startNanos = System.nanoTime();
+        stopping = true;
+        for (int i = 0; i < receivers.length; i++) {
+            if (null != receiverThreads[i]) {
+                receivers[i].selector.wakeup();
+                receiverThreads[i].join();
+            }
+        }
+
+        shutdownReport = new ShutdownReport(0, 0, System.nanoTime() - startNanos);
+        LOGGER.info("Datagram server stopped: %s.", shutdownReport);
+        terminated.countDown();
+        return shutdownReport;
+    }
+
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    @NotNull
+    private DatagramChannel bind(int port) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, options.getReceiveBufferSize());
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, options.getSendBufferSize());
+            if (receivers.length > 1) {
+                UdpSockets.setReusePort(channel);
+            }
+            channel.bind(new InetSocketAddress(port));
+            // Linux把超过net.core.rmem_max的设置静默截断，返回值是设置值的两倍。
+            int receiveBufferSize = channel.getOption(StandardSocketOptions.SO_RCVBUF);
+            if (receiveBufferSize < options.getReceiveBufferSize()) {
+                LOGGER.warn("SO_RCVBUF limited to %d bytes (requested %d), raise net.core.rmem_max to avoid drops.",
+                        receiveBufferSize, options.getReceiveBufferSize());
+            }
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 一个接收线程：一个Channel、一个Selector和一个反复使用的缓冲区。
+     */
+    private final class Receiver implements Runnable {
+
+        private final DatagramChannel channel;
+
+        private final Selector selector;
+
+        private Receiver(@NotNull DatagramChannel channel) throws IOException {
+            this.channel = channel;
+            try {
+                this.selector = Selector.open();
+                channel.register(selector, SelectionKey.OP_READ);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * 收取出错只计数，继续处理之后的数据包；只有Selector出错或者Channel已经关闭时退出。
+         */
+        @Override
+        public void run() {
+            ByteBuffer buffer = ByteBufferPool.getDefault().acquire(options.getMaxPacketSize() + 1);
+            try {
+                while (! stopping) {
+                    try {
+                        selector.select();
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                        break;
+                    }
+                    selector.selectedKeys().clear();
+                    try {
+                        receive(buffer);
+                    } catch (ClosedChannelException e) {
+                        break;
+                    } catch (Exception e) {
+                        metrics.error();
+                        LOGGER.error(e, "Failed to receive on %s.", Thread.currentThread().getName());
+                    }
+                }
+            } finally {
+                ByteBufferPool.getDefault().release(buffer);
+                close();
+            }
+        }
+
+        /**
+         * 连续收取最多batchSize个数据包，收完或者达到上限后返回。达到上限时Channel仍然就绪，下一次select立即返回。
+         */
+        private void receive(@NotNull ByteBuffer buffer) throws IOException {
+            int limit = options.getMaxPacketSize() + 1;
+            long packets = 0;
+            long bytes = 0;
+            long truncated = 0;
+            long sentPackets = 0;
+            long sentBytes = 0;
+            long sendDrops = 0;
+            for (int i = 0; i < options.getBatchSize(); i++) {
+                buffer.clear();
+                buffer.limit(limit);
+                SocketAddress sender = channel.receive(buffer);
+                if (null == sender) {
+                    break;
+                }
+                buffer.flip();
+                int length = buffer.remaining();
+                if (length == limit) {
+                    truncated++;
+                    continue;
+                }
+                packets++;
+                bytes += length;
+                if (options.isEcho()) {
+                    int sent;
+                    try {
+                        sent = channel.send(buffer, sender);
+                    } catch (IOException e) {
+                        // 发给某一个地址失败不影响其他发送方，只计数。
+                        metrics.error();
+                        continue;
+                    }
+                    if (0 == sent) {
+                        sendDrops++;
+                    } else {
+                        sentPackets++;
+                        sentBytes += sent;
+                    }
+                }
+            }
+            metrics.received(packets, bytes);
+            metrics.truncated(truncated);
+            metrics.sent(sentPackets, sentBytes);
+            metrics.sendDropped(sendDrops);
+        }
+
+        private void close() {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // 第一个参数是可选的接收线程数，大于1时需要SO_REUSEPORT。
+        DatagramOptions options = new DatagramOptions().echo(true);
+        if (args.length > 0) {
+            options.receiverCount(Integer.parseInt(args[0]));
+        }
+        NioDatagramServer server = new NioDatagramServer(options);
+        server.start(9527);
+        Server.stopOnShutdown(server, 30, TimeUnit.SECONDS);
+        server.awaitTermination();
+    }
+}
@@ -0,0 +1,671 @@
+package com.java.network.nio;
+
+import com.java.network.admission.Admission;
+import com.java.network.admission.AdmissionControl;
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.file.StaticFiles;
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpResponses;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.rpc.RpcException;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.rpc.RpcService;
+import com.java.network.server.ServerOptions;
+import com.java.network.timer.Timeout;
+import com.java.network.timer.TimingWheel;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     多Reactor模式下的工作线程，每个工作线程独占一个Selector，负责已接入连接的读写。
+ *     Boss线程通过{@link #register(SocketChannel)}把连接放入注册队列并唤醒Selector，
+ *     由工作线程自己完成注册，避免跨线程调用{@link SocketChannel#register}时被select阻塞。
+ * </p>
+ * <p>
+ *     连接默认保持长连接。一次读到的多个流水线请求按顺序处理，响应依次放入{@link OutboundQueue}，
+ *     处理完后以一次聚集写发出。只有队列中还有数据时才关注可写事件；
+ *     待发送数据超过高水位时暂停读取和处理后续请求，回落到低水位以下再继续。
+ * </p>
+ * <p>
+ *     配置了文档目录时返回静态文件，文件内容在队列中以sendfile方式发送。
+ * </p>
+ * <p>
+ *     每个连接在工作线程的{@link TimingWheel}上有一个定时任务，select以时间轮的下一个tick为超时。
+ *     读写时只更新时间戳，只有超时时间提前时才重新调度；任务到期后按连接当前的阶段重新计算超时时间，
+ *     没有真正超时就按剩余时间再调度一次。
+ * </p>
+ * <p>
+ *     设置了{@link RpcService}时连接上传输的是RPC帧。一次读到的多个请求依次交给服务处理，
+ *     已经完成的响应和HTTP一样合并写出；异步完成的响应通过任务队列回到工作线程，按完成的先后写出。
+ * </p>
+ * <p>
+ *     设置了{@link AdmissionControl}时每个请求先经过准入控制，被拒绝的HTTP请求回复429或503，RPC请求回复错误帧。
+ *     HTTP请求的名额在响应写完时归还，RPC请求在响应放入待发送队列时归还，连接关闭时没有归还的名额直接放弃。
+ * </p>
+ * <p>
+ *     读写字节数、请求延迟和每轮事件循环的耗时记录在{@link TransportMetrics}中，热路径上不输出日志。
+ * </p>
+ * <p>
+ *     服务端关闭时先调用{@link #drain()}：空闲的连接立即关闭，其余连接之后的HTTP响应都带Connection: close，
+ *     待发送的数据写完、异步调用全部完成后关闭。所有连接关闭后工作线程关闭Selector并退出；
+ *     超时后{@link #terminate()}强制关闭剩下的连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class NioWorker implements Runnable {
+
+    private static final long TICK_MILLIS = 100;
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private final ByteBufferPool byteBufferPool = ByteBufferPool.getDefault();
+
+    private final Selector selector;
+
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private final ServerOptions options;
+
+    private final ByteBuffer keepAliveResponse;
+
+    private final ByteBuffer closeResponse;
+
+    private final StaticFiles staticFiles;
+
+    private final RpcService rpcService;
+
+    private final AdmissionControl admissionControl;
+
+    private final TimingWheel timingWheel = new TimingWheel(TICK_MILLIS, 512);
+
+    private final TransportMetrics metrics;
+
+    /**
+     * 以下字段只在工作线程中访问，关闭过程中的计数在线程退出后由Boss线程读取。
+     */
+    private boolean draining;
+
+    private boolean terminating;
+
+    private int drainedConnections;
+
+    private int forcedConnections;
+
+    /**
+     * @param keepAliveResponse 只读的固定响应，各工作线程共享，发送时使用它的duplicate
+     * @param staticFiles 为null时对所有请求返回固定的响应
+     */
+    NioWorker(@NotNull ServerOptions options, @NotNull ByteBuffer keepAliveResponse, @NotNull ByteBuffer closeResponse,
+              StaticFiles staticFiles, @NotNull TransportMetrics metrics) throws IOException {
+        this.selector = Selector.open();
+        this.options = options;
+        this.keepAliveResponse = keepAliveResponse;
+        this.closeResponse = closeResponse;
+        this.staticFiles = staticFiles;
+        this.rpcService = options.getRpcService();
+        this.admissionControl = options.getAdmission();
+        this.metrics = metrics;
+    }
+
+    /**
+     * 由Boss线程调用，把新接入的连接交给当前工作线程。
+     */
+    void register(@NotNull SocketChannel socketChannel) {
+        connections.incrementAndGet();
+        metrics.connectionOpened();
+        pendingChannels.offer(socketChannel);
+        selector.wakeup();
+    }
+
+    /**
+     * 在工作线程中执行任务，可以在任意线程调用。
+     */
+    private void execute(@NotNull Runnable task) {
+        tasks.offer(task);
+        selector.wakeup();
+    }
+
+    /**
+     * 当前工作线程负责的连接数，用于最少连接的分配策略。
+     */
+    int connections() {
+        return connections.get();
+    }
+
+    /**
+     * 开始收尾，可以在任意线程调用。
+     */
+    void drain() {
+        execute(() -> {
+            draining = true;
+            for (SelectionKey selectionKey : new ArrayList<>(selector.keys())) {
+                if (selectionKey.isValid() && ((NioConnection) selectionKey.attachment()).isIdle()) {
+                    close(selectionKey);
+                }
+            }
+        });
+    }
+
+    /**
+     * 强制关闭剩下的连接，可以在任意线程调用。
+     */
+    void terminate() {
+        execute(() -> {
+            draining = true;
+            terminating = true;
+            for (SelectionKey selectionKey : new ArrayList<>(selector.keys())) {
+                close(selectionKey);
+            }
+            SocketChannel socketChannel;
+            while (null != (socketChannel = pendingChannels.poll())) {
+                close(socketChannel);
+            }
+        });
+    }
+
+    /**
+     * 收尾期间正常关闭的连接数，工作线程退出后读取。
+     */
+    int drainedConnections() {
+        return drainedConnections;
+    }
+
+    /**
+     * 被强制关闭的连接数，工作线程退出后读取。
+     */
+    int forcedConnections() {
+        return forcedConnections;
+    }
+
+    /**
+     * 事件循环。任务、连接的事件和定时任务各自捕获异常，一个出错不影响其他连接；只有Selector本身出错时退出，
+     * 退出前关闭所有连接，包括还没有注册的连接。
+     */
+    @Override
+    public void run() {
+        while (selector.isOpen()) {
+            try {
+                long timeoutMillis = timingWheel.timeoutMillis(TimingWheel.monotonicMillis());
+                if (timeoutMillis < 0) {
+                    selector.select();
+                } else {
+                    selector.select(timeoutMillis);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                break;
+            }
+            long loopStart = System.nanoTime();
+            registerPendingChannels();
+            runTasks();
+
+            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+            while (iterator.hasNext()) {
+                SelectionKey selectionKey = iterator.next();
+                iterator.remove();
+
+                if (! selectionKey.isValid()) {
+                    continue;
+                }
+                try {
+                    if (selectionKey.isReadable()) {
+                        read(selectionKey);
+                    } else if (selectionKey.isWritable()) {
+                        write(selectionKey);
+                    }
+                } catch (Exception e) {
+                    error(selectionKey, e);
+                }
+            }
+
+            // 每个定时任务的异常由时间轮捕获。
+            timingWheel.expire(TimingWheel.monotonicMillis());
+            metrics.loop(System.nanoTime() - loopStart);
+            if (draining && 0 == connections.get()) {
+                break;
+            }
+        }
+        for (SelectionKey selectionKey : new ArrayList<>(selector.keys())) {
+            close(selectionKey);
+        }
+        SocketChannel socketChannel;
+        while (null != (socketChannel = pendingChannels.poll())) {
+            close(socketChannel);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while (null != (task = tasks.poll())) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                metrics.error();
+                LOGGER.error(e, "Task failed on %s.", Thread.currentThread().getName());
+            }
+        }
+    }
+
+    private void registerPendingChannels() {
+        SocketChannel socketChannel;
+        while (null != (socketChannel = pendingChannels.poll())) {
+            try {
+                socketChannel.configureBlocking(false);
+                configure(socketChannel);
+                TlsChannel tlsChannel = null == options.getTls() ? null
+                        : new TlsChannel(socketChannel, options.getTls().newServerEngine(), byteBufferPool, metrics);
+                NioConnection connection = new NioConnection(socketChannel, byteBufferPool, new OutboundQueue(byteBufferPool,
+                        options.getWriteBufferLowWaterMark(), options.getWriteBufferHighWaterMark()), new AdaptiveReadSize(options), tlsChannel);
+                long now = TimingWheel.monotonicMillis();
+                connection.touchRead(now, System.nanoTime());
+                connection.touchWrite(now);
+                SelectionKey selectionKey = socketChannel.register(selector, SelectionKey.OP_READ, connection);
+                connection.timeout(new Timeout() {
+                    @Override
+                    protected void onTimeout() {
+                        checkTimeout(selectionKey);
+                    }
+                });
+                updateTimeout(connection, now);
+            } catch (Exception e) {
+                metrics.error();
+                LOGGER.error(e, "Failed to register %s.", socketChannel.socket().getRemoteSocketAddress());
+                close(socketChannel);
+            }
+        }
+    }
+
+    private void configure(@NotNull SocketChannel socketChannel) throws IOException {
+        socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, options.isTcpNoDelay());
+        if (options.getSendBufferSize() > 0) {
+            socketChannel.setOption(StandardSocketOptions.SO_SNDBUF, options.getSendBufferSize());
+        }
+    }
+
+    /**
+     * 同一个连接连续读到内核缓冲区读空为止，每读一次处理一次，
+     * 但不超过{@link ServerOptions#getMaxReadsPerEvent()}次，避免一个连接占满整轮事件循环；
+     * 待发送队列超过高水位时也先停下，等写出后再读。
+     */
+    private void read(@NotNull SelectionKey selectionKey) {
+        NioConnection connection = (NioConnection) selectionKey.attachment();
+        AdaptiveReadSize readSize = connection.readSize();
+        readSize.reset();
+        try {
+            do {
+                int length = connection.read();
+                if (length < 0) {
+                    close(selectionKey);
+                    return;
+                }
+                if (0 == length) {
+                    break;
+                }
+                metrics.bytesRead(length);
+                connection.touchRead(TimingWheel.monotonicMillis(), System.nanoTime());
+
+                process(selectionKey, connection);
+                if (! selectionKey.isValid()) {
+                    return;
+                }
+                // 超过水位时请求还没有解析，不能当作请求过大。
+                if (null == rpcService && ! connection.isClosing() && connection.outboundQueue().isWritable()
+                        && connection.isRequestTooLarge()) {
+                    rejectTooLarge(selectionKey, connection);
+                    return;
+                }
+            } while (readSize.continueReading() && connection.outboundQueue().isWritable() && ! connection.isClosing());
+            readSize.readComplete();
+            connection.releaseReadBufferIfEmpty();
+            // TLS握手期间读不到数据，但可能有握手消息没写完。
+            interestOps(selectionKey, connection);
+            readBufferedInput(selectionKey, connection);
+            updateTimeout(connection, TimingWheel.monotonicMillis());
+        } catch (Exception e) {
+            error(selectionKey, e);
+        }
+    }
+
+    private void write(@NotNull SelectionKey selectionKey) {
+        NioConnection connection = (NioConnection) selectionKey.attachment();
+        try {
+            // 之前因为超过水位而暂停的请求，在这里继续处理。
+            process(selectionKey, connection);
+            if (selectionKey.isValid()) {
+                connection.releaseReadBufferIfEmpty();
+                readBufferedInput(selectionKey, connection);
+                updateTimeout(connection, TimingWheel.monotonicMillis());
+            }
+        } catch (Exception e) {
+            error(selectionKey, e);
+        }
+    }
+
+    /**
+     * TLS层还留着解密好的数据时，在下一轮事件循环中接着读，暂停读取期间不读。
+     */
+    private void readBufferedInput(@NotNull SelectionKey selectionKey, @NotNull NioConnection connection) {
+        if (selectionKey.isValid() && connection.hasBufferedInput() && 0 != (selectionKey.interestOps() & SelectionKey.OP_READ)) {
+            execute(() -> {
+                if (selectionKey.isValid()) {
+                    read(selectionKey);
+                }
+            });
+        }
+    }
+
+    /**
+     * 依次处理读缓冲区中已经完整的请求，把响应放入待发送队列，最后统一写出。
+     */
+    private void process(@NotNull SelectionKey selectionKey, @NotNull NioConnection connection) throws IOException {
+        if (null != rpcService) {
+            processRpc(selectionKey, connection);
+            return;
+        }
+        ByteBuffer readBuffer = connection.readBuffer();
+        OutboundQueue outboundQueue = connection.outboundQueue();
+        HttpParser parser = connection.parser();
+
+        while (true) {
+            // 超过高水位后请求留在读缓冲区中，等队列回落后再处理。
+            while (! connection.isClosing() && outboundQueue.isWritable() && parser.parse(readBuffer)) {
+                boolean keepAlive = ! draining && parser.isKeepAlive() && connection.requests() + 1 < options.getMaxRequestsPerConnection();
+                Admission admission = admit(connection);
+                if (Admission.ADMITTED == admission && null != admissionControl) {
+                    // 立即记下名额，之后生成响应时出错关闭连接，由cancelPermits放弃。
+                    connection.permitAcquired();
+                }
+                if (Admission.ADMITTED != admission) {
+                    outboundQueue.add(ByteBuffer.wrap(admission.response(keepAlive)));
+                } else if (null != staticFiles) {
+                    outboundQueue.add(staticFiles.resolve(readBuffer, parser, keepAlive));
+                } else {
+                    outboundQueue.add((keepAlive ? keepAliveResponse : closeResponse).duplicate());
+                }
+
+                if (LOGGER.isDebugEnabled()) {
+                    // 请求行所在的缓冲区随后会被复用，只能在这里转换成字符串。
+                    LOGGER.debug("Read %s from %s.", HttpParser.toString(readBuffer, parser.methodStart(), parser.uriEnd()),
+                            connection.socketChannel().socket().getRemoteSocketAddress());
+                }
+
+                connection.responseQueued();
+                connection.incrementRequests();
+                readBuffer.position(readBuffer.position() + parser.messageLength());
+                parser.reset();
+                if (! keepAlive) {
+                    connection.setClosing();
+                }
+            }
+
+            boolean flushed = flush(connection);
+            if (flushed && (connection.isClosing() || draining && connection.isIdle())) {
+                close(selectionKey);
+                return;
+            }
+            // 队列写空后，继续处理之前因为超过水位而暂停的请求。
+            if (! flushed || connection.isClosing() || ! parser.parse(readBuffer)) {
+                break;
+            }
+        }
+        interestOps(selectionKey, connection);
+    }
+
+    /**
+     * 请求超过{@link HttpParser#MAX_REQUEST_SIZE}：丢弃已经收到的数据，在之前的流水线响应之后回复413，写完后关闭连接。
+     */
+    private void rejectTooLarge(@NotNull SelectionKey selectionKey, @NotNull NioConnection connection) throws IOException {
+        metrics.error();
+        LOGGER.debug("Request from %s too large.", connection.socketChannel().socket().getRemoteSocketAddress());
+        ByteBuffer readBuffer = connection.readBuffer();
+        readBuffer.position(readBuffer.limit());
+        connection.parser().reset();
+        connection.outboundQueue().add(ByteBuffer.wrap(HttpResponses.payloadTooLarge()));
+        connection.setClosing();
+        process(selectionKey, connection);
+        if (selectionKey.isValid()) {
+            updateTimeout(connection, TimingWheel.monotonicMillis());
+        }
+    }
+
+    /**
+     * 依次处理读缓冲区中已经完整的RPC帧。同步完成的响应直接放入待发送队列，最后统一写出。
+     */
+    private void processRpc(@NotNull SelectionKey selectionKey, @NotNull NioConnection connection) throws IOException {
+        OutboundQueue outboundQueue = connection.outboundQueue();
+        long startNanos = System.nanoTime();
+        while (outboundQueue.isWritable()) {
+            ByteBuffer readBuffer = connection.readBuffer();
+            int frameLength = RpcFrames.frameLength(readBuffer, options.getMaxFrameLength());
+            if (0 == frameLength || readBuffer.remaining() < frameLength) {
+                // 帧比读缓冲区还大时换一个能放下整帧的缓冲区。
+                connection.ensureReadCapacity(frameLength);
+                break;
+            }
+            if (RpcFrames.REQUEST != RpcFrames.type(readBuffer)) {
+                throw new RpcException("Unexpected frame type: " + RpcFrames.type(readBuffer));
+            }
+            int streamId = RpcFrames.streamId(readBuffer);
+            int methodId = RpcFrames.methodId(readBuffer);
+            Admission admission = admit(connection);
+            if (Admission.ADMITTED != admission) {
+                // 被拒绝的调用不交给服务，直接回复错误帧。
+                readBuffer.position(readBuffer.position() + frameLength);
+                connection.incrementRequests();
+                enqueueFrame(connection, RpcFrames.ERROR, streamId, methodId, RpcFrames.errorPayload(admission.message()));
+                metrics.request(System.nanoTime() - startNanos);
+                continue;
+            }
+            CompletableFuture<ByteBuffer> future = RpcFrames.invoke(rpcService, methodId, RpcFrames.payload(readBuffer, frameLength));
+            readBuffer.position(readBuffer.position() + frameLength);
+            connection.incrementRequests();
+
+            if (future.isDone()) {
+                respond(connection, streamId, methodId, future, startNanos);
+            } else {
+                connection.callStarted();
+                future.whenComplete((result, cause) -> execute(() -> {
+                    if (! selectionKey.isValid()) {
+                        if (null != admissionControl) {
+                            admissionControl.cancel();
+                        }
+                    } else {
+                        connection.callFinished();
+                        respond(connection, streamId, methodId, future, startNanos);
+                        try {
+                            flushRpc(selectionKey, connection);
+                            if (selectionKey.isValid()) {
+                                updateTimeout(connection, TimingWheel.monotonicMillis());
+                            }
+                        } catch (Exception e) {
+                            error(selectionKey, e);
+                        }
+                    }
+                }));
+            }
+        }
+        flushRpc(selectionKey, connection);
+    }
+
+    /**
+     * 写出RPC响应，收尾期间写完后没有进行中的调用就关闭连接。
+     */
+    private void flushRpc(@NotNull SelectionKey selectionKey, @NotNull NioConnection connection) throws IOException {
+        if (flush(connection) && draining && connection.isIdle()) {
+            close(selectionKey);
+            return;
+        }
+        interestOps(selectionKey, connection);
+    }
+
+    /**
+     * 把已经完成的RPC结果编码成响应帧或者错误帧，放入待发送队列。
+     */
+    private void respond(@NotNull NioConnection connection, int streamId, int methodId, @NotNull CompletableFuture<ByteBuffer> future,
+                         long startNanos) {
+        byte type = RpcFrames.RESPONSE;
+        ByteBuffer payload;
+        try {
+            payload = future.join();
+        } catch (Exception e) {
+            type = RpcFrames.ERROR;
+            payload = RpcFrames.errorPayload(e);
+        }
+        enqueueFrame(connection, type, streamId, methodId, payload);
+        long latencyNanos = System.nanoTime() - startNanos;
+        metrics.request(latencyNanos);
+        if (null != admissionControl) {
+            admissionControl.release(latencyNanos);
+        }
+    }
+
+    private void enqueueFrame(@NotNull NioConnection connection, byte type, int streamId, int methodId, @NotNull ByteBuffer payload) {
+        ByteBuffer frame = byteBufferPool.acquire(RpcFrames.encodedLength(payload.remaining()));
+        RpcFrames.encode(frame, type, streamId, methodId, payload);
+        frame.flip();
+        connection.outboundQueue().addPooled(frame);
+    }
+
+    /**
+     * 按准入控制决定是否处理连接上的下一个请求，没有设置准入控制时总是放行。
+     */
+    @NotNull
+    private Admission admit(@NotNull NioConnection connection) {
+        if (null == admissionControl) {
+            return Admission.ADMITTED;
+        }
+        return admissionControl.admit(connection.socketChannel().socket().getInetAddress());
+    }
+
+    /**
+     * 按待发送队列的状态设置关注的事件：有数据没写完时关注可写，超过水位或者正在关闭时不再关注可读。
+     */
+    private void interestOps(@NotNull SelectionKey selectionKey, @NotNull NioConnection connection) {
+        OutboundQueue outboundQueue = connection.outboundQueue();
+        int interestOps = connection.hasPendingOutput() ? SelectionKey.OP_WRITE : 0;
+        if (outboundQueue.isWritable() && ! connection.isClosing()) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        if (selectionKey.interestOps() != interestOps) {
+            selectionKey.interestOps(interestOps);
+        }
+    }
+
+    /**
+     * 把待发送队列中的数据写到连接上。
+     * @return 是否已全部写出
+     */
+    private boolean flush(@NotNull NioConnection connection) throws IOException {
+        OutboundQueue outboundQueue = connection.outboundQueue();
+        if (outboundQueue.isEmpty()) {
+            return connection.flushTls();
+        }
+        long pendingBytes = outboundQueue.pendingBytes();
+        boolean flushed = outboundQueue.flush(connection.channel()) && connection.flushTls();
+        metrics.bytesWritten(pendingBytes - outboundQueue.pendingBytes());
+        if (flushed || outboundQueue.pendingBytes() != pendingBytes) {
+            connection.touchWrite(TimingWheel.monotonicMillis());
+        }
+        if (flushed) {
+            long now = System.nanoTime();
+            if (null != admissionControl) {
+                connection.releasePermits(admissionControl, now);
+            }
+            connection.responsesFlushed(metrics, now);
+        }
+        return flushed;
+    }
+
+    /**
+     * 连接的超时时间比已经调度的更早时重新调度，否则等任务到期时再检查。
+     */
+    private void updateTimeout(@NotNull NioConnection connection, long nowMillis) {
+        Timeout timeout = connection.timeout();
+        long deadlineMillis = connection.deadlineMillis(options);
+        if (! timeout.isScheduled() || deadlineMillis < timeout.deadlineMillis()) {
+            timingWheel.schedule(timeout, deadlineMillis - nowMillis, nowMillis);
+        }
+    }
+
+    private void checkTimeout(@NotNull SelectionKey selectionKey) {
+        if (! selectionKey.isValid()) {
+            return;
+        }
+        NioConnection connection = (NioConnection) selectionKey.attachment();
+        long now = TimingWheel.monotonicMillis();
+        long deadlineMillis = connection.deadlineMillis(options);
+        if (now >= deadlineMillis) {
+            metrics.timeout();
+            LOGGER.debug("Connection %s timed out.", connection.socketChannel().socket().getRemoteSocketAddress());
+            close(selectionKey);
+        } else {
+            timingWheel.schedule(connection.timeout(), deadlineMillis - now, now);
+        }
+    }
+
+    private void error(@NotNull SelectionKey selectionKey, @NotNull Exception e) {
+        metrics.error();
+        LOGGER.debug("Connection %s failed: %s", ((SocketChannel) selectionKey.channel()).socket().getRemoteSocketAddress(), e);
+        close(selectionKey);
+    }
+
+    private void close(@NotNull SelectionKey selectionKey) {
+        if (! selectionKey.isValid()) {
+            return;
+        }
+        selectionKey.cancel();
+        NioConnection connection = (NioConnection) selectionKey.attachment();
+        if (null != connection) {
+            if (null != connection.timeout()) {
+                timingWheel.cancel(connection.timeout());
+            }
+            if (null != admissionControl) {
+                connection.cancelPermits(admissionControl);
+            }
+            connection.release();
+        }
+        close((SocketChannel) selectionKey.channel());
+    }
+
+    private void close(@NotNull SocketChannel socketChannel) {
+        connections.decrementAndGet();
+        metrics.connectionClosed();
+        if (null != admissionControl) {
+            admissionControl.disconnected();
+        }
+        if (terminating) {
+            forcedConnections++;
+        } else if (draining) {
+            drainedConnections++;
+        }
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
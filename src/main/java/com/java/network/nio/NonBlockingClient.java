@@ -1,93 +1,753 @@
 package com.java.network.nio;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.client.ClientOptions;
+import com.java.network.client.HappyEyeballs;
+import com.java.network.http.HttpParseException;
+import com.java.network.http.HttpParser;
+import com.java.network.http.PipelinedRequests;
+import com.java.network.load.LoadGenerator;
+import com.java.network.load.LoadOptions;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.pool.ConnectionPool;
+import com.java.network.pool.ConnectionPoolOptions;
+import com.java.network.pool.PooledConnection;
+import com.java.network.pool.PooledConnectionFactory;
+import com.java.network.rpc.RpcCalls;
+import com.java.network.rpc.RpcException;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.timer.Timeout;
+import com.java.network.timer.TimingWheel;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import javax.net.ssl.SSLEngine;
+import java.io.Closeable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p>
  *     通过NIO的非阻塞方式实现的Socket客户端
  * </p>
+ * <p>
+ *     所有连接由一个后台Reactor线程处理，其他线程通过任务队列提交注册和发送操作，
+ *     连续提交的任务只唤醒一次Selector。连接按host:port放在{@link ConnectionPool}中复用。
+ * </p>
+ * <p>
+ *     请求编码到池化缓冲区后放入连接的{@link OutboundQueue}，只有队列中还有数据时才关注可写事件。
+ * </p>
+ * <p>
+ *     连接超时和响应超时由Reactor线程的{@link TimingWheel}管理，select以时间轮的下一个tick为超时。
+ * </p>
+ * <p>
+ *     目标的主机名由{@link ClientOptions#getResolver()}异步解析，有多个地址时通过{@link HappyEyeballs}竞速建立连接，
+ *     调用线程和Reactor线程都不会阻塞在DNS查询上。
+ * </p>
+ * <p>
+ *     设置了{@link ClientOptions#getTls()}时，TCP连接建立后先完成TLS握手，连接才放入连接池或者用于RPC，
+ *     连接超时同时限制握手时间；同一目标的后续连接复用之前的TLS会话。
+ * </p>
+ * <p>
+ *     {@link #call}通过RPC帧调用对端的{@link com.java.network.rpc.RpcService}。同一目标的调用共用一个不放入连接池的连接，
+ *     请求以stream区分，响应可以乱序返回。
+ * </p>
+ * <p>
+ *     {@link #requestPipelined}把同一目标的HTTP请求以流水线方式发到一个共用的连接上，不等前一个响应，响应按顺序完成各自的Future。
+ *     设置了{@link ClientOptions#writeBatch}时，这两种连接上的请求先攒在待发送队列中，攒够一批或者等够最长延迟后以一次聚集写发出。
+ *     Selector以毫秒为单位等待，不足1毫秒的延迟按1毫秒计算。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
+ * <p>
+ *     {@link #close}之后发起的请求立即以{@link ClosedChannelException}失败。Reactor线程退出前执行完任务队列中剩下的任务，
+ *     之后提交的任务在提交它的线程中执行；这时Selector和连接都已关闭，任务对应的Future都以异常完成，不会一直挂着。
+ * </p>
  * @author zhangbin
  * @date 2020-05-28
  */
-public class NonBlockingClient {
+public class NonBlockingClient implements Closeable {
+
+    public static final String METRICS_NAME = "nio-client";
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    private static final int LOW_WATER_MARK = 32 * 1024;
+
+    private static final int HIGH_WATER_MARK = 64 * 1024;
 
-    private static Selector selector;
+    private final ByteBufferPool byteBufferPool = ByteBufferPool.getDefault();
 
-    static {
+    private final Selector selector;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final ConnectionPool<NioClientConnection> connectionPool;
+
+    private final ConcurrentMap<InetSocketAddress, CompletableFuture<NioClientConnection>> rpcConnections = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<InetSocketAddress, CompletableFuture<NioClientConnection>> pipelinedConnections = new ConcurrentHashMap<>();
+
+    /**
+     * 已经提交了唤醒Selector、Reactor线程还没有开始处理任务队列。
+     */
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    /**
+     * 写合并时等待按时写出的连接，只在Reactor线程中访问。所有批次的延迟相同，先加入的先到期。
+     */
+    private final Queue<NioClientConnection> batches = new ArrayDeque<>();
+
+    private final ClientOptions clientOptions;
+
+    private final TimingWheel timingWheel = new TimingWheel(100, 512);
+
+    private final TransportMetrics metrics = MetricsRegistry.getDefault().transport(METRICS_NAME);
+
+    private volatile boolean closed;
+
+    /**
+     * Reactor线程已经退出，不会再处理任务队列。
+     */
+    private volatile boolean terminated;
+
+    /**
+     * 连接的用途。
+     */
+    private enum Mode {
+        /**
+         * 放入连接池，一次只有一个请求。
+         */
+        POOLED,
+        /**
+         * RPC，请求以stream区分。
+         */
+        RPC,
+        /**
+         * 流水线HTTP，响应按请求的顺序返回。
+         */
+        PIPELINED
+    }
+
+    public NonBlockingClient() throws IOException {
+        this(new ConnectionPoolOptions());
+    }
+
+    public NonBlockingClient(@NotNull ConnectionPoolOptions options) throws IOException {
+        this(options, new ClientOptions());
+    }
+
+    public NonBlockingClient(@NotNull ConnectionPoolOptions options, @NotNull ClientOptions clientOptions) throws IOException {
+        this.clientOptions = clientOptions;
+        selector = Selector.open();
+        connectionPool = new ConnectionPool<>(new PooledConnectionFactory<NioClientConnection>() {
+            @NotNull
+            @Override
+            public CompletableFuture<NioClientConnection> connect(@NotNull InetSocketAddress address) {
+                return NonBlockingClient.this.connect(address, Mode.POOLED);
+            }
+
+            @Override
+            public boolean isHealthy(@NotNull NioClientConnection connection) {
+                return connection.isOpen();
+            }
+
+            @Override
+            public void close(@NotNull NioClientConnection connection) {
+                execute(() -> connection.close(new ClosedChannelException()));
+            }
+        }, options);
+        new ThreadFactoryBuilder().setNameFormat("nio-client-%d").setDaemon(true).build().newThread(this::select).start();
+    }
+
+    /**
+     * 从连接池中取一个连接发送请求，响应到达后连接自动归还。
+     */
+    @NotNull
+    public CompletableFuture<String> request(String host, int port) {
+        if (closed) {
+            return closedFuture();
+        }
+        return connectionPool.acquire(host, port).thenCompose(connection -> {
+            CompletableFuture<String> response = new CompletableFuture<>();
+            execute(() -> send(connection, host, response));
+            return response;
+        });
+    }
+
+    /**
+     * 通过到目标的流水线连接发送请求，不等待前面请求的响应。同一目标的请求共用一个连接，响应按发出的顺序完成。
+     */
+    @NotNull
+    public CompletableFuture<String> requestPipelined(String host, int port) {
+        if (closed) {
+            return closedFuture();
+        }
+        CompletableFuture<String> response = new CompletableFuture<>();
+        sharedConnection(pipelinedConnections, InetSocketAddress.createUnresolved(host, port), Mode.PIPELINED).whenComplete((connection, cause) -> {
+            if (null != cause) {
+                response.completeExceptionally(cause);
+            } else {
+                execute(() -> sendPipelined(connection, host, response));
+            }
+        });
+        return response;
+    }
+
+    /**
+     * 通过到目标的RPC连接调用一个方法，返回堆内存中的响应体。对端返回错误帧时以{@link RpcException}失败。
+     * @param payload 请求体，返回前已经复制，不改变它的position
+     */
+    @NotNull
+    public CompletableFuture<ByteBuffer> call(String host, int port, int methodId, @NotNull ByteBuffer payload) {
+        if (closed) {
+            return closedFuture();
+        }
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        // 先编码到池化缓冲区，stream在Reactor线程中填入。
+        ByteBuffer frame = byteBufferPool.acquire(RpcFrames.encodedLength(payload.remaining()));
+        RpcFrames.encode(frame, RpcFrames.REQUEST, 0, methodId, payload);
+        frame.flip();
+        sharedConnection(rpcConnections, InetSocketAddress.createUnresolved(host, port), Mode.RPC).whenComplete((connection, cause) -> {
+            if (null != cause) {
+                byteBufferPool.release(frame);
+                response.completeExceptionally(cause);
+            } else {
+                execute(() -> send(connection, frame, response));
+            }
+        });
+        return response;
+    }
+
+    /**
+     * 到目标的共用连接，不存在或者已经断开时建立新的连接。
+     */
+    @NotNull
+    private CompletableFuture<NioClientConnection> sharedConnection(
+            @NotNull ConcurrentMap<InetSocketAddress, CompletableFuture<NioClientConnection>> connections,
+            @NotNull InetSocketAddress address, @NotNull Mode mode) {
+        while (true) {
+            CompletableFuture<NioClientConnection> existing = connections.get(address);
+            if (null == existing) {
+                CompletableFuture<NioClientConnection> connectFuture = connect(address, mode);
+                existing = connections.putIfAbsent(address, connectFuture);
+                if (null == existing) {
+                    return connectFuture;
+                }
+                // 其他线程已经在建立连接，放弃自己的。
+                connectFuture.thenAccept(connection -> execute(() -> connection.close(new ClosedChannelException())));
+            }
+            if (existing.isDone() && (existing.isCompletedExceptionally() || ! existing.join().isOpen())) {
+                connections.remove(address, existing);
+                if (existing.isCompletedExceptionally()) {
+                    return existing;
+                }
+                continue;
+            }
+            return existing;
+        }
+    }
+
+    /**
+     * 解析目标的主机名，在它的各个地址之间竞速建立连接。解析和竞速都不阻塞调用线程。
+     */
+    @NotNull
+    private CompletableFuture<NioClientConnection> connect(@NotNull InetSocketAddress address, @NotNull Mode mode) {
+        int port = address.getPort();
+        return clientOptions.getResolver().resolve(address.getHostString()).thenCompose(addresses ->
+                HappyEyeballs.connect(addresses, clientOptions.getConnectAttemptDelayMillis(), this::execute,
+                        inetAddress -> open(new InetSocketAddress(inetAddress, port), address.getHostString(), mode),
+                        connection -> execute(() -> connection.close(new ClosedChannelException()))));
+    }
+
+    /**
+     * 向一个已经解析的地址发起连接。
+     * @param host 解析前的主机名，用于TLS的SNI、证书校验和会话复用
+     */
+    @NotNull
+    private CompletableFuture<NioClientConnection> open(@NotNull InetSocketAddress socketAddress, @NotNull String host, @NotNull Mode mode) {
+        CompletableFuture<NioClientConnection> future = new CompletableFuture<>();
         try {
-            selector = Selector.open();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void request(String host, int port) throws IOException {
-        SocketChannel socketChannel = SocketChannel.open();
-        SocketAddress socketAddress = new InetSocketAddress(host, port);
-        socketChannel.configureBlocking(false);
-        socketChannel.socket().setSoTimeout(10000);
-        socketChannel.connect(socketAddress);
-        socketChannel.register(selector, SelectionKey.OP_CONNECT | SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-    }
-
-    public void select() throws IOException {
-        while (selector.select() > 0) {
-            Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
-            while (iterator.hasNext()) {
-                SelectionKey selectionKey = iterator.next();
-                iterator.remove();
-
-                if (selectionKey.isConnectable()) {
-                    connect(selectionKey);
-                } else if (selectionKey.isReadable()) {
-                    read(selectionKey);
-                } else if (selectionKey.isWritable()) {
-                    write(selectionKey);
+            SSLEngine sslEngine = null == clientOptions.getTls() ? null
+                    : clientOptions.getTls().newClientEngine(host, socketAddress.getPort());
+            SocketChannel socketChannel = SocketChannel.open();
+            socketChannel.configureBlocking(false);
+            NioClientConnection connection = new NioClientConnection(socketChannel, byteBufferPool,
+                    new OutboundQueue(byteBufferPool, LOW_WATER_MARK, HIGH_WATER_MARK), metrics, sslEngine, timingWheel);
+            if (Mode.RPC == mode) {
+                connection.rpcCalls(new RpcCalls(metrics));
+            } else if (Mode.PIPELINED == mode) {
+                // 超时的请求之后的响应都对不上了，关闭连接。
+                connection.pipelinedRequests(new PipelinedRequests(metrics,
+                        () -> connection.close(new SocketTimeoutException("Response timed out"))));
+            }
+            connection.timeout(new Timeout() {
+                @Override
+                protected void onTimeout() {
+                    if (! connection.isOpen()) {
+                        return;
+                    }
+                    metrics.timeout();
+                    connection.close(new SocketTimeoutException(connection.inExchange() ? "Response timed out" : "Connect timed out"));
+                }
+            });
+            execute(() -> {
+                try {
+                    if (closed) {
+                        throw new ClosedChannelException();
+                    }
+                    boolean connected = socketChannel.connect(socketAddress);
+                    connection.selectionKey(socketChannel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, connection));
+                    schedule(connection.timeout(), clientOptions.getConnectTimeoutMillis());
+                    if (connected) {
+                        connected(connection);
+                    }
+                } catch (Exception e) {
+                    connection.close(e);
+                }
+            });
+            return connection.connectFuture();
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 在Reactor线程中执行任务。
+     */
+    private void execute(@NotNull Runnable task) {
+        tasks.offer(task);
+        if (terminated) {
+            failTasks();
+            return;
+        }
+        // Reactor线程被唤醒后一次取完任务队列，之前提交的唤醒还没有被处理时不需要再唤醒。
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    private void schedule(@NotNull Timeout timeout, long delayMillis) {
+        timingWheel.schedule(timeout, delayMillis, TimingWheel.monotonicMillis());
+    }
+
+    private void select() {
+        while (selector.isOpen()) {
+            try {
+                long timeoutMillis = timingWheel.timeoutMillis(TimingWheel.monotonicMillis());
+                NioClientConnection batch = batches.peek();
+                if (null != batch) {
+                    long batchNanos = batch.batchDeadlineNanos() - System.nanoTime();
+                    long batchMillis = batchNanos <= 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(batchNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+                    timeoutMillis = timeoutMillis < 0 ? batchMillis : Math.min(timeoutMillis, batchMillis);
                 }
+                if (timeoutMillis < 0) {
+                    selector.select();
+                } else if (0 == timeoutMillis) {
+                    selector.selectNow();
+                } else {
+                    selector.select(timeoutMillis);
+                }
+                long loopStart = System.nanoTime();
+                // 先清除标记再取任务，之后提交的任务会重新唤醒Selector。
+                wakeupPending.set(false);
+                Runnable task;
+                while (null != (task = tasks.poll())) {
+                    task.run();
+                }
+
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey selectionKey = iterator.next();
+                    iterator.remove();
+
+                    NioClientConnection connection = (NioClientConnection) selectionKey.attachment();
+                    try {
+                        if (selectionKey.isValid() && selectionKey.isConnectable()) {
+                            connect(connection);
+                        }
+                        if (selectionKey.isValid() && selectionKey.isReadable()) {
+                            read(connection);
+                        }
+                        if (selectionKey.isValid() && selectionKey.isWritable()) {
+                            write(connection);
+                        }
+                    } catch (Exception e) {
+                        metrics.error();
+                        connection.close(e);
+                    }
+                }
+                flushBatches(System.nanoTime());
+                timingWheel.expire(TimingWheel.monotonicMillis());
+                metrics.loop(System.nanoTime() - loopStart);
+            } catch (ClosedSelectorException e) {
+                break;
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        // 先设置标记再取任务，和execute中先放入任务再检查标记的顺序相反，两边至少有一边能取到任务。
+        terminated = true;
+        failTasks();
+    }
+
+    /**
+     * Reactor线程退出后执行剩下的任务。Selector和所有连接都已经关闭，任务中的发送和注册都会失败，以异常完成对应的Future。
+     */
+    private void failTasks() {
+        Runnable task;
+        while (null != (task = tasks.poll())) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void connect(@NotNull NioClientConnection connection) throws IOException {
+        connection.socketChannel().finishConnect();
+        connected(connection);
+    }
+
+    /**
+     * TCP连接已经建立，启用了TLS时开始握手，否则连接立即可用。
+     */
+    private void connected(@NotNull NioClientConnection connection) throws IOException {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Connected to %s.", connection.socketChannel().socket().getRemoteSocketAddress());
+        }
+        connection.startTls();
+        interestOps(connection);
+        if (connection.isReady()) {
+            ready(connection);
+        }
+    }
+
+    /**
+     * 连接可以发送请求了。
+     */
+    private void ready(@NotNull NioClientConnection connection) {
+        timingWheel.cancel(connection.timeout());
+        connection.connectFuture().complete(connection);
+    }
+
+    private void send(@NotNull PooledConnection<NioClientConnection> pooledConnection, String host, @NotNull CompletableFuture<String> response) {
+        NioClientConnection connection = pooledConnection.connection();
+        if (! connection.isOpen()) {
+            pooledConnection.invalidate();
+            response.completeExceptionally(new ClosedChannelException());
+            return;
+        }
+        connection.startExchange(pooledConnection, response);
+        schedule(connection.timeout(), clientOptions.getResponseTimeoutMillis());
+        try {
+            connection.outboundQueue().addPooled(encodeRequest(host));
+            write(connection);
+        } catch (Exception e) {
+            connection.close(e);
+        }
+    }
+
+    /**
+     * 在Reactor线程中向流水线连接发出一个HTTP请求。
+     */
+    private void sendPipelined(@NotNull NioClientConnection connection, String host, @NotNull CompletableFuture<String> response) {
+        if (! connection.isOpen()) {
+            response.completeExceptionally(new ClosedChannelException());
+            return;
+        }
+        PipelinedRequests.Request request = connection.pipelinedRequests().start(response);
+        schedule(request, clientOptions.getResponseTimeoutMillis());
+        connection.outboundQueue().addPooled(encodeRequest(host));
+        try {
+            requestQueued(connection);
+        } catch (Exception e) {
+            connection.close(e);
+        }
+    }
+
+    /**
+     * 把请求编码到池化缓冲区中。
+     */
+    @NotNull
+    private ByteBuffer encodeRequest(String host) {
+        String request = getRequest(host);
+        ByteBuffer buffer = byteBufferPool.acquire(request.length());
+        // 请求只包含ASCII字符，直接写入缓冲区，省去编码产生的临时数组。
+        for (int i = 0; i < request.length(); i++) {
+            buffer.put((byte) request.charAt(i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 在Reactor线程中发出一个已经编码好的RPC请求。
+     */
+    private void send(@NotNull NioClientConnection connection, @NotNull ByteBuffer frame, @NotNull CompletableFuture<ByteBuffer> response) {
+        if (! connection.isOpen()) {
+            byteBufferPool.release(frame);
+            response.completeExceptionally(new ClosedChannelException());
+            return;
+        }
+        RpcCalls.Call call = connection.rpcCalls().start(response);
+        frame.putInt(RpcFrames.LENGTH_FIELD_LENGTH + 1, call.streamId());
+        schedule(call, clientOptions.getResponseTimeoutMillis());
+        connection.outboundQueue().addPooled(frame);
+        try {
+            requestQueued(connection);
+        } catch (Exception e) {
+            connection.close(e);
+        }
+    }
+
+    /**
+     * RPC和流水线请求放入待发送队列后调用。没有设置写合并时立即写出；否则攒够一批再写，
+     * 或者由{@link #flushBatches}在批次中第一个请求等够最长延迟后写出。待发送数据超过高水位时不再攒批。
+     */
+    private void requestQueued(@NotNull NioClientConnection connection) throws IOException {
+        if (connection.requestBatched() >= clientOptions.getMaxBatchSize() || ! connection.outboundQueue().isWritable()) {
+            connection.batchFlushed();
+            write(connection);
+        } else if (! connection.isBatchFlushScheduled()) {
+            // 攒够一批提前写出后不取消这次安排，之后的请求沿用它的到期时间，只会更早写出。
+            connection.scheduleBatchFlush(System.nanoTime() + clientOptions.getMaxBatchDelayNanos());
+            batches.offer(connection);
+        }
+    }
+
+    /**
+     * 写出已经等够最长延迟的批次。
+     */
+    private void flushBatches(long nowNanos) {
+        NioClientConnection connection;
+        while (null != (connection = batches.peek()) && connection.batchDeadlineNanos() - nowNanos <= 0) {
+            batches.poll();
+            connection.batchFlushExpired();
+            if (connection.isOpen() && connection.hasBatchedRequests()) {
+                connection.batchFlushed();
+                try {
+                    write(connection);
+                } catch (Exception e) {
+                    metrics.error();
+                    connection.close(e);
+                }
+            }
+        }
+    }
+
+    private void read(@NotNull NioClientConnection connection) throws IOException {
+        ByteBuffer readBuffer = connection.readBuffer();
+        readBuffer.compact();
+        int length = connection.read(readBuffer);
+        readBuffer.flip();
+        metrics.bytesRead(length);
+
+        if (! connection.connectFuture().isDone()) {
+            // 还在TLS握手。
+            if (length < 0) {
+                throw new EOFException("Connection closed during TLS handshake");
+            }
+            interestOps(connection);
+            if (connection.isReady()) {
+                ready(connection);
+            }
+            return;
+        }
+        if (connection.hasBufferedInput()) {
+            execute(() -> {
+                try {
+                    if (connection.isOpen()) {
+                        read(connection);
+                    }
+                } catch (Exception e) {
+                    metrics.error();
+                    connection.close(e);
+                }
+            });
+        }
+
+        if (null != connection.rpcCalls()) {
+            readRpc(connection, length);
+            return;
+        }
+        if (null != connection.pipelinedRequests()) {
+            readPipelined(connection, length);
+            return;
+        }
+
+        if (! connection.inExchange()) {
+            // 空闲连接上只可能读到对端关闭，其他数据说明连接状态已经不可信。
+            if (length < 0 || readBuffer.hasRemaining()) {
+                connection.close(new EOFException());
+            }
+            return;
+        }
+
+        HttpParser parser = connection.parser();
+        boolean complete = parser.parse(readBuffer) || (length < 0 && parser.endOfInput());
+        if (complete) {
+            metrics.request(System.nanoTime() - connection.exchangeStartNanos());
+            String response = HttpParser.toString(readBuffer, 0, parser.messageLength());
+            boolean keepAlive = parser.isKeepAlive() && length >= 0;
+            readBuffer.position(readBuffer.position() + parser.messageLength());
+            parser.reset();
+
+            timingWheel.cancel(connection.timeout());
+            PooledConnection<NioClientConnection> pooledConnection = connection.pooledConnection();
+            CompletableFuture<String> future = connection.finishExchange();
+            if (keepAlive) {
+                pooledConnection.release();
+            } else {
+                connection.close(new ClosedChannelException());
+                pooledConnection.invalidate();
+            }
+            future.complete(response);
+        } else if (length < 0) {
+            throw new EOFException("Connection closed before the response completed");
+        } else if (0 == readBuffer.position() && readBuffer.limit() == readBuffer.capacity()) {
+            throw new HttpParseException("Response too large");
+        }
+    }
+
+    /**
+     * 依次处理读缓冲区中完整的响应帧，按stream完成对应的请求。
+     */
+    private void readRpc(@NotNull NioClientConnection connection, int length) throws IOException {
+        RpcCalls calls = connection.rpcCalls();
+        while (true) {
+            ByteBuffer readBuffer = connection.readBuffer();
+            int frameLength = RpcFrames.frameLength(readBuffer, clientOptions.getMaxFrameLength());
+            if (0 == frameLength || readBuffer.remaining() < frameLength) {
+                // 帧比读缓冲区还大时换一个能放下整帧的缓冲区。
+                connection.ensureReadCapacity(frameLength);
+                break;
             }
+            byte type = RpcFrames.type(readBuffer);
+            if (RpcFrames.RESPONSE != type && RpcFrames.ERROR != type) {
+                throw new RpcException("Unexpected frame type: " + type);
+            }
+            RpcCalls.Call call = calls.finish(RpcFrames.streamId(readBuffer));
+            if (null != call) {
+                timingWheel.cancel(call);
+                ByteBuffer payload = RpcFrames.payload(readBuffer, frameLength);
+                ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+                copy.put(payload).flip();
+                call.complete(type, copy);
+            }
+            readBuffer.position(readBuffer.position() + frameLength);
+        }
+        if (length < 0) {
+            throw new EOFException("Connection closed by peer");
         }
     }
 
-    private void connect(@NotNull SelectionKey selectionKey) throws IOException {
-        SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-        socketChannel.finishConnect();
-        InetSocketAddress inetSocketAddress = (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress();
-        System.out.println(String.format("Connected to %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
+    /**
+     * 依次处理读缓冲区中完整的响应，按顺序完成最早发出的请求。
+     */
+    private void readPipelined(@NotNull NioClientConnection connection, int length) throws IOException {
+        ByteBuffer readBuffer = connection.readBuffer();
+        HttpParser parser = connection.parser();
+        while (parser.parse(readBuffer) || (length < 0 && parser.endOfInput())) {
+            String response = HttpParser.toString(readBuffer, 0, parser.messageLength());
+            boolean keepAlive = parser.isKeepAlive() && length >= 0;
+            readBuffer.position(readBuffer.position() + parser.messageLength());
+            parser.reset();
+
+            PipelinedRequests.Request request = connection.pipelinedRequests().finish();
+            if (null == request) {
+                throw new HttpParseException("Unexpected response");
+            }
+            timingWheel.cancel(request);
+            request.complete(response);
+            if (! keepAlive) {
+                // 后面还在等待的请求随连接关闭而失败。
+                connection.close(new ClosedChannelException());
+                return;
+            }
+        }
+        if (length < 0) {
+            throw new EOFException("Connection closed by peer");
+        } else if (0 == readBuffer.position() && readBuffer.limit() == readBuffer.capacity()) {
+            throw new HttpParseException("Response too large");
+        }
     }
 
-    private void read(@NotNull SelectionKey selectionKey) throws IOException {
-        SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
-        socketChannel.read(byteBuffer);
-        byteBuffer.flip();
+    private void write(@NotNull NioClientConnection connection) throws IOException {
+        OutboundQueue outboundQueue = connection.outboundQueue();
+        long pendingBytes = outboundQueue.pendingBytes();
+        if (outboundQueue.flush(connection.channel())) {
+            connection.flushTls();
+        }
+        metrics.bytesWritten(pendingBytes - outboundQueue.pendingBytes());
+        interestOps(connection);
+        if (! connection.connectFuture().isDone() && connection.isReady()) {
+            // TLS握手的最后一条消息由本端发出。
+            ready(connection);
+        }
+    }
+
+    /**
+     * 有数据没写完时才关注可写事件，超过高水位时暂停读取。
+     */
+    private void interestOps(@NotNull NioClientConnection connection) {
+        int interestOps = connection.hasPendingOutput() ? SelectionKey.OP_WRITE : 0;
+        if (connection.outboundQueue().isWritable()) {
+            interestOps |= SelectionKey.OP_READ;
+        }
+        connection.selectionKey().interestOps(interestOps);
+    }
 
-        String data = Charset.defaultCharset().decode(byteBuffer).toString();
-        if ("".equals(data)) {
-            selectionKey.cancel();
-        } else {
-            InetSocketAddress inetSocketAddress = (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress();
-            System.out.println(String.format("Read from %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-            System.out.println(data);
+    /**
+     * 关闭连接池和Reactor线程。
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
         }
+        closed = true;
+        connectionPool.close();
+        execute(() -> {
+            for (SelectionKey selectionKey : selector.keys()) {
+                ((NioClientConnection) selectionKey.attachment()).close(new ClosedChannelException());
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
     }
 
-    private void write(@NotNull SelectionKey selectionKey) throws IOException {
-        SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-        InetSocketAddress inetSocketAddress = (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress();
-        System.out.println(String.format("Write to %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-        socketChannel.write(Charset.defaultCharset().encode(getRequest(inetSocketAddress.getHostName())));
-        selectionKey.interestOps(SelectionKey.OP_READ);
+    @NotNull
+    private static <T> CompletableFuture<T> closedFuture() {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(new ClosedChannelException());
+        return future;
     }
 
     @NotNull
@@ -99,12 +759,10 @@ public class NonBlockingClient {
                 + "Accept: */*\r\n\r\n";
     }
 
-    public static void main(String[] args) throws IOException {
-        final String[] hosts = { "localhost", "127.0.0.1", "10.26.3.55" };
-        NonBlockingClient client = new NonBlockingClient();
-        for (final String host : hosts) {
-            client.request(host, 9527);
-        }
-        client.select();
+    /**
+     * 以这个客户端运行开环压测，参数见{@link LoadOptions}。
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadGenerator.run(new LoadOptions().client(LoadOptions.Client.NIO), args);
     }
 }
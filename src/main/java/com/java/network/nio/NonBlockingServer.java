@@ -1,46 +1,219 @@
 package com.java.network.nio;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.file.StaticFiles;
+import com.java.network.http.HttpResponses;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.server.Server;
+import com.java.network.server.ServerOptions;
+import com.java.network.server.ShutdownReport;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * <p>
- *     通过NIO的非阻塞方式实现的Socket服务
+ *     通过NIO的非阻塞方式实现的Socket服务，采用多Reactor模式：
+ *     Boss线程只负责接入连接，再按{@link Strategy}把连接分配给若干{@link NioWorker}，
+ *     每个工作线程独占一个Selector完成读写。
+ * </p>
+ * <p>
+ *     {@link #start}在后台Boss线程中接入连接，{@link #stop}先关闭监听端口，再让各工作线程收尾，
+ *     超时后强制关闭剩下的连接，最后等所有线程退出。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
  * </p>
  * @author zhangbin
  * @date 2020-05-28
  */
-public class NonBlockingServer {
+public class NonBlockingServer implements Server {
 
-    private static Selector selector;
+    public static final String METRICS_NAME = "nio";
 
-    static {
-        try {
-            selector = Selector.open();
-        } catch (IOException e) {
-            e.printStackTrace();
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    /**
+     * 连接分配策略。
+     */
+    public enum Strategy {
+        /**
+         * 轮询。
+         */
+        ROUND_ROBIN,
+        /**
+         * 分配给当前连接数最少的工作线程。
+         */
+        LEAST_LOADED
+    }
+
+    private final ServerOptions options;
+
+    private final NioWorker[] workers;
+
+    private final Strategy strategy;
+
+    private final Thread[] workerThreads;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private Selector selector;
+
+    private ServerSocketChannel serverSocketChannel;
+
+    private Thread bossThread;
+
+    private volatile boolean stopping;
+
+    private volatile ShutdownReport shutdownReport;
+
+    private int next;
+
+    public NonBlockingServer() throws IOException {
+        this(Runtime.getRuntime().availableProcessors(), Strategy.ROUND_ROBIN, new ServerOptions());
+    }
+
+    public NonBlockingServer(int workerCount, @NotNull Strategy strategy, @NotNull ServerOptions options) throws IOException {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive: " + workerCount);
+        }
+        this.options = options;
+        this.strategy = strategy;
+        this.workers = new NioWorker[workerCount];
+        this.workerThreads = new Thread[workerCount];
+        ByteBuffer keepAliveResponse = readOnlyDirectBuffer(
+                HttpResponses.encode(200, "OK", "text/plain", getResponse().getBytes(StandardCharsets.UTF_8), true));
+        ByteBuffer closeResponse = readOnlyDirectBuffer(
+                HttpResponses.encode(200, "OK", "text/plain", getResponse().getBytes(StandardCharsets.UTF_8), false));
+        StaticFiles staticFiles = null == options.getDocumentRoot() ? null : new StaticFiles(options);
+        TransportMetrics metrics = MetricsRegistry.getDefault().transport(METRICS_NAME);
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new NioWorker(options, keepAliveResponse, closeResponse, staticFiles, metrics);
         }
     }
 
+    @Override
     public void start(int port) throws IOException {
-        try (ServerSocketChannel serverSocketChannel = ServerSocketChannel.open()) {
-            InetSocketAddress inetSocketAddress = new InetSocketAddress(port);
+        if (! started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        selector = Selector.open();
+        serverSocketChannel = ServerSocketChannel.open();
+        try {
             serverSocketChannel.configureBlocking(false);
-            serverSocketChannel.socket().bind(inetSocketAddress);
+            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, options.isReuseAddress());
+            if (options.getReceiveBufferSize() > 0) {
+                // 接入的连接继承监听Socket的接收缓冲区。
+                serverSocketChannel.setOption(StandardSocketOptions.SO_RCVBUF, options.getReceiveBufferSize());
+            }
+            serverSocketChannel.bind(new InetSocketAddress(port), options.getBacklog());
             serverSocketChannel.register(selector, SelectionKey.OP_ACCEPT);
-            System.out.println("Server started.");
+        } catch (IOException e) {
+            serverSocketChannel.close();
+            selector.close();
+            startFailed();
+            throw e;
+        }
 
-            while (true) {
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("nio-worker-%d").build();
+        for (int i = 0; i < workers.length; i++) {
+            workerThreads[i] = threadFactory.newThread(workers[i]);
+            workerThreads[i].start();
+        }
+        bossThread = new ThreadFactoryBuilder().setNameFormat("nio-boss-%d").build().newThread(this::run);
+        bossThread.start();
+        LOGGER.info("Server started on port %d with %d worker(s).", port, workers.length);
+    }
+
+    /**
+     * 先停止接入，再让工作线程收尾，超时后强制关闭剩下的连接。
+     */
+    @NotNull
+    @Override
+    public ShutdownReport stop(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        if (! stopped.compareAndSet(false, true)) {
+            awaitTermination();
+            return shutdownReport;
+        }
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + unit.toNanos(timeout);
+        if (null != bossThread) {
+            stopping = true;
+            selector.wakeup();
+            bossThread.join();
+
+            for (NioWorker worker : workers) {
+                worker.drain();
+            }
+            for (Thread workerThread : workerThreads) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (remainingMillis > 0) {
+                    workerThread.join(remainingMillis);
+                }
+            }
+            for (int i = 0; i < workers.length; i++) {
+                if (workerThreads[i].isAlive()) {
+                    workers[i].terminate();
+                }
+            }
+            for (Thread workerThread : workerThreads) {
+                workerThread.join();
+            }
+        }
+
+        int drained = 0;
+        int forced = 0;
+        for (NioWorker worker : workers) {
+            drained += worker.drainedConnections();
+            forced += worker.forcedConnections();
+        }
+        shutdownReport = new ShutdownReport(drained, forced, System.nanoTime() - startNanos);
+        LOGGER.info("Server stopped: %s.", shutdownReport);
+        terminated.countDown();
+        return shutdownReport;
+    }
+
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * 启动失败、已经释放了资源时调用：之后的{@link #stop}直接返回，{@link #awaitTermination}不再等待。
+     */
+    private void startFailed() {
+        stopped.set(true);
+        shutdownReport = new ShutdownReport(0, 0, 0);
+        terminated.countDown();
+    }
+
+    /**
+     * Boss线程的事件循环，{@link #stop}之后关闭监听端口并退出。
+     */
+    private void run() {
+        try {
+            while (! stopping) {
                 try {
                     selector.select();
                     Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
@@ -50,10 +223,6 @@ public class NonBlockingServer {
 
                         if (selectionKey.isAcceptable()) {
                             accept(selectionKey);
-                        } else if (selectionKey.isReadable()) {
-                            read(selectionKey);
-                        } else if (selectionKey.isWritable()) {
-                            write(selectionKey);
                         }
                     }
                 } catch (Exception e) {
@@ -61,67 +230,87 @@ public class NonBlockingServer {
                     break;
                 }
             }
+        } finally {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
     }
 
     private void accept(@NotNull SelectionKey selectionKey) throws IOException {
+        SocketChannel socketChannel = null;
         try {
             ServerSocketChannel serverSocketChannel = (ServerSocketChannel) selectionKey.channel();
-            SocketChannel socketChannel = serverSocketChannel.accept();
-            socketChannel.configureBlocking(false);
-            socketChannel.register(selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
-
-            InetSocketAddress inetSocketAddress = (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress();
-            System.out.println(String.format("Accepted from %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
+            // 一次就绪可能对应多个连接，全部接入后再返回select。
+            while (null != (socketChannel = serverSocketChannel.accept())) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Accepted from %s.", socketChannel.socket().getRemoteSocketAddress());
+                }
+                if (null != options.getAdmission() && ! options.getAdmission().tryConnect()) {
+                    // 连接数已满，在分配给工作线程之前直接关闭。
+                    socketChannel.close();
+                    socketChannel = null;
+                    continue;
+                }
+                chooseWorker().register(socketChannel);
+                socketChannel = null;
+            }
         } catch (Exception e) {
             e.printStackTrace();
-            selectionKey.channel().close();
+            if (null != socketChannel) {
+                socketChannel.close();
+            }
         }
     }
 
-    private void read(@NotNull SelectionKey selectionKey) throws IOException {
-        try {
-            SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-            ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
-            socketChannel.read(byteBuffer);
-            byteBuffer.flip();
-
-            String data = Charset.defaultCharset().decode(byteBuffer).toString();
-            if ("".equals(data)) {
-                selectionKey.cancel();
-            } else {
-                InetSocketAddress inetSocketAddress = (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress();
-                System.out.println(String.format("Read from %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-                System.out.println(data);
+    @NotNull
+    private NioWorker chooseWorker() {
+        if (Strategy.LEAST_LOADED == strategy) {
+            NioWorker chosen = workers[0];
+            for (int i = 1; i < workers.length; i++) {
+                if (workers[i].connections() < chosen.connections()) {
+                    chosen = workers[i];
+                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            selectionKey.channel().close();
+            return chosen;
         }
+        NioWorker chosen = workers[next];
+        next = (next + 1) % workers.length;
+        return chosen;
     }
 
-    private void write(@NotNull SelectionKey selectionKey) throws IOException {
-        try {
-            SocketChannel socketChannel = (SocketChannel) selectionKey.channel();
-            InetSocketAddress inetSocketAddress = (InetSocketAddress) socketChannel.socket().getRemoteSocketAddress();
-            System.out.println(String.format("Write to %s:%s.", inetSocketAddress.getHostName(), inetSocketAddress.getPort()));
-            socketChannel.write(Charset.defaultCharset().encode(getResponse()));
-            selectionKey.interestOps(SelectionKey.OP_READ);
-        } catch (Exception e) {
-            e.printStackTrace();
-            selectionKey.channel().close();
-        }
+    /**
+     * 固定的响应放在只读的堆外缓冲区中，聚集写时不需要再复制到临时的堆外缓冲区。
+     */
+    @NotNull
+    private static ByteBuffer readOnlyDirectBuffer(@NotNull byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer.asReadOnlyBuffer();
     }
 
     @NotNull
     @Contract(pure = true)
     private String getResponse() {
-        return "GET / HTTP/1.1\r\n"
-                + "User-Agent: curl/7.43.0\r\n"
-                + "Accept: */*\r\n\r\n";
+        return "Hello, World!";
     }
 
-    public static void main(String[] args) throws IOException {
-        new NonBlockingServer().start(9527);
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // 第一个参数是可选的文档目录。
+        ServerOptions options = new ServerOptions();
+        if (args.length > 0) {
+            options.documentRoot(Paths.get(args[0]));
+        }
+        NonBlockingServer server = new NonBlockingServer(Runtime.getRuntime().availableProcessors(), Strategy.ROUND_ROBIN, options);
+        server.start(9527);
+        Server.stopOnShutdown(server, 30, TimeUnit.SECONDS);
+        server.awaitTermination();
     }
 }
@@ -0,0 +1,199 @@
+package com.java.network.nio;
+
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.file.FileResponse;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * <p>
+ *     单个连接的待发送队列，元素是读模式的ByteBuffer或者文件响应，按加入的顺序发送。
+ *     连续的ByteBuffer合并成一次{@link GatheringByteChannel#write(ByteBuffer[], int, int)}，文件部分用sendfile发送。
+ * </p>
+ * <p>
+ *     待发送字节数超过高水位后{@link #isWritable()}变为false，调用方应当暂停读取对端的新请求，
+ *     直到回落到低水位以下再恢复，避免来不及接收的对端让队列无限增长。
+ * </p>
+ * <p>
+ *     只在连接所属的Reactor线程中访问。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class OutboundQueue {
+
+    /**
+     * 一次聚集写最多合并的缓冲区个数。
+     */
+    private static final int MAX_GATHER = 16;
+
+    private final ByteBufferPool byteBufferPool;
+
+    private final int lowWaterMark;
+
+    private final int highWaterMark;
+
+    private final Deque<Entry> entries = new ArrayDeque<>();
+
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+
+    private long pendingBytes;
+
+    private boolean writable = true;
+
+    OutboundQueue(@NotNull ByteBufferPool byteBufferPool, int lowWaterMark, int highWaterMark) {
+        this.byteBufferPool = byteBufferPool;
+        this.lowWaterMark = lowWaterMark;
+        this.highWaterMark = highWaterMark;
+    }
+
+    /**
+     * 加入一个缓冲区，发送完后不做处理。
+     */
+    void add(@NotNull ByteBuffer buffer) {
+        add(new Entry(buffer, null, false));
+    }
+
+    /**
+     * 加入一个从{@link ByteBufferPool}借来的缓冲区，发送完或者清空队列时归还。
+     */
+    void addPooled(@NotNull ByteBuffer buffer) {
+        add(new Entry(buffer, null, true));
+    }
+
+    /**
+     * 加入一个文件响应，响应头和内存中的报文体作为普通缓冲区参与聚集写。
+     */
+    void add(@NotNull FileResponse response) {
+        add(response.head());
+        if (null != response.body()) {
+            add(response.body());
+        }
+        if (null != response.fileChannel()) {
+            add(new Entry(null, response, false));
+        } else {
+            close(response);
+        }
+    }
+
+    private void add(@NotNull Entry entry) {
+        entries.offerLast(entry);
+        pendingBytes += entry.remaining();
+        if (pendingBytes > highWaterMark) {
+            writable = false;
+        }
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    long pendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * 待发送的数据是否还没有超过水位，为false时应当暂停读取。
+     */
+    boolean isWritable() {
+        return writable;
+    }
+
+    /**
+     * 尽可能多地写出队列中的数据，直到写完或者channel暂时写不进去。
+     * @return 是否已全部写出
+     */
+    boolean flush(@NotNull GatheringByteChannel channel) throws IOException {
+        try {
+            Entry entry;
+            while (null != (entry = entries.peekFirst())) {
+                if (null != entry.file) {
+                    long before = entry.file.count();
+                    boolean done = entry.file.writeTo(channel);
+                    pendingBytes -= before - entry.file.count();
+                    if (! done) {
+                        return false;
+                    }
+                    entries.pollFirst();
+                    continue;
+                }
+
+                int count = 0;
+                for (Entry next : entries) {
+                    if (null == next.buffer || MAX_GATHER == count) {
+                        break;
+                    }
+                    gather[count++] = next.buffer;
+                }
+                pendingBytes -= channel.write(gather, 0, count);
+                boolean complete = ! gather[count - 1].hasRemaining();
+                Arrays.fill(gather, 0, count, null);
+                while (null != (entry = entries.peekFirst()) && null != entry.buffer && ! entry.buffer.hasRemaining()) {
+                    entries.pollFirst();
+                    if (entry.pooled) {
+                        byteBufferPool.release(entry.buffer);
+                    }
+                }
+                if (! complete) {
+                    // 聚集写没有写完，说明socket发送缓冲区已满。
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            if (pendingBytes <= lowWaterMark) {
+                writable = true;
+            }
+        }
+    }
+
+    /**
+     * 丢弃所有待发送的数据，归还缓冲区并关闭文件，连接关闭时调用。
+     */
+    void clear() {
+        Entry entry;
+        while (null != (entry = entries.pollFirst())) {
+            if (entry.pooled) {
+                byteBufferPool.release(entry.buffer);
+            }
+            if (null != entry.file) {
+                close(entry.file);
+            }
+        }
+        pendingBytes = 0;
+        writable = true;
+    }
+
+    private static void close(@NotNull FileResponse response) {
+        try {
+            response.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static class Entry {
+
+        private final ByteBuffer buffer;
+
+        private final FileResponse file;
+
+        private final boolean pooled;
+
+        private Entry(ByteBuffer buffer, FileResponse file, boolean pooled) {
+            this.buffer = buffer;
+            this.file = file;
+            this.pooled = pooled;
+        }
+
+        private long remaining() {
+            return null != buffer ? buffer.remaining() : file.count();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.java.network.nio;
+
+import com.java.network.buffer.ByteBufferPool;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.tls.TlsOptions;
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <p>
+ *     在非阻塞SocketChannel上叠加{@link SSLEngine}：读时从Socket读入密文再解密，写时加密后写出，握手穿插在读写中完成。
+ *     对{@link OutboundQueue}来说它和SocketChannel一样是非阻塞的聚集写通道，
+ *     只是文件响应经{@link java.nio.channels.FileChannel#transferTo}写入时变成经过缓冲区的复制，不再是sendfile。
+ * </p>
+ * <p>
+ *     调用方给的缓冲区放不下时，解密出的明文会留在内部，Socket上不会再有就绪事件，
+ *     读完后要检查{@link #hasBufferedInput()}并主动再读一次；加密后没有写完的密文由{@link #hasPendingOutput()}表示，
+ *     需要继续关注可写事件。握手中的委派任务（比如校验证书）直接在当前线程执行。
+ * </p>
+ * <p>
+ *     只在连接所属的Reactor线程中访问。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class TlsChannel implements ByteChannel, GatheringByteChannel {
+
+    private static final ByteBuffer[] EMPTY = { ByteBuffer.allocate(0) };
+
+    private final SocketChannel socketChannel;
+
+    private final SSLEngine engine;
+
+    private final ByteBufferPool byteBufferPool;
+
+    private final TransportMetrics metrics;
+
+    private final long handshakeStartNanos = System.nanoTime();
+
+    private final long handshakeStartMillis = System.currentTimeMillis();
+
+    /**
+     * 从Socket读到、还没有解密的密文，读模式。
+     */
+    private ByteBuffer netIn;
+
+    /**
+     * 解密后还没有交给调用方的明文，读模式。
+     */
+    private ByteBuffer appIn;
+
+    /**
+     * 加密后还没有写出的密文，读模式。
+     */
+    private ByteBuffer netOut;
+
+    private boolean handshakeComplete;
+
+    private boolean inboundClosed;
+
+    private boolean bufferedInput;
+
+    TlsChannel(@NotNull SocketChannel socketChannel, @NotNull SSLEngine engine, @NotNull ByteBufferPool byteBufferPool,
+               @NotNull TransportMetrics metrics) throws SSLException {
+        this.socketChannel = socketChannel;
+        this.engine = engine;
+        this.byteBufferPool = byteBufferPool;
+        this.metrics = metrics;
+        SSLSession session = engine.getSession();
+        this.netIn = acquire(session.getPacketBufferSize());
+        this.appIn = acquire(session.getApplicationBufferSize());
+        this.netOut = acquire(session.getPacketBufferSize());
+        engine.beginHandshake();
+    }
+
+    /**
+     * 读入解密后的明文，握手期间返回0。
+     * @return 读到的字节数，-1表示对端已经关闭
+     */
+    @Override
+    public int read(@NotNull ByteBuffer dst) throws IOException {
+        int total = 0;
+        bufferedInput = false;
+        while (true) {
+            total += transfer(appIn, dst);
+            if (! dst.hasRemaining()) {
+                bufferedInput = appIn.hasRemaining() || netIn.hasRemaining();
+                return total;
+            }
+            if (inboundClosed) {
+                return total > 0 ? total : -1;
+            }
+            if (! handshake()) {
+                // 握手消息还没写完，等可写事件。
+                return total;
+            }
+            SSLEngineResult result = unwrap();
+            switch (result.getStatus()) {
+                case CLOSED:
+                    // 对端发来了close_notify。
+                    inboundClosed = true;
+                    break;
+                case BUFFER_OVERFLOW:
+                    appIn = grow(appIn, engine.getSession().getApplicationBufferSize());
+                    break;
+                case BUFFER_UNDERFLOW:
+                    int length = readSocket();
+                    if (length < 0) {
+                        inboundClosed = true;
+                    } else if (0 == length) {
+                        return total;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    @Override
+    public int write(@NotNull ByteBuffer src) throws IOException {
+        return (int) write(new ByteBuffer[] { src }, 0, 1);
+    }
+
+    @Override
+    public long write(@NotNull ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    /**
+     * 加密并写出明文，握手没有完成或者上一批密文还没写完时返回0。
+     * @return 已经加密的明文字节数，对应的密文可能还有一部分没有写出
+     */
+    @Override
+    public long write(@NotNull ByteBuffer[] srcs, int offset, int length) throws IOException {
+        if (! flushNetOut() || ! handshake() || SSLEngineResult.HandshakeStatus.NOT_HANDSHAKING != engine.getHandshakeStatus()) {
+            return 0;
+        }
+        long consumed = 0;
+        while (hasRemaining(srcs, offset, length)) {
+            SSLEngineResult result = wrap(srcs, offset, length);
+            if (SSLEngineResult.Status.CLOSED == result.getStatus()) {
+                throw new ClosedChannelException();
+            }
+            consumed += result.bytesConsumed();
+            if (! flushNetOut() || 0 == result.bytesConsumed() && 0 == result.bytesProduced()) {
+                break;
+            }
+        }
+        return consumed;
+    }
+
+    /**
+     * 推进握手并写出待发送的密文，客户端建立连接后以此发出ClientHello。
+     * @return 是否已经没有待发送的密文
+     */
+    boolean flush() throws IOException {
+        return handshake() && flushNetOut();
+    }
+
+    boolean isHandshakeComplete() {
+        return handshakeComplete;
+    }
+
+    /**
+     * 上一次读取是否因为调用方的缓冲区满了而留下了数据。
+     */
+    boolean hasBufferedInput() {
+        return bufferedInput;
+    }
+
+    boolean hasPendingOutput() {
+        return null != netOut && netOut.hasRemaining();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socketChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        release();
+        socketChannel.close();
+    }
+
+    /**
+     * 尽力发出close_notify，然后归还缓冲区，不关闭Socket。可以重复调用。
+     * 到这时还没有完成的握手计为失败。
+     */
+    void release() {
+        if (null == netOut) {
+            return;
+        }
+        if (! handshakeComplete) {
+            metrics.handshakeFailed();
+        }
+        try {
+            engine.closeOutbound();
+            if (socketChannel.isOpen() && flushNetOut()) {
+                wrap(EMPTY, 0, 1);
+                flushNetOut();
+            }
+        } catch (IOException e) {
+            // 对端可能已经断开，close_notify发不出去也无妨。
+        }
+        byteBufferPool.release(netIn);
+        byteBufferPool.release(appIn);
+        byteBufferPool.release(netOut);
+        netIn = null;
+        appIn = null;
+        netOut = null;
+    }
+
+    /**
+     * 执行握手中不需要读Socket的步骤：委派任务和发送握手消息。
+     * @return false表示握手消息还没有写完，需要等可写事件
+     */
+    private boolean handshake() throws IOException {
+        while (true) {
+            switch (engine.getHandshakeStatus()) {
+                case NEED_TASK:
+                    Runnable task;
+                    while (null != (task = engine.getDelegatedTask())) {
+                        task.run();
+                    }
+                    break;
+                case NEED_WRAP:
+                    if (! flushNetOut()) {
+                        return false;
+                    }
+                    if (SSLEngineResult.Status.CLOSED == wrap(EMPTY, 0, 1).getStatus()) {
+                        flushNetOut();
+                        throw new ClosedChannelException();
+                    }
+                    break;
+                default:
+                    flushNetOut();
+                    return true;
+            }
+        }
+    }
+
+    @NotNull
+    private SSLEngineResult unwrap() throws SSLException {
+        // 走到这里时appIn中的明文已经全部交给了调用方。
+        appIn.clear();
+        try {
+            return finished(engine.unwrap(netIn, appIn));
+        } finally {
+            appIn.flip();
+        }
+    }
+
+    @NotNull
+    private SSLEngineResult wrap(@NotNull ByteBuffer[] srcs, int offset, int length) throws SSLException {
+        netOut.compact();
+        try {
+            return finished(engine.wrap(srcs, offset, length, netOut));
+        } finally {
+            netOut.flip();
+        }
+    }
+
+    /**
+     * 握手完成时记录耗时和是否复用了会话，TLS 1.3握手之后的会话票据也会带FINISHED，只记录第一次。
+     */
+    @NotNull
+    private SSLEngineResult finished(@NotNull SSLEngineResult result) {
+        if (SSLEngineResult.HandshakeStatus.FINISHED == result.getHandshakeStatus() && ! handshakeComplete) {
+            handshakeComplete = true;
+            metrics.handshake(System.nanoTime() - handshakeStartNanos, TlsOptions.isResumed(engine.getSession(), handshakeStartMillis));
+        }
+        return result;
+    }
+
+    private int readSocket() throws IOException {
+        if (netIn.remaining() == netIn.capacity()) {
+            // 一条记录比缓冲区还大。
+            netIn = grow(netIn, netIn.capacity() * 2);
+        }
+        netIn.compact();
+        try {
+            return socketChannel.read(netIn);
+        } finally {
+            netIn.flip();
+        }
+    }
+
+    private boolean flushNetOut() throws IOException {
+        while (netOut.hasRemaining()) {
+            if (0 == socketChannel.write(netOut)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @NotNull
+    private ByteBuffer acquire(int capacity) {
+        ByteBuffer buffer = byteBufferPool.acquire(capacity);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * 换成至少capacity字节的缓冲区，未处理的数据随之复制过去。
+     */
+    @NotNull
+    private ByteBuffer grow(@NotNull ByteBuffer buffer, int capacity) {
+        if (buffer.capacity() >= capacity) {
+            capacity = buffer.capacity() * 2;
+        }
+        ByteBuffer larger = byteBufferPool.acquire(capacity);
+        larger.put(buffer).flip();
+        byteBufferPool.release(buffer);
+        return larger;
+    }
+
+    private static int transfer(@NotNull ByteBuffer src, @NotNull ByteBuffer dst) {
+        int length = Math.min(src.remaining(), dst.remaining());
+        if (length > 0) {
+            ByteBuffer slice = src.duplicate();
+            slice.limit(slice.position() + length);
+            dst.put(slice);
+            src.position(src.position() + length);
+        }
+        return length;
+    }
+
+    private static boolean hasRemaining(@NotNull ByteBuffer[] buffers, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (buffers[i].hasRemaining()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
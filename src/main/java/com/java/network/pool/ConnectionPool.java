@@ -0,0 +1,375 @@
+package com.java.network.pool;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.net.InetSocketAddress;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <p>
+ *     按host:port分组的客户端连接池。
+ * </p>
+ * <ul>
+ *     <li>每个目标和全局都有连接数上限，全局达到上限时优先关闭其他目标最久未用的空闲连接腾出名额；</li>
+ *     <li>取出和归还时做健康检查，空闲超时的连接由后台线程定期关闭；</li>
+ *     <li>没有可用连接且不能新建时排队等待，等待超时后获取失败。</li>
+ * </ul>
+ * <p>
+ *     池的状态由一把锁保护，建立连接、健康检查以及完成Future等回调都在锁外进行。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class ConnectionPool<C> implements Closeable {
+
+    private final PooledConnectionFactory<C> factory;
+
+    private final ConnectionPoolOptions options;
+
+    private final Map<InetSocketAddress, HostPool<C>> hosts = new HashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    private int totalConnections;
+
+    private boolean closed;
+
+    public ConnectionPool(@NotNull PooledConnectionFactory<C> factory, @NotNull ConnectionPoolOptions options) {
+        this.factory = factory;
+        this.options = options;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("connection-pool-%d").setDaemon(true).build());
+        long interval = Math.max(1, options.getIdleTimeoutMillis() / 2);
+        scheduler.scheduleWithFixedDelay(this::evictIdleConnections, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @NotNull
+    public CompletableFuture<PooledConnection<C>> acquire(@NotNull String host, int port) {
+        return acquire(InetSocketAddress.createUnresolved(host, port));
+    }
+
+    /**
+     * 获取一个到目标地址的连接，优先复用最近归还的空闲连接。
+     */
+    @NotNull
+    public CompletableFuture<PooledConnection<C>> acquire(@NotNull InetSocketAddress address) {
+        CompletableFuture<PooledConnection<C>> future = new CompletableFuture<>();
+        acquire(address, future);
+        return future;
+    }
+
+    private void acquire(InetSocketAddress address, CompletableFuture<PooledConnection<C>> future) {
+        while (true) {
+            IdleConnection<C> idle;
+            C evicted = null;
+            synchronized (this) {
+                if (closed) {
+                    future.completeExceptionally(new IllegalStateException("Connection pool closed"));
+                    return;
+                }
+                HostPool<C> hostPool = hosts.computeIfAbsent(address, key -> new HostPool<>());
+                idle = hostPool.idleConnections.pollLast();
+                if (null == idle) {
+                    if (hostPool.connections < options.getMaxConnectionsPerHost() && totalConnections >= options.getMaxConnections()) {
+                        evicted = evictOldestIdleConnection();
+                    }
+                    if (hostPool.connections < options.getMaxConnectionsPerHost() && totalConnections < options.getMaxConnections()) {
+                        hostPool.connections++;
+                        totalConnections++;
+                    } else {
+                        enqueue(hostPool, address, future);
+                        return;
+                    }
+                }
+            }
+
+            if (null == idle) {
+                if (null != evicted) {
+                    factory.close(evicted);
+                }
+                connect(address, future);
+                return;
+            }
+            if (factory.isHealthy(idle.connection)) {
+                complete(address, idle.connection, future);
+                return;
+            }
+            // 空闲期间已经失效的连接直接丢弃，再取下一个。
+            discard(address, idle.connection);
+        }
+    }
+
+    private void enqueue(HostPool<C> hostPool, InetSocketAddress address, CompletableFuture<PooledConnection<C>> future) {
+        if (hostPool.waiters.size() >= options.getMaxPendingAcquires()) {
+            future.completeExceptionally(new RejectedExecutionException("Too many pending acquires for " + address));
+            return;
+        }
+        Waiter<C> waiter = new Waiter<>(future);
+        hostPool.waiters.offer(waiter);
+        waiter.timeout = scheduler.schedule(() -> {
+            synchronized (this) {
+                hostPool.waiters.remove(waiter);
+            }
+            future.completeExceptionally(new TimeoutException("Acquire timed out for " + address));
+        }, options.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void connect(InetSocketAddress address, CompletableFuture<PooledConnection<C>> future) {
+        CompletableFuture<C> connectFuture;
+        try {
+            connectFuture = factory.connect(address);
+        } catch (Exception e) {
+            connectFuture = new CompletableFuture<>();
+            connectFuture.completeExceptionally(e);
+        }
+        connectFuture.whenComplete((connection, cause) -> {
+            if (null != cause) {
+                synchronized (this) {
+                    decrement(address);
+                }
+                future.completeExceptionally(cause);
+                dispatchWaiters();
+            } else {
+                complete(address, connection, future);
+            }
+        });
+    }
+
+    private void complete(InetSocketAddress address, C connection, CompletableFuture<PooledConnection<C>> future) {
+        if (! future.complete(new PooledConnection<>(this, address, connection))) {
+            // 获取方已经取消或者超时，连接还回池中。
+            release(address, connection);
+        }
+    }
+
+    void release(@NotNull InetSocketAddress address, @NotNull C connection) {
+        if (! factory.isHealthy(connection)) {
+            invalidate(address, connection);
+            return;
+        }
+
+        Waiter<C> waiter;
+        boolean close = false;
+        synchronized (this) {
+            HostPool<C> hostPool = hosts.get(address);
+            waiter = pollWaiter(hostPool);
+            if (null == waiter) {
+                if (closed || (totalConnections >= options.getMaxConnections() && hasDispatchableWaiters())) {
+                    // 其他目标还在等全局名额，并且自己的连接数没有达到上限，关闭这个连接让给它们。
+                    close = true;
+                } else {
+                    hostPool.idleConnections.offerLast(new IdleConnection<>(connection, System.currentTimeMillis()));
+                }
+            }
+        }
+
+        if (close) {
+            invalidate(address, connection);
+        } else if (null != waiter) {
+            waiter.timeout.cancel(false);
+            complete(address, connection, waiter.future);
+        }
+    }
+
+    void invalidate(@NotNull InetSocketAddress address, @NotNull C connection) {
+        discard(address, connection);
+        dispatchWaiters();
+    }
+
+    private void discard(InetSocketAddress address, C connection) {
+        synchronized (this) {
+            decrement(address);
+        }
+        factory.close(connection);
+    }
+
+    /**
+     * 有名额空出来以后，为排队的获取请求新建连接。
+     */
+    private void dispatchWaiters() {
+        List<Map.Entry<InetSocketAddress, Waiter<C>>> dispatched = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<InetSocketAddress, HostPool<C>> entry : hosts.entrySet()) {
+                HostPool<C> hostPool = entry.getValue();
+                while (! hostPool.waiters.isEmpty() && hostPool.connections < options.getMaxConnectionsPerHost()
+                        && totalConnections < options.getMaxConnections()) {
+                    Waiter<C> waiter = pollWaiter(hostPool);
+                    if (null == waiter) {
+                        break;
+                    }
+                    hostPool.connections++;
+                    totalConnections++;
+                    dispatched.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), waiter));
+                }
+            }
+        }
+        for (Map.Entry<InetSocketAddress, Waiter<C>> entry : dispatched) {
+            entry.getValue().timeout.cancel(false);
+            connect(entry.getKey(), entry.getValue().future);
+        }
+    }
+
+    private void evictIdleConnections() {
+        List<C> evicted = new ArrayList<>();
+        synchronized (this) {
+            long deadline = System.currentTimeMillis() - options.getIdleTimeoutMillis();
+            for (HostPool<C> hostPool : hosts.values()) {
+                IdleConnection<C> idle;
+                while (null != (idle = hostPool.idleConnections.peekFirst()) && idle.idleSinceMillis <= deadline) {
+                    hostPool.idleConnections.pollFirst();
+                    hostPool.connections--;
+                    totalConnections--;
+                    evicted.add(idle.connection);
+                }
+            }
+            hosts.values().removeIf(HostPool::isEmpty);
+        }
+        for (C connection : evicted) {
+            factory.close(connection);
+        }
+        if (! evicted.isEmpty()) {
+            dispatchWaiters();
+        }
+    }
+
+    /**
+     * 关闭所有目标中空闲最久的连接，调用方必须持有锁。
+     */
+    private C evictOldestIdleConnection() {
+        HostPool<C> oldest = null;
+        for (HostPool<C> hostPool : hosts.values()) {
+            IdleConnection<C> idle = hostPool.idleConnections.peekFirst();
+            if (null != idle && (null == oldest || idle.idleSinceMillis < oldest.idleConnections.peekFirst().idleSinceMillis)) {
+                oldest = hostPool;
+            }
+        }
+        if (null == oldest) {
+            return null;
+        }
+        oldest.connections--;
+        totalConnections--;
+        return oldest.idleConnections.pollFirst().connection;
+    }
+
+    private Waiter<C> pollWaiter(HostPool<C> hostPool) {
+        Waiter<C> waiter;
+        while (null != (waiter = hostPool.waiters.poll())) {
+            if (! waiter.future.isDone()) {
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 是否有目标在排队、并且空出一个全局名额后{@link #dispatchWaiters()}就能为它新建连接，调用方必须持有锁。
+     */
+    private boolean hasDispatchableWaiters() {
+        for (HostPool<C> hostPool : hosts.values()) {
+            if (! hostPool.waiters.isEmpty() && hostPool.connections < options.getMaxConnectionsPerHost()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void decrement(InetSocketAddress address) {
+        HostPool<C> hostPool = hosts.get(address);
+        hostPool.connections--;
+        totalConnections--;
+    }
+
+    /**
+     * 当前打开的连接数，包括借出的、空闲的和正在建立的。
+     */
+    public synchronized int totalConnections() {
+        return totalConnections;
+    }
+
+    /**
+     * 关闭所有空闲连接并让排队的获取请求失败，借出的连接在归还时关闭。
+     */
+    @Override
+    public void close() {
+        List<C> idleConnections = new ArrayList<>();
+        List<Waiter<C>> waiters = new ArrayList<>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (HostPool<C> hostPool : hosts.values()) {
+                for (IdleConnection<C> idle : hostPool.idleConnections) {
+                    idleConnections.add(idle.connection);
+                }
+                hostPool.connections -= hostPool.idleConnections.size();
+                totalConnections -= hostPool.idleConnections.size();
+                hostPool.idleConnections.clear();
+                waiters.addAll(hostPool.waiters);
+                hostPool.waiters.clear();
+            }
+        }
+        scheduler.shutdownNow();
+        for (C connection : idleConnections) {
+            factory.close(connection);
+        }
+        for (Waiter<C> waiter : waiters) {
+            waiter.future.completeExceptionally(new IllegalStateException("Connection pool closed"));
+        }
+    }
+
+    private static class HostPool<C> {
+
+        private final Deque<IdleConnection<C>> idleConnections = new ArrayDeque<>();
+
+        private final Queue<Waiter<C>> waiters = new ArrayDeque<>();
+
+        /**
+         * 这个目标上打开的连接数，包括借出的、空闲的和正在建立的。
+         */
+        private int connections;
+
+        private boolean isEmpty() {
+            return 0 == connections && waiters.isEmpty();
+        }
+    }
+
+    private static class IdleConnection<C> {
+
+        private final C connection;
+
+        private final long idleSinceMillis;
+
+        private IdleConnection(C connection, long idleSinceMillis) {
+            this.connection = connection;
+            this.idleSinceMillis = idleSinceMillis;
+        }
+    }
+
+    private static class Waiter<C> {
+
+        private final CompletableFuture<PooledConnection<C>> future;
+
+        private ScheduledFuture<?> timeout;
+
+        private Waiter(CompletableFuture<PooledConnection<C>> future) {
+            this.future = future;
+        }
+    }
+}
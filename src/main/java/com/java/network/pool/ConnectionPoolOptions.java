@@ -0,0 +1,97 @@
+package com.java.network.pool;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     连接池的配置。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class ConnectionPoolOptions {
+
+    private int maxConnectionsPerHost = 8;
+
+    private int maxConnections = 64;
+
+    private int maxPendingAcquires = 1024;
+
+    private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+    private long acquireTimeoutMillis = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * 每个host:port最多同时打开的连接数。
+     */
+    public ConnectionPoolOptions maxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = requirePositive(maxConnectionsPerHost, "maxConnectionsPerHost");
+        return this;
+    }
+
+    /**
+     * 所有目标加起来最多同时打开的连接数。
+     */
+    public ConnectionPoolOptions maxConnections(int maxConnections) {
+        this.maxConnections = requirePositive(maxConnections, "maxConnections");
+        return this;
+    }
+
+    /**
+     * 连接数达到上限时，最多允许多少个获取请求排队等待。
+     */
+    public ConnectionPoolOptions maxPendingAcquires(int maxPendingAcquires) {
+        this.maxPendingAcquires = requirePositive(maxPendingAcquires, "maxPendingAcquires");
+        return this;
+    }
+
+    /**
+     * 空闲连接保留多久后关闭。
+     */
+    public ConnectionPoolOptions idleTimeout(long timeout, TimeUnit unit) {
+        this.idleTimeoutMillis = unit.toMillis(requirePositive(timeout, "timeout"));
+        return this;
+    }
+
+    /**
+     * 排队等待连接的最长时间，超时后获取失败。
+     */
+    public ConnectionPoolOptions acquireTimeout(long timeout, TimeUnit unit) {
+        this.acquireTimeoutMillis = unit.toMillis(requirePositive(timeout, "timeout"));
+        return this;
+    }
+
+    public int getMaxConnectionsPerHost() {
+        return maxConnectionsPerHost;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getMaxPendingAcquires() {
+        return maxPendingAcquires;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    private static long requirePositive(long value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
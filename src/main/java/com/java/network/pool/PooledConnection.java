@@ -0,0 +1,58 @@
+package com.java.network.pool;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * <p>
+ *     从{@link ConnectionPool}中借出的连接。用完后必须调用{@link #release()}或{@link #invalidate()}之一，且只能调用一次。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class PooledConnection<C> {
+
+    private final ConnectionPool<C> pool;
+
+    private final InetSocketAddress address;
+
+    private final C connection;
+
+    private final AtomicBoolean returned = new AtomicBoolean();
+
+    PooledConnection(@NotNull ConnectionPool<C> pool, @NotNull InetSocketAddress address, @NotNull C connection) {
+        this.pool = pool;
+        this.address = address;
+        this.connection = connection;
+    }
+
+    @NotNull
+    public C connection() {
+        return connection;
+    }
+
+    @NotNull
+    public InetSocketAddress address() {
+        return address;
+    }
+
+    /**
+     * 归还连接，供后续请求复用。
+     */
+    public void release() {
+        if (returned.compareAndSet(false, true)) {
+            pool.release(address, connection);
+        }
+    }
+
+    /**
+     * 连接已不可用（对端要求关闭、协议出错等），关闭它并释放名额。
+     */
+    public void invalidate() {
+        if (returned.compareAndSet(false, true)) {
+            pool.invalidate(address, connection);
+        }
+    }
+}
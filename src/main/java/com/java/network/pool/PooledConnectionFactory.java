@@ -0,0 +1,29 @@
+package com.java.network.pool;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     由具体的客户端实现，告诉{@link ConnectionPool}如何建立、检查和关闭连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public interface PooledConnectionFactory<C> {
+
+    /**
+     * 异步建立到目标地址的连接，地址中的主机名尚未解析。
+     */
+    @NotNull
+    CompletableFuture<C> connect(@NotNull InetSocketAddress address);
+
+    /**
+     * 连接在被取出或归还时调用，返回false的连接会被关闭而不是复用。
+     */
+    boolean isHealthy(@NotNull C connection);
+
+    void close(@NotNull C connection);
+}
@@ -0,0 +1,122 @@
+package com.java.network.rpc;
+
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.timer.Timeout;
+import org.jetbrains.annotations.NotNull;
+
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ *     客户端一个连接上正在进行的RPC，按stream关联请求和响应，响应可以以任意顺序到达。
+ *     可以在任意线程中调用。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class RpcCalls {
+
+    private final ConcurrentMap<Integer, Call> calls = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextStreamId = new AtomicInteger();
+
+    private final TransportMetrics metrics;
+
+    public RpcCalls(@NotNull TransportMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 为一次请求分配stream，返回的{@link Call}同时是这次请求的响应超时任务，由调用方调度。
+     */
+    @NotNull
+    public Call start(@NotNull CompletableFuture<ByteBuffer> future) {
+        while (true) {
+            // stream只需要在连接上正在进行的请求之间唯一，回绕后跳过仍在使用的值。
+            int streamId = nextStreamId.incrementAndGet() & Integer.MAX_VALUE;
+            Call call = new Call(streamId, future);
+            if (null == calls.putIfAbsent(streamId, call)) {
+                return call;
+            }
+        }
+    }
+
+    /**
+     * 收到响应，取出对应的请求。请求已经超时或者失败时返回null，响应直接丢弃。
+     */
+    public Call finish(int streamId) {
+        return calls.remove(streamId);
+    }
+
+    public int size() {
+        return calls.size();
+    }
+
+    /**
+     * 连接断开，所有正在进行的请求以cause失败。
+     * @return 失败的请求，调用方据此取消它们的超时任务
+     */
+    @NotNull
+    public Iterable<Call> failAll(@NotNull Throwable cause) {
+        List<Call> failed = new ArrayList<>(calls.values());
+        for (Call call : failed) {
+            if (calls.remove(call.streamId, call)) {
+                call.fail(cause);
+            }
+        }
+        return failed;
+    }
+
+    /**
+     * 一次RPC：等待响应的Future和开始时间。
+     */
+    public final class Call extends Timeout {
+
+        private final int streamId;
+
+        private final CompletableFuture<ByteBuffer> future;
+
+        private final long startNanos = System.nanoTime();
+
+        private Call(int streamId, @NotNull CompletableFuture<ByteBuffer> future) {
+            this.streamId = streamId;
+            this.future = future;
+        }
+
+        public int streamId() {
+            return streamId;
+        }
+
+        /**
+         * 以响应帧完成请求。
+         */
+        public void complete(byte type, @NotNull ByteBuffer payload) {
+            metrics.request(System.nanoTime() - startNanos);
+            if (RpcFrames.ERROR == type) {
+                future.completeExceptionally(RpcFrames.error(payload));
+            } else {
+                future.complete(payload);
+            }
+        }
+
+        public void fail(@NotNull Throwable cause) {
+            future.completeExceptionally(cause);
+        }
+
+        @Override
+        protected void onTimeout() {
+            // 响应和超时同时发生时只处理先到的一方。
+            if (calls.remove(streamId, this)) {
+                metrics.timeout();
+                future.completeExceptionally(new SocketTimeoutException("Response timed out"));
+            }
+        }
+    }
+}
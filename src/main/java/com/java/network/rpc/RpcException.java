@@ -0,0 +1,19 @@
+package com.java.network.rpc;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ *     RPC失败：对端返回了错误帧，或者收到的帧格式不正确。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class RpcException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    public RpcException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,150 @@
+package com.java.network.rpc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * <p>
+ *     RPC帧的格式，所有整数都是大端序：
+ * </p>
+ * <pre>
+ * +----------+--------+-----------+-----------+---------+
+ * | length 4 | type 1 | stream 4  | method 4  | payload |
+ * +----------+--------+-----------+-----------+---------+
+ * </pre>
+ * <p>
+ *     length是它之后的字节数。请求和响应用同一个stream关联，一个连接上可以同时有多个请求，响应的顺序不固定。
+ *     响应帧带回请求的stream和method，错误帧的payload是UTF-8编码的错误信息。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class RpcFrames {
+
+    public static final byte REQUEST = 0;
+
+    public static final byte RESPONSE = 1;
+
+    public static final byte ERROR = 2;
+
+    /**
+     * 长度字段的字节数。
+     */
+    public static final int LENGTH_FIELD_LENGTH = 4;
+
+    /**
+     * 长度字段之后、payload之前的字节数。
+     */
+    public static final int HEADER_LENGTH = 9;
+
+    public static final int DEFAULT_MAX_FRAME_LENGTH = 1024 * 1024;
+
+    private RpcFrames() {
+    }
+
+    /**
+     * 读取position处的帧的总长度（含长度字段），不移动position。
+     * @return 长度字段还没有收全时返回0
+     * @throws RpcException 长度不合法
+     */
+    public static int frameLength(@NotNull ByteBuffer in, int maxFrameLength) throws RpcException {
+        if (in.remaining() < LENGTH_FIELD_LENGTH) {
+            return 0;
+        }
+        int length = in.getInt(in.position());
+        if (length < HEADER_LENGTH || length > maxFrameLength - LENGTH_FIELD_LENGTH) {
+            throw new RpcException("Invalid frame length: " + length);
+        }
+        return LENGTH_FIELD_LENGTH + length;
+    }
+
+    public static byte type(@NotNull ByteBuffer frame) {
+        return frame.get(frame.position() + LENGTH_FIELD_LENGTH);
+    }
+
+    public static int streamId(@NotNull ByteBuffer frame) {
+        return frame.getInt(frame.position() + LENGTH_FIELD_LENGTH + 1);
+    }
+
+    public static int methodId(@NotNull ByteBuffer frame) {
+        return frame.getInt(frame.position() + LENGTH_FIELD_LENGTH + 5);
+    }
+
+    /**
+     * position处长度为frameLength的帧的payload，与原缓冲区共享内容。
+     */
+    @NotNull
+    public static ByteBuffer payload(@NotNull ByteBuffer frame, int frameLength) {
+        ByteBuffer payload = frame.duplicate();
+        int start = frame.position() + LENGTH_FIELD_LENGTH + HEADER_LENGTH;
+        payload.limit(frame.position() + frameLength).position(start);
+        return payload.slice();
+    }
+
+    /**
+     * 把一帧写入out，不改变payload的position。
+     */
+    public static void encode(@NotNull ByteBuffer out, byte type, int streamId, int methodId, @NotNull ByteBuffer payload) {
+        out.putInt(HEADER_LENGTH + payload.remaining())
+                .put(type)
+                .putInt(streamId)
+                .putInt(methodId)
+                .put(payload.duplicate());
+    }
+
+    /**
+     * 编码后的总长度。
+     */
+    public static int encodedLength(int payloadLength) {
+        return LENGTH_FIELD_LENGTH + HEADER_LENGTH + payloadLength;
+    }
+
+    /**
+     * 调用服务，把同步抛出的异常和返回null也转换成失败的Future。
+     */
+    @NotNull
+    public static CompletableFuture<ByteBuffer> invoke(@NotNull RpcService service, int methodId, @NotNull ByteBuffer payload) {
+        try {
+            CompletableFuture<ByteBuffer> future = service.call(methodId, payload);
+            if (null != future) {
+                return future;
+            }
+            throw new NullPointerException("RpcService returned null for method " + methodId);
+        } catch (Throwable e) {
+            CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    /**
+     * 错误帧的payload。
+     */
+    @NotNull
+    public static ByteBuffer errorPayload(@NotNull Throwable cause) {
+        Throwable error = cause instanceof CompletionException && null != cause.getCause() ? cause.getCause() : cause;
+        return errorPayload(null == error.getMessage() ? error.getClass().getName() : error.getMessage());
+    }
+
+    /**
+     * 以message为内容的错误帧的payload。
+     */
+    @NotNull
+    public static ByteBuffer errorPayload(@NotNull String message) {
+        return ByteBuffer.wrap(message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 由错误帧的payload还原出异常。
+     */
+    @NotNull
+    public static RpcException error(@NotNull ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.duplicate().get(bytes);
+        return new RpcException(new String(bytes, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,28 @@
+package com.java.network.rpc;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ *     服务端的RPC实现，设置到{@link com.java.network.server.ServerOptions#rpcService}后，服务端改用二进制帧通信。
+ * </p>
+ * <p>
+ *     在I/O线程中调用，不能阻塞：耗时的处理应当交给其他线程，返回尚未完成的Future，
+ *     同一连接上后面的请求不必等待它，响应按完成的先后写回。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+@FunctionalInterface
+public interface RpcService {
+
+    /**
+     * @param payload 请求体，只在调用期间有效，异步处理时需要先复制
+     * @return 读模式的响应体；以异常完成时向调用方返回错误帧，内容为异常信息
+     */
+    @NotNull
+    CompletableFuture<ByteBuffer> call(int methodId, @NotNull ByteBuffer payload);
+}
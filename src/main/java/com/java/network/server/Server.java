@@ -0,0 +1,57 @@
+package com.java.network.server;
+
+import com.java.network.log.AsyncLogger;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     三种服务端共同的生命周期：{@link #start}绑定端口后立即返回，{@link #stop}优雅关闭，
+ *     {@link #awaitTermination()}等待关闭完成。每个实例只能启动一次。
+ * </p>
+ * <p>
+ *     优雅关闭先停止接入新连接，再让已有连接收尾：空闲的长连接立即关闭；正在处理的请求照常完成，
+ *     之后的响应带上Connection: close，待发送的数据写完后关闭连接。超时仍未关闭的连接被强制关闭，
+ *     最后释放Selector、线程池和事件循环。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public interface Server {
+
+    /**
+     * 绑定端口并开始接入连接。端口绑定完成后返回，不阻塞调用线程。
+     * @throws IllegalStateException 已经启动过
+     */
+    void start(int port) throws IOException;
+
+    /**
+     * 优雅关闭，阻塞到关闭完成。多次调用时后面的调用等待第一次关闭完成，返回同一个结果。
+     * @param timeout 等待已有连接收尾的最长时间，超过后强制关闭剩下的连接
+     */
+    @NotNull
+    ShutdownReport stop(long timeout, @NotNull TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 阻塞到{@link #stop}完成。
+     */
+    void awaitTermination() throws InterruptedException;
+
+    /**
+     * 注册JVM关闭钩子，进程收到SIGTERM等信号时优雅关闭服务端，用于滚动发布。
+     * 关闭结果由服务端写入日志，之后关闭{@link AsyncLogger#getDefault()}，保证进程退出前日志已经写完。
+     */
+    static void stopOnShutdown(@NotNull Server server, long timeout, @NotNull TimeUnit unit) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop(timeout, unit);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                AsyncLogger.getDefault().close();
+            }
+        }, "server-shutdown"));
+    }
+}
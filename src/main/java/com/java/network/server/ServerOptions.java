@@ -0,0 +1,400 @@
+package com.java.network.server;
+
+import com.java.network.admission.AdmissionControl;
+import com.java.network.cache.ResponseCache;
+import com.java.network.rpc.RpcFrames;
+import com.java.network.rpc.RpcService;
+import com.java.network.tls.TlsOptions;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     三种服务端共用的配置。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public class ServerOptions {
+
+    private long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(60);
+
+    private long readTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+    private long writeTimeoutMillis = TimeUnit.SECONDS.toMillis(30);
+
+    private int maxRequestsPerConnection = Integer.MAX_VALUE;
+
+    private int writeBufferLowWaterMark = 32 * 1024;
+
+    private int writeBufferHighWaterMark = 64 * 1024;
+
+    private Path documentRoot;
+
+    private int maxMappedFileSize = 64 * 1024;
+
+    private long mappedFileCacheSize = 32L * 1024 * 1024;
+
+    private boolean compression;
+
+    private int compressionMinSize = 1024;
+
+    private long maxCompressedFileSize = 8L * 1024 * 1024;
+
+    private long compressedCacheSize = 32L * 1024 * 1024;
+
+    private int compressionLevel = 6;
+
+    private ResponseCache responseCache;
+
+    private RpcService rpcService;
+
+    private int maxFrameLength = RpcFrames.DEFAULT_MAX_FRAME_LENGTH;
+
+    private int minReadSize = 64;
+
+    private int initialReadSize = 2048;
+
+    private int maxReadSize = 64 * 1024;
+
+    private int maxReadsPerEvent = 16;
+
+    private int receiveBufferSize;
+
+    private int sendBufferSize;
+
+    private boolean tcpNoDelay = true;
+
+    private int backlog = 1024;
+
+    private boolean reuseAddress = true;
+
+    private TlsOptions tls;
+
+    private AdmissionControl admission;
+
+    /**
+     * 长连接空闲多久后关闭。
+     */
+    public ServerOptions idleTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        this.idleTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * 一个请求已经开始接收后，多久收不到后续数据就关闭连接。
+     */
+    public ServerOptions readTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        this.readTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * 有响应等待发送时，多久没有写出任何数据就关闭连接。
+     */
+    public ServerOptions writeTimeout(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
+        }
+        this.writeTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * 单个连接最多处理多少个请求，达到后在最后一个响应中带上Connection: close。
+     */
+    public ServerOptions maxRequestsPerConnection(int maxRequestsPerConnection) {
+        if (maxRequestsPerConnection <= 0) {
+            throw new IllegalArgumentException("maxRequestsPerConnection must be positive: " + maxRequestsPerConnection);
+        }
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        return this;
+    }
+
+    /**
+     * 单个连接待发送数据的水位。超过高水位后暂停读取这个连接的新请求，回落到低水位以下再恢复。
+     */
+    public ServerOptions writeBufferWaterMark(int low, int high) {
+        if (low < 0 || high < low) {
+            throw new IllegalArgumentException(String.format("Invalid write buffer water mark: low %d, high %d", low, high));
+        }
+        this.writeBufferLowWaterMark = low;
+        this.writeBufferHighWaterMark = high;
+        return this;
+    }
+
+    /**
+     * 静态文件的根目录。不设置时服务端对所有请求返回固定的响应。
+     */
+    public ServerOptions documentRoot(Path documentRoot) {
+        this.documentRoot = documentRoot;
+        return this;
+    }
+
+    /**
+     * 内存映射缓存的大小。不超过maxFileSize的文件映射到内存后缓存起来，总大小不超过cacheSize，
+     * cacheSize为0时不缓存，所有文件都通过sendfile发送。
+     */
+    public ServerOptions mappedFileCache(int maxFileSize, long cacheSize) {
+        if (maxFileSize < 0 || cacheSize < 0) {
+            throw new IllegalArgumentException("maxFileSize and cacheSize must not be negative");
+        }
+        this.maxMappedFileSize = maxFileSize;
+        this.mappedFileCacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * 按Accept-Encoding以gzip或deflate压缩文本类的静态文件。小于minSize的文件压缩得不偿失，大于maxFileSize的文件
+     * 仍以sendfile原样发送；压缩结果缓存起来，总大小不超过cacheSize。带Range的请求总是返回原始内容。
+     */
+    public ServerOptions compression(int minSize, long maxFileSize, long cacheSize) {
+        if (minSize < 0 || maxFileSize < minSize || cacheSize < 0) {
+            throw new IllegalArgumentException(String.format("Invalid compression sizes: min %d, max %d, cache %d",
+                    minSize, maxFileSize, cacheSize));
+        }
+        this.compression = true;
+        this.compressionMinSize = minSize;
+        this.maxCompressedFileSize = maxFileSize;
+        this.compressedCacheSize = cacheSize;
+        return this;
+    }
+
+    /**
+     * 压缩级别，1最快，9压缩率最高。
+     */
+    public ServerOptions compressionLevel(int compressionLevel) {
+        if (compressionLevel < 1 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compressionLevel must be between 1 and 9: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+        return this;
+    }
+
+    /**
+     * 静态文件的响应缓存。同一个实例可以交给多个服务端，它们的文档目录应当相同。
+     */
+    public ServerOptions responseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+        return this;
+    }
+
+    /**
+     * 设置后服务端不再处理HTTP，改用{@link RpcFrames}定义的二进制帧，请求交给rpcService处理。
+     * 目前只有NonBlockingServer和NettyServer支持。
+     */
+    public ServerOptions rpcService(RpcService rpcService) {
+        this.rpcService = rpcService;
+        return this;
+    }
+
+    /**
+     * 单个RPC帧的最大字节数，包括长度字段，超过时关闭连接。
+     */
+    public ServerOptions maxFrameLength(int maxFrameLength) {
+        if (maxFrameLength < RpcFrames.encodedLength(0)) {
+            throw new IllegalArgumentException("maxFrameLength too small: " + maxFrameLength);
+        }
+        this.maxFrameLength = maxFrameLength;
+        return this;
+    }
+
+    /**
+     * 每个连接单次读取的字节数在[min, max]之间按最近读到的数据量自适应调整，新连接从initial开始。
+     */
+    public ServerOptions readSize(int min, int initial, int max) {
+        if (min <= 0 || initial < min || max < initial) {
+            throw new IllegalArgumentException("Invalid read size: min=" + min + ", initial=" + initial + ", max=" + max);
+        }
+        this.minReadSize = min;
+        this.initialReadSize = initial;
+        this.maxReadSize = max;
+        return this;
+    }
+
+    /**
+     * 一次就绪事件中同一个连接最多连续读几次，读到没有数据为止，用完后先处理其他连接。
+     */
+    public ServerOptions maxReadsPerEvent(int maxReadsPerEvent) {
+        if (maxReadsPerEvent <= 0) {
+            throw new IllegalArgumentException("maxReadsPerEvent must be positive: " + maxReadsPerEvent);
+        }
+        this.maxReadsPerEvent = maxReadsPerEvent;
+        return this;
+    }
+
+    /**
+     * 连接的SO_RCVBUF和SO_SNDBUF，0表示使用系统默认值。
+     * 接收缓冲区设置在监听Socket上，超过64KB时才能在握手阶段协商窗口缩放。
+     */
+    public ServerOptions socketBuffers(int receiveBufferSize, int sendBufferSize) {
+        if (receiveBufferSize < 0 || sendBufferSize < 0) {
+            throw new IllegalArgumentException("Socket buffer size must not be negative");
+        }
+        this.receiveBufferSize = receiveBufferSize;
+        this.sendBufferSize = sendBufferSize;
+        return this;
+    }
+
+    /**
+     * 是否关闭Nagle算法，默认关闭，小响应不等待前一个段的ACK。
+     */
+    public ServerOptions tcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+        return this;
+    }
+
+    /**
+     * 已完成握手、等待accept的连接队列长度，实际值不超过系统的somaxconn。
+     */
+    public ServerOptions backlog(int backlog) {
+        if (backlog <= 0) {
+            throw new IllegalArgumentException("backlog must be positive: " + backlog);
+        }
+        this.backlog = backlog;
+        return this;
+    }
+
+    /**
+     * 监听Socket的SO_REUSEADDR，默认打开，重启时端口上还有TIME_WAIT的连接也能绑定。
+     */
+    public ServerOptions reuseAddress(boolean reuseAddress) {
+        this.reuseAddress = reuseAddress;
+        return this;
+    }
+
+    /**
+     * 设置后所有连接都要先完成TLS握手，tls中必须有服务端证书。
+     */
+    public ServerOptions tls(TlsOptions tls) {
+        this.tls = tls;
+        return this;
+    }
+
+    /**
+     * 连接数上限、按客户端限速和自适应并发限制，默认都不启用。一个实例只能交给一个服务端。
+     */
+    public ServerOptions admission(AdmissionControl admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public long getWriteTimeoutMillis() {
+        return writeTimeoutMillis;
+    }
+
+    public int getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public Path getDocumentRoot() {
+        return documentRoot;
+    }
+
+    public int getMaxMappedFileSize() {
+        return maxMappedFileSize;
+    }
+
+    public long getMappedFileCacheSize() {
+        return mappedFileCacheSize;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public long getMaxCompressedFileSize() {
+        return maxCompressedFileSize;
+    }
+
+    public long getCompressedCacheSize() {
+        return compressedCacheSize;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public RpcService getRpcService() {
+        return rpcService;
+    }
+
+    public int getMaxFrameLength() {
+        return maxFrameLength;
+    }
+
+    public int getMinReadSize() {
+        return minReadSize;
+    }
+
+    public int getInitialReadSize() {
+        return initialReadSize;
+    }
+
+    public int getMaxReadSize() {
+        return maxReadSize;
+    }
+
+    public int getMaxReadsPerEvent() {
+        return maxReadsPerEvent;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public boolean isReuseAddress() {
+        return reuseAddress;
+    }
+
+    public TlsOptions getTls() {
+        return tls;
+    }
+
+    public AdmissionControl getAdmission() {
+        return admission;
+    }
+}
@@ -0,0 +1,48 @@
+package com.java.network.server;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     一次优雅关闭的结果：停止接入时还有多少连接，其中多少在超时前收尾关闭，多少被强制关闭。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public final class ShutdownReport {
+
+    private final int drained;
+
+    private final int forced;
+
+    private final long elapsedNanos;
+
+    public ShutdownReport(int drained, int forced, long elapsedNanos) {
+        this.drained = drained;
+        this.forced = forced;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * 在超时前完成收尾、正常关闭的连接数。
+     */
+    public int getDrained() {
+        return drained;
+    }
+
+    /**
+     * 超时后被强制关闭的连接数，这些连接上的请求可能没有收到响应。
+     */
+    public int getForced() {
+        return forced;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("drained=%d forced=%d elapsed=%dms", drained, forced, getElapsedMillis());
+    }
+}
@@ -0,0 +1,90 @@
+package com.java.network.socket;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     阻塞Socket方式下处理连接的线程模型。每个连接在一个任务中完成全部阻塞读写，
+ *     所以线程模型决定了能同时处理多少连接。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+@FunctionalInterface
+public interface ExecutorStrategy {
+
+    /**
+     * 创建执行器。
+     * @param name 线程名前缀
+     */
+    @NotNull
+    ExecutorService create(@NotNull String name);
+
+    /**
+     * 线程池满时的处理方式。
+     */
+    enum Rejection {
+        /**
+         * 提交任务的线程（通常是接入线程）阻塞到有线程空闲、队列空出位置为止，期间不再接入新连接，形成背压。
+         * 连接始终在线程池中处理：长连接会占住处理它的线程直到关闭，不能让接入线程去处理。
+         */
+        BLOCK,
+        /**
+         * 抛出{@link RejectedExecutionException}，由调用方立即拒绝连接。
+         */
+        ABORT
+    }
+
+    /**
+     * 每个连接一个虚拟线程（JDK 21及以上）。运行在更早的JDK上时退化为每个连接一个平台线程，
+     * 线程空闲60秒后回收。
+     */
+    @NotNull
+    static ExecutorStrategy virtualThreadPerConnection() {
+        return name -> {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) method.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(name + "-%d").build());
+            }
+        };
+    }
+
+    /**
+     * 有界队列的平台线程池。队列满后才会把线程数扩到{@code maximumPoolSize}，线程和队列都满时按{@code rejection}处理。
+     * @param queueCapacity 为0时不排队，直接交给空闲线程或新建线程
+     */
+    @NotNull
+    static ExecutorStrategy boundedPool(int corePoolSize, int maximumPoolSize, int queueCapacity, @NotNull Rejection rejection) {
+        if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize || queueCapacity < 0) {
+            throw new IllegalArgumentException("Illegal pool size or queue capacity");
+        }
+        RejectedExecutionHandler handler = Rejection.ABORT == rejection ? new ThreadPoolExecutor.AbortPolicy() : (task, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor has been shut down");
+            }
+            // 线程数已经到了上限，等其中一个线程处理完手上的连接回来取任务。
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a worker", e);
+            }
+        };
+        return name -> new ThreadPoolExecutor(corePoolSize, maximumPoolSize, 60L, TimeUnit.SECONDS,
+                0 == queueCapacity ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(queueCapacity),
+                new ThreadFactoryBuilder().setNameFormat(name + "-%d").build(), handler);
+    }
+}
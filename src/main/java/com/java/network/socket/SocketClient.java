@@ -1,42 +1,170 @@
 package com.java.network.socket;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.client.ClientOptions;
+import com.java.network.client.HappyEyeballs;
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpStreams;
+import com.java.network.load.LoadGenerator;
+import com.java.network.load.LoadOptions;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.timer.TimerThread;
+import com.java.network.tls.TlsOptions;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import javax.net.ssl.SSLSocket;
 import java.io.*;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.net.SocketAddress;
-import java.util.concurrent.*;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * <p>
  *     Socket客户端
  * </p>
+ * <p>
+ *     响应超时由共享的{@link TimerThread}计时，到期后关闭Socket，阻塞读取的线程随即以异常退出。
+ * </p>
+ * <p>
+ *     主机名由{@link ClientOptions#getResolver()}解析，默认的解析器缓存结果，同一主机的请求不会每次都查询DNS。
+ * </p>
+ * <p>
+ *     设置了{@link ClientOptions#getTls()}时连接建立后先完成TLS握手，握手计入响应超时。
+ *     每个请求都是新连接，同一目标的会话由共享的SSLContext缓存，之后的握手复用会话。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下。
+ * </p>
  * @author zhangbin
  * @date 2020-05-28
  */
 public class SocketClient {
 
-    public void request(String host, int port) throws IOException {
-        try (Socket socket = new Socket()) {
-            SocketAddress socketAddress = new InetSocketAddress(host, port);
-            socket.connect(socketAddress);
+    public static final String METRICS_NAME = "socket-client";
+
+    private final ClientOptions options;
+
+    private final TransportMetrics metrics = MetricsRegistry.getDefault().transport(METRICS_NAME);
+
+    public SocketClient() {
+        this(new ClientOptions());
+    }
+
+    public SocketClient(@NotNull ClientOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 新建连接发送一次请求，返回完整的响应报文。
+     */
+    @NotNull
+    public String request(String host, int port) throws IOException {
+        Socket socket = connect(host, port);
+        metrics.connectionOpened();
+        SocketCloseTimeout timeout = new SocketCloseTimeout(socket);
+        try (Socket client = socket) {
+            TimerThread.shared().schedule(timeout, options.getResponseTimeoutMillis(), TimeUnit.MILLISECONDS);
+            Socket stream = handshake(client, host, port);
+            long startNanos = System.nanoTime();
 
-            try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-                 PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()))) {
+            try (InputStream inputStream = stream.getInputStream();
+                 PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(stream.getOutputStream()))) {
                 // 发起请求。
-                printWriter.write(getRequest(host));
+                String request = getRequest(host);
+                printWriter.write(request);
                 printWriter.flush();
+                metrics.bytesWritten(request.length());
 
                 // 读取响应。
-                String message;
-                while (null != (message = bufferedReader.readLine())) {
-                    System.out.println(message);
+                ByteBuffer buffer = ByteBuffer.allocate(16384);
+                buffer.flip();
+                HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+                if (! HttpStreams.read(inputStream, buffer, parser)) {
+                    throw new EOFException("Connection closed before the response");
+                }
+                metrics.bytesRead(parser.messageLength());
+                metrics.request(System.nanoTime() - startNanos);
+                return HttpParser.toString(buffer, 0, parser.messageLength());
+            }
+        } catch (IOException e) {
+            if (timeout.isExpired()) {
+                metrics.timeout();
+                throw new SocketTimeoutException("Response timed out");
+            }
+            metrics.error();
+            throw e;
+        } finally {
+            TimerThread.shared().cancel(timeout);
+            metrics.connectionClosed();
+        }
+    }
+
+    /**
+     * 解析主机名后按{@link HappyEyeballs#interleave}的顺序依次尝试各个地址，每个地址单独计算连接超时。
+     * 阻塞的客户端不做并发竞速，一个地址失败后才尝试下一个。
+     */
+    @NotNull
+    private Socket connect(String host, int port) throws IOException {
+        List<InetAddress> addresses;
+        try {
+            addresses = options.getResolver().resolve(host).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while resolving " + host);
+        } catch (ExecutionException e) {
+            metrics.error();
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+        IOException failure = null;
+        for (InetAddress address : HappyEyeballs.interleave(addresses)) {
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(address, port), (int) Math.min(Integer.MAX_VALUE, options.getConnectTimeoutMillis()));
+                return socket;
+            } catch (IOException e) {
+                socket.close();
+                if (null == failure) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
                 }
             }
         }
+        metrics.error();
+        throw failure;
+    }
+
+    /**
+     * 启用了TLS时在连接上完成握手，返回之后读写所用的Socket。
+     */
+    @NotNull
+    private Socket handshake(@NotNull Socket socket, String host, int port) throws IOException {
+        TlsOptions tls = options.getTls();
+        if (null == tls) {
+            return socket;
+        }
+        try {
+            SSLSocket sslSocket = (SSLSocket) tls.sslContext().getSocketFactory().createSocket(socket, host, port, true);
+            tls.configure(sslSocket, true);
+            long startNanos = System.nanoTime();
+            long startMillis = System.currentTimeMillis();
+            sslSocket.startHandshake();
+            metrics.handshake(System.nanoTime() - startNanos, TlsOptions.isResumed(sslSocket.getSession(), startMillis));
+            return sslSocket;
+        } catch (GeneralSecurityException e) {
+            metrics.handshakeFailed();
+            throw new IOException("Failed to initialize TLS", e);
+        } catch (IOException e) {
+            metrics.handshakeFailed();
+            throw e;
+        }
     }
 
     @NotNull
@@ -48,19 +176,10 @@ public class SocketClient {
                 + "Accept: */*\r\n\r\n";
     }
 
-    public static void main(String[] args) {
-        final String[] hosts = { "localhost", "127.0.0.1", "10.26.3.55" };
-        ExecutorService executorService = new ThreadPoolExecutor(2, 4, 0L,
-                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat("thread-pool-%d").build());
-
-        for (final String host : hosts) {
-            executorService.submit(() -> {
-                try {
-                    new SocketClient().request(host, 9527);
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
-        }
+    /**
+     * 以这个客户端运行开环压测，参数见{@link LoadOptions}。
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        LoadGenerator.run(new LoadOptions().client(LoadOptions.Client.SOCKET), args);
     }
 }
@@ -0,0 +1,40 @@
+package com.java.network.socket;
+
+import com.java.network.timer.Timeout;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * <p>
+ *     到期后关闭Socket的定时任务，阻塞在读写上的线程随即以异常退出。
+ *     线程可以通过{@link #isExpired()}区分超时关闭和其他IO异常。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+class SocketCloseTimeout extends Timeout {
+
+    private final Socket socket;
+
+    private volatile boolean expired;
+
+    SocketCloseTimeout(@NotNull Socket socket) {
+        this.socket = socket;
+    }
+
+    boolean isExpired() {
+        return expired;
+    }
+
+    @Override
+    protected void onTimeout() {
+        expired = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -1,66 +1,506 @@
 package com.java.network.socket;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.java.network.admission.Admission;
+import com.java.network.admission.AdmissionControl;
+import com.java.network.file.FileResponse;
+import com.java.network.file.StaticFiles;
+import com.java.network.http.HttpMessageTooLargeException;
+import com.java.network.http.HttpParser;
+import com.java.network.http.HttpResponses;
+import com.java.network.http.HttpStreams;
+import com.java.network.log.AsyncLogger;
+import com.java.network.metrics.MetricsRegistry;
+import com.java.network.metrics.TransportMetrics;
+import com.java.network.server.Server;
+import com.java.network.server.ServerOptions;
+import com.java.network.server.ShutdownReport;
+import com.java.network.timer.TimerThread;
+import com.java.network.tls.TlsOptions;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.net.ServerSocket;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
  *     Socket服务
  * </p>
+ * <p>
+ *     监听和接入通过阻塞模式的{@link ServerSocketChannel}完成，连接因此带有{@link SocketChannel}，
+ *     配置了文档目录时文件可以直接用{@link java.nio.channels.FileChannel#transferTo}发送到连接上。
+ * </p>
+ * <p>
+ *     空闲超时通过SO_TIMEOUT限制每次阻塞读；接收整个请求和发送响应的时间由共享的{@link TimerThread}限制，
+ *     到期后关闭Socket，让阻塞在读写上的线程退出。
+ * </p>
+ * <p>
+ *     设置了{@link ServerOptions#getTls()}时，接入的Socket在处理它的线程中包装成{@link SSLSocket}并完成握手，
+ *     握手时间由读超时限制；文件响应不能再直接写到SocketChannel上，改为经过输出流加密后发送。
+ * </p>
+ * <p>
+ *     设置了{@link ServerOptions#getAdmission()}时，超过连接数上限的连接在接入线程中直接关闭，不占用处理线程；
+ *     每个请求先经过准入控制，被拒绝的请求回复429或503。
+ * </p>
+ * <p>
+ *     {@link #start}在后台接入线程中接入连接。{@link #stop}关闭监听端口后，关闭阻塞在等待下一个请求上的空闲连接，
+ *     正在处理请求的连接回复Connection: close后自行退出；超时后关闭剩下的Socket，让阻塞在读写上的线程退出。
+ * </p>
+ * <p>
+ *     指标记录在{@link MetricsRegistry}默认实例的{@value #METRICS_NAME}下，读写字节数按报文长度统计，
+ *     请求延迟从读完请求开始，到响应交给输出流为止。
+ * </p>
  * @author zhangbin
  * @date 2020-05-28
  */
-public class SocketServer {
+public class SocketServer implements Server {
+
+    public static final String METRICS_NAME = "socket";
+
+    private static final AsyncLogger LOGGER = AsyncLogger.getDefault();
+
+    /**
+     * 发送文件时允许的最低速度，写超时按文件大小在此基础上放宽。
+     */
+    private static final long MIN_SEND_BYTES_PER_SECOND = 64 * 1024;
+
+    private final ServerOptions options;
+
+    private final ExecutorStrategy executorStrategy;
+
+    private final byte[] keepAliveResponse;
+
+    private final byte[] closeResponse;
+
+    private final StaticFiles staticFiles;
+
+    private final AdmissionControl admissionControl;
+
+    private final TransportMetrics metrics = MetricsRegistry.getDefault().transport(METRICS_NAME);
+
+    /**
+     * 所有还没有结束的连接，包括已经接入、还在线程池队列中等待的连接。
+     */
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final AtomicInteger drainedConnections = new AtomicInteger();
 
+    private ServerSocketChannel serverSocketChannel;
+
+    /**
+     * 启用TLS时用于包装接入的Socket，没有启用时为null。
+     */
+    private SSLSocketFactory sslSocketFactory;
+
+    private ExecutorService executorService;
+
+    private Thread acceptorThread;
+
+    private volatile boolean draining;
+
+    private volatile ShutdownReport shutdownReport;
+
+    public SocketServer() {
+        this(new ServerOptions(), ExecutorStrategy.virtualThreadPerConnection());
+    }
+
+    public SocketServer(@NotNull ServerOptions options, @NotNull ExecutorStrategy executorStrategy) {
+        if (null != options.getRpcService()) {
+            throw new IllegalArgumentException("SocketServer does not support RPC framing");
+        }
+        this.options = options;
+        this.executorStrategy = executorStrategy;
+        this.keepAliveResponse = HttpResponses.encode(200, "OK", "text/plain", getResponse().getBytes(StandardCharsets.UTF_8), true);
+        this.closeResponse = HttpResponses.encode(200, "OK", "text/plain", getResponse().getBytes(StandardCharsets.UTF_8), false);
+        this.staticFiles = null == options.getDocumentRoot() ? null : new StaticFiles(options);
+        this.admissionControl = options.getAdmission();
+    }
+
+    @Override
     public void start(int port) throws IOException {
-        ExecutorService executorService = new ThreadPoolExecutor(2, 4, 0L,
-                TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder().setNameFormat("thread-pool-%d").build());
+        if (! started.compareAndSet(false, true)) {
+            throw new IllegalStateException("Server already started");
+        }
+        TlsOptions tls = options.getTls();
+        if (null != tls) {
+            if (null == tls.getKeyManagerFactory()) {
+                startFailed();
+                throw new IllegalStateException("Server TLS requires a key manager");
+            }
+            try {
+                sslSocketFactory = tls.sslContext().getSocketFactory();
+            } catch (GeneralSecurityException e) {
+                startFailed();
+                throw new IOException("Failed to initialize TLS", e);
+            }
+        }
+        serverSocketChannel = ServerSocketChannel.open();
+        try {
+            serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, options.isReuseAddress());
+            if (options.getReceiveBufferSize() > 0) {
+                // 接入的连接继承监听Socket的接收缓冲区。
+                serverSocketChannel.setOption(StandardSocketOptions.SO_RCVBUF, options.getReceiveBufferSize());
+            }
+            serverSocketChannel.bind(new InetSocketAddress(port), options.getBacklog());
+        } catch (IOException e) {
+            serverSocketChannel.close();
+            startFailed();
+            throw e;
+        }
+        executorService = executorStrategy.create("socket-server");
+        acceptorThread = new ThreadFactoryBuilder().setNameFormat("socket-acceptor-%d").build().newThread(this::accept);
+        acceptorThread.start();
+        LOGGER.info("Server started on port %d.", port);
+    }
 
-        try (ServerSocket serverSocket = new ServerSocket(port)) {
-            System.out.println("Server started.");
+    /**
+     * 先停止接入，再关闭空闲连接、等待其余连接收尾，超时后强制关闭剩下的连接。
+     */
+    @NotNull
+    @Override
+    public ShutdownReport stop(long timeout, @NotNull TimeUnit unit) throws InterruptedException {
+        if (! stopped.compareAndSet(false, true)) {
+            awaitTermination();
+            return shutdownReport;
+        }
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + unit.toNanos(timeout);
+        int forced = 0;
+        if (null != acceptorThread) {
+            close(serverSocketChannel);
+            // 先设置标记再检查空闲，和serve中先标记空闲再检查标记的顺序相反，两边至少有一边能看到对方。
+            draining = true;
+            for (Connection connection : connections) {
+                if (connection.idle) {
+                    close(connection.socket);
+                }
+            }
+            // BLOCK策略下接入线程可能正阻塞在等待空闲线程上，也要在期限内等待。
+            acceptorThread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+            executorService.shutdown();
+            if (! executorService.awaitTermination(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS) || acceptorThread.isAlive()) {
+                for (Connection connection : connections) {
+                    connection.forced = true;
+                    forced++;
+                    close(connection.socket);
+                }
+                executorService.shutdownNow();
+                executorService.awaitTermination(timeout, unit);
+                // 还在等待空闲线程的接入线程不会再等到了。
+                acceptorThread.interrupt();
+                acceptorThread.join();
+            }
+        }
+        shutdownReport = new ShutdownReport(drainedConnections.get(), forced, System.nanoTime() - startNanos);
+        LOGGER.info("Server stopped: %s.", shutdownReport);
+        terminated.countDown();
+        return shutdownReport;
+    }
 
-            while (true) {
+    @Override
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * 启动失败、已经释放了资源时调用：之后的{@link #stop}直接返回，{@link #awaitTermination}不再等待。
+     */
+    private void startFailed() {
+        stopped.set(true);
+        shutdownReport = new ShutdownReport(0, 0, 0);
+        terminated.countDown();
+    }
+
+    /**
+     * 接入线程的循环，监听端口关闭后退出。
+     */
+    private void accept() {
+        while (serverSocketChannel.isOpen()) {
+            try {
+                final Socket socket = serverSocketChannel.accept().socket();
+                if (null != admissionControl && ! admissionControl.tryConnect()) {
+                    // 连接数已满，不交给线程池，直接关闭。
+                    close(socket);
+                    continue;
+                }
+                metrics.connectionOpened();
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Accepted connection from %s.", socket.getRemoteSocketAddress());
+                }
+
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+                try {
+                    executorService.execute(() -> serve(connection));
+                } catch (RejectedExecutionException e) {
+                    // 线程池已满，立即拒绝，避免连接在队列外无限等待。
+                    connections.remove(connection);
+                    metrics.error();
+                    LOGGER.warn("Rejected connection from %s.", socket.getRemoteSocketAddress());
+                    close(socket);
+                    metrics.connectionClosed();
+                    if (null != admissionControl) {
+                        admissionControl.disconnected();
+                    }
+                }
+            } catch (ClosedChannelException e) {
+                // stop关闭了监听端口。
+                break;
+            } catch (Exception e) {
+                e.printStackTrace();
+                break;
+            }
+        }
+    }
+
+    /**
+     * 在一个连接上循环处理请求，直到对端关闭、空闲超时或者达到单连接的请求数上限。
+     */
+    private void serve(@NotNull Connection connection) {
+        Socket socket = connection.socket;
+        TimerThread timerThread = TimerThread.shared();
+        SocketCloseTimeout timeout = new SocketCloseTimeout(socket);
+        // 放行了、响应还没有发送完的请求，连接异常结束时放弃它的名额。
+        boolean permit = false;
+        try (Socket client = open(socket, timeout);
+             InputStream inputStream = client.getInputStream();
+             OutputStream outputStream = new BufferedOutputStream(client.getOutputStream())) {
+            ByteBuffer buffer = ByteBuffer.allocate(HttpParser.MAX_REQUEST_SIZE);
+            buffer.flip();
+            HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+
+            int requests = 0;
+            boolean keepAlive = true;
+            while (keepAlive) {
+                // 缓冲区里没有流水线请求时，接下来阻塞等待的是下一个请求，这段时间连接是空闲的。
+                if (requests > 0 && ! buffer.hasRemaining()) {
+                    connection.idle = true;
+                    if (draining) {
+                        break;
+                    }
+                }
+                // 读取请求。SO_TIMEOUT只限制单次读，这里再限制整个请求，防止对端一直很慢地发送。
+                timerThread.schedule(timeout, options.getIdleTimeoutMillis() + options.getReadTimeoutMillis(), TimeUnit.MILLISECONDS);
+                boolean read;
                 try {
-                    final Socket socket = serverSocket.accept();
-                    System.out.println(String.format("Accepted connection from %s.", socket));
-
-                    executorService.submit(() -> {
-                        try (PrintWriter printWriter = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()))) {
-                            printWriter.write(getResponse());
-                            printWriter.flush();
-                            socket.close();
-                        } catch (IOException e) {
-                            e.printStackTrace();
-                        }
-                    });
-                } catch (Exception e) {
-                    e.printStackTrace();
+                    read = HttpStreams.read(inputStream, buffer, parser);
+                } catch (HttpMessageTooLargeException e) {
+                    // 与另外两种服务端一样回复413后关闭连接，之前没有刷新的流水线响应一起写出。
+                    metrics.error();
+                    LOGGER.debug("Request from %s too large.", client.getRemoteSocketAddress());
+                    timerThread.schedule(timeout, options.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS);
+                    byte[] response = HttpResponses.payloadTooLarge();
+                    metrics.bytesWritten(response.length);
+                    outputStream.write(response);
+                    outputStream.flush();
+                    break;
+                }
+                connection.idle = false;
+                if (! read) {
                     break;
                 }
+                long startNanos = System.nanoTime();
+                metrics.bytesRead(parser.messageLength());
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Read %s from %s.", HttpParser.toString(buffer, parser.methodStart(), parser.uriEnd()),
+                            client.getRemoteSocketAddress());
+                }
+                keepAlive = ! draining && parser.isKeepAlive() && ++requests < options.getMaxRequestsPerConnection();
+                Admission admission = null == admissionControl ? Admission.ADMITTED : admissionControl.admit(socket.getInetAddress());
+                permit = null != admissionControl && Admission.ADMITTED == admission;
+                FileResponse fileResponse = null == staticFiles || Admission.ADMITTED != admission ? null
+                        : staticFiles.resolve(buffer, parser, keepAlive);
+                buffer.position(buffer.position() + parser.messageLength());
+                parser.reset();
+
+                // 发送响应。缓冲区里还有流水线请求时先不刷新，和后面的响应合并写出。
+                long fileBytes = null == fileResponse || null == fileResponse.fileChannel() ? 0 : fileResponse.count();
+                timerThread.schedule(timeout, options.getWriteTimeoutMillis()
+                        + TimeUnit.SECONDS.toMillis(fileBytes) / MIN_SEND_BYTES_PER_SECOND, TimeUnit.MILLISECONDS);
+                if (null != fileResponse) {
+                    metrics.bytesWritten(fileResponse.head().remaining() + fileBytes
+                            + (null == fileResponse.body() ? 0 : fileResponse.body().remaining()));
+                    write(client, outputStream, fileResponse);
+                } else {
+                    byte[] response = Admission.ADMITTED != admission ? admission.response(keepAlive)
+                            : keepAlive ? keepAliveResponse : closeResponse;
+                    metrics.bytesWritten(response.length);
+                    outputStream.write(response);
+                }
+                if (! keepAlive || ! buffer.hasRemaining()) {
+                    outputStream.flush();
+                }
+                long latencyNanos = System.nanoTime() - startNanos;
+                metrics.request(latencyNanos);
+                if (permit) {
+                    permit = false;
+                    admissionControl.release(latencyNanos);
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            metrics.timeout();
+            LOGGER.debug("Connection %s idle timeout.", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            if (draining && socket.isClosed()) {
+                LOGGER.debug("Connection %s closed by shutdown.", socket.getRemoteSocketAddress());
+            } else if (timeout.isExpired()) {
+                metrics.timeout();
+                LOGGER.debug("Connection %s timed out.", socket.getRemoteSocketAddress());
+            } else {
+                metrics.error();
+                LOGGER.debug("Connection %s failed: %s", socket.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            timerThread.cancel(timeout);
+            if (null != admissionControl) {
+                if (permit) {
+                    admissionControl.cancel();
+                }
+                admissionControl.disconnected();
+            }
+            // 握手失败时没有进入try的资源，由这里关闭，重复关闭没有影响。
+            close(socket);
+            connections.remove(connection);
+            if (draining && ! connection.forced) {
+                drainedConnections.incrementAndGet();
+            }
+            metrics.connectionClosed();
+        }
+    }
+
+    /**
+     * 设置连接的Socket参数，启用了TLS时完成握手，返回之后读写所用的Socket。
+     */
+    @NotNull
+    private Socket open(@NotNull Socket socket, @NotNull SocketCloseTimeout timeout) throws IOException {
+        // 阻塞读取时以空闲超时作为读超时。
+        socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, options.getIdleTimeoutMillis()));
+        socket.setTcpNoDelay(options.isTcpNoDelay());
+        if (options.getSendBufferSize() > 0) {
+            socket.setSendBufferSize(options.getSendBufferSize());
+        }
+        if (null == sslSocketFactory) {
+            return socket;
+        }
+        try {
+            SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, null, true);
+            options.getTls().configure(sslSocket, false);
+            long startNanos = System.nanoTime();
+            long startMillis = System.currentTimeMillis();
+            TimerThread.shared().schedule(timeout, options.getReadTimeoutMillis(), TimeUnit.MILLISECONDS);
+            sslSocket.startHandshake();
+            metrics.handshake(System.nanoTime() - startNanos, TlsOptions.isResumed(sslSocket.getSession(), startMillis));
+            return sslSocket;
+        } catch (IOException e) {
+            metrics.handshakeFailed();
+            throw e;
+        }
+    }
+
+    /**
+     * 发送文件响应。堆内的响应头和报文体走缓冲流；文件、映射缓存和响应缓存中的内容先刷新缓冲流，
+     * 再直接写到SocketChannel上，不经过Java堆。启用TLS时没有SocketChannel，经过输出流加密后发送。
+     */
+    private void write(@NotNull Socket socket, @NotNull OutputStream outputStream, @NotNull FileResponse response) throws IOException {
+        try (FileResponse fileResponse = response) {
+            ByteBuffer head = fileResponse.head();
+            ByteBuffer body = fileResponse.body();
+            if (head.hasArray()) {
+                write(outputStream, head);
+                if (null != body && body.hasArray()) {
+                    write(outputStream, body);
+                }
+            }
+            if (null != fileResponse.fileChannel() || head.hasRemaining() || (null != body && body.hasRemaining())) {
+                outputStream.flush();
+                // 叠加在普通Socket上的SSLSocket的getChannel返回底层明文的SocketChannel，不能直接写。
+                WritableByteChannel channel = socket instanceof SSLSocket ? Channels.newChannel(outputStream) : socket.getChannel();
+                // 阻塞模式下只有transferTo单次发送有上限时才需要多次调用。
+                while (! fileResponse.writeTo(channel)) {
+                    Thread.yield();
+                }
+                outputStream.flush();
             }
         }
     }
 
+    private void write(@NotNull OutputStream outputStream, @NotNull ByteBuffer buffer) throws IOException {
+        outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        buffer.position(buffer.limit());
+    }
+
+    private void close(@NotNull Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     @NotNull
     @Contract(pure = true)
     private String getResponse() {
-        return "GET / HTTP/1.1\r\n"
-                + "User-Agent: curl/7.43.0\r\n"
-                + "Accept: */*\r\n\r\n";
+        return "Hello, World!";
     }
 
-    public static void main(String[] args) throws IOException {
-        new SocketServer().start(9527);
+    /**
+     * 一个连接，以及它是否正阻塞在等待下一个请求上。还没有处理过请求的新连接可能有请求正在路上，不算空闲。
+     */
+    private static class Connection {
+
+        private final Socket socket;
+
+        private volatile boolean idle;
+
+        private volatile boolean forced;
+
+        private Connection(@NotNull Socket socket) {
+            this.socket = socket;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // 第一个参数是可选的文档目录。
+        ServerOptions options = new ServerOptions();
+        if (args.length > 0) {
+            options.documentRoot(Paths.get(args[0]));
+        }
+        SocketServer server = new SocketServer(options, ExecutorStrategy.virtualThreadPerConnection());
+        server.start(9527);
+        Server.stopOnShutdown(server, 30, TimeUnit.SECONDS);
+        server.awaitTermination();
     }
 }
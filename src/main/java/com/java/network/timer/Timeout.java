@@ -0,0 +1,52 @@
+package com.java.network.timer;
+
+/**
+ * <p>
+ *     时间轮上的一个定时任务，同时也是时间轮桶中（到期后是待执行链表中）双向链表的节点。
+ *     调用方为每个连接保留一个实例反复调度，调度和取消都不产生新对象。
+ * </p>
+ * <p>
+ *     同一个实例同一时刻只能在一个时间轮上。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public abstract class Timeout {
+
+    static final int IDLE = 0;
+
+    static final int SCHEDULED = 1;
+
+    static final int EXPIRING = 2;
+
+    int state = IDLE;
+
+    Timeout prev;
+
+    Timeout next;
+
+    int bucket;
+
+    long remainingRounds;
+
+    long deadlineMillis;
+
+    /**
+     * 到期时在驱动时间轮的线程中调用，应当尽快返回。
+     */
+    protected abstract void onTimeout();
+
+    /**
+     * 是否已经调度并且还没有到期或者取消。
+     */
+    public boolean isScheduled() {
+        return SCHEDULED == state;
+    }
+
+    /**
+     * 最近一次调度时请求的到期时间，以{@link TimingWheel#monotonicMillis()}计。
+     */
+    public long deadlineMillis() {
+        return deadlineMillis;
+    }
+}
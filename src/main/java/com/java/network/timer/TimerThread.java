@@ -0,0 +1,96 @@
+package com.java.network.timer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     由一个后台线程按tick驱动的{@link TimingWheel}，可以在任意线程调度和取消任务，
+ *     供没有自己的事件循环的阻塞Socket和Netty客户端使用。
+ * </p>
+ * <p>
+ *     所有操作由时间轮上的一把锁保护。到期的任务在锁内逐个取出，在锁外执行，
+ *     完成Future时调用方的后续操作不会阻塞其他线程的调度和取消；但它们都在这一个后台线程中执行，仍然应当尽快返回。
+ *     取消时任务还没有被取出的，保证不再执行。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class TimerThread implements Closeable {
+
+    private static final class SharedHolder {
+
+        private static final TimerThread INSTANCE = new TimerThread("timing-wheel", 100, 512);
+    }
+
+    private final TimingWheel timingWheel;
+
+    private final long tickMillis;
+
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    public TimerThread(@NotNull String name, long tickMillis, int wheelSize) {
+        this.timingWheel = new TimingWheel(tickMillis, wheelSize);
+        this.tickMillis = tickMillis;
+        this.thread = new ThreadFactoryBuilder().setNameFormat(name).setDaemon(true).build().newThread(this::run);
+        this.thread.start();
+    }
+
+    /**
+     * 进程内共享的实例，tick为100毫秒，后台线程是守护线程，不需要关闭。
+     */
+    @NotNull
+    public static TimerThread shared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    public void schedule(@NotNull Timeout timeout, long delay, @NotNull TimeUnit unit) {
+        synchronized (timingWheel) {
+            timingWheel.schedule(timeout, unit.toMillis(delay), TimingWheel.monotonicMillis());
+        }
+    }
+
+    public boolean cancel(@NotNull Timeout timeout) {
+        synchronized (timingWheel) {
+            return timingWheel.cancel(timeout);
+        }
+    }
+
+    private void run() {
+        while (! closed) {
+            try {
+                Thread.sleep(tickMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            synchronized (timingWheel) {
+                timingWheel.advance(TimingWheel.monotonicMillis());
+            }
+            while (true) {
+                Timeout timeout;
+                synchronized (timingWheel) {
+                    timeout = timingWheel.pollExpired();
+                }
+                if (null == timeout) {
+                    break;
+                }
+                try {
+                    timeout.onTimeout();
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,216 @@
+package com.java.network.timer;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     哈希时间轮。时间按固定的tick划分，到期时间落在第几个tick就放进对应的桶，
+ *     超过一圈的任务记录剩余圈数，每转过一次减一。调度和取消都是O(1)的链表操作，
+ *     推进时只看当前tick对应的一个桶，适合大量连接的超时管理。
+ * </p>
+ * <p>
+ *     时间轮本身不是线程安全的，由一个线程独占驱动：Reactor线程以{@link #timeoutMillis(long)}作为select的超时，
+ *     醒来后调用{@link #expire(long)}；需要多线程共享时使用{@link TimerThread}。
+ *     到期时间的精度是一个tick。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-17
+ */
+public final class TimingWheel {
+
+    private final long tickMillis;
+
+    private final Timeout[] buckets;
+
+    private final int mask;
+
+    private final long startMillis;
+
+    /**
+     * 下一个要处理的tick。
+     */
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * 已经到期、等待执行的任务，双向链表，通过{@link Timeout}的prev和next连接。
+     */
+    private Timeout expiring;
+
+    /**
+     * @param wheelSize 桶的个数，向上取整为2的幂
+     */
+    public TimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0 || wheelSize <= 0 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Invalid timing wheel: tick %d ms, size %d", tickMillis, wheelSize));
+        }
+        int length = Integer.highestOneBit(wheelSize);
+        if (length < wheelSize) {
+            length <<= 1;
+        }
+        this.tickMillis = tickMillis;
+        this.buckets = new Timeout[length];
+        this.mask = length - 1;
+        this.startMillis = monotonicMillis();
+    }
+
+    /**
+     * 单调递增的毫秒时钟，不受系统时间调整的影响。
+     */
+    public static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * 调度任务在delayMillis之后到期，已经调度的任务会先取消再重新调度。
+     */
+    public void schedule(@NotNull Timeout timeout, long delayMillis, long nowMillis) {
+        cancel(timeout);
+        long deadlineMillis = nowMillis + Math.max(0, delayMillis);
+        // 向上取整，任务不会早于到期时间触发。
+        long tick = Math.max(currentTick, (deadlineMillis - startMillis + tickMillis - 1) / tickMillis);
+        int bucket = (int) (tick & mask);
+
+        timeout.deadlineMillis = deadlineMillis;
+        timeout.remainingRounds = (tick - currentTick) / buckets.length;
+        timeout.bucket = bucket;
+        timeout.state = Timeout.SCHEDULED;
+        timeout.prev = null;
+        timeout.next = buckets[bucket];
+        if (null != buckets[bucket]) {
+            buckets[bucket].prev = timeout;
+        }
+        buckets[bucket] = timeout;
+        size++;
+    }
+
+    /**
+     * 取消任务，已经到期但还没有执行的任务也不再执行。
+     * @return 任务是否处于调度状态
+     */
+    public boolean cancel(@NotNull Timeout timeout) {
+        if (Timeout.SCHEDULED == timeout.state) {
+            unlink(timeout);
+            size--;
+        } else if (Timeout.EXPIRING == timeout.state) {
+            unlinkExpiring(timeout);
+        } else {
+            return false;
+        }
+        timeout.state = Timeout.IDLE;
+        timeout.prev = null;
+        timeout.next = null;
+        return true;
+    }
+
+    /**
+     * 处理到nowMillis为止的所有tick，执行其中到期的任务。
+     * @return 执行的任务数
+     */
+    public int expire(long nowMillis) {
+        advance(nowMillis);
+        int expired = 0;
+        Timeout timeout;
+        while (null != (timeout = pollExpired())) {
+            expired++;
+            try {
+                timeout.onTimeout();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 处理到nowMillis为止的所有tick，把到期的任务从桶里摘下来，放进单独的待执行链表，由{@link #pollExpired()}逐个取出。
+     * 待执行的任务与桶中的任务不共用链表，执行中调度或取消其他任务（包括同样待执行的任务）不影响剩下的任务。
+     */
+    public void advance(long nowMillis) {
+        long targetTick = (nowMillis - startMillis) / tickMillis;
+        if (0 == size) {
+            // 空的时间轮直接跳到当前时刻，不用逐个tick空转。
+            currentTick = Math.max(currentTick, targetTick + 1);
+            return;
+        }
+
+        while (currentTick <= targetTick) {
+            Timeout timeout = buckets[(int) (currentTick & mask)];
+            while (null != timeout) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    unlink(timeout);
+                    size--;
+                    timeout.state = Timeout.EXPIRING;
+                    timeout.prev = null;
+                    timeout.next = expiring;
+                    if (null != expiring) {
+                        expiring.prev = timeout;
+                    }
+                    expiring = timeout;
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+            currentTick++;
+        }
+    }
+
+    /**
+     * 取出一个已经到期、还没有取消的任务，由调用方执行它的{@link Timeout#onTimeout()}。
+     * @return 没有待执行的任务时返回null
+     */
+    public Timeout pollExpired() {
+        Timeout timeout = expiring;
+        if (null != timeout) {
+            unlinkExpiring(timeout);
+            timeout.state = Timeout.IDLE;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+        return timeout;
+    }
+
+    /**
+     * 距离下一个tick的毫秒数，用作select的超时。没有任务时返回-1，表示可以一直等待。
+     */
+    public long timeoutMillis(long nowMillis) {
+        if (0 == size) {
+            return -1;
+        }
+        return Math.max(1, startMillis + currentTick * tickMillis - nowMillis);
+    }
+
+    /**
+     * 已经调度的任务数。
+     */
+    public int size() {
+        return size;
+    }
+
+    private void unlinkExpiring(Timeout timeout) {
+        if (null != timeout.prev) {
+            timeout.prev.next = timeout.next;
+        } else {
+            expiring = timeout.next;
+        }
+        if (null != timeout.next) {
+            timeout.next.prev = timeout.prev;
+        }
+    }
+
+    private void unlink(Timeout timeout) {
+        if (null != timeout.prev) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (null != timeout.next) {
+            timeout.next.prev = timeout.prev;
+        }
+    }
+}
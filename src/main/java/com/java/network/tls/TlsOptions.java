@@ -0,0 +1,263 @@
+package com.java.network.tls;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ *     服务端和客户端共用的TLS配置，设置到{@link com.java.network.server.ServerOptions#tls}或者
+ *     {@link com.java.network.client.ClientOptions#tls}后启用TLS。
+ * </p>
+ * <p>
+ *     NIO和阻塞Socket两种传输使用这里创建的JDK {@link SSLContext}，同一个实例的所有连接共享它的会话缓存，
+ *     客户端按目标的host:port复用会话，服务端在TLS 1.3下还会发出会话票据（JDK 13以上默认是无状态票据）。
+ *     Netty传输由这些参数另外构建自己的SslContext，netty-tcnative在类路径上时优先使用OpenSSL/BoringSSL。
+ * </p>
+ * <p>
+ *     握手次数、复用会话的比例和握手耗时记录在各传输的{@link com.java.network.metrics.TransportMetrics}中。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+public class TlsOptions {
+
+    private KeyManagerFactory keyManagerFactory;
+
+    private TrustManagerFactory trustManagerFactory;
+
+    private String[] protocols;
+
+    private String[] cipherSuites;
+
+    private String[] applicationProtocols = { "http/1.1" };
+
+    private int sessionCacheSize = 20480;
+
+    private long sessionTimeoutMillis = TimeUnit.HOURS.toMillis(1);
+
+    private boolean verifyHostname = true;
+
+    private volatile SSLContext sslContext;
+
+    /**
+     * 服务端的证书和私钥，服务端必须设置。
+     */
+    public TlsOptions keyManagerFactory(@NotNull KeyManagerFactory keyManagerFactory) {
+        this.keyManagerFactory = keyManagerFactory;
+        return this;
+    }
+
+    /**
+     * 从PKCS12或者JKS（扩展名为.jks）文件中加载证书和私钥，私钥的密码与文件的密码相同。
+     */
+    public TlsOptions keyStore(@NotNull Path path, @NotNull char[] password) throws IOException, GeneralSecurityException {
+        KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        factory.init(loadKeyStore(path, password), password);
+        return keyManagerFactory(factory);
+    }
+
+    /**
+     * 验证对端证书使用的信任库，不设置时使用JDK默认的CA证书。
+     */
+    public TlsOptions trustManagerFactory(@NotNull TrustManagerFactory trustManagerFactory) {
+        this.trustManagerFactory = trustManagerFactory;
+        return this;
+    }
+
+    /**
+     * 从PKCS12或者JKS（扩展名为.jks）文件中加载信任的证书。
+     */
+    public TlsOptions trustStore(@NotNull Path path, @NotNull char[] password) throws IOException, GeneralSecurityException {
+        TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        factory.init(loadKeyStore(path, password));
+        return trustManagerFactory(factory);
+    }
+
+    /**
+     * 启用的协议版本，比如TLSv1.3、TLSv1.2，不设置时使用JDK或OpenSSL的默认值。
+     */
+    public TlsOptions protocols(@NotNull String... protocols) {
+        this.protocols = protocols.clone();
+        return this;
+    }
+
+    /**
+     * 启用的密码套件，不设置时使用默认值。
+     */
+    public TlsOptions cipherSuites(@NotNull String... cipherSuites) {
+        this.cipherSuites = cipherSuites.clone();
+        return this;
+    }
+
+    /**
+     * 通过ALPN协商的应用层协议，按优先级排列，默认只有http/1.1。
+     */
+    public TlsOptions applicationProtocols(@NotNull String... applicationProtocols) {
+        if (0 == applicationProtocols.length) {
+            throw new IllegalArgumentException("applicationProtocols must not be empty");
+        }
+        this.applicationProtocols = applicationProtocols.clone();
+        return this;
+    }
+
+    /**
+     * 会话缓存的条目数和有效期，复用会话的握手省去证书交换和非对称密钥运算。
+     */
+    public TlsOptions sessionCache(int size, long timeout, @NotNull TimeUnit unit) {
+        if (size < 0 || timeout <= 0) {
+            throw new IllegalArgumentException("Invalid session cache: size=" + size + ", timeout=" + timeout);
+        }
+        this.sessionCacheSize = size;
+        this.sessionTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * 客户端是否校验证书中的主机名，默认校验。只在测试自签名证书时关闭。
+     */
+    public TlsOptions verifyHostname(boolean verifyHostname) {
+        this.verifyHostname = verifyHostname;
+        return this;
+    }
+
+    public KeyManagerFactory getKeyManagerFactory() {
+        return keyManagerFactory;
+    }
+
+    public TrustManagerFactory getTrustManagerFactory() {
+        return trustManagerFactory;
+    }
+
+    public String[] getProtocols() {
+        return null == protocols ? null : protocols.clone();
+    }
+
+    public String[] getCipherSuites() {
+        return null == cipherSuites ? null : cipherSuites.clone();
+    }
+
+    @NotNull
+    public String[] getApplicationProtocols() {
+        return applicationProtocols.clone();
+    }
+
+    public int getSessionCacheSize() {
+        return sessionCacheSize;
+    }
+
+    public long getSessionTimeoutMillis() {
+        return sessionTimeoutMillis;
+    }
+
+    public boolean isVerifyHostname() {
+        return verifyHostname;
+    }
+
+    /**
+     * 第一次调用时按当前配置创建JDK的SSLContext，之后返回同一个实例，服务端和客户端的会话缓存都在其中。
+     */
+    @NotNull
+    public SSLContext sslContext() throws GeneralSecurityException {
+        SSLContext context = sslContext;
+        if (null == context) {
+            synchronized (this) {
+                context = sslContext;
+                if (null == context) {
+                    context = SSLContext.getInstance("TLS");
+                    context.init(null == keyManagerFactory ? null : keyManagerFactory.getKeyManagers(),
+                            null == trustManagerFactory ? null : trustManagerFactory.getTrustManagers(), null);
+                    int timeoutSeconds = (int) Math.min(Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toSeconds(sessionTimeoutMillis));
+                    context.getServerSessionContext().setSessionCacheSize(sessionCacheSize);
+                    context.getServerSessionContext().setSessionTimeout(timeoutSeconds);
+                    context.getClientSessionContext().setSessionCacheSize(sessionCacheSize);
+                    context.getClientSessionContext().setSessionTimeout(timeoutSeconds);
+                    sslContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * 创建服务端的SSLEngine。
+     */
+    @NotNull
+    public SSLEngine newServerEngine() throws GeneralSecurityException {
+        if (null == keyManagerFactory) {
+            throw new IllegalStateException("Server TLS requires a key manager");
+        }
+        SSLEngine engine = sslContext().createSSLEngine();
+        engine.setUseClientMode(false);
+        engine.setSSLParameters(parameters(engine.getSSLParameters(), false));
+        return engine;
+    }
+
+    /**
+     * 创建客户端的SSLEngine，host同时用于SNI、主机名校验和按目标复用会话。
+     */
+    @NotNull
+    public SSLEngine newClientEngine(@NotNull String host, int port) throws GeneralSecurityException {
+        SSLEngine engine = sslContext().createSSLEngine(host, port);
+        engine.setUseClientMode(true);
+        engine.setSSLParameters(parameters(engine.getSSLParameters(), true));
+        return engine;
+    }
+
+    /**
+     * 把阻塞连接的Socket配置成与SSLEngine相同的参数。
+     */
+    public void configure(@NotNull SSLSocket socket, boolean client) {
+        socket.setUseClientMode(client);
+        socket.setSSLParameters(parameters(socket.getSSLParameters(), client));
+    }
+
+    @NotNull
+    private SSLParameters parameters(@NotNull SSLParameters parameters, boolean client) {
+        if (null != protocols) {
+            parameters.setProtocols(protocols);
+        }
+        if (null != cipherSuites) {
+            parameters.setCipherSuites(cipherSuites);
+        }
+        parameters.setApplicationProtocols(applicationProtocols);
+        if (client && verifyHostname) {
+            parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        }
+        if (! client) {
+            // 服务端按自己的顺序选择密码套件。
+            parameters.setUseCipherSuitesOrder(true);
+        }
+        return parameters;
+    }
+
+    /**
+     * 握手是否复用了之前的会话：复用的会话在这次握手开始之前就已经创建。
+     * @param handshakeStartMillis 握手开始时的{@link System#currentTimeMillis()}
+     */
+    public static boolean isResumed(@NotNull SSLSession session, long handshakeStartMillis) {
+        return session.getCreationTime() < handshakeStartMillis;
+    }
+
+    @NotNull
+    private static KeyStore loadKeyStore(@NotNull Path path, @NotNull char[] password) throws IOException, GeneralSecurityException {
+        KeyStore keyStore = KeyStore.getInstance(path.toString().endsWith(".jks") ? "JKS" : "PKCS12");
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            keyStore.load(inputStream, password);
+        }
+        return keyStore;
+    }
+}
@@ -0,0 +1,98 @@
+package com.java.network.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *     {@link ClientRateLimiter}的突发、回满，以及表满时替换桶的规则。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class ClientRateLimiterTest {
+
+    @Test
+    void allowsBurstThenRejects() throws UnknownHostException {
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 3, 16);
+        InetAddress client = address(1);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(client), "Request " + i);
+        }
+        assertFalse(limiter.tryAcquire(client));
+        assertFalse(limiter.tryAcquire(client));
+
+        // 其他客户端有自己的桶。
+        assertTrue(limiter.tryAcquire(address(2)));
+    }
+
+    @Test
+    void refillsAfterInterval() throws UnknownHostException, InterruptedException {
+        ClientRateLimiter limiter = new ClientRateLimiter(20, 1, 16);
+        InetAddress client = address(1);
+        assertTrue(limiter.tryAcquire(client));
+        assertFalse(limiter.tryAcquire(client));
+
+        Thread.sleep(100);
+        assertTrue(limiter.tryAcquire(client));
+        assertFalse(limiter.tryAcquire(client));
+    }
+
+    @Test
+    void evictsBucketThatRefillsFirst() throws UnknownHostException {
+        AtomicInteger evictions = new AtomicInteger();
+        // 表中只有两个槽位，每个客户端都对应这两个槽位。
+        ClientRateLimiter limiter = new ClientRateLimiter(1, 2, 2, evictions::incrementAndGet);
+        InetAddress first = address(1);
+        InetAddress second = address(2);
+        InetAddress third = address(3);
+        assertTrue(limiter.tryAcquire(first));
+        assertTrue(limiter.tryAcquire(second));
+        assertTrue(limiter.tryAcquire(second));
+        assertEquals(0, evictions.get());
+
+        // first只用了一个令牌，比second更早回满，被替换掉。
+        assertTrue(limiter.tryAcquire(third));
+        assertEquals(1, evictions.get());
+        assertFalse(limiter.tryAcquire(second));
+
+        // 被替换的客户端重新得到一个满桶。
+        assertTrue(limiter.tryAcquire(first));
+        assertTrue(limiter.tryAcquire(first));
+        assertEquals(2, evictions.get());
+        assertFalse(limiter.tryAcquire(first));
+    }
+
+    @Test
+    void replacingFullBucketIsNotEviction() throws UnknownHostException, InterruptedException {
+        AtomicInteger evictions = new AtomicInteger();
+        ClientRateLimiter limiter = new ClientRateLimiter(100, 1, 2, evictions::incrementAndGet);
+        assertTrue(limiter.tryAcquire(address(1)));
+        assertTrue(limiter.tryAcquire(address(2)));
+
+        Thread.sleep(50);
+        assertTrue(limiter.tryAcquire(address(3)));
+        assertTrue(limiter.tryAcquire(address(4)));
+        assertEquals(0, evictions.get());
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(0, 1, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(Double.NaN, 1, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(1, 0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new ClientRateLimiter(1, 1, 0));
+    }
+
+    private static InetAddress address(int host) throws UnknownHostException {
+        return InetAddress.getByAddress(new byte[] {10, 0, 0, (byte) host});
+    }
+}
@@ -0,0 +1,56 @@
+package com.java.network.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *     {@link FrequencySketch}的计数、上限和周期性减半。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class FrequencySketchTest {
+
+    @Test
+    void countsIncrements() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertEquals(0, sketch.frequency(42));
+        for (int i = 1; i <= 5; i++) {
+            sketch.increment(42);
+            assertEquals(i, sketch.frequency(42));
+        }
+        assertEquals(0, sketch.frequency(43));
+    }
+
+    @Test
+    void frequencySaturatesAtFifteen() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(42);
+        }
+        assertEquals(15, sketch.frequency(42));
+    }
+
+    @Test
+    void halvesAfterSampleSize() {
+        // 最小的表有16个long，累加160次后减半。
+        FrequencySketch sketch = new FrequencySketch(16);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(42);
+        }
+        assertEquals(15, sketch.frequency(42));
+
+        int additions = 15;
+        int hash = 0;
+        while (15 == sketch.frequency(42) && additions < 1000) {
+            hash += 0x9e3779b9;
+            sketch.increment(hash);
+            additions++;
+        }
+        assertEquals(7, sketch.frequency(42));
+        assertTrue(additions <= 160, "Reset after " + additions + " increments");
+    }
+}
@@ -0,0 +1,149 @@
+package com.java.network.cache;
+
+import com.java.network.metrics.CacheMetrics;
+import com.java.network.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * <p>
+ *     {@link ResponseCache}的TinyLFU准入：空间不足时访问更频繁的新条目才能淘汰最近最少使用的条目，
+ *     替换已有的键和淘汰过期的条目不需要比较频率。
+ * </p>
+ * <p>
+ *     每段的容量只够放一个条目，测试用的键都落在同一段里。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class ResponseCacheTest {
+
+    private static final int HEAD_SIZE = 100;
+
+    private static final int BODY_SIZE = 900;
+
+    private static final long SEGMENT_BYTES = 1600;
+
+    private static int sequence;
+
+    @Test
+    void rejectsColdKeyWhenFull() {
+        String name = name();
+        ResponseCache cache = cache(name, 1, TimeUnit.MINUTES);
+        ResponseCache.Key hot = key(0);
+        ResponseCache.Key cold = key(1);
+        assertNotNull(put(cache, hot));
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(cache.get(hot));
+        }
+
+        assertNull(cache.get(cold));
+        assertNull(put(cache, cold));
+        assertNotNull(cache.get(hot));
+        assertNull(cache.get(cold));
+        assertEquals(1, metrics(name).getRejections());
+        assertEquals(1, metrics(name).getEntries());
+    }
+
+    @Test
+    void admitsKeyMoreFrequentThanVictim() {
+        String name = name();
+        ResponseCache cache = cache(name, 1, TimeUnit.MINUTES);
+        ResponseCache.Key old = key(0);
+        ResponseCache.Key popular = key(1);
+        assertNotNull(put(cache, old));
+        for (int i = 0; i < 3; i++) {
+            assertNull(cache.get(popular));
+        }
+
+        assertNotNull(put(cache, popular));
+        assertNotNull(cache.get(popular));
+        assertNull(cache.get(old));
+        assertEquals(0, metrics(name).getRejections());
+        assertEquals(1, metrics(name).getEvictions());
+    }
+
+    @Test
+    void replacesExistingKeyWithoutAdmission() {
+        String name = name();
+        ResponseCache cache = cache(name, 1, TimeUnit.MINUTES);
+        ResponseCache.Key key = key(0);
+        assertNotNull(put(cache, key, "\"v1\""));
+        CachedResponse replaced = put(cache, key, "\"v2\"");
+
+        assertNotNull(replaced);
+        assertEquals("\"v2\"", cache.get(key).etag());
+        assertEquals(1, metrics(name).getEntries());
+    }
+
+    @Test
+    void expiredEntryMakesRoomForColdKey() throws InterruptedException {
+        String name = name();
+        ResponseCache cache = cache(name, 50, TimeUnit.MILLISECONDS);
+        ResponseCache.Key hot = key(0);
+        ResponseCache.Key cold = key(1);
+        assertNotNull(put(cache, hot));
+        for (int i = 0; i < 5; i++) {
+            cache.get(hot);
+        }
+        Thread.sleep(100);
+
+        assertNotNull(put(cache, cold));
+        assertNotNull(cache.get(cold));
+        assertEquals(0, metrics(name).getRejections());
+    }
+
+    @Test
+    void rejectsEntryLargerThanSegment() {
+        String name = name();
+        ResponseCache cache = cache(name, 1, TimeUnit.MINUTES);
+        ByteBuffer body = ByteBuffer.allocate((int) SEGMENT_BYTES);
+
+        assertNull(cache.put(key(0), ByteBuffer.allocate(HEAD_SIZE), body, "\"e\""));
+        assertEquals(1, metrics(name).getRejections());
+        assertEquals(0, metrics(name).getEntries());
+    }
+
+    private static synchronized String name() {
+        return "response-cache-test-" + sequence++;
+    }
+
+    /**
+     * 段数与{@link ResponseCache}构造时的算法相同，总容量按段数放大，保证每段只放得下一个条目。
+     */
+    private static ResponseCache cache(String name, long ttl, TimeUnit unit) {
+        int segmentCount = Integer.highestOneBit(Math.min(64, Math.max(1, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+        return new ResponseCache(name, SEGMENT_BYTES * segmentCount, ttl, unit);
+    }
+
+    private static CacheMetrics metrics(String name) {
+        return MetricsRegistry.getDefault().cache(name);
+    }
+
+    /**
+     * 第n个哈希值低7位为0的键。段数不超过128，这些键总在第0段。
+     */
+    private static ResponseCache.Key key(int n) {
+        int found = -1;
+        for (int i = 0; ; i++) {
+            ResponseCache.Key key = new ResponseCache.Key("GET", "/" + i, "", true);
+            if (0 == (key.hashCode() & 127) && ++found == n) {
+                return key;
+            }
+        }
+    }
+
+    private static CachedResponse put(ResponseCache cache, ResponseCache.Key key) {
+        return put(cache, key, "\"e\"");
+    }
+
+    private static CachedResponse put(ResponseCache cache, ResponseCache.Key key, String etag) {
+        return cache.put(key, ByteBuffer.allocate(HEAD_SIZE), ByteBuffer.allocate(BODY_SIZE), etag);
+    }
+}
@@ -0,0 +1,246 @@
+package com.java.network.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *     {@link HttpParser}的增量解析：报文分多次到达、流水线上的多条报文、分块编码、超长的行和块大小，以及以关闭连接结束的响应体。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class HttpParserTest {
+
+    private static final String REQUEST = "GET /index.html HTTP/1.1\r\nHost: localhost\r\nContent-Length: 5\r\n\r\nhello";
+
+    @Test
+    void requestArrivingByteByByte() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        byte[] bytes = REQUEST.getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length - 1; i++) {
+            append(buffer, new byte[] {bytes[i]});
+            assertFalse(parser.parse(buffer), "Complete after " + (i + 1) + " bytes");
+        }
+        append(buffer, new byte[] {bytes[bytes.length - 1]});
+        assertTrue(parser.parse(buffer));
+
+        assertEquals(bytes.length, parser.messageLength());
+        assertEquals("GET", HttpParser.toString(buffer, parser.methodStart(), parser.methodEnd()));
+        assertEquals("/index.html", HttpParser.toString(buffer, parser.uriStart(), parser.uriEnd()));
+        assertEquals(2, parser.headerCount());
+        int host = parser.indexOfHeader(buffer, "host");
+        assertEquals("localhost", HttpParser.toString(buffer, parser.headerValueStart(host), parser.headerValueEnd(host)));
+        assertEquals(5, parser.contentLength());
+        assertEquals("hello", HttpParser.toString(buffer, parser.bodyStart(), parser.bodyEnd()));
+        assertTrue(parser.isKeepAlive());
+    }
+
+    @Test
+    void pipelinedRequests() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, REQUEST + "GET /second HTTP/1.1\r\nConnection: close\r\n\r\nGET /thi");
+
+        assertTrue(parser.parse(buffer));
+        assertEquals("/index.html", HttpParser.toString(buffer, parser.uriStart(), parser.uriEnd()));
+        next(buffer, parser);
+
+        assertTrue(parser.parse(buffer));
+        assertEquals("/second", HttpParser.toString(buffer, parser.uriStart(), parser.uriEnd()));
+        assertEquals(-1, parser.contentLength());
+        assertEquals(parser.bodyStart(), parser.bodyEnd());
+        assertFalse(parser.isKeepAlive());
+        next(buffer, parser);
+
+        assertFalse(parser.parse(buffer));
+        assertFalse(parser.isIdle());
+        append(buffer, "rd HTTP/1.1\r\n\r\n");
+        assertTrue(parser.parse(buffer));
+        assertEquals("/third", HttpParser.toString(buffer, parser.uriStart(), parser.uriEnd()));
+        next(buffer, parser);
+        assertTrue(parser.isIdle());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test
+    void chunkedResponseInSmallPieces() throws HttpParseException {
+        String response = "HTTP/1.1 200 OK\r\nTransfer-Encoding: gzip, chunked\r\n\r\n"
+                + "5;name=value\r\nhello\r\n6\r\n world\r\n0\r\nExpires: never\r\n\r\n";
+        HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        byte[] bytes = response.getBytes(StandardCharsets.US_ASCII);
+        boolean complete = false;
+        for (int offset = 0; offset < bytes.length; offset += 3) {
+            assertFalse(complete);
+            byte[] piece = new byte[Math.min(3, bytes.length - offset)];
+            System.arraycopy(bytes, offset, piece, 0, piece.length);
+            append(buffer, piece);
+            complete = parser.parse(buffer);
+        }
+        assertTrue(complete);
+
+        assertEquals(200, parser.statusCode());
+        assertTrue(parser.isChunked());
+        assertEquals(bytes.length, parser.messageLength());
+        assertEquals(2, parser.chunkCount());
+        assertEquals("hello", HttpParser.toString(buffer, parser.chunkStart(0), parser.chunkEnd(0)));
+        assertEquals(" world", HttpParser.toString(buffer, parser.chunkStart(1), parser.chunkEnd(1)));
+    }
+
+    @Test
+    void chunkedRequestFollowedByPipelinedRequest() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "POST /upload HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n3\r\nabc\r\n0\r\n\r\n" + REQUEST);
+
+        assertTrue(parser.parse(buffer));
+        assertEquals(1, parser.chunkCount());
+        assertEquals("abc", HttpParser.toString(buffer, parser.chunkStart(0), parser.chunkEnd(0)));
+        next(buffer, parser);
+
+        assertTrue(parser.parse(buffer));
+        assertEquals("hello", HttpParser.toString(buffer, parser.bodyStart(), parser.bodyEnd()));
+    }
+
+    @Test
+    void chunkSizeTooLarge() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\n");
+        assertFalse(parser.parse(buffer));
+
+        append(buffer, "1000000000000000\r\n");
+        HttpParseException e = assertThrows(HttpParseException.class, () -> parser.parse(buffer));
+        assertEquals("Chunk size too large", e.getMessage());
+    }
+
+    @Test
+    void malformedChunkSize() {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "POST / HTTP/1.1\r\nTransfer-Encoding: chunked\r\n\r\nzz\r\n");
+        assertThrows(HttpParseException.class, () -> parser.parse(buffer));
+    }
+
+    @Test
+    void lineTooLongBeforeLineFeedArrives() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST, 8, 32);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "GET / HTTP/1.1\r\nX-Long: ");
+        assertFalse(parser.parse(buffer));
+
+        // 还没有收到换行时就能发现这一行已经超长，不用等整行收完。
+        append(buffer, "0123456789012345678901234567890123456789");
+        HttpParseException e = assertThrows(HttpParseException.class, () -> parser.parse(buffer));
+        assertEquals("Line too long", e.getMessage());
+    }
+
+    @Test
+    void lineTooLongWithLineFeed() {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST, 8, 32);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "GET /0123456789012345678901234567890123456789 HTTP/1.1\r\n\r\n");
+        assertThrows(HttpParseException.class, () -> parser.parse(buffer));
+    }
+
+    @Test
+    void tooManyHeaders() {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST, 2, 64);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "GET / HTTP/1.1\r\nA: 1\r\nB: 2\r\nC: 3\r\n\r\n");
+        assertThrows(HttpParseException.class, () -> parser.parse(buffer));
+    }
+
+    @Test
+    void conflictingContentLength() {
+        HttpParser parser = new HttpParser(HttpParser.Type.REQUEST);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "POST / HTTP/1.1\r\nContent-Length: 5\r\nContent-Length: 6\r\n\r\n");
+        assertThrows(HttpParseException.class, () -> parser.parse(buffer));
+    }
+
+    @Test
+    void responseBodyEndsWithConnection() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "HTTP/1.0 200 OK\r\n\r\npart");
+        assertFalse(parser.parse(buffer));
+        append(buffer, " two");
+        assertFalse(parser.parse(buffer));
+        assertFalse(parser.isComplete());
+
+        assertTrue(parser.endOfInput());
+        assertTrue(parser.isComplete());
+        assertEquals("part two", HttpParser.toString(buffer, parser.bodyStart(), parser.bodyEnd()));
+        assertFalse(parser.isKeepAlive());
+    }
+
+    @Test
+    void endOfInputBeforeMessageIsComplete() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort");
+        assertFalse(parser.parse(buffer));
+        assertFalse(parser.endOfInput());
+
+        HttpParser request = new HttpParser(HttpParser.Type.REQUEST);
+        assertTrue(request.isIdle());
+        assertFalse(request.endOfInput());
+    }
+
+    @Test
+    void responseWithoutBody() throws HttpParseException {
+        HttpParser parser = new HttpParser(HttpParser.Type.RESPONSE);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.limit(0);
+        append(buffer, "HTTP/1.1 304 Not Modified\r\nContent-Length: 100\r\n\r\n");
+        assertTrue(parser.parse(buffer));
+        assertEquals(304, parser.statusCode());
+        assertEquals(parser.bodyStart(), parser.messageLength());
+    }
+
+    /**
+     * 在limit之后追加数据，position保持在报文起点。
+     */
+    private static void append(ByteBuffer buffer, byte[] bytes) {
+        int position = buffer.position();
+        buffer.position(buffer.limit());
+        buffer.limit(buffer.capacity());
+        buffer.put(bytes);
+        buffer.limit(buffer.position());
+        buffer.position(position);
+    }
+
+    private static void append(ByteBuffer buffer, String value) {
+        append(buffer, value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * 按{@link HttpParser}的约定跳过已经处理完的报文，准备解析下一条。
+     */
+    private static void next(ByteBuffer buffer, HttpParser parser) {
+        buffer.position(buffer.position() + parser.messageLength());
+        parser.reset();
+    }
+}
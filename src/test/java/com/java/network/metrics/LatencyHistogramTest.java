@@ -0,0 +1,101 @@
+package com.java.network.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *     {@link LatencyHistogram}的下标换算在段边界上的取值，以及记录后按百分位取回的误差。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void indexAtSegmentBoundaries() {
+        // 第一段精确计数。
+        assertEquals(0, LatencyHistogram.index(0));
+        assertEquals(127, LatencyHistogram.index(127));
+        assertEquals(127, LatencyHistogram.highestEquivalentValue(127));
+
+        // [128, 256)每个子桶覆盖2个数值。
+        assertEquals(128, LatencyHistogram.index(128));
+        assertEquals(128, LatencyHistogram.index(129));
+        assertEquals(129, LatencyHistogram.index(130));
+        assertEquals(129, LatencyHistogram.highestEquivalentValue(128));
+        assertEquals(191, LatencyHistogram.index(255));
+        assertEquals(255, LatencyHistogram.highestEquivalentValue(191));
+
+        // [256, 512)每个子桶覆盖4个数值。
+        assertEquals(192, LatencyHistogram.index(256));
+        assertEquals(192, LatencyHistogram.index(259));
+        assertEquals(193, LatencyHistogram.index(260));
+        assertEquals(259, LatencyHistogram.highestEquivalentValue(192));
+    }
+
+    @Test
+    void indexOfLargestValue() {
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.index(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestEquivalentValue(LatencyHistogram.BUCKET_COUNT - 1));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.index(Long.MAX_VALUE - (1L << 56) + 1));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 2, LatencyHistogram.index(Long.MAX_VALUE - (1L << 56)));
+    }
+
+    @Test
+    void bucketsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.BUCKET_COUNT; i++) {
+            long lowest = LatencyHistogram.highestEquivalentValue(i - 1) + 1;
+            long highest = LatencyHistogram.highestEquivalentValue(i);
+            assertEquals(i, LatencyHistogram.index(lowest), "Lowest value of bucket " + i);
+            assertEquals(i, LatencyHistogram.index(highest), "Highest value of bucket " + i);
+            // 相对误差不超过1/64。
+            assertTrue(highest - lowest <= lowest / 64, "Width of bucket " + i);
+        }
+    }
+
+    @Test
+    void percentileRoundTrip() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1, snapshot.getMinMicros());
+        assertEquals(1000, snapshot.getMaxMicros());
+        assertEquals(500.5, snapshot.getMeanMicros(), 1e-9);
+        for (double percentile : new double[] {1, 50, 90, 99, 99.9}) {
+            long expected = (long) Math.ceil(percentile * 10) * 1000;
+            long actual = snapshot.valueAtPercentile(percentile);
+            assertTrue(actual >= expected && actual - expected <= expected / 64,
+                    String.format("p%s: expected %d, actual %d", percentile, expected, actual));
+        }
+        assertEquals(1_000_000, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    void exactValuesInFirstSegment() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(127, 3);
+        histogram.record(1, 0);
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(4, snapshot.getCount());
+        assertEquals(0, snapshot.valueAtPercentile(25));
+        assertEquals(127, snapshot.valueAtPercentile(26));
+        assertEquals(127, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    void emptySnapshot() {
+        LatencySnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.valueAtPercentile(99));
+        assertEquals(0, snapshot.getMinMicros());
+    }
+}
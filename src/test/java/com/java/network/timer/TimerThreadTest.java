@@ -0,0 +1,93 @@
+package com.java.network.timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *     {@link TimerThread}在后台线程中执行到期的任务，可以在其他线程取消和重新调度。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class TimerThreadTest {
+
+    private TimerThread timerThread;
+
+    @BeforeEach
+    void setUp() {
+        timerThread = new TimerThread("timer-test", 10, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timerThread.close();
+    }
+
+    @Test
+    void expiresOnTimerThread() throws InterruptedException {
+        LatchTimeout timeout = new LatchTimeout();
+        long startMillis = TimingWheel.monotonicMillis();
+        timerThread.schedule(timeout, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimingWheel.monotonicMillis() - startMillis >= 50);
+        assertEquals("timer-test", timeout.threadName);
+        assertFalse(timeout.isScheduled());
+    }
+
+    @Test
+    void cancelledTimeoutNeverExpires() throws InterruptedException {
+        LatchTimeout timeout = new LatchTimeout();
+        timerThread.schedule(timeout, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(timerThread.cancel(timeout));
+        assertFalse(timerThread.cancel(timeout));
+        assertFalse(timeout.latch.await(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void rescheduleScheduledTimeout() throws InterruptedException {
+        LatchTimeout timeout = new LatchTimeout();
+        timerThread.schedule(timeout, 50, TimeUnit.MILLISECONDS);
+        timerThread.schedule(timeout, 1, TimeUnit.HOURS);
+
+        assertFalse(timeout.latch.await(300, TimeUnit.MILLISECONDS));
+        assertTrue(timeout.isScheduled());
+
+        timerThread.schedule(timeout, 10, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void multipleRoundsOnTimerThread() throws InterruptedException {
+        LatchTimeout timeout = new LatchTimeout();
+        long startMillis = TimingWheel.monotonicMillis();
+        // 64个桶一圈640毫秒，这个任务要转过一圈多才到期。
+        timerThread.schedule(timeout, 800, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.latch.await(5, TimeUnit.SECONDS));
+        assertTrue(TimingWheel.monotonicMillis() - startMillis >= 800);
+    }
+
+    private static final class LatchTimeout extends Timeout {
+
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        volatile String threadName;
+
+        @Override
+        protected void onTimeout() {
+            threadName = Thread.currentThread().getName();
+            latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.java.network.timer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * <p>
+ *     {@link TimingWheel}的调度、取消、多圈到期和重新调度。时间由测试传入，不依赖真实的等待。
+ * </p>
+ * @author zhangbin
+ * @date 2026-10-18
+ */
+class TimingWheelTest {
+
+    private static final long TICK_MILLIS = 10;
+
+    private TimingWheel timingWheel;
+
+    private long nowMillis;
+
+    @BeforeEach
+    void setUp() {
+        // 8个桶，一圈80毫秒。
+        timingWheel = new TimingWheel(TICK_MILLIS, 8);
+        nowMillis = TimingWheel.monotonicMillis();
+    }
+
+    @Test
+    void expiresNotBeforeDeadline() {
+        CountingTimeout timeout = new CountingTimeout();
+        timingWheel.schedule(timeout, 50, nowMillis);
+        assertTrue(timeout.isScheduled());
+        assertEquals(nowMillis + 50, timeout.deadlineMillis());
+        assertEquals(1, timingWheel.size());
+
+        assertEquals(0, timingWheel.expire(nowMillis + 40));
+        assertEquals(0, timeout.count);
+
+        assertEquals(1, timingWheel.expire(nowMillis + 60));
+        assertEquals(1, timeout.count);
+        assertFalse(timeout.isScheduled());
+        assertEquals(0, timingWheel.size());
+        assertEquals(-1, timingWheel.timeoutMillis(nowMillis + 60));
+    }
+
+    @Test
+    void cancelledTimeoutNeverExpires() {
+        CountingTimeout timeout = new CountingTimeout();
+        timingWheel.schedule(timeout, 30, nowMillis);
+
+        assertTrue(timingWheel.cancel(timeout));
+        assertFalse(timeout.isScheduled());
+        assertEquals(0, timingWheel.size());
+        assertFalse(timingWheel.cancel(timeout));
+
+        assertEquals(0, timingWheel.expire(nowMillis + 1000));
+        assertEquals(0, timeout.count);
+    }
+
+    @Test
+    void cancelRemovesExpiredTimeoutNotYetPolled() {
+        CountingTimeout first = new CountingTimeout();
+        CountingTimeout second = new CountingTimeout();
+        timingWheel.schedule(first, 20, nowMillis);
+        timingWheel.schedule(second, 20, nowMillis);
+        timingWheel.advance(nowMillis + 30);
+
+        assertTrue(timingWheel.cancel(first));
+        assertSame(second, timingWheel.pollExpired());
+        assertNull(timingWheel.pollExpired());
+    }
+
+    @Test
+    void expiresAfterMultipleRounds() {
+        CountingTimeout timeout = new CountingTimeout();
+        // 25个tick，超过三圈，途中会三次经过同一个桶。
+        timingWheel.schedule(timeout, 250, nowMillis);
+
+        assertEquals(0, timingWheel.expire(nowMillis + 100));
+        assertEquals(0, timingWheel.expire(nowMillis + 240));
+        assertTrue(timeout.isScheduled());
+
+        assertEquals(1, timingWheel.expire(nowMillis + 260));
+        assertEquals(1, timeout.count);
+    }
+
+    @Test
+    void multipleRoundsAdvancedTickByTick() {
+        CountingTimeout timeout = new CountingTimeout();
+        timingWheel.schedule(timeout, 250, nowMillis);
+
+        for (long millis = 0; millis <= 240; millis += TICK_MILLIS) {
+            assertEquals(0, timingWheel.expire(nowMillis + millis));
+        }
+        assertEquals(1, timingWheel.expire(nowMillis + 260));
+    }
+
+    @Test
+    void rescheduleReplacesPreviousDeadline() {
+        CountingTimeout timeout = new CountingTimeout();
+        timingWheel.schedule(timeout, 30, nowMillis);
+        timingWheel.schedule(timeout, 300, nowMillis);
+        assertEquals(1, timingWheel.size());
+        assertEquals(nowMillis + 300, timeout.deadlineMillis());
+
+        assertEquals(0, timingWheel.expire(nowMillis + 100));
+        assertTrue(timeout.isScheduled());
+
+        assertEquals(1, timingWheel.expire(nowMillis + 310));
+        assertEquals(1, timeout.count);
+    }
+
+    @Test
+    void rescheduleEarlierDeadline() {
+        CountingTimeout timeout = new CountingTimeout();
+        timingWheel.schedule(timeout, 300, nowMillis);
+        timingWheel.schedule(timeout, 30, nowMillis);
+
+        assertEquals(1, timingWheel.expire(nowMillis + 40));
+        assertEquals(0, timingWheel.expire(nowMillis + 400));
+        assertEquals(1, timeout.count);
+    }
+
+    @Test
+    void rescheduleFromCallback() {
+        TimingWheel wheel = timingWheel;
+        CountingTimeout timeout = new CountingTimeout() {
+
+            @Override
+            protected void onTimeout() {
+                super.onTimeout();
+                if (count < 3) {
+                    wheel.schedule(this, 20, deadlineMillis());
+                }
+            }
+        };
+        timingWheel.schedule(timeout, 20, nowMillis);
+
+        assertEquals(1, timingWheel.expire(nowMillis + 30));
+        assertEquals(1, timingWheel.expire(nowMillis + 60));
+        assertEquals(1, timingWheel.expire(nowMillis + 90));
+        assertEquals(0, timingWheel.expire(nowMillis + 200));
+        assertEquals(3, timeout.count);
+        assertEquals(0, timingWheel.size());
+    }
+
+    @Test
+    void throwingCallbackDoesNotStopOthers() {
+        CountingTimeout timeout = new CountingTimeout();
+        timingWheel.schedule(new Timeout() {
+
+            @Override
+            protected void onTimeout() {
+                throw new IllegalStateException("expected");
+            }
+        }, 10, nowMillis);
+        timingWheel.schedule(timeout, 10, nowMillis);
+
+        assertEquals(2, timingWheel.expire(nowMillis + 20));
+        assertEquals(1, timeout.count);
+    }
+
+    static class CountingTimeout extends Timeout {
+
+        int count;
+
+        @Override
+        protected void onTimeout() {
+            count++;
+        }
+    }
+}